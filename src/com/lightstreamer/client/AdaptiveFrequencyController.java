@@ -0,0 +1,203 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.lightstreamer.client.events.EventDispatcher;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.Number;
+
+/**
+ * Controller that adapts the max frequency requested for a {@link Subscription} to the speed
+ * of its listeners. <BR>
+ * Once configured through {@link Subscription#setAdaptiveFrequencyController(AdaptiveFrequencyController)},
+ * the controller measures the delivery lag of the events of the Subscription, that is the time spent by each
+ * event waiting to be dispatched plus the time taken by the listener to execute it. The lag is averaged
+ * over periods of one second: when the average exceeds the upper threshold, the requested frequency is halved;
+ * when it stays below the lower threshold for three consecutive periods, the frequency is raised by 25%.
+ * The frequency always stays within the bounds supplied to the constructor and after each change the
+ * measurements are ignored for two periods, to let the Server apply the new frequency before judging it. <BR>
+ * The changes are performed through {@link Subscription#setRequestedMaxFrequency(String)}, hence they only
+ * take effect when the Subscription mode is MERGE, DISTINCT or COMMAND; note that further calls to
+ * {@link Subscription#setRequestedMaxFrequency(String)} by the application are overridden by the controller.
+ * An instance can be used by one Subscription only.
+ */
+@ThreadSafe
+public class AdaptiveFrequencyController {
+
+  private static final long PERIOD_NANOS = 1000000000L;
+  private static final int RAISE_PERIODS = 3;
+  private static final int COOLDOWN_PERIODS = 2;
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final double INCREASE_FACTOR = 1.25;
+
+  private final Logger log = LogManager.getLogger(Constants.SUBSCRIPTIONS_LOG);
+
+  private final double minFrequency;
+  private final double maxFrequency;
+  private long highLagNanos = 500 * 1000000L;
+  private long lowLagNanos = 100 * 1000000L;
+
+  private Subscription subscription;
+  private double currentFrequency;
+
+  private long periodStart = 0;
+  private long lagSum = 0;
+  private long lagCount = 0;
+  private int goodPeriods = 0;
+  private int cooldown = 0;
+
+  /**
+   * Creates a controller which keeps the requested frequency between the specified bounds.
+   * The frequency initially requested is the upper bound.
+   *
+   * @param minFrequency the lowest frequency (in updates per second) that can be requested.
+   * @param maxFrequency the highest frequency (in updates per second) that can be requested.
+   *
+   * @throws IllegalArgumentException if a bound is not a positive number or if the lower bound
+   * is greater than the upper bound.
+   */
+  public AdaptiveFrequencyController(double minFrequency, double maxFrequency) {
+    Number.verifyPositive(minFrequency, Number.DONT_ACCEPT_ZERO);
+    Number.verifyPositive(maxFrequency, Number.DONT_ACCEPT_ZERO);
+    if (minFrequency > maxFrequency) {
+      throw new IllegalArgumentException("The lower bound can't be greater than the upper bound");
+    }
+    this.minFrequency = minFrequency;
+    this.maxFrequency = maxFrequency;
+    this.currentFrequency = maxFrequency;
+  }
+
+  /**
+   * Setter method that configures the delivery lag thresholds. The gap between the two thresholds
+   * avoids oscillations of the requested frequency.
+   *
+   * @default 500 milliseconds for the upper threshold and 100 milliseconds for the lower threshold.
+   *
+   * @lifecycle This method can be called at any time.
+   *
+   * @throws IllegalArgumentException if a threshold is not a positive number or if the lower threshold
+   * is greater than the upper threshold.
+   *
+   * @param lowerAboveMillis the average lag (in milliseconds) above which the frequency is lowered.
+   * @param raiseBelowMillis the average lag (in milliseconds) below which the frequency is raised.
+   */
+  public synchronized void setLagThresholds(long lowerAboveMillis, long raiseBelowMillis) {
+    Number.verifyPositive(lowerAboveMillis, Number.DONT_ACCEPT_ZERO);
+    Number.verifyPositive(raiseBelowMillis, Number.DONT_ACCEPT_ZERO);
+    if (raiseBelowMillis > lowerAboveMillis) {
+      throw new IllegalArgumentException("The lower threshold can't be greater than the upper threshold");
+    }
+    this.highLagNanos = lowerAboveMillis * 1000000L;
+    this.lowLagNanos = raiseBelowMillis * 1000000L;
+  }
+
+  /**
+   * Inquiry method that gets the frequency currently requested by the controller.
+   *
+   * @lifecycle This method can be called at any time.
+   *
+   * @return the frequency (in updates per second) currently requested.
+   */
+  public synchronized double getCurrentFrequency() {
+    return currentFrequency;
+  }
+
+  /**
+   * Binds the controller to the Subscription and returns the observer of its events.
+   */
+  synchronized EventDispatcher.DeliveryObserver bind(Subscription sub) {
+    if (subscription != null && subscription != sub) {
+      throw new IllegalStateException("The controller is already used by another Subscription");
+    }
+    subscription = sub;
+    currentFrequency = maxFrequency;
+    periodStart = 0;
+    lagSum = 0;
+    lagCount = 0;
+    goodPeriods = 0;
+    cooldown = 0;
+    return new EventDispatcher.DeliveryObserver() {
+      @Override
+      public void onEventDelivered(long queueNanos, long executionNanos) {
+        AdaptiveFrequencyController.this.onEventDelivered(queueNanos, executionNanos);
+      }
+    };
+  }
+
+  synchronized void unbind(Subscription sub) {
+    if (subscription == sub) {
+      subscription = null;
+    }
+  }
+
+  /**
+   * Collects a measurement; invoked on the events thread.
+   */
+  void onEventDelivered(long queueNanos, long executionNanos) {
+    Subscription target;
+    double frequency;
+    synchronized (this) {
+      long now = System.nanoTime();
+      if (periodStart == 0) {
+        periodStart = now;
+      }
+      lagSum += queueNanos + executionNanos;
+      lagCount++;
+      if (now - periodStart < PERIOD_NANOS) {
+        return;
+      }
+      long avgLag = lagSum / lagCount;
+      periodStart = now;
+      lagSum = 0;
+      lagCount = 0;
+
+      if (cooldown > 0) {
+        cooldown--;
+        return;
+      }
+      frequency = currentFrequency;
+      if (avgLag > highLagNanos) {
+        goodPeriods = 0;
+        frequency = Math.max(minFrequency, currentFrequency * DECREASE_FACTOR);
+      } else if (avgLag < lowLagNanos) {
+        if (++goodPeriods >= RAISE_PERIODS) {
+          goodPeriods = 0;
+          frequency = Math.min(maxFrequency, currentFrequency * INCREASE_FACTOR);
+        }
+      } else {
+        goodPeriods = 0;
+      }
+      if (frequency == currentFrequency || subscription == null) {
+        return;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Average delivery lag " + (avgLag / 1000000) + "ms: requested frequency changed from " + currentFrequency + " to " + frequency);
+      }
+      currentFrequency = frequency;
+      cooldown = COOLDOWN_PERIODS;
+      target = subscription;
+    }
+    // the Subscription lock is taken outside of the controller lock
+    try {
+      target.setRequestedMaxFrequency(String.valueOf(frequency));
+    } catch (RuntimeException e) {
+      log.warn("Cannot change the requested frequency: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Extension of {@link SubscriptionListener} that receives the updates in bulk. <BR>
+ * When a listener implementing this interface is added through {@link Subscription#addListener(SubscriptionListener)},
+ * {@link SubscriptionListener#onItemUpdate(ItemUpdate)} is not called: the updates are collected while the library
+ * processes the data received from the Server and are notified together through {@link #onItemUpdates(List)}.
+ * Moreover, the snapshot of each item subscribed to in DISTINCT or COMMAND mode is notified as a whole through
+ * {@link #onSnapshot(String, int, List)}, right before {@link SubscriptionListener#onEndOfSnapshot(String, int)}. <BR>
+ * The order of the notifications is preserved: all the updates are notified before any subsequent event
+ * of the Subscription. <BR>
+ * When the listener is added through {@link Subscription#addListener(SubscriptionListener, UpdateFilter)},
+ * the updates are notified one by one, as for any {@link SubscriptionListener}; when it is added through
+ * {@link Subscription#addSampledListener(SubscriptionListener)}, the updates of each interval are notified
+ * through {@link #onItemUpdates(List)}.
+ */
+public interface BatchSubscriptionListener extends SubscriptionListener {
+
+  /**
+   * Event handler that is called by Lightstreamer to notify a sequence of updates, in the order in which
+   * they were received. The updates may pertain to different items.
+   *
+   * @param itemUpdates an immutable list of the updates (never empty).
+   */
+  void onItemUpdates(@Nonnull List<ItemUpdate> itemUpdates);
+
+  /**
+   * Event handler that is called by Lightstreamer to notify all the snapshot updates of an item subscribed
+   * to in DISTINCT or COMMAND mode, when the end of the snapshot is received. The call is followed by
+   * {@link SubscriptionListener#onEndOfSnapshot(String, int)} and is skipped if the snapshot is empty. <BR>
+   * Note that the snapshot updates received in MERGE mode are notified through {@link #onItemUpdates(List)}.
+   *
+   * @param itemName name of the involved item. If the Subscription was initialized using an "Item Group" then a
+   *        null value is supplied.
+   * @param itemPos 1-based position of the item within the "Item List" or "Item Group".
+   * @param itemUpdates an immutable list of the snapshot updates, in the order in which they were received.
+   */
+  void onSnapshot(@Nullable String itemName, int itemPos, @Nonnull List<ItemUpdate> itemUpdates);
+}
@@ -0,0 +1,328 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Sorted, incrementally maintained view over the keys of a COMMAND {@link Subscription}. <BR>
+ * A view is obtained through {@link Subscription#sortedView(int, Comparator)} and contains a {@link Row}
+ * for each key currently present in the Subscription (for any of its items), ordered by the value
+ * of a chosen field. The view is updated by the library upon each ADD, UPDATE and DELETE command,
+ * before the related {@link SubscriptionListener#onItemUpdate} event is notified, with a cost
+ * that is logarithmic in the number of keys; hence listeners no longer need to keep and sort
+ * their own copy of the table. <BR>
+ * All the inquiry methods can be called from any thread without locking. The view is weakly
+ * consistent: a reader concurrent with an update may see the updated row either in its old or
+ * in its new position (and, for a very short time, in both), but never a partially updated row.
+ */
+public class CommandSortedView {
+
+  /**
+   * A comparator that orders field values as decimal numbers. Values that are null or cannot
+   * be parsed as numbers are placed after all the numeric ones, in lexicographic order.
+   */
+  public static final Comparator<String> NUMERIC_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String v1, String v2) {
+      Double d1 = toDouble(v1);
+      Double d2 = toDouble(v2);
+      if (d1 != null && d2 != null) {
+        return d1.compareTo(d2);
+      } else if (d1 != null) {
+        return -1;
+      } else if (d2 != null) {
+        return 1;
+      } else if (v1 == null || v2 == null) {
+        return v1 == null ? (v2 == null ? 0 : 1) : -1;
+      }
+      return v1.compareTo(v2);
+    }
+
+    private Double toDouble(String value) {
+      if (value == null) {
+        return null;
+      }
+      try {
+        return Double.valueOf(value);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  };
+
+  private final int fieldPos;
+  private final Comparator<String> comparator;
+
+  private final ConcurrentSkipListMap<SortKey,Row> sorted;
+  private final ConcurrentHashMap<String,Row> byKey = new ConcurrentHashMap<String,Row>();
+
+  CommandSortedView(int fieldPos, final Comparator<String> comparator) {
+    this.fieldPos = fieldPos;
+    this.comparator = comparator;
+    this.sorted = new ConcurrentSkipListMap<SortKey,Row>(new Comparator<SortKey>() {
+      @Override
+      public int compare(SortKey k1, SortKey k2) {
+        int res = compareValues(k1.value, k2.value);
+        if (res != 0) {
+          return res;
+        }
+        //ties are broken on item and key, which are unique
+        if (k1.itemPos != k2.itemPos) {
+          return k1.itemPos < k2.itemPos ? -1 : 1;
+        }
+        return k1.key.compareTo(k2.key);
+      }
+    });
+  }
+
+  /**
+   * Inquiry method that gets the 1-based position of the field the rows are sorted by.
+   * @return the position of the sort field.
+   */
+  public int getFieldPos() {
+    return this.fieldPos;
+  }
+
+  /**
+   * Inquiry method that gets the number of keys in the view.
+   * @return the current number of rows.
+   */
+  public int size() {
+    return this.byKey.size();
+  }
+
+  /**
+   * Returns the first row of the view, i.e. the row with the lowest value of the sort field.
+   * @return the first row, or null if the view is empty.
+   */
+  @Nullable
+  public Row first() {
+    Map.Entry<SortKey,Row> entry = this.sorted.firstEntry();
+    return entry == null ? null : entry.getValue();
+  }
+
+  /**
+   * Returns the last row of the view, i.e. the row with the highest value of the sort field.
+   * @return the last row, or null if the view is empty.
+   */
+  @Nullable
+  public Row last() {
+    Map.Entry<SortKey,Row> entry = this.sorted.lastEntry();
+    return entry == null ? null : entry.getValue();
+  }
+
+  /**
+   * Returns the first rows of the view, in ascending order of the sort field.
+   * @param n the maximum number of rows to return.
+   * @return a list of at most n rows.
+   */
+  @Nonnull
+  public List<Row> getTop(int n) {
+    return collect(this.sorted.values().iterator(), n);
+  }
+
+  /**
+   * Returns the last rows of the view, in descending order of the sort field.
+   * @param n the maximum number of rows to return.
+   * @return a list of at most n rows.
+   */
+  @Nonnull
+  public List<Row> getBottom(int n) {
+    return collect(this.sorted.descendingMap().values().iterator(), n);
+  }
+
+  /**
+   * Returns the rows whose sort field value lies within the specified range, in ascending order.
+   * @param fromValue the lowest value (inclusive), or null for no lower bound.
+   * @param toValue the highest value (exclusive), or null for no upper bound.
+   * @return the rows in the range.
+   */
+  @Nonnull
+  public List<Row> getRange(@Nullable String fromValue, @Nullable String toValue) {
+    ConcurrentNavigableMap<SortKey,Row> range = this.sorted;
+    if (fromValue != null) {
+      range = range.tailMap(SortKey.lowest(fromValue), true);
+    }
+    if (toValue != null) {
+      range = range.headMap(SortKey.lowest(toValue), false);
+    }
+    return collect(range.values().iterator(), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns all the rows of the view, in ascending order of the sort field.
+   * @return the rows of the view.
+   */
+  @Nonnull
+  public List<Row> getAll() {
+    return collect(this.sorted.values().iterator(), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the row of the specified key.
+   * @param itemPos the 1-based position of the item the key belongs to.
+   * @param key the value of the key field.
+   * @return the row, or null if the key is not in the view.
+   */
+  @Nullable
+  public Row get(int itemPos, @Nonnull String key) {
+    return this.byKey.get(itemPos + " " + key);
+  }
+
+  //the following methods are invoked by the Subscription on the session thread
+
+  void onUpdate(int itemPos, String extendedKey, String key, ArrayList<String> values, boolean deleted) {
+    Row old = this.byKey.get(extendedKey);
+    if (deleted) {
+      if (old != null) {
+        this.byKey.remove(extendedKey);
+        this.sorted.remove(old.sortKey);
+      }
+      return;
+    }
+
+    String value = this.fieldPos <= values.size() ? values.get(this.fieldPos-1) : null;
+    Row row = new Row(new SortKey(value, itemPos, key), values.toArray(new String[values.size()]));
+    //insert before removing, so that readers never miss the key
+    this.sorted.put(row.sortKey, row);
+    this.byKey.put(extendedKey, row);
+    if (old != null && this.sorted.comparator().compare(old.sortKey, row.sortKey) != 0) {
+      this.sorted.remove(old.sortKey);
+    }
+  }
+
+  void clearItem(int itemPos) {
+    Iterator<Row> rows = this.byKey.values().iterator();
+    while (rows.hasNext()) {
+      Row row = rows.next();
+      if (row.sortKey.itemPos == itemPos) {
+        rows.remove();
+        this.sorted.remove(row.sortKey);
+      }
+    }
+  }
+
+  void clear() {
+    this.byKey.clear();
+    this.sorted.clear();
+  }
+
+  private int compareValues(String v1, String v2) {
+    return this.comparator.compare(v1, v2);
+  }
+
+  private static List<Row> collect(Iterator<Row> rows, int n) {
+    ArrayList<Row> res = new ArrayList<Row>(Math.min(n, 16));
+    while (res.size() < n && rows.hasNext()) {
+      res.add(rows.next());
+    }
+    return res;
+  }
+
+  /**
+   * Immutable snapshot of the field values of a key at the time of its last update.
+   */
+  public static class Row {
+
+    private final SortKey sortKey;
+    private final String[] values;
+
+    Row(SortKey sortKey, String[] values) {
+      this.sortKey = sortKey;
+      this.values = values;
+    }
+
+    /**
+     * Inquiry method that gets the position of the item the key belongs to.
+     * @return the 1-based item position.
+     */
+    public int getItemPos() {
+      return this.sortKey.itemPos;
+    }
+
+    /**
+     * Inquiry method that gets the value of the key field.
+     * @return the key.
+     */
+    @Nonnull
+    public String getKey() {
+      return this.sortKey.key;
+    }
+
+    /**
+     * Inquiry method that gets the value of the field the view is sorted by.
+     * @return the value of the sort field (possibly null).
+     */
+    @Nullable
+    public String getSortValue() {
+      return this.sortKey.value;
+    }
+
+    /**
+     * Returns the value of the specified field.
+     * @param fieldPos the 1-based position of the field.
+     * @throws IllegalArgumentException if the specified field position is out of bounds.
+     * @return the value of the field (possibly null).
+     */
+    @Nullable
+    public String getValue(int fieldPos) {
+      if (fieldPos < 1 || fieldPos > this.values.length) {
+        throw new IllegalArgumentException("the specified field position is out of bounds");
+      }
+      return this.values[fieldPos-1];
+    }
+
+    /**
+     * Inquiry method that gets the number of fields of the row.
+     * @return the number of fields.
+     */
+    public int getFieldsCount() {
+      return this.values.length;
+    }
+  }
+
+  private static class SortKey {
+
+    final String value;
+    final int itemPos;
+    final String key;
+
+    SortKey(String value, int itemPos, String key) {
+      this.value = value;
+      this.itemPos = itemPos;
+      this.key = key;
+    }
+
+    /**
+     * Returns a bound lower than any stored key with the specified value
+     * (no item can have a non-positive position).
+     */
+    static SortKey lowest(String value) {
+      return new SortKey(value, Integer.MIN_VALUE, "");
+    }
+  }
+}
@@ -15,6 +15,9 @@
 
 package com.lightstreamer.client;
 
+import java.util.List;
+
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.lightstreamer.client.session.InternalConnectionDetails;
@@ -121,6 +124,56 @@ public class ConnectionDetails {
     this.internal.setServerAddress(serverAddress);
   }
 
+  /**
+   * Inquiry method that gets the configured addresses of the Lightstreamer Servers that are equivalent
+   * to the one configured through {@link #setServerAddress(String)}.
+   *
+   * @return an unmodifiable list of addresses, possibly empty.
+   * @see #setAlternativeServerAddresses(List)
+   */
+  @Nonnull
+  public synchronized List<String> getAlternativeServerAddresses() {
+    return this.internal.getAlternativeServerAddresses();
+  }
+
+  /**
+   * Setter method that sets the addresses of other Lightstreamer Servers that are equivalent to the one
+   * configured through {@link #setServerAddress(String)}, for instance the nodes of a cluster deployed in
+   * different regions. <BR>
+   * When alternative addresses are configured, each new streaming session is requested to several Servers,
+   * "happy eyeballs" style: the request is first sent to the Server that was the fastest in establishing
+   * the previous sessions; then, until a session is established, it is sent to the next Server every
+   * 250 milliseconds, or as soon as the previous attempt fails. The first session established is used and
+   * the other ones are closed. The time taken by each Server to establish a session is measured,
+   * and failures are penalized, so that the later connections are biased towards the fastest healthy Server;
+   * the measures are shared by all the LightstreamerClient instances in the JVM. <BR>
+   * Note that the recovery of a session and the changes of transport always involve the Server of the
+   * current session only, whereas polling sessions are always requested to the Server configured through
+   * {@link #setServerAddress(String)}.
+   *
+   * @general_edition_note Server Clustering is an optional feature, available depending on Edition and License Type.
+   * To know what features are enabled by your license, please see the License tab of the Monitoring Dashboard (by default,
+   * available at /dashboard).
+   *
+   * @default an empty list.
+   *
+   * @lifecycle This method can be called at any time. If called while connected, it will be applied when the next
+   * session creation request is issued.
+   *
+   * @notification A change to this setting will be notified through a call to
+   * {@link ClientListener#onPropertyChange} with argument "alternativeServerAddresses" on any
+   * ClientListener listening to the related LightstreamerClient.
+   *
+   * @param serverAddresses The full addresses of the alternative Lightstreamer Servers, in the same form
+   * required by {@link #setServerAddress(String)}. A null value or an empty list can be used to only connect
+   * to the Server configured through {@link #setServerAddress(String)}.
+   *
+   * @throws IllegalArgumentException if any of the given addresses is not valid.
+   */
+  public synchronized void setAlternativeServerAddresses(@Nullable List<String> serverAddresses) {
+    this.internal.setAlternativeServerAddresses(serverAddresses);
+  }
+
   /**
    * Inquiry method that gets the username to be used for the authentication on Lightstreamer Server when 
    * initiating the session.
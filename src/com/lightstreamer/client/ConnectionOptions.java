@@ -103,6 +103,26 @@ public class ConnectionOptions {
   public synchronized String getForcedTransport() {
     return this.internal.getForcedTransport();
   }
+  /**
+   * Inquiry method that gets the address of the Server on which a hot-standby session is kept (if any).
+   *
+   * @return The address of the Server used for the hot-standby session, or null.
+   * @see #setHotStandbyServerAddress(String)
+   */
+  @Nullable
+  public synchronized String getHotStandbyServerAddress() {
+    return this.internal.getHotStandbyServerAddress();
+  }
+  /**
+   * Inquiry method that gets the maximum number of control requests that can be on the wire at the
+   * same time, when the session is running over HTTP.
+   *
+   * @return The maximum number of concurrent control connections.
+   * @see #setHttpControlConcurrency(int)
+   */
+  public synchronized int getHttpControlConcurrency() {
+    return this.internal.getHttpControlConcurrency();
+  }
   /**
    * Inquiry method that gets the Map object containing the extra headers to be sent to the server.
    *
@@ -217,6 +237,15 @@ public class ConnectionOptions {
   public synchronized long getRetryDelay() {
     return this.internal.getRetryDelay();
   }
+  /**
+   * Inquiry method that gets the kind of random jitter applied to the time to wait before trying a new connection.
+   *
+   * @return the kind of jitter: "NONE", "FULL" or "DECORRELATED".
+   * @see #setRetryDelayJitter(String)
+   */
+  public synchronized @Nonnull String getRetryDelayJitter() {
+    return this.internal.getRetryDelayJitter();
+  }
   /**
    * Inquiry method that gets the reverse-heartbeat interval expressed in milliseconds.
    * A 0 value is possible, meaning that the mechanism is disabled.
@@ -276,6 +305,16 @@ public class ConnectionOptions {
   public synchronized boolean isHttpExtraHeadersOnSessionCreationOnly() {
     return this.internal.isHttpExtraHeadersOnSessionCreationOnly();
   }
+  /**
+   * Inquiry method that checks if the client prepares in advance the reopening of a stream connection 
+   * whose content length is about to be exhausted.
+   *
+   * @return Whether the predictive bind is enabled or not.
+   * @see #setPredictiveBindEnabled(boolean)
+   */
+  public synchronized boolean isPredictiveBindEnabled() {
+    return this.internal.isPredictiveBindEnabled();
+  }
   /**
    * Inquiry method that checks if the client is going to ignore the server instance address that 
    * will possibly be sent by the server.
@@ -295,6 +334,15 @@ public class ConnectionOptions {
   public synchronized boolean isSlowingEnabled() {
     return this.internal.isSlowingEnabled();
   }
+  /**
+   * Inquiry method that checks if the candidate transports are probed concurrently when a connection is requested.
+   *
+   * @return Whether the transport probing is enabled or not.
+   * @see #setTransportProbingEnabled(boolean)
+   */
+  public synchronized boolean isTransportProbingEnabled() {
+    return this.internal.isTransportProbingEnabled();
+  }
   
   /**
    * @deprecated <b>The method is deprecated and it has no effect.
@@ -444,6 +492,72 @@ public class ConnectionOptions {
   public synchronized void setForcedTransport(@Nullable String forcedTransport) {
     this.internal.setForcedTransport(forcedTransport);
   }
+  /**
+   * Setter method that enables the hot-standby mode, by setting the address of an alternate Server on which
+   * a second, lightweight session is kept open while the client is connected. <BR>
+   * The hot-standby session is created as soon as the main session is bound; it carries no Subscriptions and
+   * no messages, hence its only traffic are the keepalives. When the main session fails, instead of recovering it
+   * or creating a new session from scratch, the client promotes the hot-standby session, which is already
+   * established, to main session and immediately issues all the Subscriptions and the pending messages on it;
+   * a new hot-standby session is then opened on the Server of the failed session. Throughout the failover the
+   * status notified through {@link ClientListener#onStatusChange} stays "CONNECTED" (possibly with a different
+   * transport), without any intermediate "DISCONNECTED" or "CONNECTING" status, whereas the new session
+   * is notified through {@link ClientListener#onPropertyChange} with argument "sessionId". <BR>
+   * If the hot-standby session is not established when the main session fails, the usual recovery and
+   * reconnection mechanisms apply. <BR>
+   * The alternate Server should belong to the same cluster as the Server configured through
+   * {@link ConnectionDetails#setServerAddress(String)}, or at least expose the same Adapter Set, because the
+   * hot-standby session is created with the same Adapter Set, user and password as the main one.
+   *
+   * @general_edition_note Server Clustering is an optional feature, available depending on Edition and License Type.
+   * To know what features are enabled by your license, please see the License tab of the Monitoring Dashboard (by default,
+   * available at /dashboard).
+   *
+   * @default null (meaning that the hot-standby mode is disabled).
+   *
+   * @lifecycle This method can be called at any time. If called while connected, it will be applied when the
+   * main session is bound again or a new session is created.
+   *
+   * @notification A change to this setting will be notified through a call to
+   * {@link ClientListener#onPropertyChange} with argument "hotStandbyServerAddress" on any
+   * ClientListener listening to the related LightstreamerClient.
+   *
+   * @param hotStandbyServerAddress The full address of the alternate Lightstreamer Server, in the same form
+   * required by {@link ConnectionDetails#setServerAddress(String)}, or null to disable the hot-standby mode.
+   *
+   * @throws IllegalArgumentException if the given address is not valid.
+   */
+  public synchronized void setHotStandbyServerAddress(@Nullable String hotStandbyServerAddress) {
+    this.internal.setHotStandbyServerAddress(hotStandbyServerAddress);
+  }
+  /**
+   * Setter method that sets the maximum number of control requests (subscriptions, unsubscriptions,
+   * messages, bandwidth changes) that the library is allowed to have on the wire at the same time
+   * when the session is running over HTTP; each one uses its own connection. With the default
+   * setting a new batch of control requests is only sent after the response to the previous one
+   * has been received, which, on slow networks, may delay the subscriptions issued in a burst. <BR>
+   * Regardless of this setting, messages are always sent one batch at a time, so as to preserve
+   * their order, and a request pertaining to a Subscription is never sent while a previous request
+   * for the same Subscription is still pending. <BR>
+   * The setting is ignored when the session is running over WebSocket, as in that case all the
+   * control requests share the same connection and are never kept waiting.
+   *
+   * @default 1
+   *
+   * @lifecycle This value can be set and changed at any time: the supplied value will be taken into
+   * account upon the next control request.
+   *
+   * @notification A change to this setting will be notified through a call to
+   * {@link ClientListener#onPropertyChange} with argument "httpControlConcurrency" on any
+   * ClientListener listening to the related LightstreamerClient.
+   *
+   * @param httpControlConcurrency The maximum number of concurrent control connections.
+   *
+   * @throws IllegalArgumentException if a negative or zero value is configured
+   */
+  public synchronized void setHttpControlConcurrency(int httpControlConcurrency) {
+    this.internal.setHttpControlConcurrency(httpControlConcurrency);
+  }
   /**
    * Setter method that enables/disables the setting of extra HTTP headers to all the request performed to the Lightstreamer 
    * server by the client. <BR>
@@ -615,6 +729,29 @@ public class ConnectionOptions {
   public synchronized void setPollingInterval(long pollingInterval) {
     this.internal.setPollingInterval(pollingInterval);
   }
+  /**
+   * Setter method that turns on or off the preparation in advance of the bind connections that follow the exhaustion 
+   * of the content length of a stream connection (see {@link #setContentLength(long)}). <BR>
+   * When enabled, the client keeps track of the bytes received on the stream connection and, when they approach 
+   * the content length, it opens in advance a socket towards the Server, so that the new bind connection can be 
+   * sent as soon as the current one is closed, without waiting for the connection (and possibly TLS) handshake. <BR>
+   * NOTE that this setting only applies to the "HTTP-STREAMING" case (i.e. not to WebSockets) and only has effect
+   * if the HTTP transport keeps a pool of sockets, as the default one does; the socket is subject to the idle timeout 
+   * of the pool (see {@link LightstreamerClient#setHttpPoolIdleTimeout(long)}).
+   * 
+   * @default false.
+   * 
+   * @lifecycle This method can be called at any time: the supplied value will be used for the next stream connections.
+   * 
+   * @notification A change to this setting will be notified through a call to 
+   * {@link ClientListener#onPropertyChange} with argument "predictiveBindEnabled" on any 
+   * ClientListener listening to the related LightstreamerClient.
+   * 
+   * @param predictiveBindEnabled true or false, to enable or disable the preparation in advance of the bind connections.
+   */
+  public synchronized void setPredictiveBindEnabled(boolean predictiveBindEnabled) {
+    this.internal.setPredictiveBindEnabled(predictiveBindEnabled);
+  }
   /**
    * Setter method that sets the time the client, after entering "STALLED" status,
    * is allowed to keep waiting for a keepalive packet or any data on a stream connection,
@@ -692,6 +829,38 @@ public class ConnectionOptions {
   public synchronized void setRetryDelay(long retryDelay) {
     this.internal.setRetryDelay(retryDelay);
   }
+  /**
+   * Setter method that sets a random jitter on the time to wait before trying a new connection to the Server,
+   * as determined by {@link #setRetryDelay(long)} and by the subsequent increases of the delay.<BR>
+   * Without jitter, many clients that lose their connection at the same time, for instance because a Server
+   * is restarted, all retry at the same times, which may overload the Server again. The possible values are:
+   * <ul>
+   * <li>"NONE": the delay is applied as is;</li>
+   * <li>"FULL": a random time between 0 and the current delay is waited;</li>
+   * <li>"DECORRELATED": a random time between the configured retry delay and three times the previously
+   * waited time is waited, within the maximum delay of 60 seconds.</li>
+   * </ul>
+   * Note that the jitter does not affect the timeouts on unresponsive connections.
+   * See also {@link LightstreamerClient#setSessionAttemptRate(double)} to pace the attempts
+   * of all the LightstreamerClient instances in the JVM.
+   *
+   * @default "NONE".
+   *
+   * @lifecycle This value can be set and changed at any time; it is applied to the next connection attempts.
+   *
+   * @notification A change to this setting will be notified through a call to 
+   * {@link ClientListener#onPropertyChange} with argument "retryDelayJitter" on any 
+   * ClientListener listening to the related LightstreamerClient.
+   *
+   * @param jitter The kind of jitter: "NONE", "FULL" or "DECORRELATED".
+   *
+   * @throws IllegalArgumentException if the given value is not in the list of the admitted ones.
+   *
+   * @see #setRetryDelay(long)
+   */
+  public synchronized void setRetryDelayJitter(@Nonnull String jitter) {
+    this.internal.setRetryDelayJitter(jitter);
+  }
   /**
    * Setter method that enables/disables the reverse-heartbeat mechanism by setting the
    * heartbeat interval. If the given value (expressed in milliseconds) equals 0 then the reverse-heartbeat mechanism 
@@ -794,6 +963,36 @@ public class ConnectionOptions {
   public synchronized void setSlowingEnabled(boolean slowingEnabled) {
     this.internal.setSlowingEnabled(slowingEnabled);
   }
+  /**
+   * Setter method that turns on or off the concurrent probing of the transports tried by the Stream-Sense algorithm. <BR>
+   * Normally, the Stream-Sense algorithm tries Streaming over WebSocket, then Streaming over HTTP and then Polling 
+   * over HTTP, each one after the previous one has failed; behind proxies that block or buffer the connections, 
+   * this may take several timeouts. When the probing is enabled, the first session requested by 
+   * {@link LightstreamerClient#connect} is opened on the first transport and, at the same time, a Streaming over HTTP 
+   * session and a Polling over HTTP session are requested too. The session on the most preferred transport that works 
+   * is kept and the others are closed; a less preferred transport is only chosen if the more preferred ones have failed 
+   * or if they have not succeeded within a short time after it. If Polling is chosen, the session is then requested 
+   * again over Polling. <BR>
+   * The outcome is kept (for the lifetime of the JVM) for the current Server address, proxy and local network addresses, 
+   * so that the next connections in the same environment go straight to the chosen transport; the outcome is forgotten 
+   * as soon as the chosen transport fails to open a session.
+   * <BR>The probing is not performed when the transport is forced (see {@link #setForcedTransport(String)}).
+   * 
+   * @default false.
+   * 
+   * @lifecycle This setting should be performed before calling the {@link LightstreamerClient#connect} method. 
+   * However, the value can be changed at any time: the supplied value will be used for the next call to 
+   * {@link LightstreamerClient#connect}.
+   * 
+   * @notification A change to this setting will be notified through a call to 
+   * {@link ClientListener#onPropertyChange} with argument "transportProbingEnabled" on any 
+   * ClientListener listening to the related LightstreamerClient.
+   * 
+   * @param transportProbingEnabled true or false, to enable or disable the concurrent probing of the transports.
+   */
+  public synchronized void setTransportProbingEnabled(boolean transportProbingEnabled) {
+    this.internal.setTransportProbingEnabled(transportProbingEnabled);
+  }
   /**
    * Setter method that sets the extra time the client is allowed to wait when an expected keepalive packet has not been 
    * received on a stream connection (and no actual data has arrived), before entering the "STALLED" status.
@@ -98,7 +98,7 @@ public /* @exclude */ class Constants {
   public static final String ADD = "ADD";
   
   /**
-   * Number of milliseconds after which an idle socket is closed.
+   * Default number of milliseconds after which an idle socket is closed.
    */
   public static final long CLOSE_SOCKET_TIMEOUT_MILLIS = 5000;
   
@@ -0,0 +1,54 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+/**
+ * Handle to a field of a {@link Subscription}, obtained through {@link Subscription#getFieldRef(String)}. <BR>
+ * The handle carries the position of the field, resolved once, so that the accessors of {@link ItemUpdate}
+ * which take a FieldRef don't need to look up the field name on each call.
+ */
+public final class FieldRef {
+
+  private final String name;
+  private final int pos;
+
+  FieldRef(String name, int pos) {
+    this.name = name;
+    this.pos = pos;
+  }
+
+  /**
+   * Inquiry method that gets the name of the field.
+   * @return the field name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Inquiry method that gets the position of the field.
+   * @return the 1-based position of the field within the "Field List" (the second-level fields
+   * follow the first-level ones).
+   */
+  public int getPos() {
+    return pos;
+  }
+
+  @Override
+  public String toString() {
+    return name + "@" + pos;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Snapshot of the state of the pool of the sockets that the library keeps open towards a
+ * Server address, as returned by {@link LightstreamerClient#getHttpPoolStatistics()}. <BR>
+ * The pools are shared by all the LightstreamerClient instances. The counters are cumulative
+ * since the creation of the pool.
+ */
+public class HttpPoolStatistics {
+
+  private final String host;
+  private final int port;
+  private final boolean secure;
+  private final int openConnections;
+  private final int idleConnections;
+  private final int pendingAcquires;
+  private final long createdConnections;
+  private final long evictedConnections;
+  private final long failedHealthChecks;
+  private final long tlsHandshakes;
+  private final long tlsResumedHandshakes;
+
+  public /* @exclude */ HttpPoolStatistics(String host, int port, boolean secure, int openConnections, int idleConnections,
+      int pendingAcquires, long createdConnections, long evictedConnections, long failedHealthChecks,
+      long tlsHandshakes, long tlsResumedHandshakes) {
+    this.host = host;
+    this.port = port;
+    this.secure = secure;
+    this.openConnections = openConnections;
+    this.idleConnections = idleConnections;
+    this.pendingAcquires = pendingAcquires;
+    this.createdConnections = createdConnections;
+    this.evictedConnections = evictedConnections;
+    this.failedHealthChecks = failedHealthChecks;
+    this.tlsHandshakes = tlsHandshakes;
+    this.tlsResumedHandshakes = tlsResumedHandshakes;
+  }
+
+  /**
+   * Inquiry method that gets the host name of the Server address.
+   * @return the host name.
+   */
+  @Nonnull
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * Inquiry method that gets the port of the Server address.
+   * @return the port.
+   */
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * Inquiry method that checks whether the sockets are TLS sockets.
+   * @return true if the sockets are secure.
+   */
+  public boolean isSecure() {
+    return secure;
+  }
+
+  /**
+   * Inquiry method that gets the number of sockets currently open or being opened,
+   * including the ones in use by a WebSocket.
+   * @return the number of open sockets.
+   */
+  public int getOpenConnections() {
+    return openConnections;
+  }
+
+  /**
+   * Inquiry method that gets the number of sockets currently kept in the pool, waiting to be reused.
+   * @return the number of idle sockets.
+   */
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  /**
+   * Inquiry method that gets the number of requests currently waiting for a socket because
+   * the limit set through {@link LightstreamerClient#setHttpPoolMaxConnections(int)} has been reached.
+   * @return the number of waiting requests.
+   */
+  public int getPendingAcquires() {
+    return pendingAcquires;
+  }
+
+  /**
+   * Inquiry method that gets the number of sockets opened so far, including pre-warmed ones.
+   * @return the number of created sockets.
+   */
+  public long getCreatedConnections() {
+    return createdConnections;
+  }
+
+  /**
+   * Inquiry method that gets the number of sockets closed so far because they stayed idle
+   * longer than the time set through {@link LightstreamerClient#setHttpPoolIdleTimeout(long)}.
+   * @return the number of evicted sockets.
+   */
+  public long getEvictedConnections() {
+    return evictedConnections;
+  }
+
+  /**
+   * Inquiry method that gets the number of idle sockets closed so far because they failed
+   * the periodic health check (see {@link LightstreamerClient#setHttpPoolHealthCheckInterval(long)}).
+   * @return the number of failed health checks.
+   */
+  public long getFailedHealthChecks() {
+    return failedHealthChecks;
+  }
+
+  /**
+   * Inquiry method that gets the number of TLS handshakes completed so far by the sockets. <BR>
+   * The sockets towards the same Server address share a cache of TLS sessions, so that a new socket can resume
+   * the session of a previous one, through an abbreviated handshake.
+   * @return the number of TLS handshakes, or 0 if the sockets are not secure.
+   * @see #getTlsResumedHandshakes()
+   */
+  public long getTlsHandshakes() {
+    return tlsHandshakes;
+  }
+
+  /**
+   * Inquiry method that gets the number of TLS handshakes, among the ones counted by {@link #getTlsHandshakes()},
+   * which have resumed a previous session instead of negotiating a new one. The ratio between the two numbers
+   * is the hit rate of the cache of the TLS sessions.
+   * @return the number of resumed TLS handshakes.
+   */
+  public long getTlsResumedHandshakes() {
+    return tlsResumedHandshakes;
+  }
+
+  @Override
+  public String toString() {
+    return (secure ? "https://" : "http://") + host + ":" + port + " [open=" + openConnections + " idle=" + idleConnections
+        + " pending=" + pendingAcquires + " created=" + createdConnections + " evicted=" + evictedConnections
+        + " unhealthy=" + failedHealthChecks + (secure ? " tls=" + tlsHandshakes + " resumed=" + tlsResumedHandshakes : "") + "]";
+  }
+}
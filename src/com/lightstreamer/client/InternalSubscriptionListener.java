@@ -0,0 +1,50 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Listener of the Subscriptions owned by the library itself (e.g. the subscriptions to the MPN adapters).
+ * <p>
+ * Unlike a {@link SubscriptionListener}, the notifications are delivered on the Session Thread and no
+ * {@link ItemUpdate} is built: the listener receives the same values the Subscription stores, so it must
+ * not modify nor keep them.
+ * <p>
+ * <b>NB</b> Not part of the public API.
+ *
+ * @see Subscription#addInternalListener(InternalSubscriptionListener)
+ */
+public interface InternalSubscriptionListener {
+
+  /**
+   * Notifies an update.
+   *
+   * @param itemPos the 1-based position of the item.
+   * @param values the current values of the fields; the value of the field at (1-based) position p is {@code values.get(p-1)}.
+   * In COMMAND mode with the two-level behavior, the second-level fields follow the first-level ones.
+   * @param changedFields the 1-based positions of the changed fields.
+   */
+  void onItemUpdate(int itemPos, List<String> values, Set<Integer> changedFields);
+
+  /**
+   * Notifies the end of the snapshot of an item.
+   *
+   * @param itemPos the 1-based position of the item.
+   */
+  void onEndOfSnapshot(int itemPos);
+}
@@ -15,6 +15,7 @@
 
 package com.lightstreamer.client;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -28,6 +29,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.lightstreamer.util.Descriptor;
+import com.lightstreamer.util.EncodingUtils;
 import com.lightstreamer.util.NameDescriptor;
 
 
@@ -60,9 +62,11 @@ public class ItemUpdate {
   private final String itemName;
   private final int itemPos;
   private final boolean isSnapshot;
+  private final boolean isCached;
   private final Descriptor fields;
   private final ArrayList<String> updates;
   private final Set<Integer> changedFields;
+  private TypedFieldValues typedValues;
   
   private Map<String,String> changedByNameMap;
   private Map<Integer,String> changedByPosMap;
@@ -70,14 +74,36 @@ public class ItemUpdate {
   private Map<Integer,String> allByPosMap;
 
   ItemUpdate(String itemName, int itemPos, boolean isSnapshot, ArrayList<String> updates, SortedSet<Integer> changedFields, Descriptor fields) {
+    this(itemName, itemPos, isSnapshot, false, updates, changedFields, fields);
+  }
+  
+  ItemUpdate(String itemName, int itemPos, boolean isSnapshot, boolean isCached, ArrayList<String> updates, SortedSet<Integer> changedFields, Descriptor fields) {
     this.itemName = itemName;
     this.itemPos = itemPos;
     this.isSnapshot = isSnapshot;
+    this.isCached = isCached;
     this.updates = updates;
     this.changedFields = changedFields;
     this.fields = fields;
   }
   
+  void setTypedValues(TypedFieldValues typedValues) {
+    this.typedValues = typedValues;
+  }
+  
+  /**
+   * Returns a copy of this update with different values and changed fields.
+   */
+  ItemUpdate withValues(ArrayList<String> updates, SortedSet<Integer> changedFields) {
+    ItemUpdate res = new ItemUpdate(itemName, itemPos, isSnapshot, isCached, updates, changedFields, fields);
+    res.typedValues = typedValues;
+    return res;
+  }
+  
+  ArrayList<String> getValues() {
+    return this.updates;
+  }
+  
   /**
    * Inquiry method that retrieves the name of the item to which this update pertains. <BR> 
    * The name will be null if the related Subscription was initialized using an "Item Group".
@@ -140,6 +166,119 @@ public class ItemUpdate {
     return this.updates.get(pos-1); //fieldPos is 1 based, updates is 0 based
   }
   
+  /**
+   * Returns the current value for the specified field.
+   * @param field A handle obtained through {@link Subscription#getFieldRef(String)}.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @return The value of the specified field (see {@link #getValue(int)}).
+   * @see Subscription#getFieldRef(String)
+   */
+  @Nullable 
+  public String getValue(@Nonnull FieldRef field) {
+    return getValue(field.getPos());
+  }
+  
+  /**
+   * Returns the current value for the specified field as a 64-bit integer number. <BR>
+   * If the field was declared of type LONG through {@link Subscription#setFieldTypes(String[])}, the value 
+   * has already been decoded and the call doesn't allocate memory; otherwise the string value is parsed.
+   * @param fieldPos The 1-based position of the field within the "Field List" or "Field Schema".
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @throws NumberFormatException if the value is null or is not an integer number.
+   * @return The value of the specified field.
+   * @see Subscription#setFieldTypes(String[])
+   */
+  public long getLong(int fieldPos) {
+    int pos = toPos(fieldPos);
+    return TypedFieldValues.toLong(this.typedValues, pos, this.updates.get(pos-1));
+  }
+  
+  /**
+   * Returns the current value for the specified field as a 64-bit integer number (see {@link #getLong(int)}).
+   * @param field A handle obtained through {@link Subscription#getFieldRef(String)}.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @throws NumberFormatException if the value is null or is not an integer number.
+   * @return The value of the specified field.
+   */
+  public long getLong(@Nonnull FieldRef field) {
+    return getLong(field.getPos());
+  }
+  
+  /**
+   * Returns the current value for the specified field as a decimal number. <BR>
+   * If the field was declared of type DOUBLE through {@link Subscription#setFieldTypes(String[])}, the value 
+   * has already been decoded and the call doesn't allocate memory; otherwise the string value is parsed.
+   * @param fieldPos The 1-based position of the field within the "Field List" or "Field Schema".
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @throws NumberFormatException if the value is null or is not a number.
+   * @return The value of the specified field.
+   * @see Subscription#setFieldTypes(String[])
+   */
+  public double getDouble(int fieldPos) {
+    int pos = toPos(fieldPos);
+    return TypedFieldValues.toDouble(this.typedValues, pos, this.updates.get(pos-1));
+  }
+  
+  /**
+   * Returns the current value for the specified field as a decimal number (see {@link #getDouble(int)}).
+   * @param field A handle obtained through {@link Subscription#getFieldRef(String)}.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @throws NumberFormatException if the value is null or is not a number.
+   * @return The value of the specified field.
+   */
+  public double getDouble(@Nonnull FieldRef field) {
+    return getDouble(field.getPos());
+  }
+  
+  /**
+   * Copies the current value for the specified field, decoded from the Base64 encoding, into a buffer. <BR>
+   * If the field was declared of type BASE64 through {@link Subscription#setFieldTypes(String[])}, the value 
+   * has already been decoded and the call doesn't allocate memory; otherwise the string value is decoded.
+   * @param fieldPos The 1-based position of the field within the "Field List" or "Field Schema".
+   * @param dst The buffer, which receives the bytes starting from its current position; 
+   * the position is advanced by the number of bytes copied.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription
+   * or if the value is not a valid Base64 encoding.
+   * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer; 
+   * in this case the buffer is not modified.
+   * @return The number of bytes copied, or -1 if the value is null.
+   * @see Subscription#setFieldTypes(String[])
+   */
+  public int getBytes(int fieldPos, @Nonnull ByteBuffer dst) {
+    int pos = toPos(fieldPos);
+    byte[] bytes;
+    if (this.typedValues != null && this.typedValues.isTyped(pos, TypedFieldValues.BASE64)) {
+      if (this.updates.get(pos-1) == null) {
+        return -1;
+      } else if (! this.typedValues.isValid(pos)) {
+        throw new IllegalArgumentException("the value of the field is not a valid Base64 encoding");
+      }
+      bytes = this.typedValues.getBytes(pos);
+    } else {
+      String value = this.updates.get(pos-1);
+      if (value == null) {
+        return -1;
+      }
+      bytes = EncodingUtils.decodeBase64(value);
+    }
+    dst.put(bytes);
+    return bytes.length;
+  }
+  
+  /**
+   * Copies the current value for the specified field, decoded from the Base64 encoding, into a buffer 
+   * (see {@link #getBytes(int, ByteBuffer)}).
+   * @param field A handle obtained through {@link Subscription#getFieldRef(String)}.
+   * @param dst The buffer, which receives the bytes starting from its current position.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription
+   * or if the value is not a valid Base64 encoding.
+   * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer.
+   * @return The number of bytes copied, or -1 if the value is null.
+   */
+  public int getBytes(@Nonnull FieldRef field, @Nonnull ByteBuffer dst) {
+    return getBytes(field.getPos(), dst);
+  }
+  
   /**
    * Inquiry method that asks whether the current update belongs to the item snapshot (which carries 
    * the current item state at the time of Subscription). Snapshot events are sent only if snapshot 
@@ -166,6 +305,22 @@ public class ItemUpdate {
     return this.isSnapshot;
   }
   
+  /**
+   * Inquiry method that asks whether the current update does not come from the Server, but carries 
+   * values saved in the {@link SubscriptionCache} configured through 
+   * {@link Subscription#setWarmStartCache(SubscriptionCache)}. <BR>
+   * Cached updates are notified as soon as the Subscription is subscribed to, before any session 
+   * is established, and they should be considered stale: they are also flagged as snapshot updates 
+   * and are superseded by the real snapshot when it arrives from the Server. In COMMAND mode, 
+   * cached keys that turn out not to be part of the real snapshot are removed through 
+   * a "DELETE" update (not flagged as cached) upon the end of the real snapshot.
+   * @return true if the current update carries values taken from the local cache; false otherwise.
+   * @see Subscription#setWarmStartCache(SubscriptionCache)
+   */
+  public boolean isCached() {
+    return this.isCached;
+  }
+  
   /**
    * Inquiry method that asks whether the value for a field has changed after the reception of the last 
    * update from the Server for an item. If the Subscription mode is COMMAND then the change is meant as 
@@ -223,6 +378,17 @@ public class ItemUpdate {
     return this.changedFields.contains(pos);
   }
   
+  /**
+   * Inquiry method that asks whether the value for a field has changed after the reception of the last 
+   * update from the Server for an item (see {@link #isValueChanged(int)}).
+   * @param field A handle obtained through {@link Subscription#getFieldRef(String)}.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @return true if the value has changed; false otherwise.
+   */
+  public boolean isValueChanged(@Nonnull FieldRef field) {
+    return isValueChanged(field.getPos());
+  }
+  
   
   /**
    * Returns an immutable Map containing the values for each field changed with the last server update. 
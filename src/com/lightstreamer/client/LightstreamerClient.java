@@ -43,9 +43,11 @@ import com.lightstreamer.client.mpn.MpnDeviceListener;
 import com.lightstreamer.client.mpn.MpnInternals;
 import com.lightstreamer.client.mpn.MpnManager;
 import com.lightstreamer.client.mpn.MpnSubscription;
+import com.lightstreamer.client.mpn.MpnSubscriptionChangesListener;
 import com.lightstreamer.client.mpn.MpnSubscriptionListener;
 import com.lightstreamer.client.session.InternalConnectionDetails;
 import com.lightstreamer.client.session.InternalConnectionOptions;
+import com.lightstreamer.client.session.SessionAttemptGovernor;
 import com.lightstreamer.client.session.SessionManager;
 import com.lightstreamer.client.session.SessionThread;
 import com.lightstreamer.client.transport.providers.CookieHelper;
@@ -54,6 +56,7 @@ import com.lightstreamer.log.LogManager;
 import com.lightstreamer.log.Logger;
 import com.lightstreamer.log.LoggerProvider;
 import com.lightstreamer.util.GlobalProperties;
+import com.lightstreamer.util.Number;
 
 /**
  * Facade class for the management of the communication to
@@ -159,6 +162,7 @@ public class LightstreamerClient {
   private final MessageManager messages = new MessageManager(eventsThread,sessionThread,manager,internalConnectionOptions);
   private final SubscriptionManager subscriptions = new SubscriptionManager(sessionThread,manager,internalConnectionOptions);
   private final ArrayList<Subscription> subscriptionArray = new ArrayList<Subscription>();
+  private SubscriptionHub subscriptionHub;
   
   private final MpnManager mpnManager = new MpnManager(manager, this, sessionThread);
 
@@ -296,8 +300,12 @@ public class LightstreamerClient {
     
     log.info("Connect requested");
     
+    final String serverAddress = this.connectionDetails.getServerAddress();
+    final Proxy proxy = this.internalConnectionOptions.getProxy();
     eventsThread.queue(new Runnable() {
       public void run() {
+        TransportFactory.getDefaultHttpFactory().preresolve(serverAddress, proxy);
+        TransportFactory.getDefaultHttpFactory().prewarm(serverAddress, proxy);
         engine.connect();
       }
     });
@@ -475,7 +483,45 @@ public class LightstreamerClient {
     //2nd level subscriptions are not in the subscriptionArray
     return new ArrayList<Subscription>(subscriptionArray);
   }
-  
+
+  /**
+   * Setter method that shares the Subscriptions of this LightstreamerClient with the other LightstreamerClient
+   * instances of the JVM configured with the same hub. <BR>
+   * A Subscription identical to one already subscribed to through another client of the hub, towards the same
+   * Server address and Adapter Set with the same user, is not sent to the Server: it is fed locally with
+   * the updates received by the other client, starting with the current state of the items as its snapshot.
+   * See {@link SubscriptionHub} for details.
+   *
+   * @default null (the Subscriptions are always sent to the Server by this LightstreamerClient).
+   *
+   * @lifecycle This method can be called at any time: the hub is used for the Subscriptions sent from then on,
+   * that is, the Subscriptions subscribed to later and the ones sent again when a new session starts.
+   *
+   * @param hub the hub shared with the other clients, or null to stop sharing the Subscriptions.
+   *
+   * @see #getSubscriptionHub()
+   */
+  public synchronized void setSubscriptionHub(@Nullable final SubscriptionHub hub) {
+    this.subscriptionHub = hub;
+    eventsThread.queue(new Runnable() {
+      public void run() {
+        subscriptions.setHub(hub, connectionDetails);
+      }
+    });
+  }
+
+  /**
+   * Inquiry method that returns the hub set through {@link #setSubscriptionHub(SubscriptionHub)}.
+   *
+   * @lifecycle This method can be called at any time.
+   *
+   * @return the hub shared with the other clients, or null if the Subscriptions are not shared.
+   */
+  @Nullable
+  public synchronized SubscriptionHub getSubscriptionHub() {
+    return this.subscriptionHub;
+  }
+
   
   
   
@@ -659,6 +705,321 @@ END_ANDROID_DOC_ONLY
       GlobalProperties.INSTANCE.setTrustManagerFactory(factory);
   }
   
+  /**
+   * Static setter method that sets the maximum number of sockets that the library may keep open towards the
+   * same Server address (and through the same proxy), including the sockets used by WebSocket connections. <BR>
+   * The sockets are pooled and shared by all the LightstreamerClient instances. When the limit has been reached,
+   * a request that needs a new socket waits until a socket is released or closed.
+   * 
+   * @default 0 (meaning no limit).
+   * 
+   * @lifecycle This method can be invoked at any time; the new limit is applied to the next socket requests.
+   * 
+   * @param maxConnections the maximum number of sockets per Server address, or 0.
+   * 
+   * @throws IllegalArgumentException if a negative value is configured.
+   */
+  public static void setHttpPoolMaxConnections(int maxConnections) {
+      Number.verifyPositive(maxConnections, Number.ACCEPT_ZERO);
+      GlobalProperties.INSTANCE.setHttpPoolMaxConnections(maxConnections);
+  }
+  
+  /**
+   * Static inquiry method that gets the maximum number of sockets per Server address.
+   * 
+   * @return the maximum number of sockets, or 0.
+   * 
+   * @see #setHttpPoolMaxConnections(int)
+   */
+  public static int getHttpPoolMaxConnections() {
+      return GlobalProperties.INSTANCE.getHttpPoolMaxConnections();
+  }
+  
+  /**
+   * Static setter method that sets the time after which a socket that is kept in the pool without being
+   * used is closed.
+   * 
+   * @default 5000 (5 seconds).
+   * 
+   * @lifecycle This method can be invoked at any time; the new value is applied to the sockets
+   * released to the pool from then on.
+   * 
+   * @param idleTimeout the idle time (in milliseconds).
+   * 
+   * @throws IllegalArgumentException if a negative or zero value is configured.
+   */
+  public static void setHttpPoolIdleTimeout(long idleTimeout) {
+      Number.verifyPositive(idleTimeout, Number.DONT_ACCEPT_ZERO);
+      GlobalProperties.INSTANCE.setHttpPoolIdleTimeout(idleTimeout);
+  }
+  
+  /**
+   * Static inquiry method that gets the time after which an unused pooled socket is closed.
+   * 
+   * @return the idle time (in milliseconds).
+   * 
+   * @see #setHttpPoolIdleTimeout(long)
+   */
+  public static long getHttpPoolIdleTimeout() {
+      return GlobalProperties.INSTANCE.getHttpPoolIdleTimeout();
+  }
+  
+  /**
+   * Static setter method that sets the interval between two consecutive checks of the sockets kept
+   * in the pool. A socket found closed by the peer or otherwise unusable is discarded, so that
+   * a request never has to wait for a dead socket to fail.
+   * 
+   * @default 0 (meaning that the sockets are only checked when taken from the pool).
+   * 
+   * @lifecycle This method can be invoked at any time; the new value is applied to the sockets
+   * released to the pool from then on.
+   * 
+   * @param healthCheckInterval the interval (in milliseconds), or 0.
+   * 
+   * @throws IllegalArgumentException if a negative value is configured.
+   */
+  public static void setHttpPoolHealthCheckInterval(long healthCheckInterval) {
+      Number.verifyPositive(healthCheckInterval, Number.ACCEPT_ZERO);
+      GlobalProperties.INSTANCE.setHttpPoolHealthCheckInterval(healthCheckInterval);
+  }
+  
+  /**
+   * Static inquiry method that gets the interval between two consecutive checks of the pooled sockets.
+   * 
+   * @return the interval (in milliseconds), or 0.
+   * 
+   * @see #setHttpPoolHealthCheckInterval(long)
+   */
+  public static long getHttpPoolHealthCheckInterval() {
+      return GlobalProperties.INSTANCE.getHttpPoolHealthCheckInterval();
+  }
+  
+  /**
+   * Static setter method that sets the number of sockets to be opened in advance towards the Server.
+   * The sockets are opened, handshakes included, as soon as {@link #connect} is called, towards the
+   * configured Server address, and as soon as the Server communicates a different address
+   * for the session (see {@link ConnectionOptions#setServerInstanceAddressIgnored(boolean)}), towards
+   * that address; in this way the first requests do not have to wait for the sockets to be established. <BR>
+   * Note that the pre-warmed sockets are subject to the idle timeout like any other pooled socket.
+   * 
+   * @default 0 (meaning that the sockets are only opened when needed).
+   * 
+   * @lifecycle This method can be invoked at any time; the new value is applied to the next
+   * pre-warming.
+   * 
+   * @param connections the number of sockets to be opened in advance, or 0.
+   * 
+   * @throws IllegalArgumentException if a negative value is configured.
+   * 
+   * @see #setHttpPoolIdleTimeout(long)
+   */
+  public static void setHttpPoolPrewarmConnections(int connections) {
+      Number.verifyPositive(connections, Number.ACCEPT_ZERO);
+      GlobalProperties.INSTANCE.setHttpPoolPrewarmConnections(connections);
+  }
+  
+  /**
+   * Static inquiry method that gets the number of sockets to be opened in advance.
+   * 
+   * @return the number of sockets, or 0.
+   * 
+   * @see #setHttpPoolPrewarmConnections(int)
+   */
+  public static int getHttpPoolPrewarmConnections() {
+      return GlobalProperties.INSTANCE.getHttpPoolPrewarmConnections();
+  }
+  
+  /**
+   * Static setter method that enables or disables the non-blocking resolution of the Server host names. <BR>
+   * By default, the host names are resolved through the JDK resolver, which blocks the thread that opens the socket 
+   * and relies on the DNS cache of the JVM. When enabled, the host names are resolved through asynchronous DNS queries, 
+   * so that a slow DNS server cannot stall the threads that serve all the connections of the library. 
+   * The results are kept in a cache of the library for the TTL of the DNS records (but no longer than one hour), 
+   * the failures for 5 seconds; the host names in use are resolved again in background before they expire. <BR>
+   * Moreover, the Server host name is resolved as soon as {@link #connect} is called. <BR>
+   * The host names are never resolved by the library when a proxy is configured 
+   * (see {@link ConnectionOptions#setProxy(Proxy)}). <BR>
+   * Note that the non-blocking resolution is not available on Android, where this setting is ignored.
+   * 
+   * @default false.
+   * 
+   * @lifecycle This method should be invoked before connecting any LightstreamerClient; the new value only 
+   * applies to the Server addresses not yet contacted.
+   * 
+   * @param enabled true to resolve the host names through asynchronous DNS queries.
+   */
+  public static void setAsyncDnsResolverEnabled(boolean enabled) {
+      GlobalProperties.INSTANCE.setAsyncDnsResolverEnabled(enabled);
+  }
+  
+  /**
+   * Static inquiry method that checks if the host names are resolved through asynchronous DNS queries.
+   * 
+   * @return true if the non-blocking resolution is enabled.
+   * 
+   * @see #setAsyncDnsResolverEnabled(boolean)
+   */
+  public static boolean isAsyncDnsResolverEnabled() {
+      return GlobalProperties.INSTANCE.isAsyncDnsResolverEnabled();
+  }
+  
+  /**
+   * Static setter method that enables or disables HTTP/2 for the HTTP requests towards secure Server addresses
+   * (i.e. with the https scheme). <BR>
+   * When enabled, HTTP/2 is proposed to the Server during the TLS handshake (through ALPN): if accepted,
+   * the streaming or polling connection and all the control requests and messages towards the same Server address 
+   * are sent as separate streams of one shared socket, so that a control request never waits for a new socket 
+   * to be opened. If the Server (or a proxy in the middle) only supports HTTP/1.1, the requests are sent through 
+   * the pool of HTTP/1.1 sockets, as when HTTP/2 is disabled. <BR>
+   * The setting does not affect the WebSocket transports (see {@link ConnectionOptions#setForcedTransport(String)})
+   * and the requests towards non-secure Server addresses. <BR>
+   * Note that ALPN requires a JVM that supports it (Java 9 or later, or Java 8 from update 252 on);
+   * otherwise HTTP/1.1 is used.
+   * 
+   * @default false.
+   * 
+   * @lifecycle This method can be called at any time; the new value applies to the next requests.
+   * 
+   * @param enabled true to propose HTTP/2 to the Server.
+   */
+  public static void setHttp2Enabled(boolean enabled) {
+      GlobalProperties.INSTANCE.setHttp2Enabled(enabled);
+  }
+  
+  /**
+   * Static inquiry method that checks if HTTP/2 is proposed to the Server for the HTTP requests.
+   * 
+   * @return true if HTTP/2 is enabled.
+   * 
+   * @see #setHttp2Enabled(boolean)
+   */
+  public static boolean isHttp2Enabled() {
+      return GlobalProperties.INSTANCE.isHttp2Enabled();
+  }
+  
+  /**
+   * Static inquiry method that can be used for diagnostic purposes to inspect the pools of the sockets
+   * that the library keeps open towards the various Server addresses.
+   * 
+   * @return a list with a snapshot of the state of each pool; the list is empty if the transport
+   * in use does not pool its sockets.
+   */
+  @Nonnull
+  public static List<HttpPoolStatistics> getHttpPoolStatistics() {
+      return TransportFactory.getDefaultHttpFactory().getPoolStatistics();
+  }
+  
+  /**
+   * Static setter method that limits the rate of the attempts to create or recover a session performed
+   * by all the LightstreamerClient instances in the JVM. <BR>
+   * When many clients lose their connection at the same time, for instance because a Server is restarted,
+   * the attempts exceeding the rate are delayed, so that the Server is not overloaded by simultaneous
+   * reconnections. Short bursts of attempts are allowed, as determined by {@link #setSessionAttemptBurst(int)}.
+   * See also {@link ConnectionOptions#setRetryDelayJitter(String)} to spread the attempts of each client.
+   * 
+   * @default 0 (meaning no limit).
+   * 
+   * @lifecycle This method can be invoked at any time; the new rate is applied to the next attempts.
+   * 
+   * @param attemptsPerSecond the maximum number of attempts per second, or 0.
+   * 
+   * @throws IllegalArgumentException if a negative value is configured.
+   * 
+   * @see #getSessionAttemptStatistics()
+   */
+  public static void setSessionAttemptRate(double attemptsPerSecond) {
+      Number.verifyPositive(attemptsPerSecond, Number.ACCEPT_ZERO);
+      GlobalProperties.INSTANCE.setSessionAttemptRate(attemptsPerSecond);
+  }
+  
+  /**
+   * Static inquiry method that gets the maximum rate of the attempts to create or recover a session.
+   * 
+   * @return the maximum number of attempts per second, or 0.
+   * 
+   * @see #setSessionAttemptRate(double)
+   */
+  public static double getSessionAttemptRate() {
+      return GlobalProperties.INSTANCE.getSessionAttemptRate();
+  }
+  
+  /**
+   * Static setter method that sets the number of attempts to create or recover a session that can be
+   * performed at once, without being delayed, when the rate set through {@link #setSessionAttemptRate(double)}
+   * has not been exceeded recently.
+   * 
+   * @default 10.
+   * 
+   * @lifecycle This method can be invoked at any time.
+   * 
+   * @param burst the number of attempts.
+   * 
+   * @throws IllegalArgumentException if a negative or zero value is configured.
+   */
+  public static void setSessionAttemptBurst(int burst) {
+      Number.verifyPositive(burst, Number.DONT_ACCEPT_ZERO);
+      GlobalProperties.INSTANCE.setSessionAttemptBurst(burst);
+  }
+  
+  /**
+   * Static inquiry method that gets the number of attempts to create or recover a session that can be
+   * performed at once.
+   * 
+   * @return the number of attempts.
+   * 
+   * @see #setSessionAttemptBurst(int)
+   */
+  public static int getSessionAttemptBurst() {
+      return GlobalProperties.INSTANCE.getSessionAttemptBurst();
+  }
+  
+  /**
+   * Static setter method that limits the number of attempts to create or recover a session that can be
+   * in progress at the same time, considering all the LightstreamerClient instances of the JVM. An attempt
+   * is in progress from when its request is sent until the session is bound or the attempt fails; the
+   * attempts exceeding the limit are delayed and performed in order of arrival. <BR>
+   * The hot-standby sessions and the sessions opened to race or probe the connections are not subject
+   * to the limit.
+   * 
+   * @default 0 (no limit).
+   * 
+   * @lifecycle This method can be invoked at any time; a new limit only affects the subsequent attempts.
+   * 
+   * @param concurrency the maximum number of attempts in progress, or 0 for no limit.
+   * 
+   * @throws IllegalArgumentException if a negative value is configured.
+   * 
+   * @see #getSessionAttemptStatistics()
+   */
+  public static void setSessionAttemptConcurrency(int concurrency) {
+      Number.verifyPositive(concurrency, Number.ACCEPT_ZERO);
+      GlobalProperties.INSTANCE.setSessionAttemptConcurrency(concurrency);
+  }
+  
+  /**
+   * Static inquiry method that gets the maximum number of attempts to create or recover a session that
+   * can be in progress at the same time.
+   * 
+   * @return the maximum number of attempts in progress, or 0 for no limit.
+   * 
+   * @see #setSessionAttemptConcurrency(int)
+   */
+  public static int getSessionAttemptConcurrency() {
+      return GlobalProperties.INSTANCE.getSessionAttemptConcurrency();
+  }
+  
+  /**
+   * Static inquiry method that can be used for diagnostic purposes to inspect how the attempts to create or
+   * recover a session have been paced (see {@link #setSessionAttemptRate(double)} and 
+   * {@link #setSessionAttemptConcurrency(int)}).
+   * 
+   * @return a snapshot of the counters of the attempts.
+   */
+  @Nonnull
+  public static SessionAttemptStatistics getSessionAttemptStatistics() {
+      return SessionAttemptGovernor.INSTANCE.getStatistics();
+  }
+  
   synchronized boolean setStatus(String status) {
     if (!this.lastStatus.equals(status)) {
       this.lastStatus = status;
@@ -956,6 +1317,107 @@ END_ANDROID_DOC_ONLY
       return mpnManager.findSubscription(subscriptionId);
   }
   
+  /**
+   * Inquiry method that gets the collection of the existing MPN subscriptions having the specified item group.<BR>
+   * Like {@link #getMpnSubscriptions(String)}, the lookup is based on indexes that are kept up to date as the MPN subscriptions change,
+   * hence its cost depends on the size of the result rather than on the number of existing MPN subscriptions.
+   * 
+   * @general_edition_note MPN is an optional feature, available depending on Edition and License Type.
+   * To know what features are enabled by your license, please see the License tab of the Monitoring Dashboard (by default,
+   * available at /dashboard).
+   * 
+   * @param group The item group, as returned by {@link MpnSubscription#getItemGroup()}.
+   * @return the collection of {@link MpnSubscription} with the specified item group.
+   * @throws IllegalArgumentException if the given item group is null.
+   * @throws IllegalStateException if there is no MPN device registered.
+   * 
+   * @see #getMpnSubscriptions(String)
+   */
+  public @Nonnull List<MpnSubscription> getMpnSubscriptionsByGroup(@Nonnull String group) {
+      if (group == null) {
+          throw new IllegalArgumentException("Item group must be not null");
+      }
+      if (mpnDevice == null) {
+          throw new IllegalStateException("No MPN device registered");
+      }
+      return mpnManager.getSubscriptionsByGroup(group);
+  }
+  
+  /**
+   * Inquiry method that gets the collection of the existing MPN subscriptions having the specified notification format.<BR>
+   * Like {@link #getMpnSubscriptions(String)}, the lookup is based on indexes that are kept up to date as the MPN subscriptions change,
+   * hence its cost depends on the size of the result rather than on the number of existing MPN subscriptions.
+   * 
+   * @general_edition_note MPN is an optional feature, available depending on Edition and License Type.
+   * To know what features are enabled by your license, please see the License tab of the Monitoring Dashboard (by default,
+   * available at /dashboard).
+   * 
+   * @param format The notification format, as returned by {@link MpnSubscription#getNotificationFormat()}.
+   * @return the collection of {@link MpnSubscription} with the specified notification format.
+   * @throws IllegalArgumentException if the given notification format is null.
+   * @throws IllegalStateException if there is no MPN device registered.
+   * 
+   * @see #getMpnSubscriptions(String)
+   */
+  public @Nonnull List<MpnSubscription> getMpnSubscriptionsByNotificationFormat(@Nonnull String format) {
+      if (format == null) {
+          throw new IllegalArgumentException("Notification format must be not null");
+      }
+      if (mpnDevice == null) {
+          throw new IllegalStateException("No MPN device registered");
+      }
+      return mpnManager.getSubscriptionsByFormat(format);
+  }
+  
+  /**
+   * Adds a listener that will receive the changes of the collection of MPN subscriptions, so that it is not needed
+   * to poll {@link #getMpnSubscriptions(String)}.<BR>
+   * The same listener can be added to several different LightstreamerClient instances.
+   * 
+   * @general_edition_note MPN is an optional feature, available depending on Edition and License Type.
+   * To know what features are enabled by your license, please see the License tab of the Monitoring Dashboard (by default,
+   * available at /dashboard).
+   * 
+   * @lifecycle A listener can be added at any time. A call to add a listener already present will be ignored.
+   * Only the changes that occur after the addition are notified.
+   * 
+   * @param listener An object that will receive the events as documented in the {@link MpnSubscriptionChangesListener} interface.
+   * @throws IllegalArgumentException if the given listener is null.
+   * 
+   * @see #removeMpnSubscriptionChangesListener(MpnSubscriptionChangesListener)
+   */
+  public void addMpnSubscriptionChangesListener(@Nonnull MpnSubscriptionChangesListener listener) {
+      if (listener == null) {
+          throw new IllegalArgumentException("Listener must be not null");
+      }
+      mpnManager.addChangesListener(listener);
+  }
+  
+  /**
+   * Removes a listener from the LightstreamerClient instance so that it will not receive the changes of the collection
+   * of MPN subscriptions anymore.
+   * 
+   * @lifecycle A listener can be removed at any time.
+   * 
+   * @param listener The listener to be removed.
+   * 
+   * @see #addMpnSubscriptionChangesListener(MpnSubscriptionChangesListener)
+   */
+  public void removeMpnSubscriptionChangesListener(@Nonnull MpnSubscriptionChangesListener listener) {
+      mpnManager.removeChangesListener(listener);
+  }
+  
+  /**
+   * Returns a list containing the {@link MpnSubscriptionChangesListener} instances that were added to this client.
+   * 
+   * @return a list containing the listeners that were added to this client.
+   * 
+   * @see #addMpnSubscriptionChangesListener(MpnSubscriptionChangesListener)
+   */
+  public @Nonnull List<MpnSubscriptionChangesListener> getMpnSubscriptionChangesListeners() {
+      return mpnManager.getChangesListeners();
+  }
+  
 //BEGIN_ANDROID_EXCLUDE
 
   /**
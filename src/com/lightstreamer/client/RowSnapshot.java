@@ -0,0 +1,139 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.lightstreamer.util.Descriptor;
+
+/**
+ * Immutable view of the values of all the fields of an item (or, in COMMAND mode, of a key of an item)
+ * as they were after an update, obtained through {@link Subscription#getItemSnapshot(int)} or
+ * {@link Subscription#getCommandRowSnapshot(int, String)}. <BR>
+ * All the values belong to the same update, hence they are consistent with each other even if
+ * the item is being updated while they are read. An instance can be freely shared among threads.
+ */
+@Immutable
+public final class RowSnapshot {
+
+  private final String itemName;
+  private final int itemPos;
+  /**
+   * The values of the update, not modified after the update has been processed.
+   */
+  private final List<String> values;
+  private final TypedFieldValues typedValues;
+  private final Descriptor fields;
+
+  RowSnapshot(String itemName, int itemPos, List<String> values, TypedFieldValues typedValues, Descriptor fields) {
+    this.itemName = itemName;
+    this.itemPos = itemPos;
+    this.values = values;
+    this.typedValues = typedValues;
+    this.fields = fields;
+  }
+
+  /**
+   * Inquiry method that retrieves the name of the item to which the values pertain. <BR>
+   * The name will be null if the related Subscription was initialized using an "Item Group".
+   * @return The name of the item.
+   */
+  @Nullable
+  public String getItemName() {
+    return itemName;
+  }
+
+  /**
+   * Inquiry method that retrieves the position in the "Item List" or "Item Group" of the item to
+   * which the values pertain.
+   * @return The 1-based position of the item.
+   */
+  public int getItemPos() {
+    return itemPos;
+  }
+
+  /**
+   * Returns the value of the specified field.
+   * @param fieldPos The 1-based position of the field within the "Field List" or "Field Schema".
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @return The value of the specified field (possibly null).
+   */
+  @Nullable
+  public String getValue(int fieldPos) {
+    return values.get(toPos(fieldPos)-1);
+  }
+
+  /**
+   * Returns the value of the specified field.
+   * @param fieldName The field name as specified within the "Field List".
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @return The value of the specified field (possibly null).
+   */
+  @Nullable
+  public String getValue(@Nonnull String fieldName) {
+    int pos = fields.getPos(fieldName);
+    if (pos == -1) {
+      throw new IllegalArgumentException("the specified field does not exist");
+    }
+    return getValue(pos);
+  }
+
+  /**
+   * Returns the value of the specified field.
+   * @param field A handle obtained through {@link Subscription#getFieldRef(String)}.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @return The value of the specified field (possibly null).
+   */
+  @Nullable
+  public String getValue(@Nonnull FieldRef field) {
+    return getValue(field.getPos());
+  }
+
+  /**
+   * Returns the value of the specified field as a 64-bit integer number (see {@link ItemUpdate#getLong(int)}).
+   * @param fieldPos The 1-based position of the field within the "Field List" or "Field Schema".
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @throws NumberFormatException if the value is null or is not an integer number.
+   * @return The value of the specified field.
+   */
+  public long getLong(int fieldPos) {
+    int pos = toPos(fieldPos);
+    return TypedFieldValues.toLong(typedValues, pos, values.get(pos-1));
+  }
+
+  /**
+   * Returns the value of the specified field as a decimal number (see {@link ItemUpdate#getDouble(int)}).
+   * @param fieldPos The 1-based position of the field within the "Field List" or "Field Schema".
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * @throws NumberFormatException if the value is null or is not a number.
+   * @return The value of the specified field.
+   */
+  public double getDouble(int fieldPos) {
+    int pos = toPos(fieldPos);
+    return TypedFieldValues.toDouble(typedValues, pos, values.get(pos-1));
+  }
+
+  private int toPos(int fieldPos) {
+    if (fieldPos < 1 || fieldPos > values.size()) {
+      throw new IllegalArgumentException("the specified field position is out of bounds");
+    }
+    return fieldPos;
+  }
+}
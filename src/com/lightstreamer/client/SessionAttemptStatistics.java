@@ -0,0 +1,111 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+/**
+ * Snapshot of the state of the JVM-wide pacing of the session creation and recovery attempts,
+ * as returned by {@link LightstreamerClient#getSessionAttemptStatistics()}. <BR>
+ * The pacing is shared by all the LightstreamerClient instances. The counters are cumulative
+ * since the loading of the library.
+ */
+public class SessionAttemptStatistics {
+
+  private final long grantedAttempts;
+  private final long throttledAttempts;
+  private final long totalThrottleDelay;
+  private final long maxThrottleDelay;
+  private final double availableTokens;
+  private final int inFlightAttempts;
+  private final long queuedAttempts;
+
+  public /* @exclude */ SessionAttemptStatistics(long grantedAttempts, long throttledAttempts, long totalThrottleDelay,
+      long maxThrottleDelay, double availableTokens, int inFlightAttempts, long queuedAttempts) {
+    this.grantedAttempts = grantedAttempts;
+    this.throttledAttempts = throttledAttempts;
+    this.totalThrottleDelay = totalThrottleDelay;
+    this.maxThrottleDelay = maxThrottleDelay;
+    this.availableTokens = availableTokens;
+    this.inFlightAttempts = inFlightAttempts;
+    this.queuedAttempts = queuedAttempts;
+  }
+
+  /**
+   * Inquiry method that gets the number of attempts performed immediately.
+   * @return the number of attempts that were not delayed.
+   */
+  public long getGrantedAttempts() {
+    return grantedAttempts;
+  }
+
+  /**
+   * Inquiry method that gets the number of attempts delayed because the rate set through
+   * {@link LightstreamerClient#setSessionAttemptRate(double)} had been exceeded.
+   * @return the number of throttled attempts.
+   */
+  public long getThrottledAttempts() {
+    return throttledAttempts;
+  }
+
+  /**
+   * Inquiry method that gets the sum of the delays imposed on the throttled attempts.
+   * @return the total delay (in milliseconds).
+   */
+  public long getTotalThrottleDelay() {
+    return totalThrottleDelay;
+  }
+
+  /**
+   * Inquiry method that gets the longest delay imposed on a throttled attempt.
+   * @return the maximum delay (in milliseconds).
+   */
+  public long getMaxThrottleDelay() {
+    return maxThrottleDelay;
+  }
+
+  /**
+   * Inquiry method that gets the number of attempts that can currently be performed without delay.
+   * A negative value means that some attempts are already scheduled ahead, which are at most as many as
+   * set through {@link LightstreamerClient#setSessionAttemptBurst(int)}.
+   * @return the number of available tokens.
+   */
+  public double getAvailableTokens() {
+    return availableTokens;
+  }
+
+  /**
+   * Inquiry method that gets the number of attempts currently in progress.
+   * @return the number of attempts holding a permit (see {@link LightstreamerClient#setSessionAttemptConcurrency(int)}).
+   */
+  public int getInFlightAttempts() {
+    return inFlightAttempts;
+  }
+
+  /**
+   * Inquiry method that gets the number of attempts delayed because the limit set through
+   * {@link LightstreamerClient#setSessionAttemptConcurrency(int)} had been reached.
+   * @return the number of queued attempts.
+   */
+  public long getQueuedAttempts() {
+    return queuedAttempts;
+  }
+
+  @Override
+  public String toString() {
+    return "[granted=" + grantedAttempts + " throttled=" + throttledAttempts + " totalDelay=" + totalThrottleDelay
+        + " maxDelay=" + maxThrottleDelay + " tokens=" + availableTokens + " inFlight=" + inFlightAttempts
+        + " queued=" + queuedAttempts + "]";
+  }
+}
@@ -16,10 +16,21 @@
 package com.lightstreamer.client;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -33,6 +44,8 @@ import com.lightstreamer.client.events.SubscriptionListenerEndEvent;
 import com.lightstreamer.client.events.SubscriptionListenerEndOfSnapshotEvent;
 import com.lightstreamer.client.events.SubscriptionListenerItemLostUpdatesEvent;
 import com.lightstreamer.client.events.SubscriptionListenerItemUpdateEvent;
+import com.lightstreamer.client.events.SubscriptionListenerItemUpdatesEvent;
+import com.lightstreamer.client.events.SubscriptionListenerSnapshotEvent;
 import com.lightstreamer.client.events.SubscriptionListenerStartEvent;
 import com.lightstreamer.client.events.SubscriptionListenerSubscriptionErrorEvent;
 import com.lightstreamer.client.events.SubscriptionListenerSubscriptionEvent;
@@ -43,12 +56,14 @@ import com.lightstreamer.client.requests.SubscribeRequest;
 import com.lightstreamer.client.session.SessionThread;
 import com.lightstreamer.log.LogManager;
 import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.Assertions;
 import com.lightstreamer.util.ConcurrentMatrix;
 import com.lightstreamer.util.Descriptor;
 import com.lightstreamer.util.ListDescriptor;
 import com.lightstreamer.util.Matrix;
 import com.lightstreamer.util.NameDescriptor;
 import com.lightstreamer.util.Number;
+import com.lightstreamer.util.threads.PendingTask;
 
 /**
  * Class representing a Subscription to be submitted to a Lightstreamer Server. It contains 
@@ -169,6 +184,15 @@ public class Subscription {
   protected String subMode = Constants.MERGE;
   private double aggregatedRealMaxFrequency = FREQUENCY_NULL;
   private boolean subTableFlag = false;
+  private int secondLevelBucketSize = 1;
+  /**
+   * Second-level subscriptions shared by several keys, when aggregation is enabled.
+   */
+  private final Map<Subscription,SecondLevelBucketListener> buckets = new HashMap<Subscription,SecondLevelBucketListener>();
+  /**
+   * The bucket still collecting keys, not yet sent to the Server.
+   */
+  private SecondLevelBucketListener pendingBucket = null;
   
   private String behavior = null;
   double requestedMaxFrequency = FREQUENCY_NULL;
@@ -186,6 +210,83 @@ public class Subscription {
   private SessionThread sessionThread;
   private SnapshotManager[] snapshotByItem;
   
+  private final List<CommandSortedView> sortedViews = new CopyOnWriteArrayList<CommandSortedView>();
+  private final List<InternalSubscriptionListener> internalListeners = new CopyOnWriteArrayList<InternalSubscriptionListener>();
+  
+  //warm start
+  private SubscriptionCache warmStartCache = null;
+  private String cacheKey = null;
+  private boolean cacheDirty = false;
+  private PendingTask cachePersistTask = null;
+  /**
+   * Rows notified from the cache and not yet confirmed by the Server, with their length. 
+   */
+  private final Map<String,Integer> staleRows = new LinkedHashMap<String,Integer>();
+  
+  //adaptive frequency
+  private AdaptiveFrequencyController frequencyController = null;
+  
+  //typed fields
+  /**
+   * Declared field types (see {@link TypedFieldValues}); null if no field is typed.
+   */
+  private String[] fieldTypes = null;
+  /**
+   * Decoded values of the last update of each row (keyed as oldValuesByKey), when fieldTypes is set. <BR>
+   * Written on the session thread only (the second-level updates included), but concurrent like oldValuesByKey.
+   */
+  private final Map<String,TypedFieldValues> typedRows = new ConcurrentHashMap<String,TypedFieldValues>();
+  
+  //filtered listeners
+  /**
+   * Filters of the listeners added through {@link #addListener(SubscriptionListener, UpdateFilter)}.
+   */
+  private final Map<SubscriptionListener,UpdateFilter> updateFilters = new ConcurrentHashMap<SubscriptionListener,UpdateFilter>();
+  
+  //sampled listeners
+  /**
+   * Listeners added through {@link #addSampledListener(SubscriptionListener)}.
+   */
+  private final Map<SubscriptionListener,Boolean> sampledListeners = new ConcurrentHashMap<SubscriptionListener,Boolean>();
+  private long localDeliveryInterval = 0;
+  /**
+   * Sampling state, lazily created and only accessed on the session thread.
+   */
+  private UpdateSampler sampler = null;
+  private PendingTask samplingTask = null;
+  
+  //batch listeners
+  /**
+   * {@link BatchSubscriptionListener}s added through {@link #addListener(SubscriptionListener)}.
+   */
+  private final Map<SubscriptionListener,Boolean> batchListeners = new ConcurrentHashMap<SubscriptionListener,Boolean>();
+  /**
+   * Updates to be notified to the batchListeners at the end of the current task of the session thread. <BR>
+   * Like pendingSnapshots, only accessed on the session thread.
+   */
+  private List<ItemUpdate> pendingBatch = null;
+  /**
+   * Snapshot updates to be notified to the batchListeners upon the end of snapshot, by item.
+   */
+  private final Map<Integer,List<ItemUpdate>> pendingSnapshots = new HashMap<Integer,List<ItemUpdate>>();
+  
+  //row snapshots
+  /**
+   * Point-in-time views of the rows (keyed as oldValuesByKey), replaced upon each update,
+   * so that they can be read without locking.
+   */
+  private final ConcurrentHashMap<String,RowSnapshot> rowSnapshots = new ConcurrentHashMap<String,RowSnapshot>();
+  /**
+   * Whether rowSnapshots is maintained by the updates: it is only enabled by the first request of a view,
+   * so that the updates don't build views that nobody reads.
+   */
+  private volatile boolean rowSnapshotsEnabled = false;
+  /**
+   * Released when rowSnapshots also holds the views of the rows updated before the enabling; 
+   * the views are built on the session thread, so the requests wait for it.
+   */
+  private final CountDownLatch rowSnapshotsSeeded = new CountDownLatch(1);
+  
   
   
   
@@ -328,7 +429,46 @@ public class Subscription {
    * @see #removeListener(SubscriptionListener)
    */
   public synchronized void addListener(@Nonnull SubscriptionListener listener) {
-    this.dispatcher.addListener(listener, new SubscriptionListenerStartEvent(this));
+    if (listener instanceof BatchSubscriptionListener) {
+      this.addListener(listener, this.batchListeners, true);
+    } else {
+      this.dispatcher.addListener(listener, new SubscriptionListenerStartEvent(this));
+    }
+  }
+  
+  /**
+   * Adds a listener that will receive events from the Subscription instance, but will only be notified 
+   * of the updates accepted by the specified filter. <BR>
+   * The filter is evaluated as soon as each update is received, before any event is prepared for the listener, 
+   * hence discarding the updates through a filter is cheaper than discarding them in 
+   * {@link SubscriptionListener#onItemUpdate(ItemUpdate)}. All the other events are notified as usual.
+   *
+   * @lifecycle A listener can be added at any time. A call to add a listener already 
+   * present will be ignored (and the filter will not be changed).
+   * 
+   * @param listener An object that will receive the events as documented in the 
+   * SubscriptionListener interface.
+   * @param filter The filter of the updates.
+   * 
+   * @see #removeListener(SubscriptionListener)
+   */
+  public synchronized void addListener(@Nonnull SubscriptionListener listener, @Nonnull UpdateFilter filter) {
+    this.addListener(listener, this.updateFilters, filter);
+  }
+  
+  /**
+   * Adds a listener whose updates are handled according to an entry of the specified map. The entry is put 
+   * before the listener is registered, so that the listener never receives an update not handled accordingly.
+   */
+  private <V> void addListener(SubscriptionListener listener, Map<SubscriptionListener,V> entries, V entry) {
+    if (this.dispatcher.getListeners().contains(listener)) {
+      //already present: the previous configuration is kept
+      return;
+    }
+    entries.put(listener, entry);
+    if (!this.dispatcher.addListener(listener, new SubscriptionListenerStartEvent(this))) {
+      entries.remove(listener);
+    }
   }
   
   /**
@@ -343,6 +483,45 @@ public class Subscription {
    */
   public synchronized void removeListener(@Nonnull SubscriptionListener listener) {
     this.dispatcher.removeListener(listener, new SubscriptionListenerEndEvent(this));
+    this.updateFilters.remove(listener);
+    this.sampledListeners.remove(listener);
+    this.batchListeners.remove(listener);
+  }
+  
+  /**
+   * Adds a listener that will receive events from the Subscription instance, but will be notified 
+   * of the updates at the pace configured through {@link #setLocalDeliveryInterval(long)}. <BR>
+   * At each interval, the listener receives, for each item (or, in COMMAND mode, for each key) that has been 
+   * updated in the meantime, a single update carrying the current values and, as changed fields, all 
+   * the fields changed since the previous notification. The updates of all the items are notified 
+   * in a single sequence of {@link SubscriptionListener#onItemUpdate(ItemUpdate)} calls. 
+   * The listeners added through {@link #addListener(SubscriptionListener)} still receive all the updates; 
+   * all the other events are notified as usual. <BR>
+   * Note that in DISTINCT mode the intermediate updates are lost. In COMMAND mode the commands are 
+   * consolidated, so that a key added and removed within the same interval is not notified at all.
+   *
+   * @lifecycle A listener can be added at any time. A call to add a listener already 
+   * present will be ignored.
+   * 
+   * @param listener An object that will receive the events as documented in the 
+   * SubscriptionListener interface.
+   * 
+   * @see #removeListener(SubscriptionListener)
+   * @see #setLocalDeliveryInterval(long)
+   */
+  public synchronized void addSampledListener(@Nonnull SubscriptionListener listener) {
+    this.addListener(listener, this.sampledListeners, true);
+  }
+  
+  /**
+   * Adds a library-owned listener, which is notified directly on the Session Thread.
+   */
+  public /* @exclude */ void addInternalListener(@Nonnull InternalSubscriptionListener listener) {
+    this.internalListeners.add(listener);
+  }
+  
+  public /* @exclude */ void removeInternalListener(@Nonnull InternalSubscriptionListener listener) {
+    this.internalListeners.remove(listener);
   }
   
   /**
@@ -642,6 +821,107 @@ public class Subscription {
     
     debugDescriptor("Field group assigned: ", this.fieldDescriptor);
   }
+  
+  /**
+   * Inquiry method that can be used to read the field types configured through 
+   * {@link #setFieldTypes(String[])}.
+   * 
+   * @lifecycle This method can be called at any time.
+   * 
+   * @return the field types, or null if no type was declared.
+   */
+  @Nullable
+  public synchronized String[] getFieldTypes() {
+    if (this.fieldTypes == null) {
+      return null;
+    }
+    String[] res = new String[this.fieldTypes.length];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = this.fieldTypes[i] == null ? TypedFieldValues.STRING : this.fieldTypes[i];
+    }
+    return res;
+  }
+  
+  /**
+   * Setter method that declares the types of the values of the fields. The values of the typed fields 
+   * are decoded as soon as each update is received, so that the listeners can read them through 
+   * {@link ItemUpdate#getLong(int)}, {@link ItemUpdate#getDouble(int)} and {@link ItemUpdate#getBytes(int, java.nio.ByteBuffer)}
+   * without parsing them; only the fields changed by an update are decoded again. The values of all the fields 
+   * are still available as strings. <BR>
+   * The admitted types are:
+   * <ul>
+   *  <li>STRING: the value is not decoded;</li>
+   *  <li>LONG: the value is a 64-bit integer number;</li>
+   *  <li>DOUBLE: the value is a decimal number;</li>
+   *  <li>BASE64: the value is binary data in the standard Base64 encoding.</li>
+   * </ul>
+   * 
+   * @default null (meaning that all the fields are of type STRING).
+   * 
+   * @lifecycle This method can only be called while the Subscription instance is in its "inactive" state.
+   * 
+   * @throws IllegalStateException if the Subscription is currently "active".
+   * @throws IllegalArgumentException if any of the types is not one of the admitted values.
+   * 
+   * @param types an array whose element in position N (0-based) is the type of the field in position N+1 
+   * within the "Field List" or "Field Schema" (in case of two-level behavior, the second-level fields follow 
+   * the first-level ones); null elements mean STRING and missing elements are also considered STRING. 
+   * The check is case insensitive. A null array means that all the fields are of type STRING.
+   * 
+   * @see #getFieldRef(String)
+   */
+  public synchronized void setFieldTypes(@Nullable String[] types) {
+    this.notAliveCheck();
+    
+    String[] tmp = null;
+    if (types != null) {
+      tmp = new String[types.length];
+      for (int i = 0; i < types.length; i++) {
+        tmp[i] = TypedFieldValues.toType(types[i]);
+      }
+    }
+    this.fieldTypes = tmp;
+    
+    if (log.isDebugEnabled()) {
+      log.debug("Field types assigned: " + (types == null ? null : Arrays.toString(types)));
+    }
+  }
+  
+  /**
+   * Returns a handle to a field, which can be used to access the field values in the {@link ItemUpdate}s 
+   * without looking up the field name on each access.
+   * 
+   * @lifecycle This method can be called at any time.
+   * 
+   * @throws IllegalStateException if the Subscription was initialized using a field schema 
+   * or was not initialized at all.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * 
+   * @param fieldName a field in the configured "Field List" (or in the second-level "Field List").
+   * @return the handle of the field.
+   * 
+   * @see ItemUpdate#getValue(FieldRef)
+   */
+  @Nonnull
+  public synchronized FieldRef getFieldRef(@Nonnull String fieldName) {
+    if (this.fieldDescriptor instanceof NameDescriptor) {
+      throw new IllegalStateException("This Subscription was initiated using a field schema, use field positions instead");
+    }
+    if (this.fieldDescriptor == null) {
+      throw new IllegalStateException(NO_SCHEMA_NOR_LIST);
+    }
+    int fieldPos = this.fieldDescriptor.getPos(fieldName);
+    if (fieldPos == -1 && this.subFieldDescriptor instanceof ListDescriptor) {
+      int subPos = this.subFieldDescriptor.getPos(fieldName);
+      if (subPos != -1) {
+        fieldPos = this.fieldDescriptor.getSize() + subPos;
+      }
+    }
+    if (fieldPos == -1) {
+      throw new IllegalArgumentException("the specified field does not exist");
+    }
+    return new FieldRef(fieldName, fieldPos);
+  }
 
   /**
    * Inquiry method that can be used to read the buffer size, configured though
@@ -1267,6 +1547,274 @@ public class Subscription {
     debugDescriptor("Second level field schema assigned: ", this.subFieldDescriptor);
   }
   
+  /**
+   * Setter method that configures how many second-level items, in case of two-level behavior, can be 
+   * carried by the same underlying subscription. <BR>
+   * By default, a dedicated subscription, with its own subscription request, is issued for each key 
+   * received on the first level; with large tables this means many requests upon snapshot and many 
+   * unsubscription requests when keys are deleted. With a size greater than 1, the keys received 
+   * within the same burst of updates are packed into shared subscriptions of up to the given number 
+   * of items; once half of the keys of such a subscription have been deleted, the remaining ones are 
+   * moved to a new shared subscription, whereas updates for deleted keys that are still part of a live 
+   * subscription are discarded by the library. If a shared subscription is refused by the Server, its 
+   * keys are subscribed again one by one, so that only the keys actually refused get notified through 
+   * {@link SubscriptionListener#onCommandSecondLevelSubscriptionError}. <BR>
+   * The notifications received by the {@link SubscriptionListener} are the same in both cases.
+   * 
+   * @default 1 (one subscription per key).
+   * 
+   * @lifecycle This method can only be called while the Subscription instance is in its "inactive" state.
+   * 
+   * @throws IllegalStateException if the Subscription is currently "active".
+   * @throws IllegalStateException if the Subscription mode is not "COMMAND".
+   * @throws IllegalArgumentException if a negative or zero value is configured.
+   * 
+   * @param size the maximum number of second-level items per underlying subscription.
+   * 
+   * @see #setCommandSecondLevelFields(String[])
+   * @see #setCommandSecondLevelFieldSchema(String)
+   */
+  public synchronized void setCommandSecondLevelBucketSize(int size) {
+    this.notAliveCheck();
+    this.secondLevelCheck();
+    Number.verifyPositive(size, Number.DONT_ACCEPT_ZERO);
+    
+    this.secondLevelBucketSize = size;
+    if (log.isDebugEnabled()) {
+      log.debug("Second level bucket size assigned: " + size);
+    }
+  }
+  
+  /**
+   * Inquiry method that gets the maximum number of second-level items carried by the same underlying 
+   * subscription.
+   * 
+   * @lifecycle This method can be called at any time.
+   * 
+   * @return the maximum number of second-level items per underlying subscription.
+   * 
+   * @see #setCommandSecondLevelBucketSize(int)
+   */
+  public synchronized int getCommandSecondLevelBucketSize() {
+    return this.secondLevelBucketSize;
+  }
+  
+  /**
+   * Setter method that configures a local cache where the last values received for this Subscription 
+   * are periodically saved and from which they are restored upon the next subscription. <BR>
+   * When a cache is configured and it contains values saved for a Subscription with the same Data Adapter, 
+   * mode, items, fields and selector, such values are notified to the listeners as soon as the 
+   * Subscription is subscribed to, through {@link SubscriptionListener#onItemUpdate} calls carrying 
+   * {@link ItemUpdate}s for which {@link ItemUpdate#isCached()} returns true. These values are stale 
+   * and are superseded by the snapshot received from the Server. In COMMAND mode, cached keys which are 
+   * not part of the real snapshot are removed through "DELETE" updates when the snapshot ends. <BR>
+   * Note that cached values are not available through {@link #getValue} and {@link #getCommandValue} 
+   * and that, in case of two-level behavior, only the first-level fields are restored.
+   * 
+   * @default null (meaning that no cache is used).
+   * 
+   * @lifecycle This method can only be called while the Subscription instance is in its "inactive" state.
+   * 
+   * @throws IllegalStateException if the Subscription is currently "active".
+   * 
+   * @param cache a {@link SubscriptionCache} instance, or null to disable the warm start.
+   * 
+   * @see ItemUpdate#isCached()
+   */
+  public synchronized void setWarmStartCache(@Nullable SubscriptionCache cache) {
+    this.notAliveCheck();
+    
+    this.warmStartCache = cache;
+    log.info("Warm start cache " + (cache == null ? "removed" : "configured"));
+  }
+  
+  /**
+   * Inquiry method that gets the local cache used to save and restore the values of this Subscription.
+   * 
+   * @lifecycle This method can be called at any time.
+   * 
+   * @return the {@link SubscriptionCache} in use, or null if none was configured.
+   * 
+   * @see #setWarmStartCache(SubscriptionCache)
+   */
+  @Nullable
+  public synchronized SubscriptionCache getWarmStartCache() {
+    return this.warmStartCache;
+  }
+  
+  /**
+   * Setter method that configures a controller that adapts the requested max frequency to the speed of the 
+   * listeners of this Subscription. <BR>
+   * The controller measures how long the events wait before being notified and how long the listeners take 
+   * to execute them; it lowers the frequency when the listeners fall behind and raises it again when they 
+   * recover, within the bounds supplied to {@link AdaptiveFrequencyController#AdaptiveFrequencyController(double, double)}. 
+   * When the controller is configured, the requested max frequency is set to its upper bound and further 
+   * changes through {@link #setRequestedMaxFrequency(String)} are overridden by the controller.
+   * 
+   * @default null (meaning that the requested max frequency is not adapted).
+   * 
+   * @lifecycle This method can only be called while the Subscription instance is in its "inactive" state.
+   * 
+   * @throws IllegalStateException if the Subscription is currently "active".
+   * @throws IllegalStateException if the controller is already used by another Subscription.
+   * 
+   * @param controller an {@link AdaptiveFrequencyController} instance, or null to stop adapting the frequency.
+   * 
+   * @see #setRequestedMaxFrequency(String)
+   */
+  public synchronized void setAdaptiveFrequencyController(@Nullable AdaptiveFrequencyController controller) {
+    this.notAliveCheck();
+    
+    if (this.frequencyController != null) {
+      this.frequencyController.unbind(this);
+    }
+    if (controller == null) {
+      this.dispatcher.setDeliveryObserver(null);
+    } else {
+      this.dispatcher.setDeliveryObserver(controller.bind(this));
+      this.requestedMaxFrequency = controller.getCurrentFrequency();
+    }
+    this.frequencyController = controller;
+    log.info("Adaptive frequency controller " + (controller == null ? "removed" : "configured"));
+  }
+  
+  /**
+   * Setter method that configures the interval at which the updates are notified to the listeners 
+   * added through {@link #addSampledListener(SubscriptionListener)}. Unlike {@link #setRequestedMaxFrequency(String)}, 
+   * the interval doesn't affect the updates sent by the Server nor the other listeners. 
+   * 
+   * @default 0 (meaning that the sampled listeners receive all the updates, as the other listeners).
+   * 
+   * @lifecycle This method can only be called while the Subscription instance is in its "inactive" state.
+   * 
+   * @throws IllegalStateException if the Subscription is currently "active".
+   * @throws IllegalArgumentException if a negative value is configured.
+   * 
+   * @param millis the interval (in milliseconds) between two notifications to the sampled listeners.
+   * 
+   * @see #addSampledListener(SubscriptionListener)
+   */
+  public synchronized void setLocalDeliveryInterval(long millis) {
+    this.notAliveCheck();
+    
+    Number.verifyPositive(millis, Number.ACCEPT_ZERO);
+    this.localDeliveryInterval = millis;
+    
+    if (log.isDebugEnabled()) {
+      log.debug("Local delivery interval assigned: " + millis);
+    }
+  }
+  
+  /**
+   * Inquiry method that gets the interval at which the updates are notified to the sampled listeners.
+   * 
+   * @lifecycle This method can be called at any time.
+   * 
+   * @return the interval (in milliseconds), or 0 if the sampled listeners receive all the updates.
+   * 
+   * @see #setLocalDeliveryInterval(long)
+   */
+  public synchronized long getLocalDeliveryInterval() {
+    return this.localDeliveryInterval;
+  }
+  
+  /**
+   * Inquiry method that gets the controller that adapts the requested max frequency of this Subscription.
+   * 
+   * @lifecycle This method can be called at any time.
+   * 
+   * @return the {@link AdaptiveFrequencyController} in use, or null if none was configured.
+   * 
+   * @see #setAdaptiveFrequencyController(AdaptiveFrequencyController)
+   */
+  @Nullable
+  public synchronized AdaptiveFrequencyController getAdaptiveFrequencyController() {
+    return this.frequencyController;
+  }
+  
+  /**
+   * Creates a view over the keys of this COMMAND Subscription, sorted by the value of the specified field 
+   * and kept up to date by the library as ADD, UPDATE and DELETE commands are received. <BR>
+   * The view contains the current values of all the keys of all the items, and it is updated before 
+   * each related {@link SubscriptionListener#onItemUpdate} event is notified; it can be read from any 
+   * thread without locking. The view is emptied upon {@link SubscriptionListener#onClearSnapshot} 
+   * (for the involved item) and when the Subscription is unsubscribed from or its session is closed.
+   * 
+   * @lifecycle This method can only be called while the Subscription instance is in its "inactive" state.
+   * 
+   * @throws IllegalStateException if the Subscription is currently "active".
+   * @throws IllegalStateException if the Subscription mode is not "COMMAND".
+   * @throws IllegalArgumentException if the specified field position is not positive.
+   * 
+   * @param fieldPos the 1-based position of the field to sort by, within the configured 
+   * "Field List" or "Field Schema"; in case of two-level behavior, second-level fields can 
+   * be used, following the conventions of {@link ItemUpdate}.
+   * @param comparator the order of the field values; note that it may receive null values. 
+   * {@link CommandSortedView#NUMERIC_ORDER} can be used for numeric fields.
+   * @return the new view.
+   * 
+   * @see #removeSortedView(CommandSortedView)
+   */
+  @Nonnull
+  public synchronized CommandSortedView sortedView(int fieldPos, @Nonnull Comparator<String> comparator) {
+    this.notAliveCheck();
+    this.commandCheck();
+    if (fieldPos <= 0) {
+      throw new IllegalArgumentException("the specified field position is out of bounds");
+    }
+    
+    CommandSortedView view = new CommandSortedView(fieldPos, comparator);
+    this.sortedViews.add(view);
+    return view;
+  }
+  
+  /**
+   * Creates a view over the keys of this COMMAND Subscription, sorted by the value of the specified field. 
+   * See {@link #sortedView(int, Comparator)} for details.
+   * 
+   * @lifecycle This method can only be called while the Subscription instance is in its "inactive" state.
+   * 
+   * @throws IllegalStateException if the Subscription is currently "active".
+   * @throws IllegalStateException if the Subscription mode is not "COMMAND".
+   * @throws IllegalStateException if the Subscription was initialized using a field schema.
+   * @throws IllegalArgumentException if the specified field is not part of the Subscription.
+   * 
+   * @param fieldName a field in the configured "Field List" (or in the second-level "Field List").
+   * @param comparator the order of the field values; note that it may receive null values.
+   * @return the new view.
+   */
+  @Nonnull
+  public synchronized CommandSortedView sortedView(@Nonnull String fieldName, @Nonnull Comparator<String> comparator) {
+    if (this.fieldDescriptor instanceof NameDescriptor) {
+      throw new IllegalStateException("This Subscription was initiated using a field schema, use sortedView(int, Comparator) instead");
+    }
+    if (this.fieldDescriptor == null) {
+      throw new IllegalStateException(NO_SCHEMA_NOR_LIST);
+    }
+    int fieldPos = this.fieldDescriptor.getPos(fieldName);
+    if (fieldPos == -1 && this.subFieldDescriptor instanceof ListDescriptor) {
+      int subPos = this.subFieldDescriptor.getPos(fieldName);
+      if (subPos != -1) {
+        fieldPos = this.fieldDescriptor.getSize() + subPos;
+      }
+    }
+    if (fieldPos == -1) {
+      throw new IllegalArgumentException("the specified field does not exist");
+    }
+    return this.sortedView(fieldPos, comparator);
+  }
+  
+  /**
+   * Removes a view created through {@link #sortedView(int, Comparator)}, which will not be updated anymore.
+   * 
+   * @lifecycle This method can be called at any time.
+   * 
+   * @param view the view to be removed.
+   */
+  public synchronized void removeSortedView(@Nonnull CommandSortedView view) {
+    this.sortedViews.remove(view);
+  }
+  
   /**
    * Returns the latest value received for the specified item/field pair. <BR>
    * It is suggested to consume real-time data by implementing and adding
@@ -1498,12 +2046,94 @@ public class Subscription {
     return this.oldValuesByKey.get(mapKey,fieldPos);
   }
   
-//////////////////////////Lifecycle  
- 
-  void notAliveCheck() {
-    if (this.isActive()) {
-      throw new IllegalStateException(IS_ALIVE);
-    }
+  /**
+   * Returns the latest values received for all the fields of the specified item, as a consistent view. <BR>
+   * Unlike {@link #getValue(int, int)}, the values all belong to the same update and the method doesn't 
+   * take any lock, hence it can be invoked frequently by several threads. The returned view is not affected 
+   * by the subsequent updates. <BR>
+   * The views are only maintained by the library after the first call of this method or of 
+   * {@link #getCommandRowSnapshot(int, String)}, so that the Subscriptions which don't use them don't pay for them; 
+   * hence the first call waits until the library has collected the values already received. <BR>
+   * Note that internal data is cleared when the Subscription is unsubscribed from.
+   *
+   * @lifecycle This method can be called at any time.
+   * @throws IllegalStateException if the Subscription mode is COMMAND.
+   * @param itemPos the 1-based position of an item within the configured "Item Group"
+   * or "Item List" 
+   * @return the current values of the specified item, or null if no update has been received yet.
+   * 
+   * @see #getCommandRowSnapshot(int, String)
+   */
+  @Nullable
+  public RowSnapshot getItemSnapshot(int itemPos) {
+    if (this.mode.equals(Constants.COMMAND)) {
+      throw new IllegalStateException("This Subscription is in COMMAND mode, use getCommandRowSnapshot instead");
+    }
+    return this.getRowSnapshot(String.valueOf(itemPos));
+  }
+  
+  /**
+   * Returns the latest values received for all the fields of the specified item, as a consistent view 
+   * (see {@link #getItemSnapshot(int)}).
+   *
+   * @lifecycle This method can be called at any time.
+   * @throws IllegalArgumentException if an invalid item name is specified.
+   * @throws IllegalStateException if the Subscription mode is COMMAND.
+   * @param itemName an item in the configured "Item List"
+   * @return the current values of the specified item, or null if no update has been received yet.
+   */
+  @Nullable
+  public RowSnapshot getItemSnapshot(@Nonnull String itemName) {
+    return this.getItemSnapshot(this.toItemPos(itemName));
+  }
+  
+  /**
+   * Returns the latest values received for all the fields of the specified item/key combination, as a 
+   * consistent view. This method can only be used if the Subscription mode is COMMAND; in case of two-level 
+   * behavior, the view also includes the second-level fields. <BR>
+   * Unlike {@link #getCommandValue(int, String, int)}, the values all belong to the same update and the method 
+   * doesn't take any lock, hence it can be invoked frequently by several threads. The returned view is not 
+   * affected by the subsequent updates. As for {@link #getItemSnapshot(int)}, the views are only maintained 
+   * after the first request. <BR>
+   * Note that internal data is cleared when the Subscription is unsubscribed from.
+   *
+   * @lifecycle This method can be called at any time.
+   * @throws IllegalStateException if the Subscription mode is not COMMAND.
+   * @param itemPos the 1-based position of an item within the configured "Item Group"
+   * or "Item List" 
+   * @param keyValue the value of a key received on the COMMAND subscription.
+   * @return the current values of the specified key within the specified item, or null if the 
+   * specified key has not been added yet (note that it might have been added and then deleted).
+   */
+  @Nullable
+  public RowSnapshot getCommandRowSnapshot(int itemPos, @Nonnull String keyValue) {
+    this.commandCheck();
+    return this.getRowSnapshot(itemPos + " " + keyValue);
+  }
+  
+  /**
+   * Returns the latest values received for all the fields of the specified item/key combination, as a 
+   * consistent view (see {@link #getCommandRowSnapshot(int, String)}).
+   *
+   * @lifecycle This method can be called at any time.
+   * @throws IllegalArgumentException if an invalid item name is specified.
+   * @throws IllegalStateException if the Subscription mode is not COMMAND.
+   * @param itemName an item in the configured "Item List"
+   * @param keyValue the value of a key received on the COMMAND subscription.
+   * @return the current values of the specified key within the specified item, or null if the 
+   * specified key has not been added yet (note that it might have been added and then deleted).
+   */
+  @Nullable
+  public RowSnapshot getCommandRowSnapshot(@Nonnull String itemName, @Nonnull String keyValue) {
+    return this.getCommandRowSnapshot(this.toItemPos(itemName), keyValue);
+  }
+  
+//////////////////////////Lifecycle  
+ 
+  void notAliveCheck() {
+    if (this.isActive()) {
+      throw new IllegalStateException(IS_ALIVE);
+    }
   }
   
   void isAliveCheck() {
@@ -1568,6 +2198,10 @@ public class Subscription {
     this.manager = manager;
     this.setPhase(WAITING);
     
+    if (this.warmStartCache != null) {
+      this.restoreFromCache();
+    }
+    
     if (log.isDebugEnabled()) {
       log.debug("Subscription "+subId+" ready to be sent to server");
     }
@@ -1589,12 +2223,15 @@ public class Subscription {
     this.setPhase(OFF);
     
     if (wasSubscribed) {
+      this.flushBatch();
       this.dispatcher.dispatchEvent(new SubscriptionListenerUnsubscriptionEvent());
     }
     
     if (this.behavior.equals(MULTIMETAPUSH)) {
       this.removeSubTables();
     }
+    this.persistToCache();
+    this.stopCachePersistence();
     this.cleanData();
     
     if (log.isDebugEnabled()) {
@@ -1612,11 +2249,13 @@ public class Subscription {
     this.setPhase(PAUSED);
     
     if (wasSubscribed) {
+      this.flushBatch();
       this.dispatcher.dispatchEvent(new SubscriptionListenerUnsubscriptionEvent());
     }
     if (this.behavior.equals(MULTIMETAPUSH)) {
       this.removeSubTables();
     }
+    this.persistToCache();
     this.cleanData();
     
     if (log.isDebugEnabled()) {
@@ -1683,6 +2322,13 @@ public class Subscription {
     
     this.dispatcher.dispatchEvent(new SubscriptionListenerSubscriptionEvent());
     
+    if (!this.staleRows.isEmpty() && !this.behavior.equals(SIMPLE) && (this.isRequiredSnapshot == null || this.isRequiredSnapshot.equals("no"))) {
+      //no snapshot will confirm the cached keys
+      for (int i = 1; i <= items; i++) {
+        this.removeStaleRows(i);
+      }
+    }
+    
     if (log.isDebugEnabled()) {
       log.debug("Subscription "+this.subscriptionId+" is now pushing");
     }
@@ -1800,6 +2446,15 @@ public class Subscription {
     
     String name = this.itemDescriptor.getName(item);
     this.snapshotByItem[item].endOfSnapshot();
+    this.flushBatch();
+    this.flushSnapshot(name, item);
+    if (!this.staleRows.isEmpty() && !this.behavior.equals(SIMPLE)) {
+      this.removeStaleRows(item);
+    }
+    for (InternalSubscriptionListener listener : this.internalListeners) {
+      listener.onEndOfSnapshot(item);
+    }
+    this.flushBatch();
     this.dispatcher.dispatchEvent(new SubscriptionListenerEndOfSnapshotEvent(name,item));
   }
 
@@ -1810,17 +2465,26 @@ public class Subscription {
     
     String name = this.itemDescriptor.getName(item);
     
+    for (CommandSortedView view : this.sortedViews) {
+      view.clearItem(item);
+    }
+    
     if (this.behavior.equals(METAPUSH)) {
       //delete key-status
       this.oldValuesByKey.clear();
+      this.rowSnapshots.clear();
     } else if (this.behavior.equals(MULTIMETAPUSH)) {
       //delete key-status
       this.oldValuesByKey.clear();
+      this.rowSnapshots.clear();
       //unsubscribe subtables
       this.removeItemSubTables(item);
       this.onLocalFrequencyChanged();
     }
-
+    
+    //the pending snapshot is obsolete
+    this.pendingSnapshots.remove(item);
+    this.flushBatch();
     this.dispatcher.dispatchEvent(new SubscriptionListenerClearSnapshotEvent(name,item));
   }
   
@@ -1829,6 +2493,7 @@ public class Subscription {
       return;
     }
     String name = this.itemDescriptor.getName(item);
+    this.flushBatch();
     this.dispatcher.dispatchEvent(new SubscriptionListenerItemLostUpdatesEvent(name,item,lostUpdates));
   }
   
@@ -1907,26 +2572,201 @@ public class Subscription {
       this.updateStructure(this.oldValuesByKey,key,args,changedFields);
       //organizeMPUpdate has already updated the oldValuesByItem array
     }
+   
+    if (this.warmStartCache != null) {
+      this.cacheDirty = true;
+      this.staleRows.remove(key);
+    }
     
     
     
     
-    String itemName = itemDescriptor.getName(item);
-    boolean snapshot = this.snapshotByItem[item].isSnapshot();
-    ItemUpdate updateObj = new ItemUpdate(itemName,item,snapshot,args,changedFields,fieldDescriptor); 
+    if (!this.sortedViews.isEmpty() && !this.behavior.equals(SIMPLE) && key != null) {
+      this.updateSortedViews(item, key, args);
+    }
+    
+    if (!this.internalListeners.isEmpty()) {
+      this.notifyInternalListeners(item, args, changedFields);
+    }
     
-    this.dispatcher.dispatchEvent(new SubscriptionListenerItemUpdateEvent(updateObj));
+    TypedFieldValues typedValues = null;
+    if (this.fieldTypes != null && key != null) {
+      typedValues = TypedFieldValues.decode(this.fieldTypes, args, changedFields, this.typedRows.get(key));
+      this.typedRows.put(key, typedValues);
+    }
+    if (key != null && this.rowSnapshotsEnabled) {
+      //args is not modified after this point
+      this.rowSnapshots.put(key, new RowSnapshot(itemDescriptor.getName(item), item, args, typedValues, fieldDescriptor));
+    }
+    
+    if (this.hasListenersFor(changedFields)) {
+      String itemName = itemDescriptor.getName(item);
+      boolean snapshot = this.snapshotByItem[item].isSnapshot();
+      ItemUpdate updateObj = new ItemUpdate(itemName,item,snapshot,args,changedFields,fieldDescriptor); 
+      updateObj.setTypedValues(typedValues);
+      this.dispatchItemUpdate(key, updateObj, changedFields);
+    }
     
     if(!this.behavior.equals(SIMPLE)) {
       String command = this.oldValuesByKey.get(key,this.commandCode);
       if (Constants.DELETE.equals(command)) {
         this.oldValuesByKey.delRow(key);
+        this.typedRows.remove(key);
+        this.rowSnapshots.remove(key);
       }
     }
     
   }
   
   
+  /**
+   * Checks whether some listener may be interested in an update, before preparing it: 
+   * this is not the case if all the listeners have filters whose fields haven't changed.
+   */
+  private boolean hasListenersFor(SortedSet<Integer> changedFields) {
+    int listeners = this.dispatcher.size();
+    if (listeners == 0) {
+      return false;
+    } else if (this.updateFilters.size() < listeners) {
+      //some listener is not filtered (or is sampled)
+      return true;
+    }
+    for (UpdateFilter filter : this.updateFilters.values()) {
+      if (filter.matchesFields(changedFields)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Notifies the update to the listeners accepted by their filters (see {@link UpdateFilter})
+   * and accumulates it for the sampled listeners (see {@link UpdateSampler}).
+   */
+  private void dispatchItemUpdate(String rowKey, final ItemUpdate updateObj, final SortedSet<Integer> changedFields) {
+    final boolean sampling = this.localDeliveryInterval > 0 && !this.sampledListeners.isEmpty() && rowKey != null;
+    if (sampling) {
+      this.sample(rowKey, updateObj, changedFields);
+    }
+    final boolean batching = !this.batchListeners.isEmpty();
+    if (batching) {
+      this.batch(updateObj);
+    }
+    if (this.updateFilters.isEmpty() && !sampling && !batching) {
+      this.dispatcher.dispatchEvent(new SubscriptionListenerItemUpdateEvent(updateObj));
+      return;
+    }
+    //the filters are evaluated before the event is built
+    final Set<SubscriptionListener> accepted = new HashSet<SubscriptionListener>();
+    for (SubscriptionListener listener : this.dispatcher.getListeners()) {
+      if (sampling && this.sampledListeners.containsKey(listener)) {
+        continue;
+      }
+      if (batching && this.batchListeners.containsKey(listener)) {
+        continue;
+      }
+      UpdateFilter filter = this.updateFilters.get(listener);
+      if (filter == null || filter.matches(updateObj, changedFields)) {
+        accepted.add(listener);
+      }
+    }
+    if (accepted.isEmpty()) {
+      return;
+    }
+    this.dispatcher.dispatchEvent(new SubscriptionListenerItemUpdateEvent(updateObj), new EventDispatcher.ListenerFilter<SubscriptionListener>() {
+      @Override
+      public boolean accept(SubscriptionListener listener) {
+        return accepted.contains(listener);
+      }
+    });
+  }
+  
+  private void batch(ItemUpdate updateObj) {
+    assert Assertions.isSessionThread();
+    if (updateObj.isSnapshot() && !updateObj.isCached() && (this.mode.equals(Constants.DISTINCT) || this.mode.equals(Constants.COMMAND))) {
+      List<ItemUpdate> snapshot = this.pendingSnapshots.get(updateObj.getItemPos());
+      if (snapshot == null) {
+        snapshot = new ArrayList<ItemUpdate>();
+        this.pendingSnapshots.put(updateObj.getItemPos(), snapshot);
+      }
+      snapshot.add(updateObj);
+      return;
+    }
+    if (this.pendingBatch == null) {
+      this.pendingBatch = new ArrayList<ItemUpdate>();
+      //the updates received in the current task are collected
+      this.sessionThread.queue(new Runnable() {
+        @Override
+        public void run() {
+          flushBatch();
+        }
+      });
+    }
+    this.pendingBatch.add(updateObj);
+  }
+  
+  /**
+   * Notifies the collected updates to the batchListeners; must be called before notifying any other event.
+   */
+  private void flushBatch() {
+    assert Assertions.isSessionThread();
+    if (this.pendingBatch == null) {
+      return;
+    }
+    List<ItemUpdate> updates = Collections.unmodifiableList(this.pendingBatch);
+    this.pendingBatch = null;
+    this.dispatcher.dispatchEvent(new SubscriptionListenerItemUpdatesEvent(updates), new EventDispatcher.ListenerFilter<SubscriptionListener>() {
+      @Override
+      public boolean accept(SubscriptionListener listener) {
+        return batchListeners.containsKey(listener);
+      }
+    });
+  }
+  
+  private void flushSnapshot(String itemName, int item) {
+    List<ItemUpdate> snapshot = this.pendingSnapshots.remove(item);
+    if (snapshot == null) {
+      return;
+    }
+    this.dispatcher.dispatchEvent(new SubscriptionListenerSnapshotEvent(itemName, item, Collections.unmodifiableList(snapshot)), new EventDispatcher.ListenerFilter<SubscriptionListener>() {
+      @Override
+      public boolean accept(SubscriptionListener listener) {
+        return batchListeners.containsKey(listener);
+      }
+    });
+  }
+  
+  private void sample(String rowKey, ItemUpdate updateObj, SortedSet<Integer> changedFields) {
+    assert Assertions.isSessionThread();
+    if (this.sampler == null) {
+      this.sampler = new UpdateSampler(this.behavior.equals(SIMPLE) ? 0 : this.commandCode);
+    }
+    this.sampler.add(rowKey, updateObj, changedFields);
+    if (this.samplingTask == null) {
+      this.samplingTask = this.sessionThread.schedule(new Runnable() {
+        @Override
+        public void run() {
+          samplingTask = null;
+          deliverSamples();
+        }
+      }, this.localDeliveryInterval);
+    }
+  }
+  
+  private void deliverSamples() {
+    assert Assertions.isSessionThread();
+    if (this.sampler == null || this.sampler.isEmpty()) {
+      return;
+    }
+    List<ItemUpdate> updates = this.sampler.drain();
+    this.dispatcher.dispatchEvent(new SubscriptionListenerItemUpdatesEvent(updates), new EventDispatcher.ListenerFilter<SubscriptionListener>() {
+      @Override
+      public boolean accept(SubscriptionListener listener) {
+        return sampledListeners.containsKey(listener);
+      }
+    });
+  }
+  
 /////////////////data handling  
   
   private void cleanData() {
@@ -1936,6 +2776,19 @@ public class Subscription {
     this.oldValuesByItem.clear(); 
     this.oldValuesByKey.clear();
     this.snapshotByItem = null;
+    this.staleRows.clear();
+    this.typedRows.clear();
+    this.rowSnapshots.clear();
+    this.pendingBatch = null;
+    this.pendingSnapshots.clear();
+    this.sampler = null;
+    if (this.samplingTask != null) {
+      this.samplingTask.cancel();
+      this.samplingTask = null;
+    }
+    for (CommandSortedView view : this.sortedViews) {
+      view.clear();
+    }
     
     //resets the schema size
     this.fieldDescriptor.setSize(0);
@@ -1944,6 +2797,8 @@ public class Subscription {
     if (this.behavior.equals(MULTIMETAPUSH)) {
       this.fieldDescriptor.setSubDescriptor(null);
       this.subTables.clear();
+      this.buckets.clear();
+      this.pendingBucket = null;
     }
     
     if (log.isDebugEnabled()) {
@@ -2071,6 +2926,313 @@ public class Subscription {
     return extendedKey;
   }
   
+  /**
+   * Notifies the library-owned listeners. This always happens on the Session Thread, as the updates 
+   * coming from the second-level subscriptions are received through an {@link InternalSubscriptionListener} too.
+   */
+  private void notifyInternalListeners(int item, ArrayList<String> args, SortedSet<Integer> changedFields) {
+    for (InternalSubscriptionListener listener : this.internalListeners) {
+      listener.onItemUpdate(item, args, changedFields);
+    }
+  }
+  
+  private void updateSortedViews(int item, String extendedKey, ArrayList<String> values) {
+    //values are complete here, as updateStructure has replaced the unchanged ones
+    String key = extendedKey.substring(extendedKey.indexOf(' ')+1);
+    boolean deleted = Constants.DELETE.equals(this.oldValuesByKey.get(extendedKey,this.commandCode));
+    for (CommandSortedView view : this.sortedViews) {
+      view.onUpdate(item, extendedKey, key, values, deleted);
+    }
+  }
+  
+  private RowSnapshot getRowSnapshot(String key) {
+    if (this.rowSnapshotsSeeded.getCount() > 0) {
+      this.enableRowSnapshots();
+    }
+    return this.rowSnapshots.get(key);
+  }
+  
+  /**
+   * Lets the updates maintain rowSnapshots and waits until the views of the rows already received 
+   * have been added by the session thread.
+   */
+  private void enableRowSnapshots() {
+    boolean first;
+    synchronized (this.rowSnapshots) {
+      first = !this.rowSnapshotsEnabled;
+      this.rowSnapshotsEnabled = true;
+    }
+    SessionThread thread = this.sessionThread;
+    if (thread == null) {
+      //never subscribed, hence no rows
+      this.rowSnapshotsSeeded.countDown();
+      return;
+    } else if (Assertions.isSessionThread()) {
+      this.seedRowSnapshots();
+      return;
+    } else if (first) {
+      thread.queue(new Runnable() {
+        @Override
+        public void run() {
+          seedRowSnapshots();
+        }
+      });
+    }
+    try {
+      this.rowSnapshotsSeeded.await();
+    } catch (InterruptedException e) {
+      //the views of the older rows may be missing
+      Thread.currentThread().interrupt();
+    }
+  }
+  
+  private void seedRowSnapshots() {
+    if (this.rowSnapshotsSeeded.getCount() == 0) {
+      return;
+    }
+    if (this.behavior.equals(SIMPLE)) {
+      this.oldValuesByItem.forEachRow(new ConcurrentMatrix.RowCallback<Integer,Integer,String>() {
+        @Override
+        public boolean onRow(Integer item, ConcurrentHashMap<Integer,String> rowMap) {
+          seedRowSnapshot(item, String.valueOf(item), rowMap);
+          return false;
+        }
+      });
+    } else {
+      this.oldValuesByKey.forEachRow(new ConcurrentMatrix.RowCallback<String,Integer,String>() {
+        @Override
+        public boolean onRow(String key, ConcurrentHashMap<Integer,String> rowMap) {
+          seedRowSnapshot(Integer.parseInt(key.substring(0, key.indexOf(' '))), key, rowMap);
+          return false;
+        }
+      });
+    }
+    this.rowSnapshotsSeeded.countDown();
+  }
+  
+  /**
+   * Builds the view of a row from the stored values; only called on the session thread, 
+   * where the values are written.
+   */
+  private void seedRowSnapshot(int item, String key, Map<Integer,String> row) {
+    if (this.rowSnapshots.containsKey(key)) {
+      //updated after the enabling
+      return;
+    }
+    int size = this.getFullSchemaSize();
+    ArrayList<String> values = new ArrayList<String>(size);
+    for (int i = 1; i <= size; i++) {
+      values.add(row.get(i));
+    }
+    this.rowSnapshots.put(key, new RowSnapshot(this.itemDescriptor.getName(item), item, values, this.typedRows.get(key), this.fieldDescriptor));
+  }
+  
+//////////////////warm start handling
+  
+  private void restoreFromCache() {
+    this.cacheKey = this.getCacheKey();
+    this.cacheDirty = false;
+    this.staleRows.clear();
+    
+    Map<String,String[]> table = this.warmStartCache.get(this.cacheKey);
+    if (table != null) {
+      int fieldsCount = this.fieldDescriptor.getFullSize();
+      for (Map.Entry<String,String[]> row : table.entrySet()) {
+        String rowKey = row.getKey();
+        String[] values = row.getValue();
+        int item = toCachedItem(rowKey);
+        
+        int len = fieldsCount > 0 ? Math.min(fieldsCount, values.length) : values.length;
+        ArrayList<String> args = new ArrayList<String>(len);
+        SortedSet<Integer> changedFields = new TreeSet<Integer>();
+        for (int i = 0; i < len; i++) {
+          args.add(values[i]);
+          changedFields.add(i+1);
+        }
+        if (!this.behavior.equals(SIMPLE) && this.commandCode > 0 && this.commandCode <= len) {
+          //as far as the listener knows, each cached key is new
+          args.set(this.commandCode-1, Constants.ADD);
+        }
+        
+        this.staleRows.put(rowKey, len);
+        String itemName = this.itemDescriptor.getName(item);
+        ItemUpdate updateObj = new ItemUpdate(itemName,item,true,true,args,changedFields,this.fieldDescriptor);
+        this.dispatchItemUpdate(rowKey, updateObj, changedFields);
+      }
+      
+      if (log.isDebugEnabled()) {
+        log.debug("Subscription "+this.subscriptionId+" restored "+table.size()+" rows from cache");
+      }
+    }
+    
+    this.scheduleCachePersistence();
+  }
+  
+  private void scheduleCachePersistence() {
+    this.cachePersistTask = this.sessionThread.schedule(new Runnable() {
+      @Override
+      public void run() {
+        if (isOff()) {
+          return;
+        }
+        persistToCache();
+        scheduleCachePersistence();
+      }
+    }, this.warmStartCache.getPersistInterval());
+  }
+  
+  private void stopCachePersistence() {
+    if (this.cachePersistTask != null) {
+      this.cachePersistTask.cancel();
+      this.cachePersistTask = null;
+    }
+  }
+  
+  private void persistToCache() {
+    if (this.warmStartCache == null || !this.cacheDirty) {
+      return;
+    }
+    this.cacheDirty = false;
+    
+    final Map<String,String[]> table = new LinkedHashMap<String,String[]>();
+    if (this.behavior.equals(SIMPLE)) {
+      this.copyRows(this.oldValuesByItem, table);
+    } else {
+      this.copyRows(this.oldValuesByKey, table);
+    }
+    this.warmStartCache.put(this.cacheKey, table);
+  }
+  
+  private <K> void copyRows(final ConcurrentMatrix<K,Integer> struct, final Map<String,String[]> table) {
+    final List<K> rows = new ArrayList<K>();
+    struct.forEachRow(new ConcurrentMatrix.RowCallback<K,Integer,String>() {
+      @Override
+      public boolean onRow(K row, ConcurrentHashMap<Integer,String> rowMap) {
+        rows.add(row);
+        return false;
+      }
+    });
+    
+    for (K row : rows) {
+      final Map<Integer,String> values = new HashMap<Integer,String>();
+      struct.forEachElementInRow(row, new ConcurrentMatrix.ElementCallback<K,Integer,String>() {
+        @Override
+        public boolean onElement(String value, K row, Integer col) {
+          values.put(col, value);
+          return false;
+        }
+      });
+      int len = 0;
+      for (Integer col : values.keySet()) {
+        len = Math.max(len, col);
+      }
+      String[] array = new String[len];
+      for (Map.Entry<Integer,String> value : values.entrySet()) {
+        array[value.getKey()-1] = value.getValue();
+      }
+      table.put(String.valueOf(row), array);
+    }
+  }
+  
+  /**
+   * Notifies a DELETE for each cached key of the item that has not been confirmed by the Server.
+   */
+  private void removeStaleRows(int item) {
+    String prefix = item + " ";
+    String itemName = this.itemDescriptor.getName(item);
+    Iterator<Map.Entry<String,Integer>> iterator = this.staleRows.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String,Integer> stale = iterator.next();
+      if (!stale.getKey().startsWith(prefix)) {
+        continue;
+      }
+      iterator.remove();
+      
+      int len = stale.getValue();
+      if (this.keyCode > len || this.commandCode > len) {
+        continue;
+      }
+      ArrayList<String> args = new ArrayList<String>(len);
+      SortedSet<Integer> changedFields = new TreeSet<Integer>();
+      for (int i = 1; i <= len; i++) {
+        args.add(null);
+        if (i != this.keyCode) {
+          changedFields.add(i);
+        }
+      }
+      args.set(this.keyCode-1, stale.getKey().substring(prefix.length()));
+      args.set(this.commandCode-1, Constants.DELETE);
+      
+      ItemUpdate updateObj = new ItemUpdate(itemName,item,false,args,changedFields,this.fieldDescriptor);
+      this.dispatchItemUpdate(stale.getKey(), updateObj, changedFields);
+    }
+  }
+  
+  private String getCacheKey() {
+    StringBuilder key = new StringBuilder();
+    key.append(this.mode).append('|');
+    key.append(this.dataAdapter).append('|');
+    key.append(this.itemDescriptor.getComposedString()).append('|');
+    key.append(this.fieldDescriptor.getComposedString()).append('|');
+    key.append(this.selector);
+    if (this.subFieldDescriptor != null) {
+      key.append('|').append(this.underDataAdapter);
+      key.append('|').append(this.subFieldDescriptor.getComposedString());
+    }
+    return key.toString();
+  }
+  
+  private int toCachedItem(String rowKey) {
+    //row keys are either "<item>" or "<item> <key>"
+    int sep = rowKey.indexOf(' ');
+    return Integer.parseInt(sep == -1 ? rowKey : rowKey.substring(0, sep));
+  }
+  
+//////////////////sharing (see SubscriptionHub)
+
+  /**
+   * Returns the key identifying the Subscriptions whose requests to the Server are identical,
+   * or null if the Subscription cannot be shared.
+   */
+  String getShareKey() {
+    if (this.isSubTable() || this.behavior.equals(MULTIMETAPUSH)) {
+      //second-level subscriptions are sent by each first-level subscription
+      return null;
+    }
+    return this.getCacheKey() + '|' + this.isRequiredSnapshot + '|' + this.requestedMaxFrequency + '|' + this.requestedBufferSize;
+  }
+
+  /**
+   * Configures the target, which must be inactive and of the same mode, with the same request parameters.
+   */
+  void copyRequestTo(Subscription target) {
+    if (this.itemDescriptor instanceof ListDescriptor) {
+      target.setItems(((ListDescriptor) this.itemDescriptor).getOriginal());
+    } else {
+      target.setItemGroup(((NameDescriptor) this.itemDescriptor).getOriginal());
+    }
+    if (this.fieldDescriptor instanceof ListDescriptor) {
+      target.setFields(((ListDescriptor) this.fieldDescriptor).getOriginal());
+    } else {
+      target.setFieldSchema(((NameDescriptor) this.fieldDescriptor).getOriginal());
+    }
+    target.dataAdapter = this.dataAdapter;
+    target.selector = this.selector;
+    target.isRequiredSnapshot = this.isRequiredSnapshot;
+    target.requestedMaxFrequency = this.requestedMaxFrequency;
+    target.requestedBufferSize = this.requestedBufferSize;
+  }
+
+  /**
+   * Sets the current values of an item without notifying the listeners, so that the next updates,
+   * which only carry the changed values, can be applied.
+   */
+  void restoreItemValues(int item, List<String> values) {
+    for (int i = 0; i < values.size(); i++) {
+      this.oldValuesByItem.insert(values.get(i), item, i + 1);
+    }
+  }
+
 //////////////////second level handling  
 
   private void handleMultiTableSubscriptions(int item, ArrayList<String> args) {
@@ -2135,9 +3297,19 @@ public class Subscription {
   
   // package-protected instead of private to enable special testing
   void addSubTable(int item, String key) {
-    
-    Subscription secondLevelSubscription = new Subscription(this.subMode);
-    secondLevelSubscription.makeSubTable();
+    if (this.secondLevelBucketSize > 1) {
+      this.addToBucket(item, key, false);
+      return;
+    }
+    this.subscribeKey(item, key, false);
+  }
+  
+  /**
+   * Subscribes the second-level item of a single key; resumed is true when the key was
+   * already carried by a dismissed bucket, so that its snapshot only delivers what changed.
+   */
+  private void subscribeKey(int item, String key, boolean resumed) {
+    Subscription secondLevelSubscription = this.createSecondLevelSubscription();
     
     try {
       secondLevelSubscription.setItems(new String[]{key});
@@ -2148,6 +3320,19 @@ public class Subscription {
       return;
     }
     
+    SecondLevelSubscriptionListener subListener = new SecondLevelSubscriptionListener(item,key,resumed);
+    secondLevelSubscription.addListener(subListener, NO_UPDATES);
+    secondLevelSubscription.addInternalListener(subListener);
+    
+    secondLevelSubscription.setActive();
+    this.manager.doAdd(secondLevelSubscription);
+  
+  }
+  
+  private Subscription createSecondLevelSubscription() {
+    Subscription secondLevelSubscription = new Subscription(this.subMode);
+    secondLevelSubscription.makeSubTable();
+    
     if (this.subFieldDescriptor instanceof ListDescriptor) {
       secondLevelSubscription.setFields(((ListDescriptor) subFieldDescriptor).getOriginal());
     } else {
@@ -2157,13 +3342,122 @@ public class Subscription {
     secondLevelSubscription.setDataAdapter(this.underDataAdapter);
     secondLevelSubscription.setRequestedSnapshot("yes");
     secondLevelSubscription.requestedMaxFrequency = this.requestedMaxFrequency;
+    return secondLevelSubscription;
+  }
+  
+  private void addToBucket(int item, String key, boolean resumed) {
+    try {
+      ListDescriptor.checkItemNames(new String[]{key}, "An item");
+    } catch(IllegalArgumentException e) {
+      log.error("Subscription error", e);
+      onServerError(14, INVALID_SECOND_LEVEL_KEY, key);
+      return;
+    }
     
-    SubscriptionListener subListener = new SecondLevelSubscriptionListener(item,key);
-    secondLevelSubscription.addListener(subListener);
+    if (this.pendingBucket == null || this.pendingBucket.isFull() || this.pendingBucket.contains(key)) {
+      if (this.pendingBucket != null) {
+        this.activateBucket(this.pendingBucket);
+      }
+      final SecondLevelBucketListener bucket = new SecondLevelBucketListener(this.createSecondLevelSubscription());
+      this.buckets.put(bucket.subscription, bucket);
+      this.pendingBucket = bucket;
+      
+      //collect the keys received in the current burst of updates, then subscribe
+      this.sessionThread.queue(new Runnable() {
+        @Override
+        public void run() {
+          activateBucket(bucket);
+        }
+      });
+    }
+    
+    this.pendingBucket.add(item, key, resumed);
+    this.subTables.insert(this.pendingBucket.subscription, item, key);
+  }
+  
+  private void activateBucket(SecondLevelBucketListener bucket) {
+    if (bucket != this.pendingBucket) {
+      //already activated or discarded
+      return;
+    }
+    this.pendingBucket = null;
+    if (bucket.isEmpty()) {
+      this.buckets.remove(bucket.subscription);
+      return;
+    }
     
+    if (log.isDebugEnabled()) {
+      log.debug("Subscription " + this.subscriptionId + " aggregates " + bucket.size() + " second-level items");
+    }
+    Subscription secondLevelSubscription = bucket.subscription;
+    secondLevelSubscription.setItems(bucket.getKeys());
+    secondLevelSubscription.addListener(bucket, NO_UPDATES);
+    secondLevelSubscription.addInternalListener(bucket);
     secondLevelSubscription.setActive();
     this.manager.doAdd(secondLevelSubscription);
+  }
   
+  /**
+   * Dismisses the shared subscription of a bucket; the keys stay mapped to it in subTables
+   * until the caller subscribes them again.
+   */
+  private void retireBucket(SecondLevelBucketListener bucket) {
+    this.buckets.remove(bucket.subscription);
+    if (bucket == this.pendingBucket) {
+      this.pendingBucket = null;
+    } else {
+      bucket.subscription.setInactive();
+      this.manager.doRemove(bucket.subscription);
+    }
+  }
+  
+  /**
+   * Handles the refusal of a bucket: as the error doesn't tell which key caused it,
+   * the live keys are subscribed again one by one, so that only the offending ones fail.
+   */
+  private void splitBucket(SecondLevelBucketListener bucket, int code, String message) {
+    assert Assertions.isSessionThread();
+    if (this.buckets.get(bucket.subscription) != bucket) {
+      //already dismissed
+      return;
+    }
+    ArrayList<Integer> items = new ArrayList<Integer>();
+    ArrayList<String> keys = new ArrayList<String>();
+    bucket.collectLiveKeys(items, keys);
+    
+    if (keys.size() <= 1) {
+      //the culprit is known
+      for (int i = 0; i < keys.size(); i++) {
+        onServerError(code,message,keys.get(i));
+      }
+      return;
+    }
+    
+    if (log.isDebugEnabled()) {
+      log.debug("Subscription " + this.subscriptionId + " splits a refused bucket of " + keys.size() + " second-level items");
+    }
+    this.retireBucket(bucket);
+    for (int i = 0; i < keys.size(); i++) {
+      this.subscribeKey(items.get(i), keys.get(i), true);
+    }
+  }
+  
+  /**
+   * Moves the live keys of a bucket made sparse by the removals to the pending bucket,
+   * so that the dead slots no longer occupy the server-side subscription.
+   */
+  private void repackBucket(SecondLevelBucketListener bucket) {
+    ArrayList<Integer> items = new ArrayList<Integer>();
+    ArrayList<String> keys = new ArrayList<String>();
+    bucket.collectLiveKeys(items, keys);
+    
+    if (log.isDebugEnabled()) {
+      log.debug("Subscription " + this.subscriptionId + " repacks a bucket with " + keys.size() + " live second-level items out of " + bucket.size());
+    }
+    this.retireBucket(bucket);
+    for (int i = 0; i < keys.size(); i++) {
+      this.addToBucket(items.get(i), keys.get(i), true);
+    }
   }
   
   private void makeSubTable() {
@@ -2179,8 +3473,22 @@ public class Subscription {
 
   private void removeSubTable(int item, String key, boolean clean) {
     Subscription secondLevelSubscription = this.subTables.get(item,key);
-    secondLevelSubscription.setInactive();
-    this.manager.doRemove(secondLevelSubscription);
+    SecondLevelBucketListener bucket = this.buckets.get(secondLevelSubscription);
+    if (bucket == null) {
+      secondLevelSubscription.setInactive();
+      this.manager.doRemove(secondLevelSubscription);
+    } else {
+      bucket.remove(item, key);
+      if (bucket.isEmpty()) {
+        //the last live key is gone, dismiss the shared subscription
+        this.retireBucket(bucket);
+      } else if (clean && bucket != this.pendingBucket && bucket.isSparse()) {
+        //not while subTables is being iterated over, as the repack inserts into it
+        this.subTables.del(item,key);
+        this.repackBucket(bucket);
+        return;
+      }
+    }
     if (clean) {
       this.subTables.del(item,key);
     }
@@ -2258,15 +3566,28 @@ public class Subscription {
 
   
   
-  private class SecondLevelSubscriptionListener implements SubscriptionListener {
+  /**
+   * Filter of the listeners of the second-level subscriptions, which receive the updates 
+   * as {@link InternalSubscriptionListener}s, hence on the Session Thread and without building {@link ItemUpdate}s.
+   */
+  private static final UpdateFilter NO_UPDATES = new UpdateFilter() {
+    @Override
+    boolean matchesFields(Set<Integer> changedFields) {
+      return false;
+    }
+  };
+  
+  private class SecondLevelSubscriptionListener implements SubscriptionListener, InternalSubscriptionListener {
 
 
     private int itemReference;
     private String relKey;
+    private boolean resumed;
 
-    public SecondLevelSubscriptionListener(int item, String key) {
+    public SecondLevelSubscriptionListener(int item, String key, boolean resumed) {
       this.itemReference = item;
       this.relKey = key;
+      this.resumed = resumed;
     }
 
     @Override
@@ -2301,20 +3622,34 @@ public class Subscription {
 
     @Override
     public void onItemUpdate(ItemUpdate itemUpdate) {
+      // not expected, as the updates are filtered out
+    }
+
+    @Override
+    public void onItemUpdate(int itemPos, List<String> values, Set<Integer> changedFields) {
       if (!this.shouldDispatch()) {
         return;
       }
       
       
-      setSecondLevelSchemaSize(itemUpdate.getFieldsCount());
+      setSecondLevelSchemaSize(values.size());
       
-      ArrayList<String> args = this.convertMultiSonUpdate(itemUpdate);
+      ArrayList<String> args = convertMultiSonUpdate(values, changedFields, this.itemReference, this.relKey, this.resumed);
+      this.resumed = false;
+      if (args == null) {
+        return;
+      }
 
       //once the update args are converted we pass them to the main table
       update(args,this.itemReference,true);
       
     }
 
+    @Override
+    public void onEndOfSnapshot(int itemPos) {
+      // nothing to do
+    }
+
     @Override
     public void onListenEnd(Subscription subscription) {
       // don't care
@@ -2348,49 +3683,247 @@ public class Subscription {
     private boolean shouldDispatch() {
       return hasSubTable(this.itemReference,this.relKey);
     }
+
+
+    @Override
+    public void onRealMaxFrequency(@Nullable String frequency) {
+      // the caller has already updated localRealMaxFrequency on the second-level object
+      onLocalFrequencyChanged();
+        // this invokes the first-level object
+    }
     
-    
-    
-    private ArrayList<String> convertMultiSonUpdate(ItemUpdate itemUpdate) {
+  }
+  
+  /**
+   * Converts a second-level update into an update of the first level; when the key is resumed 
+   * from another second-level subscription, the values already known are reported as unchanged
+   * and null is returned if nothing changed at all.
+   */
+  private ArrayList<String> convertMultiSonUpdate(List<String> values, Set<Integer> changedFields, int item, String relKey, boolean resumed) {
 
-      int y = 1;
-      int newLen = getFullSchemaSize(); //the combined length of the schemas
-      ArrayList<String> newArgs = new ArrayList<String>(newLen);
-      for (int i=0; i<newLen; i++) {
-        if (i == keyCode-1) {
-          //item is our key
-          newArgs.add(this.relKey);
-        } else if(i == commandCode-1) {
-          //command must be an UPDATE
-          newArgs.add(Constants.UPDATE);
-        } else if (i < getMainSchemaSize()) {
-          //other fields from the first level are unchanged
-          newArgs.add(ProtocolConstants.UNCHANGED);
-        } else {
-          
-          if (itemUpdate.isValueChanged(y)) {
-            //changed fields from the second level
-            newArgs.add(itemUpdate.getValue(y));
-          } else {
+    String extendedKey = item+" "+relKey;
+    boolean changed = !resumed;
+    int y = 1;
+    int newLen = getFullSchemaSize(); //the combined length of the schemas
+    ArrayList<String> newArgs = new ArrayList<String>(newLen);
+    for (int i=0; i<newLen; i++) {
+      if (i == keyCode-1) {
+        //item is our key
+        newArgs.add(relKey);
+      } else if(i == commandCode-1) {
+        //command must be an UPDATE
+        newArgs.add(Constants.UPDATE);
+      } else if (i < getMainSchemaSize()) {
+        //other fields from the first level are unchanged
+        newArgs.add(ProtocolConstants.UNCHANGED);
+      } else {
+        
+        String value = values.get(y-1);
+        if (resumed && changedFields.contains(y)) {
+          String old = this.oldValuesByKey.get(extendedKey,i+1);
+          if (old == null ? value == null : old.equals(value)) {
             newArgs.add(ProtocolConstants.UNCHANGED);
+          } else {
+            newArgs.add(value);
+            changed = true;
           }
-          
-          y++;
-          
+        } else if (changedFields.contains(y)) {
+          //changed fields from the second level
+          newArgs.add(value);
+        } else {
+          newArgs.add(ProtocolConstants.UNCHANGED);
+        }
+        
+        y++;
+        
+      }
+    }
+    
+    return changed ? newArgs : null;
+    
+  }
+  
+  
+  /**
+   * Listener of a second-level subscription shared by several keys: it keeps the association 
+   * between the items of the subscription and the keys of the first level.
+   */
+  private class SecondLevelBucketListener implements SubscriptionListener, InternalSubscriptionListener {
+    
+    private final Subscription subscription;
+    private final ArrayList<Integer> itemReferences = new ArrayList<Integer>();
+    private final ArrayList<String> relKeys = new ArrayList<String>();
+    private final ArrayList<Boolean> alive = new ArrayList<Boolean>();
+    private final ArrayList<Boolean> resumed = new ArrayList<Boolean>();
+    private int liveCount = 0;
+    
+    SecondLevelBucketListener(Subscription subscription) {
+      this.subscription = subscription;
+    }
+    
+    void add(int item, String key, boolean resumed) {
+      this.itemReferences.add(item);
+      this.relKeys.add(key);
+      this.alive.add(true);
+      this.resumed.add(resumed);
+      this.liveCount++;
+    }
+    
+    void remove(int item, String key) {
+      for (int i = 0; i < this.relKeys.size(); i++) {
+        if (this.alive.get(i) && this.itemReferences.get(i) == item && this.relKeys.get(i).equals(key)) {
+          this.alive.set(i, false);
+          this.liveCount--;
+          return;
+        }
+      }
+    }
+    
+    boolean contains(String key) {
+      return this.relKeys.contains(key);
+    }
+    
+    boolean isFull() {
+      return this.relKeys.size() >= secondLevelBucketSize;
+    }
+    
+    boolean isEmpty() {
+      return this.liveCount == 0;
+    }
+    
+    /**
+     * Tells whether at least half of the slots are dead.
+     */
+    boolean isSparse() {
+      return this.liveCount * 2 <= this.relKeys.size();
+    }
+    
+    void collectLiveKeys(List<Integer> items, List<String> keys) {
+      for (int i = 0; i < this.relKeys.size(); i++) {
+        if (this.toLiveIndex(i + 1) != -1) {
+          items.add(this.itemReferences.get(i));
+          keys.add(this.relKeys.get(i));
         }
       }
+    }
+    
+    int size() {
+      return this.relKeys.size();
+    }
+    
+    String[] getKeys() {
+      return this.relKeys.toArray(new String[this.relKeys.size()]);
+    }
+    
+    /**
+     * Returns the index of the key carried by the specified item, if it is still live.
+     */
+    private int toLiveIndex(int itemPos) {
+      int i = itemPos - 1;
+      if (i < 0 || i >= this.relKeys.size() || !this.alive.get(i)) {
+        return -1;
+      }
+      if (subTables.get(this.itemReferences.get(i), this.relKeys.get(i)) != this.subscription) {
+        return -1;
+      }
+      return i;
+    }
+
+    @Override
+    public void onItemUpdate(ItemUpdate itemUpdate) {
+      // not expected, as the updates are filtered out
+    }
+
+    @Override
+    public void onItemUpdate(int itemPos, List<String> values, Set<Integer> changedFields) {
+      int i = this.toLiveIndex(itemPos);
+      if (i == -1) {
+        return;
+      }
+      
+      setSecondLevelSchemaSize(values.size());
       
-      return newArgs;
+      ArrayList<String> args = convertMultiSonUpdate(values, changedFields, this.itemReferences.get(i), this.relKeys.get(i), this.resumed.get(i));
+      this.resumed.set(i, false);
+      if (args == null) {
+        return;
+      }
       
+      //once the update args are converted we pass them to the main table
+      update(args,this.itemReferences.get(i),true);
+    }
+
+    @Override
+    public void onEndOfSnapshot(int itemPos) {
+      // nothing to do
+    }
+
+    @Override
+    public void onItemLostUpdates(@Nullable String itemName, int itemPos, int lostUpdates) {
+      int i = this.toLiveIndex(itemPos);
+      if (i == -1) {
+        return;
+      }
+      onLostUpdates(this.relKeys.get(i),lostUpdates);
+    }
+
+    @Override
+    public void onSubscriptionError(final int code, @Nullable final String message) {
+      //the error may be caused by a single key, which has to be isolated
+      final SecondLevelBucketListener bucket = this;
+      sessionThread.queue(new Runnable() {
+        @Override
+        public void run() {
+          splitBucket(bucket, code, message);
+        }
+      });
     }
 
     @Override
     public void onRealMaxFrequency(@Nullable String frequency) {
       // the caller has already updated localRealMaxFrequency on the second-level object
       onLocalFrequencyChanged();
-        // this invokes the first-level object
     }
-    
+
+    @Override
+    public void onClearSnapshot(@Nullable String itemName, int itemPos) {
+      // not expected, as MERGE mode is implied here
+    }
+
+    @Override
+    public void onCommandSecondLevelItemLostUpdates(int lostUpdates, @Nonnull String key) {
+      // can't happen
+    }
+
+    @Override
+    public void onCommandSecondLevelSubscriptionError(int code, @Nullable String message, String key) {
+      // can't happen
+    }
+
+    @Override
+    public void onEndOfSnapshot(@Nullable String itemName, int itemPos) {
+      // nothing to do
+    }
+
+    @Override
+    public void onListenEnd(@Nonnull Subscription subscription) {
+      // don't care
+    }
+
+    @Override
+    public void onListenStart(@Nonnull Subscription subscription) {
+      // don't care
+    }
+
+    @Override
+    public void onSubscription() {
+      // nothing to do
+    }
+
+    @Override
+    public void onUnsubscription() {
+      // nothing to do
+    }
   }
   
   @Nonnull
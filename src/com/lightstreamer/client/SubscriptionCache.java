@@ -0,0 +1,553 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.Number;
+import com.lightstreamer.util.threads.providers.ExecutorFactory;
+import com.lightstreamer.util.threads.providers.JoinableExecutor;
+
+/**
+ * Local, file-backed store of the last field values received by one or more {@link Subscription}
+ * instances, used to provide a "warm start" after a restart of the application. <BR>
+ * A Subscription configured through {@link Subscription#setWarmStartCache(SubscriptionCache)}
+ * periodically saves its current state into the cache; the state is kept in a memory-mapped
+ * file, so that it survives the termination of the process. When the same Subscription
+ * (i.e. a Subscription with the same Data Adapter, mode, items and fields) is subscribed to
+ * again, even by a different process, the saved values are immediately notified to its listeners,
+ * without waiting for a session to be established. Such updates are flagged through
+ * {@link ItemUpdate#isCached()} and are later reconciled with the real snapshot sent by the Server. <BR>
+ * The same cache can be shared by several Subscriptions, also belonging to different
+ * {@link LightstreamerClient} instances; however, the same file should not be opened by more
+ * than one cache at the same time. <BR>
+ * Each save only writes the state of the Subscription involved and the file is never left in an
+ * inconsistent state: if the process is terminated during a save, the previous state is found
+ * when the file is opened again.
+ */
+public class SubscriptionCache {
+
+  private static final int MAGIC = 0x4C534332; // "LSC2"
+  private static final int SLOT_SIZE = 32; // magic + generation + directory offset, length and checksum + slot checksum
+  private static final int SLOT_CONTENT_SIZE = 24; // the part of the slot covered by the slot checksum
+  private static final int DATA_START = 2 * SLOT_SIZE;
+  private static final int MIN_CAPACITY = 64 * 1024;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final Logger log = LogManager.getLogger(Constants.SUBSCRIPTIONS_LOG);
+
+  private final File file;
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private MappedByteBuffer buffer;
+
+  /**
+   * Saved tables, keyed by the Subscription identity; each table maps a row key
+   * (the item position or, in COMMAND mode, the item position and the key value)
+   * to the field values.
+   */
+  private final Map<String,Map<String,String[]>> tables = new HashMap<String,Map<String,String[]>>();
+  /**
+   * The position of each table in the file. A save writes the changed table and then a new directory
+   * of the tables in areas not used by the current version; only then the header slot not in use
+   * is overwritten to point to the new directory, so that the file always holds a complete version.
+   */
+  private final Map<String,Extent> segments = new HashMap<String,Extent>();
+  private Extent directory = null;
+  private long generation = 0;
+  private boolean closed = false;
+  private long persistInterval = 1000;
+  private boolean syncOnPersist = false;
+  /**
+   * Performs the synchronizations with the storage device, which may take long, away from the session thread.
+   */
+  private JoinableExecutor syncExecutor = null;
+  private boolean syncPending = false;
+
+  /**
+   * Creates a cache backed by the specified file. If the file already exists and contains data saved
+   * by a previous cache, such data is loaded and made available to the Subscriptions; otherwise
+   * the file is created.
+   *
+   * @param file the file that will hold the cached values.
+   *
+   * @throws IOException if the file cannot be opened or mapped in memory.
+   */
+  public SubscriptionCache(@Nonnull File file) throws IOException {
+    this.file = file;
+    this.raf = new RandomAccessFile(file, "rw");
+    this.channel = raf.getChannel();
+
+    long size = channel.size();
+    this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, MIN_CAPACITY));
+    if (size >= DATA_START) {
+      this.load();
+    }
+  }
+
+  /**
+   * Inquiry method that gets the interval between two consecutive saves of the state
+   * of the Subscriptions using this cache.
+   *
+   * @return the interval (in milliseconds).
+   *
+   * @see #setPersistInterval(long)
+   */
+  public synchronized long getPersistInterval() {
+    return this.persistInterval;
+  }
+
+  /**
+   * Setter method that sets the interval between two consecutive saves of the state
+   * of the Subscriptions using this cache. A state is only saved if it has changed
+   * since the last save; it is also saved when the Subscription is unsubscribed from
+   * or its session is closed.
+   *
+   * @default 1000 (1 second).
+   *
+   * @lifecycle This value can be set and changed at any time; it is applied to the
+   * next scheduled save.
+   *
+   * @param persistInterval the interval (in milliseconds).
+   *
+   * @throws IllegalArgumentException if a negative or zero value is configured.
+   */
+  public synchronized void setPersistInterval(long persistInterval) {
+    Number.verifyPositive(persistInterval, Number.DONT_ACCEPT_ZERO);
+    this.persistInterval = persistInterval;
+  }
+
+  /**
+   * Inquiry method that checks whether each save is synchronized with the storage device.
+   *
+   * @return true if the saves are synchronized with the storage device.
+   *
+   * @see #setSyncOnPersist(boolean)
+   */
+  public synchronized boolean isSyncOnPersist() {
+    return this.syncOnPersist;
+  }
+
+  /**
+   * Setter method that enables the synchronization of each save with the storage device. <BR>
+   * The saved values are written in a memory-mapped file, hence they survive the termination of the
+   * process even without synchronization; the synchronization also protects them from a crash of
+   * the operating system, at the cost of a disk write for each save. It is performed on a dedicated
+   * thread, so that it doesn't delay the processing of the updates.
+   *
+   * @default false
+   *
+   * @lifecycle This value can be set and changed at any time; it is applied to the next save.
+   *
+   * @param syncOnPersist true to synchronize each save with the storage device.
+   */
+  public synchronized void setSyncOnPersist(boolean syncOnPersist) {
+    this.syncOnPersist = syncOnPersist;
+  }
+
+  /**
+   * Removes all the saved values, both from memory and from the file.
+   */
+  public synchronized void clear() {
+    if (this.closed) {
+      return;
+    }
+    try {
+      this.commit(new HashMap<String,Extent>(), null);
+    } catch (IOException e) {
+      log.error("Unable to save the subscription cache " + file, e);
+      return;
+    }
+    this.tables.clear();
+  }
+
+  /**
+   * Writes any pending change to the file and releases it. After this call the cache
+   * cannot be used anymore: Subscriptions still configured with it will neither receive
+   * cached values nor save their state.
+   */
+  public synchronized void close() {
+    if (this.closed) {
+      return;
+    }
+    if (this.syncOnPersist) {
+      this.sync(this.buffer);
+    }
+    this.closed = true;
+    try {
+      this.raf.close();
+    } catch (IOException e) {
+      log.warn("Unable to close the subscription cache " + file, e);
+    }
+  }
+
+  /**
+   * Returns a copy of the saved table with the specified identity, or null.
+   */
+  synchronized Map<String,String[]> get(String tableKey) {
+    if (this.closed) {
+      return null;
+    }
+    Map<String,String[]> table = this.tables.get(tableKey);
+    return table == null ? null : new LinkedHashMap<String,String[]>(table);
+  }
+
+  /**
+   * Replaces the saved table with the specified identity and writes it to the file.
+   */
+  synchronized void put(String tableKey, Map<String,String[]> table) {
+    if (this.closed) {
+      return;
+    }
+    try {
+      Extent segment = this.write(encode(tableKey, table), null);
+      Map<String,Extent> newSegments = new HashMap<String,Extent>(this.segments);
+      newSegments.put(tableKey, segment);
+      this.commit(newSegments, segment);
+    } catch (IOException e) {
+      log.error("Unable to save the subscription cache " + file, e);
+      return;
+    }
+    this.tables.put(tableKey, table);
+  }
+
+  /**
+   * Writes the directory of the specified tables and then switches the header to it.
+   *
+   * @param pending an extent already written but not yet committed, which must be preserved.
+   */
+  private void commit(Map<String,Extent> newSegments, Extent pending) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(newSegments.size());
+    for (Extent segment : newSegments.values()) {
+      out.writeInt(segment.offset);
+      out.writeInt(segment.length);
+      out.writeInt(segment.crc);
+    }
+    out.flush();
+    Extent newDirectory = this.write(bytes.toByteArray(), pending);
+
+    // the header is switched last: until then, the file holds the previous version
+    long newGeneration = this.generation + 1;
+    ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+    slot.putInt(MAGIC);
+    slot.putLong(newGeneration);
+    slot.putInt(newDirectory.offset);
+    slot.putInt(newDirectory.length);
+    slot.putInt(newDirectory.crc);
+    slot.putInt(checksum(slot.array(), 0, SLOT_CONTENT_SIZE));
+    this.buffer.position((int) (newGeneration % 2) * SLOT_SIZE);
+    this.buffer.put(slot.array());
+
+    this.generation = newGeneration;
+    this.directory = newDirectory;
+    this.segments.clear();
+    this.segments.putAll(newSegments);
+    if (this.syncOnPersist) {
+      this.scheduleSync();
+    }
+  }
+
+  /**
+   * Writes the specified bytes in an area of the file not used by the current version.
+   */
+  private Extent write(byte[] bytes, Extent pending) throws IOException {
+    int offset = this.allocate(bytes.length, pending);
+    int needed = offset + bytes.length;
+    if (needed > this.buffer.capacity()) {
+      int capacity = Math.max(needed, 2 * this.buffer.capacity());
+      this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+    this.buffer.position(offset);
+    this.buffer.put(bytes);
+    return new Extent(offset, bytes.length, checksum(bytes, 0, bytes.length));
+  }
+
+  /**
+   * Finds the first free area of the file large enough for the specified length.
+   */
+  private int allocate(int length, Extent pending) {
+    List<Extent> used = new ArrayList<Extent>(this.segments.values());
+    if (this.directory != null) {
+      used.add(this.directory);
+    }
+    if (pending != null) {
+      used.add(pending);
+    }
+    Collections.sort(used, Extent.BY_OFFSET);
+    int offset = DATA_START;
+    for (Extent extent : used) {
+      if (extent.offset - offset >= length) {
+        break;
+      }
+      offset = Math.max(offset, extent.offset + extent.length);
+    }
+    return offset;
+  }
+
+  /**
+   * Schedules a synchronization of the file on the dedicated thread; the saves performed
+   * in the meantime are covered by the same synchronization.
+   */
+  private void scheduleSync() {
+    if (this.syncPending) {
+      return;
+    }
+    if (this.syncExecutor == null) {
+      this.syncExecutor = ExecutorFactory.getDefaultExecutorFactory().getExecutor(1, "Subscription Cache Thread", 1000);
+    }
+    this.syncPending = true;
+    this.syncExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        MappedByteBuffer current;
+        synchronized (SubscriptionCache.this) {
+          syncPending = false;
+          if (closed) {
+            // already synchronized by close()
+            return;
+          }
+          current = buffer;
+        }
+        sync(current);
+      }
+    });
+  }
+
+  private void sync(MappedByteBuffer buffer) {
+    try {
+      buffer.force();
+    } catch (RuntimeException e) {
+      log.error("Unable to synchronize the subscription cache " + file, e);
+    }
+  }
+
+  /**
+   * Serializes a table in the format of the file segments.
+   */
+  private static byte[] encode(String tableKey, Map<String,String[]> table) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    writeString(out, tableKey);
+    out.writeInt(table.size());
+    for (Map.Entry<String,String[]> row : table.entrySet()) {
+      writeString(out, row.getKey());
+      String[] values = row.getValue();
+      out.writeInt(values.length);
+      for (String value : values) {
+        writeString(out, value);
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private void load() {
+    Slot first = this.readSlot(0);
+    Slot second = this.readSlot(SLOT_SIZE);
+    if (first == null && second == null) {
+      log.warn("Ignoring the content of " + file + ": not a subscription cache");
+      return;
+    }
+    // the most recent version is preferred, but it may have been left incomplete
+    Slot latest = second == null || (first != null && first.generation > second.generation) ? first : second;
+    Slot previous = latest == first ? second : first;
+    if (this.load(latest)) {
+      return;
+    }
+    log.warn("Corrupted subscription cache " + file + ": trying the previous version");
+    if (previous == null || !this.load(previous)) {
+      log.warn("Ignoring the content of " + file + ": corrupted subscription cache");
+    }
+  }
+
+  /**
+   * Reads a header slot; returns null if the slot is not valid.
+   */
+  private Slot readSlot(int position) {
+    byte[] bytes = new byte[SLOT_SIZE];
+    this.buffer.position(position);
+    this.buffer.get(bytes);
+    ByteBuffer slot = ByteBuffer.wrap(bytes);
+    if (slot.getInt() != MAGIC) {
+      return null;
+    }
+    long generation = slot.getLong();
+    Extent directory = new Extent(slot.getInt(), slot.getInt(), slot.getInt());
+    if (slot.getInt() != checksum(bytes, 0, SLOT_CONTENT_SIZE)) {
+      return null;
+    }
+    return new Slot(generation, directory);
+  }
+
+  /**
+   * Loads the version pointed to by a header slot; returns false if its directory is corrupted.
+   * The single tables found corrupted are discarded.
+   */
+  private boolean load(Slot slot) {
+    byte[] directoryBytes = this.read(slot.directory);
+    if (directoryBytes == null) {
+      return false;
+    }
+    Map<String,Map<String,String[]>> loadedTables = new HashMap<String,Map<String,String[]>>();
+    Map<String,Extent> loadedSegments = new HashMap<String,Extent>();
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(directoryBytes));
+      int tableCount = in.readInt();
+      for (int t = 0; t < tableCount; t++) {
+        Extent segment = new Extent(in.readInt(), in.readInt(), in.readInt());
+        byte[] segmentBytes = this.read(segment);
+        if (segmentBytes == null) {
+          log.warn("Discarding a corrupted table of the subscription cache " + file);
+          continue;
+        }
+        Map<String,String[]> table = new LinkedHashMap<String,String[]>();
+        String tableKey = decode(segmentBytes, table);
+        loadedTables.put(tableKey, table);
+        loadedSegments.put(tableKey, segment);
+      }
+
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to read the subscription cache " + file, e);
+      return false;
+    }
+    this.tables.putAll(loadedTables);
+    this.segments.putAll(loadedSegments);
+    this.directory = slot.directory;
+    this.generation = slot.generation;
+    if (log.isDebugEnabled()) {
+      log.debug("Loaded " + loadedTables.size() + " cached subscriptions from " + file);
+    }
+    return true;
+  }
+
+  /**
+   * Reads an extent of the file; returns null if it lies outside the file or its checksum doesn't match.
+   */
+  private byte[] read(Extent extent) {
+    if (extent.offset < DATA_START || extent.length < 0 || extent.offset > this.buffer.capacity() - extent.length) {
+      return null;
+    }
+    byte[] bytes = new byte[extent.length];
+    this.buffer.position(extent.offset);
+    this.buffer.get(bytes);
+    return checksum(bytes, 0, bytes.length) == extent.crc ? bytes : null;
+  }
+
+  /**
+   * Deserializes a table written by {@link #encode(String, Map)} and returns its identity.
+   */
+  private static String decode(byte[] bytes, Map<String,String[]> table) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    String tableKey = readString(in);
+    int rowCount = in.readInt();
+    for (int r = 0; r < rowCount; r++) {
+      String rowKey = readString(in);
+      String[] values = new String[in.readInt()];
+      for (int v = 0; v < values.length; v++) {
+        values[v] = readString(in);
+      }
+      table.put(rowKey, values);
+    }
+    return tableKey;
+  }
+
+  private static int checksum(byte[] bytes, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+    return (int) crc.getValue();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(UTF8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF8);
+  }
+
+  /**
+   * An area of the file, with the checksum of its content.
+   */
+  private static class Extent {
+
+    static final Comparator<Extent> BY_OFFSET = new Comparator<Extent>() {
+      @Override
+      public int compare(Extent a, Extent b) {
+        return a.offset < b.offset ? -1 : (a.offset == b.offset ? 0 : 1);
+      }
+    };
+
+    final int offset;
+    final int length;
+    final int crc;
+
+    Extent(int offset, int length, int crc) {
+      this.offset = offset;
+      this.length = length;
+      this.crc = crc;
+    }
+  }
+
+  /**
+   * The content of a header slot, that is, a version of the file.
+   */
+  private static class Slot {
+
+    final long generation;
+    final Extent directory;
+
+    Slot(long generation, Extent directory) {
+      this.generation = generation;
+      this.directory = directory;
+    }
+  }
+}
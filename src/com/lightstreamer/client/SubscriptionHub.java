@@ -0,0 +1,625 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.lightstreamer.client.protocol.ProtocolConstants;
+import com.lightstreamer.client.session.SessionThread;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+
+/**
+ * Object that shares the subscriptions to the Server among the {@link LightstreamerClient} instances
+ * of the same JVM. <BR>
+ * When the same hub is set on several LightstreamerClient instances (see {@link LightstreamerClient#setSubscriptionHub(SubscriptionHub)}),
+ * identical {@link Subscription} objects (i.e. with the same mode, items, fields, Data Adapter, selector, requested snapshot,
+ * requested maximum frequency and requested buffer size) subscribed through clients connected to the same Server address
+ * and Adapter Set with the same user are sent to the Server only once, through one of the clients. The real-time updates are
+ * then delivered locally to each Subscription, which notifies its own listeners as if it were subscribed to by itself. <BR>
+ * A Subscription joining a shared subscription which is already in place receives the current state of the items
+ * as its snapshot (if the snapshot was requested), followed by the subsequent updates.
+ * <BR>
+ * Each Subscription still follows the session of its own LightstreamerClient: it is subscribed when the session starts
+ * and it is unsubscribed when the session is closed. If the session of the client that subscribed to the Server
+ * on behalf of the others is closed, the shared subscription is moved to another client and the other Subscriptions
+ * are notified of an unsubscription, followed by a new subscription and snapshot.
+ * <BR>
+ * Note that two-level COMMAND Subscriptions (see {@link Subscription#setCommandSecondLevelFields(String[])})
+ * are not shared and are always sent to the Server by their own client.
+ */
+@ThreadSafe
+public class SubscriptionHub {
+
+  private final Logger log = LogManager.getLogger(Constants.SUBSCRIPTIONS_LOG);
+
+  /**
+   * Shared subscriptions by key (see {@link #getKey(Subscription, ConnectionDetails)}).
+   */
+  private final Map<String,Shared> shared = new HashMap<String,Shared>();
+
+  /**
+   * Creates an empty hub, to be set on the LightstreamerClient instances whose Subscriptions can be shared.
+   */
+  public SubscriptionHub() {}
+
+  /**
+   * Inquiry method that returns the number of subscriptions sent to the Server on behalf of the Subscriptions of the hub.
+   *
+   * @lifecycle This method can be called at any time.
+   *
+   * @return the number of shared subscriptions.
+   */
+  public synchronized int getServerSubscriptionCount() {
+    return shared.size();
+  }
+
+  /**
+   * Inquiry method that returns the number of Subscriptions currently fed by the hub.
+   *
+   * @lifecycle This method can be called at any time.
+   *
+   * @return the number of Subscriptions bound to the shared subscriptions.
+   */
+  public synchronized int getSubscriptionCount() {
+    int count = 0;
+    for (Shared group : shared.values()) {
+      count += group.members.size();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the key identifying the shared subscription of a Subscription, or null if it cannot be shared.
+   */
+  static String getKey(Subscription subscription, ConnectionDetails details) {
+    if (subscription instanceof Upstream) {
+      //sent on behalf of the shared Subscriptions
+      return null;
+    }
+    String shareKey = subscription.getShareKey();
+    if (shareKey == null) {
+      return null;
+    }
+    return details.getServerAddress() + '|' + details.getAdapterSet() + '|' + details.getUser() + '|' + shareKey;
+  }
+
+  /**
+   * Binds a Subscription, which has just been moved to the SUBSCRIBING phase, to the shared subscription,
+   * which is sent to the Server through the given manager if not yet in place.
+   * If the shared subscription is already in place, its current state is delivered before returning.
+   * <p>
+   * <b>NB</b> It must be called by the session thread of the subscriber.
+   */
+  Member attach(String key, Subscription subscription, SubscriptionManager manager, SessionThread thread) {
+    Member member;
+    Replay replay = null;
+    synchronized (this) {
+      Shared group = shared.get(key);
+      if (group == null) {
+        group = new Shared(key, subscription);
+        shared.put(key, group);
+        group.carry(subscription, manager);
+      }
+      member = new Member(group, subscription, manager, thread);
+      group.members.add(member);
+      if (group.subscribed) {
+        replay = group.replay();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Subscription " + subscription.getSubscriptionId() + " bound to shared subscription " + group.upstream.getSubscriptionId()
+            + " (" + group.members.size() + " subscribers)");
+      }
+    }
+    if (replay != null) {
+      replay.deliver(subscription);
+    }
+    return member;
+  }
+
+  private synchronized void detach(Member member) {
+    Shared group = member.group;
+    if (!group.members.remove(member)) {
+      return;
+    }
+    if (group.members.isEmpty() && shared.get(group.key) == group) {
+      shared.remove(group.key);
+      group.drop();
+    }
+  }
+
+  //upstream events, called by the session thread of the carrier
+
+  private synchronized void onUpstreamSubscribed(Upstream upstream, final int commandPos, final int keyPos, final int items, final int fields) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream) {
+      return;
+    }
+    group.onSubscribed(commandPos, keyPos, items, fields);
+    for (final Member member : group.members) {
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          member.subscription.onSubscribed(commandPos, keyPos, items, fields);
+        }
+      });
+    }
+  }
+
+  private synchronized void onUpstreamUpdate(Upstream upstream, final int item, ArrayList<String> args) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream || !group.subscribed) {
+      return;
+    }
+    group.update(item, args);
+    for (final Member member : group.members) {
+      //each subscriber resolves the unchanged values on its own copy
+      final ArrayList<String> copy = new ArrayList<String>(args);
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          member.subscription.update(copy, item, false);
+        }
+      });
+    }
+  }
+
+  private synchronized void onUpstreamEndOfSnapshot(Upstream upstream, final int item) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream || !group.subscribed) {
+      return;
+    }
+    group.items[item].endOfSnapshot();
+    for (final Member member : group.members) {
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          member.subscription.endOfSnapshot(item);
+        }
+      });
+    }
+  }
+
+  private synchronized void onUpstreamClearSnapshot(Upstream upstream, final int item) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream || !group.subscribed) {
+      return;
+    }
+    group.items[item].clearSnapshot();
+    for (final Member member : group.members) {
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          member.subscription.clearSnapshot(item);
+        }
+      });
+    }
+  }
+
+  private synchronized void onUpstreamLostUpdates(Upstream upstream, final int item, final int lostUpdates) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream || !group.subscribed) {
+      return;
+    }
+    for (final Member member : group.members) {
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          member.subscription.lostUpdates(item, lostUpdates);
+        }
+      });
+    }
+  }
+
+  private synchronized void onUpstreamConfigure(Upstream upstream, final String frequency) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream || !group.subscribed) {
+      return;
+    }
+    group.frequency = frequency;
+    for (final Member member : group.members) {
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          member.subscription.configure(frequency);
+        }
+      });
+    }
+  }
+
+  /**
+   * The session of the carrier has been closed: the subscribers of the carrier are being paused as well,
+   * while the other ones are bound to a new subscription sent through one of their clients.
+   */
+  private synchronized void onUpstreamPause(Upstream upstream) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream) {
+      return;
+    }
+    group.reset();
+    SubscriptionManager carrier = group.carrier;
+    Member next = null;
+    for (final Member member : group.members) {
+      if (member.manager == carrier) {
+        continue;
+      }
+      if (next == null) {
+        next = member;
+      }
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          Subscription subscription = member.subscription;
+          subscription.onPause();
+          subscription.onStart();
+          subscription.onSubscriptionSent();
+        }
+      });
+    }
+    if (next != null) {
+      log.info("Moving shared subscription " + upstream.getSubscriptionId() + " to another client");
+      group.drop();
+      group.carry(next.subscription, next.manager);
+    }
+  }
+
+  private synchronized void onUpstreamError(Upstream upstream, final int code, final String message) {
+    Shared group = upstream.group;
+    if (group.upstream != upstream) {
+      return;
+    }
+    shared.remove(group.key);
+    group.drop();
+    for (final Member member : group.members) {
+      member.deliver(new Runnable() {
+        @Override
+        public void run() {
+          //the subscriber will be bound again on the next session, like a failed subscription is sent again
+          member.attached = false;
+          member.subscription.onSubscriptionError(code, message);
+        }
+      });
+    }
+    group.members.clear();
+  }
+
+  /**
+   * Binding of a Subscription to a shared subscription.
+   */
+  class Member {
+
+    private final Shared group;
+    private final Subscription subscription;
+    private final SubscriptionManager manager;
+    private final SessionThread thread;
+    /**
+     * Accessed by the session thread of the subscriber only.
+     */
+    private boolean attached = true;
+
+    private Member(Shared group, Subscription subscription, SubscriptionManager manager, SessionThread thread) {
+      this.group = group;
+      this.subscription = subscription;
+      this.manager = manager;
+      this.thread = thread;
+    }
+
+    /**
+     * Stops the delivery of the events to the Subscription.
+     * <p>
+     * <b>NB</b> It must be called by the session thread of the subscriber.
+     */
+    void detach() {
+      if (!attached) {
+        return;
+      }
+      attached = false;
+      SubscriptionHub.this.detach(this);
+    }
+
+    private void deliver(final Runnable event) {
+      thread.queue(new Runnable() {
+        @Override
+        public void run() {
+          if (attached) {
+            event.run();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Subscription sent to the Server on behalf of the subscribers of a shared subscription.
+   */
+  private class Upstream extends Subscription {
+
+    private final Shared group;
+
+    Upstream(Shared group, Subscription model) {
+      super(model.getMode());
+      this.group = group;
+      model.copyRequestTo(this);
+    }
+
+    @Override
+    void onSubscribed(int commandPos, int keyPos, int items, int fields) {
+      super.onSubscribed(commandPos, keyPos, items, fields);
+      onUpstreamSubscribed(this, commandPos, keyPos, items, fields);
+    }
+
+    @Override
+    void update(ArrayList<String> args, int item, boolean fromMultison) {
+      boolean accepted = this.isActive() && this.isSubscribed();
+      //the arguments are modified by the update
+      ArrayList<String> original = new ArrayList<String>(args);
+      super.update(args, item, fromMultison);
+      if (accepted) {
+        onUpstreamUpdate(this, item, original);
+      }
+    }
+
+    @Override
+    void endOfSnapshot(int item) {
+      super.endOfSnapshot(item);
+      onUpstreamEndOfSnapshot(this, item);
+    }
+
+    @Override
+    void clearSnapshot(int item) {
+      super.clearSnapshot(item);
+      onUpstreamClearSnapshot(this, item);
+    }
+
+    @Override
+    void lostUpdates(int item, int lostUpdates) {
+      super.lostUpdates(item, lostUpdates);
+      onUpstreamLostUpdates(this, item, lostUpdates);
+    }
+
+    @Override
+    void configure(String frequency) {
+      super.configure(frequency);
+      onUpstreamConfigure(this, frequency);
+    }
+
+    @Override
+    void onPause() {
+      super.onPause();
+      onUpstreamPause(this);
+    }
+
+    @Override
+    void onSubscriptionError(int code, String message) {
+      super.onSubscriptionError(code, message);
+      onUpstreamError(this, code, message);
+    }
+  }
+
+  /**
+   * A subscription sent to the Server, with its subscribers and the current state of its items.
+   * <p>
+   * <b>NB</b> It is guarded by the hub.
+   */
+  private class Shared {
+
+    private final String key;
+    private final String mode;
+    private final boolean snapshot;
+    private final List<Member> members = new ArrayList<Member>();
+
+    private Upstream upstream;
+    private SubscriptionManager carrier;
+
+    private boolean subscribed = false;
+    private int commandPos;
+    private int keyPos;
+    private int fields;
+    private String frequency;
+    private ItemState[] items;
+
+    Shared(String key, Subscription model) {
+      this.key = key;
+      this.mode = model.getMode();
+      String requestedSnapshot = model.getRequestedSnapshot();
+      this.snapshot = requestedSnapshot != null && !requestedSnapshot.equals("no");
+    }
+
+    /**
+     * Sends the subscription to the Server through the given manager.
+     */
+    void carry(Subscription model, SubscriptionManager manager) {
+      upstream = new Upstream(this, model);
+      carrier = manager;
+      upstream.setActive();
+      manager.add(upstream);
+    }
+
+    /**
+     * Removes the subscription from its carrier.
+     */
+    void drop() {
+      reset();
+      upstream.setInactive();
+      carrier.remove(upstream);
+      upstream = null;
+      carrier = null;
+    }
+
+    void reset() {
+      subscribed = false;
+      frequency = null;
+      items = null;
+    }
+
+    void onSubscribed(int commandPos, int keyPos, int items, int fields) {
+      this.subscribed = true;
+      this.commandPos = commandPos;
+      this.keyPos = keyPos;
+      this.fields = fields;
+      this.items = new ItemState[items + 1];
+      for (int i = 1; i <= items; i++) {
+        this.items[i] = new ItemState();
+      }
+    }
+
+    void update(int item, ArrayList<String> args) {
+      ItemState state = items[item];
+      ArrayList<String> values = new ArrayList<String>(args.size());
+      for (int i = 0; i < args.size(); i++) {
+        String value = args.get(i);
+        if (value == ProtocolConstants.UNCHANGED) {
+          value = state.last == null || state.last.size() <= i ? null : state.last.get(i);
+        }
+        values.add(value);
+      }
+      state.last = values;
+
+      if (!snapshot) {
+        return;
+      }
+      if (mode.equals(Constants.COMMAND)) {
+        if (keyPos < 1 || keyPos > values.size() || commandPos < 1 || commandPos > values.size()) {
+          return;
+        }
+        String rowKey = values.get(keyPos - 1);
+        if (Constants.DELETE.equals(values.get(commandPos - 1))) {
+          state.rows.remove(rowKey);
+        } else {
+          state.rows.put(rowKey, values);
+        }
+      } else if (mode.equals(Constants.MERGE)) {
+        state.events.clear();
+        state.events.add(values);
+      } else if (mode.equals(Constants.DISTINCT)) {
+        state.events.add(values);
+        if (state.endOfSnapshot) {
+          //keeps as many events as the snapshot
+          while (state.events.size() > state.window) {
+            state.events.poll();
+          }
+        }
+      }
+    }
+
+    Replay replay() {
+      Replay replay = new Replay(commandPos, keyPos, items.length - 1, fields, frequency);
+      for (int i = 1; i < items.length; i++) {
+        ItemState state = items[i];
+        List<ArrayList<String>> rows = new ArrayList<ArrayList<String>>();
+        if (mode.equals(Constants.COMMAND)) {
+          for (ArrayList<String> row : state.rows.values()) {
+            ArrayList<String> added = new ArrayList<String>(row);
+            added.set(commandPos - 1, Constants.ADD);
+            rows.add(added);
+          }
+        } else {
+          for (ArrayList<String> event : state.events) {
+            rows.add(new ArrayList<String>(event));
+          }
+        }
+        replay.rows.add(rows);
+        replay.last.add(state.last);
+        replay.endOfSnapshot.add(state.endOfSnapshot);
+      }
+      return replay;
+    }
+  }
+
+  /**
+   * Current state of an item of a shared subscription.
+   */
+  private static class ItemState {
+
+    /**
+     * Values of the last update (including the unchanged ones).
+     */
+    ArrayList<String> last;
+    /**
+     * Current rows by key, in COMMAND mode.
+     */
+    final LinkedHashMap<String,ArrayList<String>> rows = new LinkedHashMap<String,ArrayList<String>>();
+    /**
+     * Last events, in MERGE and DISTINCT mode.
+     */
+    final ArrayDeque<ArrayList<String>> events = new ArrayDeque<ArrayList<String>>();
+    boolean endOfSnapshot = false;
+    int window;
+
+    void endOfSnapshot() {
+      endOfSnapshot = true;
+      window = Math.max(events.size(), 1);
+    }
+
+    void clearSnapshot() {
+      rows.clear();
+      events.clear();
+    }
+  }
+
+  /**
+   * Current state of a shared subscription, to be delivered to a new subscriber.
+   */
+  private static class Replay {
+
+    private final int commandPos;
+    private final int keyPos;
+    private final int items;
+    private final int fields;
+    private final String frequency;
+    /**
+     * Per-item data, starting from item 1.
+     */
+    private final List<List<ArrayList<String>>> rows = new ArrayList<List<ArrayList<String>>>();
+    private final List<ArrayList<String>> last = new ArrayList<ArrayList<String>>();
+    private final List<Boolean> endOfSnapshot = new ArrayList<Boolean>();
+
+    Replay(int commandPos, int keyPos, int items, int fields, String frequency) {
+      this.commandPos = commandPos;
+      this.keyPos = keyPos;
+      this.items = items;
+      this.fields = fields;
+      this.frequency = frequency;
+    }
+
+    void deliver(Subscription subscription) {
+      subscription.onSubscribed(commandPos, keyPos, items, fields);
+      if (frequency != null) {
+        subscription.configure(frequency);
+      }
+      for (int item = 1; item <= items; item++) {
+        for (ArrayList<String> row : rows.get(item - 1)) {
+          subscription.update(row, item, false);
+        }
+        ArrayList<String> values = last.get(item - 1);
+        if (values != null) {
+          //the next updates are relative to the last one received, which may differ from the rows in COMMAND mode
+          subscription.restoreItemValues(item, values);
+        }
+        if (endOfSnapshot.get(item - 1)) {
+          subscription.endOfSnapshot(item);
+        }
+      }
+    }
+  }
+}
@@ -52,6 +52,10 @@ class SubscriptionManager {
    */
   private final Set<Integer> pendingUnsubscribe = new HashSet<Integer>();
   private final Map<Integer,Integer> pendingSubscriptionChanges = new HashMap<Integer,Integer>();
+  /**
+   * Subscriptions fed by a {@link SubscriptionHub} instead of being sent to the Server.
+   */
+  private final Map<Integer,SubscriptionHub.Member> sharedSubscriptions = new HashMap<Integer,SubscriptionHub.Member>();
 
 //  private int nextId = 0;
   private boolean sessionAlive = false;
@@ -62,6 +66,9 @@ class SubscriptionManager {
 
   private SessionManager manager;
   
+  private SubscriptionHub hub;
+  private ConnectionDetails details;
+  
   SubscriptionManager(SessionThread sessionThread, SessionManager manager, InternalConnectionOptions options) {
     this.sessionThread = sessionThread;
     this.options = options;
@@ -83,6 +90,17 @@ class SubscriptionManager {
   
 
 
+  //this method is called from the eventsThread
+  void setHub(final SubscriptionHub hub, final ConnectionDetails details) {
+    sessionThread.queue(new Runnable() {
+      @Override
+      public void run() {
+        SubscriptionManager.this.hub = hub;
+        SubscriptionManager.this.details = details;
+      }
+    });
+  }
+  
   //this method is called from the eventsThread
   void add(final Subscription subscription) {
     sessionThread.queue(new Runnable() {
@@ -123,7 +141,10 @@ class SubscriptionManager {
   void doRemove(Subscription subscription) {
     int subId = subscription.getSubscriptionId();
     log.info("removing subscription " + subId);
-    if (sessionAlive) {
+    SubscriptionHub.Member member = sharedSubscriptions.remove(subId);
+    if (member != null) {
+      member.detach();
+    } else if (sessionAlive) {
         if (subscription.isSubscribing()) {
             pendingUnsubscribe.add(subId);
         } else if (subscription.isSubscribed()) {
@@ -136,6 +157,16 @@ class SubscriptionManager {
   
   
   void changeFrequency(Subscription subscription) {
+    if (sharedSubscriptions.containsKey(subscription.getSubscriptionId())) {
+      //the frequency identifies the shared subscription: bind to another one
+      log.info("Moving shared subscription to the new frequency: " + subscription.getSubscriptionId());
+      detachShared(subscription);
+      subscription.onPause();
+      subscription.onStart();
+      subscribe(subscription);
+      return;
+    }
+    
     log.info("Preparing subscription frequency change: " + subscription.getSubscriptionId());
 
     ChangeSubscriptionRequest request = subscription.generateFrequencyRequest();
@@ -164,6 +195,16 @@ class SubscriptionManager {
     //we might want to introduce a method shouldSend to the RequestTutor, better relay on the batch algorithm to abort 
     //useless requests
     
+    if (hub != null) {
+      String key = SubscriptionHub.getKey(subscription, details);
+      if (key != null) {
+        log.info("Sharing subscription: " + subscription.getSubscriptionId());
+        subscription.onSubscriptionSent();
+        sharedSubscriptions.put(subscription.getSubscriptionId(), hub.attach(key, subscription, this, sessionThread));
+        return;
+      }
+    }
+    
     log.info("Preparing subscription: " + subscription.getSubscriptionId());
     
     SubscribeRequest request = subscription.generateSubscribeRequest();
@@ -224,10 +265,18 @@ class SubscriptionManager {
         return;
       }
       
+      detachShared(subscription);
       subscription.onPause(); //
     }
   }
   
+  private void detachShared(Subscription subscription) {
+    SubscriptionHub.Member member = sharedSubscriptions.remove(subscription.getSubscriptionId());
+    if (member != null) {
+      member.detach();
+    }
+  }
+  
   void clearAllPending() {
     this.pendingSubscriptionChanges.clear();
     this.pendingDelete.clear();
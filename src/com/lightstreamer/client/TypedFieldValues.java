@@ -0,0 +1,186 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.List;
+import java.util.Set;
+
+import com.lightstreamer.util.EncodingUtils;
+
+/**
+ * Values of the typed fields of a row (see {@link Subscription#setFieldTypes(String[])}),
+ * decoded on the session thread so that the listeners can read them through the primitive
+ * accessors of {@link ItemUpdate} without parsing. <BR>
+ * The instances are immutable once built: the values of an update are derived from the ones
+ * of the previous update of the same row, so that only the changed fields are decoded again.
+ */
+class TypedFieldValues {
+
+  static final String STRING = "STRING";
+  static final String LONG = "LONG";
+  static final String DOUBLE = "DOUBLE";
+  static final String BASE64 = "BASE64";
+
+  /**
+   * The declared types, indexed by the 0-based field position; null means STRING.
+   */
+  private final String[] types;
+  /**
+   * The LONG values and the raw bits of the DOUBLE values.
+   */
+  private final long[] numbers;
+  private final byte[][] binaries;
+  /**
+   * Whether a value was successfully decoded.
+   */
+  private final boolean[] valid;
+
+  private TypedFieldValues(String[] types) {
+    this.types = types;
+    this.numbers = new long[types.length];
+    this.binaries = new byte[types.length][];
+    this.valid = new boolean[types.length];
+  }
+
+  /**
+   * Canonicalizes a type name, so that the types can be compared by reference.
+   *
+   * @throws IllegalArgumentException if the name is not a supported type.
+   */
+  static String toType(String name) {
+    if (name == null || STRING.equalsIgnoreCase(name)) {
+      return null;
+    } else if (LONG.equalsIgnoreCase(name)) {
+      return LONG;
+    } else if (DOUBLE.equalsIgnoreCase(name)) {
+      return DOUBLE;
+    } else if (BASE64.equalsIgnoreCase(name)) {
+      return BASE64;
+    }
+    throw new IllegalArgumentException("The given value is not a valid field type. Admitted values are STRING, LONG, DOUBLE, BASE64");
+  }
+
+  /**
+   * Decodes the values of an update.
+   *
+   * @param types the declared types
+   * @param values the values of all the fields of the row
+   * @param changedFields the 1-based positions of the changed fields
+   * @param previous the values of the previous update of the same row, or null if the row is new
+   */
+  static TypedFieldValues decode(String[] types, List<String> values, Set<Integer> changedFields, TypedFieldValues previous) {
+    TypedFieldValues res = new TypedFieldValues(types);
+    int len = Math.min(types.length, values.size());
+    for (int i = 0; i < len; i++) {
+      if (types[i] == null) {
+        continue;
+      }
+      if (previous != null && ! changedFields.contains(i+1)) {
+        res.numbers[i] = previous.numbers[i];
+        res.binaries[i] = previous.binaries[i];
+        res.valid[i] = previous.valid[i];
+      } else {
+        res.decode(i, values.get(i));
+      }
+    }
+    return res;
+  }
+
+  private void decode(int i, String value) {
+    if (value == null) {
+      return;
+    }
+    try {
+      if (types[i] == LONG) {
+        numbers[i] = Long.parseLong(value);
+      } else if (types[i] == DOUBLE) {
+        numbers[i] = Double.doubleToRawLongBits(Double.parseDouble(value));
+      } else {
+        binaries[i] = EncodingUtils.decodeBase64(value);
+      }
+      valid[i] = true;
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException included: reported by the accessors
+    }
+  }
+
+  /**
+   * Returns the value of a field as a LONG, taking it from the decoded values, if available,
+   * or parsing the string value otherwise.
+   *
+   * @param typed the decoded values of the row, or null
+   * @param fieldPos the 1-based position of the field
+   * @param value the string value of the field
+   */
+  static long toLong(TypedFieldValues typed, int fieldPos, String value) {
+    if (typed != null && typed.isTyped(fieldPos, LONG)) {
+      if (! typed.isValid(fieldPos)) {
+        throw new NumberFormatException("the value of the field is not an integer number");
+      }
+      return typed.getLong(fieldPos);
+    }
+    if (value == null) {
+      throw new NumberFormatException("the value of the field is null");
+    }
+    return Long.parseLong(value);
+  }
+
+  /**
+   * Returns the value of a field as a DOUBLE (see {@link #toLong(TypedFieldValues, int, String)}).
+   */
+  static double toDouble(TypedFieldValues typed, int fieldPos, String value) {
+    if (typed != null) {
+      if (typed.isTyped(fieldPos, DOUBLE)) {
+        if (! typed.isValid(fieldPos)) {
+          throw new NumberFormatException("the value of the field is not a number");
+        }
+        return typed.getDouble(fieldPos);
+      } else if (typed.isTyped(fieldPos, LONG) && typed.isValid(fieldPos)) {
+        return typed.getLong(fieldPos);
+      }
+    }
+    if (value == null) {
+      throw new NumberFormatException("the value of the field is null");
+    }
+    return Double.parseDouble(value);
+  }
+
+  /**
+   * Returns whether the field at the 1-based position was declared with the type.
+   */
+  boolean isTyped(int fieldPos, String type) {
+    return fieldPos <= types.length && types[fieldPos-1] == type;
+  }
+
+  /**
+   * Returns whether the value of the field at the 1-based position was decoded.
+   */
+  boolean isValid(int fieldPos) {
+    return valid[fieldPos-1];
+  }
+
+  long getLong(int fieldPos) {
+    return numbers[fieldPos-1];
+  }
+
+  double getDouble(int fieldPos) {
+    return Double.longBitsToDouble(numbers[fieldPos-1]);
+  }
+
+  byte[] getBytes(int fieldPos) {
+    return binaries[fieldPos-1];
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+
+/**
+ * Filter of the updates notified to a {@link SubscriptionListener} added through
+ * {@link Subscription#addListener(SubscriptionListener, UpdateFilter)}. <BR>
+ * The filter is evaluated on the internal thread of the library as soon as an update is received,
+ * so that no event is queued for the listener when the update is rejected. It can consist of:
+ * <ul>
+ *  <li>a set of fields, supplied to the constructor: the update is accepted only if at least one
+ *  of them has changed (see {@link ItemUpdate#isValueChanged(int)});</li>
+ *  <li>a predicate, supplied by overriding {@link #accept(ItemUpdate)}, which is only invoked
+ *  when the previous check is passed.</li>
+ * </ul>
+ * For instance, <code>new UpdateFilter(sub.getFieldRef("last"))</code> only notifies the updates
+ * which change the "last" field. <BR>
+ * Only the {@link SubscriptionListener#onItemUpdate(ItemUpdate)} events are filtered.
+ */
+public class UpdateFilter {
+
+  private static final Logger log = LogManager.getLogger(Constants.SUBSCRIPTIONS_LOG);
+
+  /**
+   * The 1-based positions of the fields; empty if there is no field condition.
+   */
+  private final int[] fields;
+
+  /**
+   * Creates a filter without field condition, which only depends on {@link #accept(ItemUpdate)}.
+   */
+  public UpdateFilter() {
+    this.fields = new int[0];
+  }
+
+  /**
+   * Creates a filter that accepts the updates changing at least one of the specified fields.
+   * If no field is specified, the filter only depends on {@link #accept(ItemUpdate)}.
+   *
+   * @param fieldPositions the 1-based positions of the fields within the "Field List" or "Field Schema".
+   */
+  public UpdateFilter(int... fieldPositions) {
+    this.fields = fieldPositions.clone();
+  }
+
+  /**
+   * Creates a filter that accepts the updates changing at least one of the specified fields.
+   * If no field is specified, the filter only depends on {@link #accept(ItemUpdate)}.
+   *
+   * @param fieldRefs handles obtained through {@link Subscription#getFieldRef(String)}.
+   */
+  public UpdateFilter(FieldRef... fieldRefs) {
+    this.fields = new int[fieldRefs.length];
+    for (int i = 0; i < fieldRefs.length; i++) {
+      this.fields[i] = fieldRefs[i].getPos();
+    }
+  }
+
+  /**
+   * Predicate on the updates which passed the field condition. The default implementation
+   * accepts all the updates. <BR>
+   * The method is invoked on the internal thread of the library: it should be fast, it shouldn't block
+   * and it shouldn't invoke methods of the Subscription. If it throws an exception, the update is accepted.
+   *
+   * @param itemUpdate the update.
+   * @return true if the update should be notified to the listener; false otherwise.
+   */
+  public boolean accept(@Nonnull ItemUpdate itemUpdate) {
+    return true;
+  }
+
+  /**
+   * Checks only the field condition.
+   */
+  boolean matchesFields(Set<Integer> changedFields) {
+    if (fields.length == 0) {
+      return true;
+    }
+    for (int pos : fields) {
+      if (changedFields.contains(pos)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks the field condition and the predicate.
+   */
+  boolean matches(ItemUpdate itemUpdate, Set<Integer> changedFields) {
+    if (! matchesFields(changedFields)) {
+      return false;
+    }
+    try {
+      return accept(itemUpdate);
+    } catch (RuntimeException e) {
+      log.error("Exception caught while executing an update filter", e);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Accumulator of the updates notified to the sampled listeners of a Subscription
+ * (see {@link Subscription#setLocalDeliveryInterval(long)}). <BR>
+ * For each row (i.e. each item or, in COMMAND mode, each key) only the last update is kept, together
+ * with the union of the fields changed since the last delivery. In COMMAND mode the commands are
+ * consolidated as well: a key added and updated is still notified as added, a key added and deleted
+ * is not notified at all and a key already known to the listener, then deleted and added again, is notified
+ * as updated. <BR>
+ * The instances are confined to the session thread, where all the updates are processed, those of the
+ * second-level subscriptions of a two-level COMMAND subscription included.
+ */
+class UpdateSampler {
+
+  private static class Row {
+    ItemUpdate last;
+    final SortedSet<Integer> changedFields = new TreeSet<Integer>();
+    final String firstCommand;
+
+    Row(String firstCommand) {
+      this.firstCommand = firstCommand;
+    }
+  }
+
+  /**
+   * The 1-based position of the command field; 0 if the mode is not COMMAND.
+   */
+  private final int commandPos;
+  private final Map<String,Row> rows = new LinkedHashMap<String,Row>();
+
+  UpdateSampler(int commandPos) {
+    this.commandPos = commandPos;
+  }
+
+  boolean isEmpty() {
+    return rows.isEmpty();
+  }
+
+  void add(String rowKey, ItemUpdate update, SortedSet<Integer> changedFields) {
+    String command = getCommand(update);
+    Row row = rows.get(rowKey);
+    if (row == null) {
+      row = new Row(command);
+      rows.put(rowKey, row);
+    } else if (Constants.ADD.equals(row.firstCommand) && Constants.DELETE.equals(command)) {
+      // the key has never been notified
+      rows.remove(rowKey);
+      return;
+    }
+    row.last = update;
+    row.changedFields.addAll(changedFields);
+  }
+
+  /**
+   * Returns the consolidated updates and clears the accumulated state.
+   */
+  List<ItemUpdate> drain() {
+    List<ItemUpdate> res = new ArrayList<ItemUpdate>(rows.size());
+    for (Row row : rows.values()) {
+      String command = getCommand(row.last);
+      String consolidated = command;
+      if (Constants.ADD.equals(row.firstCommand)) {
+        // the key is new to the listener
+        consolidated = Constants.ADD;
+      } else if (Constants.ADD.equals(command)) {
+        // the key was known to the listener (first UPDATE or DELETE), hence it was deleted and added again
+        consolidated = Constants.UPDATE;
+      }
+      ArrayList<String> values = row.last.getValues();
+      if (consolidated != null && ! consolidated.equals(command)) {
+        values = new ArrayList<String>(values);
+        values.set(commandPos-1, consolidated);
+      }
+      res.add(row.last.withValues(values, row.changedFields));
+    }
+    rows.clear();
+    return res;
+  }
+
+  void clear() {
+    rows.clear();
+  }
+
+  private String getCommand(ItemUpdate update) {
+    if (commandPos <= 0 || commandPos > update.getValues().size()) {
+      return null;
+    }
+    return update.getValues().get(commandPos-1);
+  }
+}
@@ -33,6 +33,31 @@ public class EventDispatcher<T> {
   
   private final Logger log = LogManager.getLogger(Constants.ACTIONS_LOG);
   
+  /**
+   * Observer of the time taken by the delivery of the events.
+   */
+  public interface DeliveryObserver {
+    /**
+     * Notified on the events thread after an event has been executed.
+     * 
+     * @param queueNanos the time spent by the event in the queue of the events thread
+     * @param executionNanos the time spent by the listener to execute the event
+     */
+    void onEventDelivered(long queueNanos, long executionNanos);
+  }
+  
+  private volatile DeliveryObserver deliveryObserver;
+  
+  /**
+   * Selection of the listeners that receive an event.
+   */
+  public interface ListenerFilter<T> {
+    /**
+     * Invoked while holding the lock of the dispatcher.
+     */
+    boolean accept(T listener);
+  }
+  
   public EventDispatcher(EventsThread thread) {
     if (thread == null) {
       throw new NullPointerException("an EventsThread is required");
@@ -40,15 +65,16 @@ public class EventDispatcher<T> {
     this.eventThread = thread;
   }
   
-  public synchronized void addListener(T listener, Event<T> startEvent) {
+  public synchronized boolean addListener(T listener, Event<T> startEvent) {
     if (listeners.containsKey(listener)) {
-      return;
+      return false;
     }
     
     ListenerWrapper wrapper = new ListenerWrapper(listener);
     listeners.put(listener, wrapper);
     
     this.dispatchEventToListener(startEvent, wrapper, true);
+    return true;
   }
   
   public synchronized void removeListener(T listener, Event<T> endEvent) {
@@ -70,6 +96,19 @@ public class EventDispatcher<T> {
     
   }
   
+  public synchronized void dispatchEvent(final Event<T> event, ListenerFilter<T> filter) {
+    for (Map.Entry<T, ListenerWrapper> entry : listeners.entrySet()) {
+      if (filter.accept(entry.getKey())) {
+        this.dispatchEventToListener(event, entry.getValue(), false);
+      }
+    }
+    
+  }
+  
+  public void setDeliveryObserver(DeliveryObserver observer) {
+    this.deliveryObserver = observer;
+  }
+  
   public synchronized int size() {
     return listeners.size();
   }
@@ -91,15 +130,22 @@ public class EventDispatcher<T> {
       //should not happen, widely used during tests
       return;
     }
+    final DeliveryObserver observer = this.deliveryObserver;
+    final long queueTime = observer == null ? 0 : System.nanoTime();
     eventThread.queue(new Runnable() {
       @Override
       public void run() {
           if (wrapper.alive.get() || forced) {
+            long startTime = observer == null ? 0 : System.nanoTime();
             try {
               event.applyTo(wrapper.listener);
             } catch(Error | RuntimeException e) {
               log.error("Exception caught while executing event on custom code",e);
             }
+            if (observer != null) {
+              long endTime = System.nanoTime();
+              observer.onEventDelivered(startTime - queueTime, endTime - startTime);
+            }
           }
       }});
     
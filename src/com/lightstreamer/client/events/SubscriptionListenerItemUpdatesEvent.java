@@ -0,0 +1,42 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.events;
+
+import java.util.List;
+
+import com.lightstreamer.client.BatchSubscriptionListener;
+import com.lightstreamer.client.ItemUpdate;
+import com.lightstreamer.client.SubscriptionListener;
+
+public class SubscriptionListenerItemUpdatesEvent implements Event<SubscriptionListener> {
+
+  private final List<ItemUpdate> itemUpdates;
+
+  public SubscriptionListenerItemUpdatesEvent(List<ItemUpdate> itemUpdates) {
+    this.itemUpdates = itemUpdates;
+  }
+
+  @Override
+  public void applyTo(SubscriptionListener listener) {
+    if (listener instanceof BatchSubscriptionListener) {
+      ((BatchSubscriptionListener) listener).onItemUpdates(itemUpdates);
+      return;
+    }
+    for (ItemUpdate itemUpdate : itemUpdates) {
+      listener.onItemUpdate(itemUpdate);
+    }
+  }
+}
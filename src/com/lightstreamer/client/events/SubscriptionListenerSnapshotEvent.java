@@ -0,0 +1,40 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.events;
+
+import java.util.List;
+
+import com.lightstreamer.client.BatchSubscriptionListener;
+import com.lightstreamer.client.ItemUpdate;
+import com.lightstreamer.client.SubscriptionListener;
+
+public class SubscriptionListenerSnapshotEvent implements Event<SubscriptionListener> {
+
+  private final String itemName;
+  private final int itemPos;
+  private final List<ItemUpdate> itemUpdates;
+
+  public SubscriptionListenerSnapshotEvent(String itemName, int itemPos, List<ItemUpdate> itemUpdates) {
+    this.itemName = itemName;
+    this.itemPos = itemPos;
+    this.itemUpdates = itemUpdates;
+  }
+
+  @Override
+  public void applyTo(SubscriptionListener listener) {
+    ((BatchSubscriptionListener) listener).onSnapshot(itemName, itemPos, itemUpdates);
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.flow;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.Flow;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.ItemUpdate;
+import com.lightstreamer.client.Subscription;
+import com.lightstreamer.client.SubscriptionListener;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+
+/**
+ * A {@link Flow.Publisher} view of the updates of a {@link Subscription} (Java 9 or later). <BR>
+ * Each {@link Flow.Subscriber} is fed through its own {@link SubscriptionListener}, added to the Subscription upon
+ * {@link #subscribe(Flow.Subscriber)} and removed upon {@link Flow.Subscription#cancel()}, and receives the updates
+ * only as long as it has outstanding demand. When an update arrives and the demand of a subscriber has run out,
+ * the update is kept according to the overflow policy of the publisher:
+ * <ul>
+ * <li>"BUFFER": the updates are queued, up to the configured buffer size; when the buffer is full,
+ * the subscriber is cancelled and notified with an {@link IllegalStateException}.</li>
+ * <li>"CONFLATE": only the last pending update of each item (of each key, in COMMAND mode) is kept,
+ * hence the buffer size is not used.</li>
+ * <li>"THROTTLE": the updates are queued as with "BUFFER"; when the buffer is full, the requested maximum frequency
+ * of the Subscription is halved (see {@link Subscription#setRequestedMaxFrequency(String)}), so that the Server
+ * filters the updates at the source, while the further updates are conflated as with "CONFLATE" until the buffer
+ * is drained. Note that the frequency is lowered for all the listeners of the Subscription and it is not raised
+ * again by the publisher.</li>
+ * </ul>
+ * The subscribers are completed when the Subscription is unsubscribed from (see
+ * {@link com.lightstreamer.client.LightstreamerClient#unsubscribe(Subscription)}), whereas they survive the
+ * unsubscriptions caused by the loss of the session; they are notified with an {@link IllegalStateException}
+ * if the Subscription is refused by the Server (see {@link SubscriptionListener#onSubscriptionError(int, String)}).
+ * <BR>
+ * The publisher can be used with the libraries based on Reactive Streams through
+ * {@code org.reactivestreams.FlowAdapters.toPublisher(Flow.Publisher)}.
+ */
+@ThreadSafe
+public class SubscriptionPublisher implements Flow.Publisher<ItemUpdate> {
+
+    private static final Logger log = LogManager.getLogger(Constants.SUBSCRIPTIONS_LOG);
+
+    private static final String BUFFER = "BUFFER";
+    private static final String CONFLATE = "CONFLATE";
+    private static final String THROTTLE = "THROTTLE";
+
+    /**
+     * Lowest frequency requested by the "THROTTLE" policy.
+     */
+    private static final double MIN_FREQUENCY = 0.01;
+    /**
+     * Length of the period where the incoming updates are counted by the "THROTTLE" policy.
+     */
+    private static final long RATE_PERIOD_NANOS = 1_000_000_000L;
+
+    private final Subscription subscription;
+    /**
+     * One of the constants {@link #BUFFER}, {@link #CONFLATE} and {@link #THROTTLE}, which can be compared by reference.
+     */
+    private final String overflowPolicy;
+    private final int bufferSize;
+
+    /**
+     * Creates a publisher which buffers up to 1000 updates for each subscriber.
+     * The call is equivalent to {@code SubscriptionPublisher(subscription, "BUFFER", 1000)}.
+     *
+     * @param subscription the Subscription whose updates are published.
+     */
+    public SubscriptionPublisher(@Nonnull Subscription subscription) {
+        this(subscription, BUFFER, 1000);
+    }
+
+    /**
+     * Creates a publisher with the given overflow policy.
+     *
+     * @param subscription the Subscription whose updates are published.
+     * @param overflowPolicy the policy applied to the updates arriving when the demand of a subscriber
+     * has run out; it can be one of the following:
+     * <ul>
+     * <li>"BUFFER"</li>
+     * <li>"CONFLATE"</li>
+     * <li>"THROTTLE"</li>
+     * </ul>
+     * @param bufferSize the maximum number of updates queued for each subscriber
+     * (not used by the "CONFLATE" policy).
+     *
+     * @throws IllegalArgumentException if the policy is not one of the above or the buffer size is not positive.
+     */
+    public SubscriptionPublisher(@Nonnull Subscription subscription, @Nonnull String overflowPolicy, int bufferSize) {
+        if (subscription == null) {
+            throw new NullPointerException("Subscription is null");
+        }
+        String policy = overflowPolicy == null ? null : overflowPolicy.toUpperCase();
+        if (BUFFER.equals(policy)) {
+            policy = BUFFER;
+        } else if (CONFLATE.equals(policy)) {
+            policy = CONFLATE;
+        } else if (THROTTLE.equals(policy)) {
+            policy = THROTTLE;
+        } else {
+            throw new IllegalArgumentException("The given overflow policy is not valid. Use one of: BUFFER, CONFLATE, THROTTLE");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive");
+        }
+        this.subscription = subscription;
+        this.overflowPolicy = policy;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ItemUpdate> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber is null");
+        }
+        Downstream downstream = new Downstream(subscriber);
+        subscriber.onSubscribe(downstream);
+        downstream.start();
+    }
+
+    /**
+     * The link between the Subscription and a subscriber.
+     * <p>
+     * The updates arrive on the events thread, while the demand can be signaled by any thread:
+     * the subscriber is notified by one thread at a time (see {@link #drain()}).
+     */
+    private class Downstream implements Flow.Subscription, SubscriptionListener {
+
+        private final Flow.Subscriber<? super ItemUpdate> subscriber;
+
+        /*
+         * The following fields are guarded by this
+         */
+        private long demand = 0;
+        private boolean emitting = false;
+        private boolean cancelled = false;
+        private boolean completed = false;
+        private Throwable error = null;
+        private final ArrayDeque<ItemUpdate> buffer = new ArrayDeque<ItemUpdate>();
+        /**
+         * Pending updates by item (or by item and key, in COMMAND mode), which are sent after the buffered ones.
+         */
+        private final LinkedHashMap<String, ItemUpdate> conflated = new LinkedHashMap<String, ItemUpdate>();
+
+        /*
+         * The following fields are accessed by the events thread only
+         */
+        private long rateStart = System.nanoTime();
+        private int rateCount = 0;
+        private final Set<Integer> rateItems = new HashSet<Integer>();
+        private double itemRate = -1;
+        private long lastThrottle = 0;
+
+        Downstream(Flow.Subscriber<? super ItemUpdate> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+            }
+            subscription.addListener(this);
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Non-positive request: " + n);
+                } else {
+                    demand += n;
+                    if (demand < 0) {
+                        // overflow: the demand is unbounded
+                        demand = Long.MAX_VALUE;
+                    }
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                buffer.clear();
+                conflated.clear();
+            }
+            subscription.removeListener(this);
+        }
+
+        /**
+         * Notifies the subscriber of the pending signals allowed by the demand.
+         */
+        private void drain() {
+            synchronized (this) {
+                if (emitting) {
+                    // the emitting thread will see the new signals
+                    return;
+                }
+                emitting = true;
+            }
+            for (;;) {
+                ItemUpdate next = null;
+                Throwable failure = null;
+                boolean complete = false;
+                synchronized (this) {
+                    if (cancelled) {
+                        emitting = false;
+                        return;
+                    }
+                    if (error != null) {
+                        failure = error;
+                    } else if (demand > 0 && ! buffer.isEmpty()) {
+                        next = buffer.poll();
+                    } else if (demand > 0 && ! conflated.isEmpty()) {
+                        Iterator<ItemUpdate> it = conflated.values().iterator();
+                        next = it.next();
+                        it.remove();
+                    } else if (completed && buffer.isEmpty() && conflated.isEmpty()) {
+                        complete = true;
+                    } else {
+                        emitting = false;
+                        return;
+                    }
+                    if (next != null) {
+                        if (demand != Long.MAX_VALUE) {
+                            demand--;
+                        }
+                    } else {
+                        // terminal signal
+                        cancelled = true;
+                        emitting = false;
+                    }
+                }
+                if (next != null) {
+                    subscriber.onNext(next);
+                } else {
+                    subscription.removeListener(this);
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onItemUpdate(@Nonnull ItemUpdate itemUpdate) {
+            boolean throttle = false;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (overflowPolicy == CONFLATE) {
+                    conflated.put(getConflationKey(itemUpdate), itemUpdate);
+                } else if (buffer.size() < bufferSize && conflated.isEmpty()) {
+                    buffer.add(itemUpdate);
+                } else if (overflowPolicy == THROTTLE) {
+                    conflated.put(getConflationKey(itemUpdate), itemUpdate);
+                    throttle = true;
+                } else {
+                    error = new IllegalStateException("Buffer overflow: the subscriber is too slow");
+                }
+            }
+            if (overflowPolicy == THROTTLE) {
+                countUpdate(itemUpdate);
+                if (throttle) {
+                    throttle();
+                }
+            }
+            drain();
+        }
+
+        private String getConflationKey(ItemUpdate itemUpdate) {
+            if (! Constants.COMMAND.equals(subscription.getMode())) {
+                return String.valueOf(itemUpdate.getItemPos());
+            }
+            String key;
+            try {
+                key = itemUpdate.getValue(subscription.getKeyPosition());
+            } catch (IllegalStateException e) {
+                // the Subscription was initiated using a field list
+                key = itemUpdate.getValue("key");
+            }
+            return itemUpdate.getItemPos() + " " + key;
+        }
+
+        /**
+         * Measures the rate of the updates of each item.
+         */
+        private void countUpdate(ItemUpdate itemUpdate) {
+            long now = System.nanoTime();
+            long elapsed = now - rateStart;
+            if (elapsed >= RATE_PERIOD_NANOS) {
+                if (! rateItems.isEmpty()) {
+                    itemRate = rateCount * 1e9 / elapsed / rateItems.size();
+                }
+                rateStart = now;
+                rateCount = 0;
+                rateItems.clear();
+            }
+            rateCount++;
+            rateItems.add(itemUpdate.getItemPos());
+        }
+
+        /**
+         * Halves the requested maximum frequency, at most once per measurement period.
+         */
+        private void throttle() {
+            long now = System.nanoTime();
+            if (lastThrottle != 0 && now - lastThrottle < RATE_PERIOD_NANOS) {
+                return;
+            }
+            lastThrottle = now;
+            double current = Double.POSITIVE_INFINITY;
+            String requested = subscription.getRequestedMaxFrequency();
+            if (requested != null) {
+                try {
+                    current = Double.parseDouble(requested);
+                } catch (NumberFormatException e) {
+                    // "unlimited" or "unfiltered"
+                }
+            }
+            double reference = Math.min(current, itemRate > 0 ? itemRate : Double.POSITIVE_INFINITY);
+            if (Double.isInfinite(reference)) {
+                // the rate is not yet known: wait for the next period
+                lastThrottle = 0;
+                return;
+            }
+            double target = Math.max(reference / 2, MIN_FREQUENCY);
+            if (target >= current) {
+                return;
+            }
+            try {
+                subscription.setRequestedMaxFrequency(String.valueOf(target));
+                log.info("Subscription throttled to " + target + " updates/sec because the subscriber is too slow");
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                // e.g. unfiltered dispatching: the updates are only conflated
+                log.warn("Cannot lower the frequency of the Subscription: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void onUnsubscription() {
+            if (! subscription.isActive()) {
+                synchronized (this) {
+                    completed = true;
+                }
+                drain();
+            }
+        }
+
+        @Override
+        public void onSubscriptionError(int code, @Nullable String message) {
+            synchronized (this) {
+                if (error == null) {
+                    error = new IllegalStateException("Subscription error " + code + ": " + message);
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void onClearSnapshot(@Nullable String itemName, int itemPos) {}
+
+        @Override
+        public void onCommandSecondLevelItemLostUpdates(int lostUpdates, @Nonnull String key) {}
+
+        @Override
+        public void onCommandSecondLevelSubscriptionError(int code, @Nullable String message, String key) {}
+
+        @Override
+        public void onEndOfSnapshot(@Nullable String itemName, int itemPos) {}
+
+        @Override
+        public void onItemLostUpdates(@Nullable String itemName, int itemPos, int lostUpdates) {}
+
+        @Override
+        public void onListenEnd(@Nonnull Subscription subscription) {}
+
+        @Override
+        public void onListenStart(@Nonnull Subscription subscription) {}
+
+        @Override
+        public void onSubscription() {}
+
+        @Override
+        public void onRealMaxFrequency(@Nullable String frequency) {}
+    }
+}
@@ -16,24 +16,31 @@
 package com.lightstreamer.client.mpn;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.lightstreamer.client.Constants;
-import com.lightstreamer.client.ItemUpdate;
+import com.lightstreamer.client.InternalSubscriptionListener;
 import com.lightstreamer.client.LightstreamerClient;
 import com.lightstreamer.client.Subscription;
+import com.lightstreamer.client.events.EventsThread;
 import com.lightstreamer.client.session.SessionManager;
 import com.lightstreamer.client.session.SessionThread;
 import com.lightstreamer.log.LogManager;
 import com.lightstreamer.log.Logger;
 import com.lightstreamer.util.Assertions;
 import com.lightstreamer.util.IdGenerator;
+import com.lightstreamer.util.ListenerHolder;
+import com.lightstreamer.util.LsUtils;
+import com.lightstreamer.util.Visitor;
 
 /**
  * Manages the life-cycle of the MPN requests. 
@@ -84,7 +91,8 @@ public class MpnManager {
     private final SUBS_Manager subs_manager = new SUBS_Manager();
     
     private AbstractMpnDevice mpnDevice;
-    private final SubscriptionList subscriptions = new SubscriptionList();
+    private final ChangeFeed changeFeed = new ChangeFeed(EventsThread.instance);
+    private final SubscriptionList subscriptions = new SubscriptionList(changeFeed);
     
     private final SessionManager sessionManager;
     private final LightstreamerClient lsClient;
@@ -174,19 +182,66 @@ public class MpnManager {
     /**
      * See {@link LightstreamerClient#getMpnSubscriptions(String)}.
      */
-    public synchronized List<MpnSubscription> getSubscriptions(String filter) {
+    public List<MpnSubscription> getSubscriptions(String filter) {
         assert ! Assertions.isSessionThread();
         return subscriptions.getSubscriptions(filter);
     }
     
+    /**
+     * See {@link LightstreamerClient#getMpnSubscriptionsByGroup(String)}.
+     */
+    public List<MpnSubscription> getSubscriptionsByGroup(String group) {
+        assert ! Assertions.isSessionThread();
+        return subscriptions.getSubscriptionsByGroup(group);
+    }
+    
+    /**
+     * See {@link LightstreamerClient#getMpnSubscriptionsByNotificationFormat(String)}.
+     */
+    public List<MpnSubscription> getSubscriptionsByFormat(String format) {
+        assert ! Assertions.isSessionThread();
+        return subscriptions.getSubscriptionsByFormat(format);
+    }
+    
     /**
      * See {@link LightstreamerClient#findMpnSubscription(String)}.
      */
-    public synchronized MpnSubscription findSubscription(String subId) {
+    public MpnSubscription findSubscription(String subId) {
         assert ! Assertions.isSessionThread();
         return subscriptions.findSubscription(subId);
     }
     
+    /**
+     * See {@link LightstreamerClient#addMpnSubscriptionChangesListener(MpnSubscriptionChangesListener)}.
+     */
+    public void addChangesListener(MpnSubscriptionChangesListener listener) {
+        changeFeed.addListener(listener, new Visitor<MpnSubscriptionChangesListener>() {
+            @Override
+            public void visit(MpnSubscriptionChangesListener listener) {
+                listener.onListenStart(lsClient);
+            }
+        });
+    }
+    
+    /**
+     * See {@link LightstreamerClient#removeMpnSubscriptionChangesListener(MpnSubscriptionChangesListener)}.
+     */
+    public void removeChangesListener(MpnSubscriptionChangesListener listener) {
+        changeFeed.removeListener(listener, new Visitor<MpnSubscriptionChangesListener>() {
+            @Override
+            public void visit(MpnSubscriptionChangesListener listener) {
+                listener.onListenEnd(lsClient);
+            }
+        });
+    }
+    
+    /**
+     * See {@link LightstreamerClient#getMpnSubscriptionChangesListeners()}.
+     */
+    public List<MpnSubscriptionChangesListener> getChangesListeners() {
+        return changeFeed.getListeners();
+    }
+    
     String getDeviceId() {
         return mpnDevice == null ? null : mpnDevice.getDeviceId();
     }
@@ -197,11 +252,16 @@ public class MpnManager {
      * Each subscription in the list is subscribed: it has received a MPNOK (user subscription) or
      * it has been published by the MPN internal adapter (server subscription).   
      * <p>
+     * Besides the primary index by subId, the list maintains secondary indexes by status, by item group and
+     * by notification format, which are updated incrementally when the subscriptions change (see {@link MpnSubscription.IndexObserver}).
+     * The indexes only contain the last added subscription of each subId and can be read without locking, 
+     * whereas the modifications, which are made by the session thread, are serialized.
+     * <p>
      * <b>NB</b>The class must be thread-safe because the list can be accessed by the user
      * (see {@link LightstreamerClient#getMpnSubscriptions(String)} and {@link LightstreamerClient#findMpnSubscription(String)}).
      */
     @ThreadSafe
-    private static class SubscriptionList {
+    private static class SubscriptionList implements MpnSubscription.IndexObserver {
         /**
          * Maps the mpnSubId (i.e. the values of the second argument of the message MPNOK)
          * with the corresponding subscription objects.
@@ -209,6 +269,24 @@ public class MpnManager {
          * The state of the contained objects is <b>subscribed</b>.
          */
         final HashMap<String, LinkedList<MpnSubscription>> subscriptions = new HashMap<>();
+        /**
+         * Maps each mpnSubId with the last added subscription.
+         */
+        final ConcurrentHashMap<String, MpnSubscription> lastBySubId = new ConcurrentHashMap<>();
+        final Index byStatus = new Index();
+        final Index byGroup = new Index();
+        final Index byFormat = new Index();
+        /**
+         * The keys under which the subscriptions in {@link #lastBySubId} are indexed.
+         * <br>NB The map is by identity because the subscriptions are compared by their (mutable) subId.
+         */
+        final IdentityHashMap<MpnSubscription, IndexEntry> entries = new IdentityHashMap<>();
+        
+        final ChangeFeed changeFeed;
+        
+        SubscriptionList(ChangeFeed changeFeed) {
+            this.changeFeed = changeFeed;
+        }
         
         /**
          * Returns the objects in the subscription list satisfying the filter 
@@ -217,51 +295,88 @@ public class MpnManager {
          * <p>
          * NB For each subId, only the last added subscription is returned.
          */
-        synchronized List<MpnSubscription> getSubscriptions(String filter) {
-            ArrayList<MpnSubscription> ls = new ArrayList<>(subscriptions.size());
-            boolean all = (filter == null || "ALL".equals(filter));
-            for (LinkedList<MpnSubscription> subs : subscriptions.values()) {
-                MpnSubscription sub = subs.getLast();
-                if (all || sub.getStatus().equals(filter)) {
-                    ls.add(sub);
-                }
+        List<MpnSubscription> getSubscriptions(String filter) {
+            if (filter == null || "ALL".equals(filter)) {
+                return new ArrayList<>(lastBySubId.values());
             }
-            return ls;
+            return byStatus.get(filter);
+        }
+        
+        /**
+         * Returns the objects in the subscription list having the given item group.
+         */
+        List<MpnSubscription> getSubscriptionsByGroup(String group) {
+            return byGroup.get(group);
+        }
+        
+        /**
+         * Returns the objects in the subscription list having the given notification format.
+         */
+        List<MpnSubscription> getSubscriptionsByFormat(String format) {
+            return byFormat.get(format);
         }
         
         /**
          * Returns the last added subscription having the specified subId.
          * If there are no subscriptions with the specified subId, returns null.
          */
-        synchronized MpnSubscription findSubscription(String subId) {
-            LinkedList<MpnSubscription> ls = subscriptions.get(subId);
-            return ls == null ? null : ls.getLast();
+        MpnSubscription findSubscription(String subId) {
+            return lastBySubId.get(subId);
         }
         
         /**
          * Returns true if there is a subscribed items with the given subId.
          */
-        synchronized boolean isSubscribed(String subId) {
-            return subscriptions.containsKey(subId);
+        boolean isSubscribed(String subId) {
+            return lastBySubId.containsKey(subId);
         }
         
         /**
          * Adds the subscription.
          */
-        synchronized void add(String subId, MpnSubscription sub) {
-            LinkedList<MpnSubscription> ls = subscriptions.get(subId);
-            if (ls == null) {
-                ls = new LinkedList<>();
-                subscriptions.put(subId, ls);
+        void add(String subId, MpnSubscription sub) {
+            /* 
+             * the indexed properties are read before locking, because the status is guarded
+             * by the lock of the subscription state machine, which calls onIndexChange
+             */
+            IndexEntry entry = new IndexEntry(subId, sub.getStatus(), sub.eventManager.getGroup(), sub.getNotificationFormat());
+            synchronized (this) {
+                LinkedList<MpnSubscription> ls = subscriptions.get(subId);
+                if (ls == null) {
+                    ls = new LinkedList<>();
+                    subscriptions.put(subId, ls);
+                }
+                ls.add(sub);
+                MpnSubscription prev = lastBySubId.put(subId, sub);
+                if (prev != null) {
+                    unindex(entries.remove(prev));
+                }
+                entries.put(sub, entry);
+                index(sub, entry);
+                sub.indexObserver = this;
+                changeFeed.onChange(sub);
             }
-            ls.add(sub);
         }
         
         /**
          * Removes all the subscription having the specified subId.
-         */
-        synchronized void remove(String subId, Visitor visitor) {
-            LinkedList<MpnSubscription> ls = subscriptions.remove(subId);
+         * <br>The visitor is executed after releasing the lock (see {@link #forEach(List, Visitor)}).
+         */
+        void remove(String subId, Visitor visitor) {
+            LinkedList<MpnSubscription> ls;
+            synchronized (this) {
+                ls = subscriptions.remove(subId);
+                MpnSubscription last = lastBySubId.remove(subId);
+                if (last != null) {
+                    unindex(entries.remove(last));
+                    changeFeed.onChange(last);
+                }
+                if (ls != null) {
+                    for (MpnSubscription sub : ls) {
+                        sub.indexObserver = null;
+                    }
+                }
+            }
             forEach(ls, visitor);
         }
         
@@ -269,21 +384,93 @@ public class MpnManager {
          * Clears the list.
          */
         synchronized void clear() {
+            for (MpnSubscription last : lastBySubId.values()) {
+                changeFeed.onChange(last);
+            }
+            for (LinkedList<MpnSubscription> ls : subscriptions.values()) {
+                for (MpnSubscription sub : ls) {
+                    sub.indexObserver = null;
+                }
+            }
             subscriptions.clear();
+            lastBySubId.clear();
+            entries.clear();
+            byStatus.clear();
+            byGroup.clear();
+            byFormat.clear();
         }
         
         /**
          * Executes the visitor for each subscription having the given subId.
+         * <br>The visitor is executed on a copy of the list, after releasing the lock (see {@link #forEach(List, Visitor)}).
          */
-        synchronized void forEachWithSubId(String subId, Visitor visitor) {
-            LinkedList<MpnSubscription> ls = subscriptions.get(subId);
+        void forEachWithSubId(String subId, Visitor visitor) {
+            List<MpnSubscription> ls;
+            synchronized (this) {
+                LinkedList<MpnSubscription> found = subscriptions.get(subId);
+                ls = found == null ? null : new ArrayList<>(found);
+            }
             forEach(ls, visitor);
         }
         
+        /**
+         * Moves the subscription to the index keys matching the new value of the property.
+         * Changes of the subscriptions which are not the last added for their subId are ignored.
+         */
+        @Override
+        public synchronized void onIndexChange(MpnSubscription sub, String property, String value) {
+            IndexEntry entry = entries.get(sub);
+            if (entry == null) {
+                return;
+            }
+            switch (property) {
+            case STATUS:
+                if (LsUtils.notEquals(entry.status, value)) {
+                    byStatus.remove(entry.status, entry.subId);
+                    entry.status = value;
+                    byStatus.put(value, entry.subId, sub);
+                    changeFeed.onChange(sub);
+                }
+                break;
+            case GROUP:
+                if (LsUtils.notEquals(entry.group, value)) {
+                    byGroup.remove(entry.group, entry.subId);
+                    entry.group = value;
+                    byGroup.put(value, entry.subId, sub);
+                }
+                break;
+            case FORMAT:
+                if (LsUtils.notEquals(entry.format, value)) {
+                    byFormat.remove(entry.format, entry.subId);
+                    entry.format = value;
+                    byFormat.put(value, entry.subId, sub);
+                }
+                break;
+            default:
+                throw new AssertionError("Unknown property: " + property);
+            }
+        }
+        
+        private void index(MpnSubscription sub, IndexEntry entry) {
+            byStatus.put(entry.status, entry.subId, sub);
+            byGroup.put(entry.group, entry.subId, sub);
+            byFormat.put(entry.format, entry.subId, sub);
+        }
+        
+        private void unindex(IndexEntry entry) {
+            if (entry != null) {
+                byStatus.remove(entry.status, entry.subId);
+                byGroup.remove(entry.group, entry.subId);
+                byFormat.remove(entry.format, entry.subId);
+            }
+        }
+        
         /**
          * Executes the visitor for each subscription in the given list.
+         * <br>NB The lock must not be held: the visitors change the state of the subscriptions, hence they take
+         * the lock of the subscription state machines, which in turn call {@link #onIndexChange(MpnSubscription, String, String)}.
          */
-        private synchronized void forEach(List<MpnSubscription> ls, Visitor visitor) {
+        private void forEach(List<MpnSubscription> ls, Visitor visitor) {
             if (ls != null && ! ls.isEmpty()) {
                 for (MpnSubscription sub : ls) {
                     visitor.visit(sub);
@@ -313,8 +500,120 @@ public class MpnManager {
              */
             void afterVisit() {}
         }
+        
+        /**
+         * Secondary index mapping a property value with the subscriptions having that value, keyed by subId.
+         * <br>NB Null values are not indexed.
+         */
+        private static class Index {
+            final ConcurrentHashMap<String, ConcurrentHashMap<String, MpnSubscription>> map = new ConcurrentHashMap<>();
+            
+            List<MpnSubscription> get(String key) {
+                ConcurrentHashMap<String, MpnSubscription> subs = key == null ? null : map.get(key);
+                return subs == null ? new ArrayList<MpnSubscription>() : new ArrayList<>(subs.values());
+            }
+            
+            /*
+             * the following methods are called by the owning list while locked
+             */
+            
+            void put(String key, String subId, MpnSubscription sub) {
+                if (key != null) {
+                    ConcurrentHashMap<String, MpnSubscription> subs = map.get(key);
+                    if (subs == null) {
+                        subs = new ConcurrentHashMap<>();
+                        map.put(key, subs);
+                    }
+                    subs.put(subId, sub);
+                }
+            }
+            
+            void remove(String key, String subId) {
+                if (key != null) {
+                    ConcurrentHashMap<String, MpnSubscription> subs = map.get(key);
+                    if (subs != null) {
+                        subs.remove(subId);
+                        if (subs.isEmpty()) {
+                            map.remove(key);
+                        }
+                    }
+                }
+            }
+            
+            void clear() {
+                map.clear();
+            }
+        }
+        
+        /**
+         * Keys under which a subscription is indexed.
+         */
+        private static class IndexEntry {
+            final String subId;
+            String status;
+            String group;
+            String format;
+            
+            IndexEntry(String subId, String status, String group, String format) {
+                this.subId = subId;
+                this.status = status;
+                this.group = group;
+                this.format = format;
+            }
+        }
     } // SubscriptionList
     
+    /**
+     * Collects the subscriptions whose status has changed and notifies them in batches to the
+     * {@link MpnSubscriptionChangesListener}s: a batch is dispatched on the events thread as soon as the first
+     * change is collected, and includes all the changes collected until the dispatch takes place.
+     */
+    @ThreadSafe
+    private static class ChangeFeed extends ListenerHolder<MpnSubscriptionChangesListener> {
+        /**
+         * The changed subscriptions (by identity, see {@link SubscriptionList#entries}).
+         */
+        private final Set<MpnSubscription> changed = Collections.newSetFromMap(new IdentityHashMap<MpnSubscription, Boolean>());
+        private boolean flushScheduled = false;
+        
+        ChangeFeed(EventsThread eventThread) {
+            super(eventThread);
+        }
+        
+        synchronized void onChange(MpnSubscription sub) {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            changed.add(sub);
+            if (! flushScheduled) {
+                flushScheduled = true;
+                eventThread.queue(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                });
+            }
+        }
+        
+        private void flush() {
+            List<MpnSubscription> batch;
+            List<MpnSubscriptionChangesListener> ls;
+            synchronized (this) {
+                batch = Collections.unmodifiableList(new ArrayList<>(changed));
+                changed.clear();
+                flushScheduled = false;
+                ls = new ArrayList<>(listeners);
+            }
+            if (logOnSubUpd.isDebugEnabled()) {
+                logOnSubUpd.debug("onStatusChanged fired on " + batch.size() + " subscriptions");
+            }
+            for (MpnSubscriptionChangesListener listener : ls) {
+                listener.onStatusChanged(batch);
+            }
+        }
+    } // ChangeFeed
+    
     /**
      * API exposed to SessionManager
      */
@@ -1378,6 +1677,25 @@ public class MpnManager {
      * Support for internal adapters
      */
     
+    /*
+     * Positions of the fields of the DEV- and SUBS- items (the second-level fields of SUBS- follow the first-level ones)
+     */
+    private static final int DEV_STATUS = 1;
+    private static final int DEV_STATUS_TIMESTAMP = 2;
+    
+    private static final int SUBS_KEY = 1;
+    private static final int SUBS_COMMAND = 2;
+    private static final int SUBS_STATUS = 3;
+    private static final int SUBS_STATUS_TIMESTAMP = 4;
+    private static final int SUBS_NOTIFICATION_FORMAT = 5;
+    private static final int SUBS_TRIGGER = 6;
+    private static final int SUBS_GROUP = 7;
+    private static final int SUBS_SCHEMA = 8;
+    private static final int SUBS_ADAPTER = 9;
+    private static final int SUBS_MODE = 10;
+    private static final int SUBS_REQUESTED_BUFFER_SIZE = 11;
+    private static final int SUBS_REQUESTED_MAX_FREQUENCY = 12;
+    
     /**
      * Manages the subscription/unsubscription of the DEV- adapter publishing info about the current MPN device. 
      */
@@ -1400,7 +1718,7 @@ public class MpnManager {
                     new String[] { "status", "status_timestamp" });
             subscription.setDataAdapter(adapterName);
             subscription.setRequestedMaxFrequency("unfiltered");
-            subscription.addListener(listener);
+            subscription.addInternalListener(listener);
             lsClient.subscribe(subscription);
         }
         
@@ -1411,7 +1729,7 @@ public class MpnManager {
             assert Assertions.isSessionThread();
             if (subscription != null) {
                 lsClient.unsubscribe(subscription);
-                subscription.removeListener(listener);
+                subscription.removeInternalListener(listener);
                 listener.dismissed = true;
                 subscription = null;
                 listener = null;
@@ -1421,8 +1739,9 @@ public class MpnManager {
     
     /**
      * Listener of the item DEV- publishing the status of the device.
+     * The updates are received on the Session Thread.
      */
-    private class DeviceListener extends VoidSubscriptionListener {
+    private class DeviceListener implements InternalSubscriptionListener {
         
         /**
          * When dismissed, incoming messages are discarded.
@@ -1430,18 +1749,19 @@ public class MpnManager {
         private boolean dismissed = false;
         
         @Override
-        public void onItemUpdate(final ItemUpdate itemUpdate) {
-            sessionThread.queue(new Runnable() {
-                @Override
-                public void run() {
-                    if (dismissed) {
-                        return;
-                    }
-                    String nextStatus = itemUpdate.getValue("status");
-                    long timestamp = Long.parseLong(itemUpdate.getValue("status_timestamp"));
-                    mpnDevice.eventManager.onStatusChange(nextStatus, timestamp);
-                }
-            });
+        public void onItemUpdate(int itemPos, List<String> values, Set<Integer> changedFields) {
+            assert Assertions.isSessionThread();
+            if (dismissed) {
+                return;
+            }
+            String nextStatus = values.get(DEV_STATUS - 1);
+            long timestamp = Long.parseLong(values.get(DEV_STATUS_TIMESTAMP - 1));
+            mpnDevice.eventManager.onStatusChange(nextStatus, timestamp);
+        }
+        
+        @Override
+        public void onEndOfSnapshot(int itemPos) {
+            // nothing to do
         }
     } // DeviceListener
     
@@ -1467,11 +1787,12 @@ public class MpnManager {
                     new String[] { "key", "command" });
             subscription.setDataAdapter(adapterName);
             subscription.setRequestedMaxFrequency("unfiltered");
+            /* NB the order must match the SUBS_* field positions */
             subscription.setCommandSecondLevelFields(new String[] { 
                     "status", "status_timestamp", "notification_format", "trigger", "group", 
                     "schema", "adapter", "mode", "requested_buffer_size", "requested_max_frequency" });
             subscription.setCommandSecondLevelDataAdapter(adapterName);
-            subscription.addListener(listener);
+            subscription.addInternalListener(listener);
             lsClient.subscribe(subscription);
         }
         
@@ -1482,7 +1803,7 @@ public class MpnManager {
             assert Assertions.isSessionThread();
             if (subscription != null) {
                 lsClient.unsubscribe(subscription);
-                subscription.removeListener(listener);
+                subscription.removeInternalListener(listener);
                 listener.dismissed = true;
                 subscription = null;
                 listener = null;
@@ -1494,8 +1815,9 @@ public class MpnManager {
      * Listener of the item SUBS- publishing the adding/removal of the MPN items on the server.
      * SUBS- is a two-level command-mode item. The second level publishes the information
      * of a single MPN item. 
+     * The updates are received on the Session Thread.
      */
-    private class SubscriptionListener extends VoidSubscriptionListener {
+    private class SubscriptionListener implements InternalSubscriptionListener {
         
         /**
          * When dismissed, incoming messages are discarded.
@@ -1503,44 +1825,36 @@ public class MpnManager {
         private boolean dismissed = false;
         
         @Override
-        public void onItemUpdate(final ItemUpdate itemUpdate) {
-            sessionThread.queue(new Runnable() {
-                @Override
-                public void run() {
-                    if (dismissed) {
-                        return;
-                    }
-                    
-                    String command = itemUpdate.getValue("command");
-                    switch (command) {
-                    case "UPDATE":
-                        onUpdate(itemUpdate);
-                        break;
-                    case "ADD":
-                        onAdd(itemUpdate);
-                        break;
-                    case "DELETE":
-                        onDelete(itemUpdate);
-                        break;
-                    default:
-                        assert false : command;
-                    }
-                }
-            });
+        public void onItemUpdate(int itemPos, List<String> values, Set<Integer> changedFields) {
+            assert Assertions.isSessionThread();
+            if (dismissed) {
+                return;
+            }
+            
+            String command = values.get(SUBS_COMMAND - 1);
+            switch (command) {
+            case "UPDATE":
+                onUpdate(values, changedFields);
+                break;
+            case "ADD":
+                onAdd(values);
+                break;
+            case "DELETE":
+                onDelete(values);
+                break;
+            default:
+                assert false : command;
+            }
         }
         
         @Override
-        public void onEndOfSnapshot(String itemName, int itemPos) {
-            sessionThread.queue(new Runnable() {
-                @Override
-                public void run() {
-                    if (dismissed) {
-                        return;
-                    }
-                    
-                    subscribeManager.onEndOfSnapshot();
-                }
-            });
+        public void onEndOfSnapshot(int itemPos) {
+            assert Assertions.isSessionThread();
+            if (dismissed) {
+                return;
+            }
+            
+            subscribeManager.onEndOfSnapshot();
         }
 
         /**
@@ -1548,17 +1862,17 @@ public class MpnManager {
          * The adding is recognized by the fact that the subscription is not in the subscription list
          * kept by the MpnManager.
          */
-        void onUpdate(final ItemUpdate itemUpdate) {
+        void onUpdate(final List<String> values, final Set<Integer> changedFields) {
             assert Assertions.isSessionThread();
-            final String subId = getSubId(itemUpdate);
+            final String subId = getSubId(values);
             subscriptions.forEachWithSubId(subId, new SubscriptionList.Visitor() {
                 @Override
                 void onEmpty() {
-                    doCreateNewSubscription(subId, itemUpdate);
+                    doCreateNewSubscription(subId, values);
                 }
                 @Override
                 void visit(MpnSubscription sub) {
-                    doUpdateExistingSubscription(sub, itemUpdate);
+                    doUpdateExistingSubscription(sub, values, changedFields);
                 }
             });
         }
@@ -1567,49 +1881,49 @@ public class MpnManager {
          * Updates the subscription.
          * When a subscription field is updated, the method {@link MpnSubscriptionListener#onPropertyChanged(String)} is triggered.
          */
-        void doUpdateExistingSubscription(MpnSubscription sub, ItemUpdate itemUpdate) {
+        void doUpdateExistingSubscription(MpnSubscription sub, List<String> values, Set<Integer> changedFields) {
             assert Assertions.isSessionThread();
             boolean needsInitialization = sub.needsInitialization;
-            if (needsInitialization || itemUpdate.isValueChanged("mode")) {
-                String mode = itemUpdate.getValue("mode");
+            if (needsInitialization || changedFields.contains(SUBS_MODE)) {
+                String mode = values.get(SUBS_MODE - 1);
                 sub.eventManager.onChangeMode(mode);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("group")) {
-                String group = itemUpdate.getValue("group");
+            if (needsInitialization || changedFields.contains(SUBS_GROUP)) {
+                String group = values.get(SUBS_GROUP - 1);
                 sub.eventManager.onChangeGroup(group);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("schema")) {
-                String schema = itemUpdate.getValue("schema");
+            if (needsInitialization || changedFields.contains(SUBS_SCHEMA)) {
+                String schema = values.get(SUBS_SCHEMA - 1);
                 sub.eventManager.onChangeSchema(schema);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("adapter")) {
-                String adapter = itemUpdate.getValue("adapter");
+            if (needsInitialization || changedFields.contains(SUBS_ADAPTER)) {
+                String adapter = values.get(SUBS_ADAPTER - 1);
                 sub.eventManager.onChangeAdapter(adapter);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("notification_format")) {
-                String format = itemUpdate.getValue("notification_format");
+            if (needsInitialization || changedFields.contains(SUBS_NOTIFICATION_FORMAT)) {
+                String format = values.get(SUBS_NOTIFICATION_FORMAT - 1);
                 sub.eventManager.onChangeFormat(format);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("trigger")) {
-                String trigger = itemUpdate.getValue("trigger");
+            if (needsInitialization || changedFields.contains(SUBS_TRIGGER)) {
+                String trigger = values.get(SUBS_TRIGGER - 1);
                 sub.eventManager.onChangeTrigger(trigger);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("requested_buffer_size")) {
-                String size = itemUpdate.getValue("requested_buffer_size");
+            if (needsInitialization || changedFields.contains(SUBS_REQUESTED_BUFFER_SIZE)) {
+                String size = values.get(SUBS_REQUESTED_BUFFER_SIZE - 1);
                 sub.eventManager.onChangeRequestedBufferSize(size);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("requested_max_frequency")) {
-                String freq = itemUpdate.getValue("requested_max_frequency");
+            if (needsInitialization || changedFields.contains(SUBS_REQUESTED_MAX_FREQUENCY)) {
+                String freq = values.get(SUBS_REQUESTED_MAX_FREQUENCY - 1);
                 sub.eventManager.onChangeRequestedMaxFrequency(freq);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("status_timestamp")) {
-                String ts = itemUpdate.getValue("status_timestamp");
+            if (needsInitialization || changedFields.contains(SUBS_STATUS_TIMESTAMP)) {
+                String ts = values.get(SUBS_STATUS_TIMESTAMP - 1);
                 long timestamp = (ts == null ? 0 : Long.parseLong(ts));
                 sub.eventManager.onChangeTimestamp(timestamp);
             }
-            if (needsInitialization || itemUpdate.isValueChanged("status")) {
-                String next = itemUpdate.getValue("status");
-                String ts = itemUpdate.getValue("status_timestamp");
+            if (needsInitialization || changedFields.contains(SUBS_STATUS)) {
+                String next = values.get(SUBS_STATUS - 1);
+                String ts = values.get(SUBS_STATUS_TIMESTAMP - 1);
                 long timestamp = (ts == null ? 0 : Long.parseLong(ts));
                 sub.eventManager.onStatusChange(next, timestamp);
             }
@@ -1623,19 +1937,19 @@ public class MpnManager {
          * Adds a new server subscription.
          * The method {@link MpnSubscriptionListener#onPropertyChanged(String)} is triggered for each property. 
          */
-        void doCreateNewSubscription(String subId, ItemUpdate itemUpdate) {
+        void doCreateNewSubscription(String subId, List<String> values) {
             assert Assertions.isSessionThread();
             /* add new subscription */
-            String mode = itemUpdate.getValue("mode");
-            String group = itemUpdate.getValue("group");
-            String schema = itemUpdate.getValue("schema");
-            String adapter = itemUpdate.getValue("adapter");
-            String format = itemUpdate.getValue("notification_format");
-            String trigger = itemUpdate.getValue("trigger");
-            String buffSize = itemUpdate.getValue("requested_buffer_size");
-            String freq = itemUpdate.getValue("requested_max_frequency");
-            String status = itemUpdate.getValue("status");
-            long timestamp = Long.parseLong(itemUpdate.getValue("status_timestamp"));
+            String mode = values.get(SUBS_MODE - 1);
+            String group = values.get(SUBS_GROUP - 1);
+            String schema = values.get(SUBS_SCHEMA - 1);
+            String adapter = values.get(SUBS_ADAPTER - 1);
+            String format = values.get(SUBS_NOTIFICATION_FORMAT - 1);
+            String trigger = values.get(SUBS_TRIGGER - 1);
+            String buffSize = values.get(SUBS_REQUESTED_BUFFER_SIZE - 1);
+            String freq = values.get(SUBS_REQUESTED_MAX_FREQUENCY - 1);
+            String status = values.get(SUBS_STATUS - 1);
+            long timestamp = Long.parseLong(values.get(SUBS_STATUS_TIMESTAMP - 1));
             MpnSubscription sub = new MpnSubscription(mode);
             sub.eventManager.onChangeGroup(group);
             sub.eventManager.onChangeSchema(schema);
@@ -1654,18 +1968,18 @@ public class MpnManager {
          * Deletes a subscription.
          * The method {@link MpnSubscriptionListener#onUnsubscription()} is triggered.
          */
-        void onDelete(ItemUpdate itemUpdate) {
+        void onDelete(List<String> values) {
             assert Assertions.isSessionThread();
-            String subId = getSubId(itemUpdate);
+            String subId = getSubId(values);
             subscribeManager.onDelete(subId);
         }
         
         /**
          * Manages the publishing of a subscription.
          */
-        void onAdd(ItemUpdate itemUpdate) {
+        void onAdd(List<String> values) {
             assert Assertions.isSessionThread();
-            String subId = getSubId(itemUpdate);
+            String subId = getSubId(values);
             subscribeManager.onAddedSubscription(subId);
         }
         
@@ -1673,8 +1987,8 @@ public class MpnManager {
          * Returns the subscription id of an item.
          * The id is stored in the field {@code key} of the update and is coded as {@code SUB-<id>}.
          */
-        String getSubId(ItemUpdate itemUpdate) {
-            String key = itemUpdate.getValue("key");
+        String getSubId(List<String> values) {
+            String key = values.get(SUBS_KEY - 1);
             assert key.startsWith("SUB-");
             return key.substring(4); // strip SUB- prefix
         }
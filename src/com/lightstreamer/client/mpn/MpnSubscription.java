@@ -98,6 +98,11 @@ public class MpnSubscription {
      * (*) Starting as INACTIVE, when the state becomes SUBSCRIBED, we can fire the subscription triggers. 
      */
     volatile boolean needsInitialization = true; // written by MpnManager
+    /**
+     * Notified when a property the MPN subscription list is indexed by changes.
+     * It is set while the subscription is in the list.
+     */
+    volatile IndexObserver indexObserver; // written by MpnManager
     
     final SubscriptionEventManager eventManager = new SubscriptionEventManager(); // read by MpnManager
     private final EventsThread eventThread = EventsThread.instance;    
@@ -1020,6 +1025,7 @@ public class MpnSubscription {
             if (LsUtils.notEquals(items, group)) {
                 items = group;
                 onPropertyChange("group");
+                fireIndexChange(IndexObserver.GROUP, group);
             }
         }
 
@@ -1034,6 +1040,7 @@ public class MpnSubscription {
             if (LsUtils.notEquals(format, _format)) {
                 format = _format;
                 onPropertyChange("notification_format");                
+                fireIndexChange(IndexObserver.FORMAT, _format);
             }
         }
 
@@ -1098,8 +1105,39 @@ public class MpnSubscription {
                 }
             });
         }
+
+        /**
+         * Returns the item group, or null if it is not known yet.
+         */
+        String getGroup() {
+            return items;
+        }
     } // SubscriptionEventManager
 
+    /**
+     * Notifies the change of an indexed property to the observer, if any.
+     */
+    private void fireIndexChange(String property, String value) {
+        IndexObserver observer = indexObserver;
+        if (observer != null) {
+            observer.onIndexChange(this, property, value);
+        }
+    }
+
+    /**
+     * Observer of the properties the MPN subscription list is indexed by.
+     * <p>
+     * <b>NB</b> The observer is called while the state machine is locked, hence it must not
+     * inquire the subscription status: the new value is passed as argument.
+     */
+    interface IndexObserver {
+        String STATUS = "status";
+        String GROUP = "group";
+        String FORMAT = "notification_format";
+
+        void onIndexChange(MpnSubscription sub, String property, String value);
+    }
+
     /**
      * Class holding the properties of a device.
      * <p>
@@ -1347,6 +1385,7 @@ public class MpnSubscription {
             State oldState = state;
             state = next;
             if (!oldState.status.equals(state.status)) {
+                fireIndexChange(IndexObserver.STATUS, state.status);
                 properties.forEachListener(new Visitor<MpnSubscriptionListener>() {
                     @Override
                     public void visit(MpnSubscriptionListener listener) {
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.mpn;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.lightstreamer.client.ClientListener;
+import com.lightstreamer.client.ClientMessageListener;
+import com.lightstreamer.client.LightstreamerClient;
+import com.lightstreamer.client.SubscriptionListener;
+
+/**
+ * Interface to be implemented to receive the changes of the collection of MPN subscriptions returned by 
+ * {@link LightstreamerClient#getMpnSubscriptions(String)}, as an alternative to polling it.<BR>
+ * Events for these listeners are dispatched by a different thread than the one that generates them. This means that, upon reception of an event,
+ * it is possible that the internal state of the client has changed. On the other hand, all the notifications for a single {@link LightstreamerClient}, including
+ * notifications to {@link ClientListener}, {@link SubscriptionListener}, {@link ClientMessageListener}, {@link MpnDeviceListener}, {@link MpnSubscriptionListener}
+ * and MpnSubscriptionChangesListener will be dispatched by the same thread.
+ */
+public interface MpnSubscriptionChangesListener {
+
+    /**
+     * Event handler called when the MpnSubscriptionChangesListener instance is added to a LightstreamerClient through 
+     * {@link LightstreamerClient#addMpnSubscriptionChangesListener(MpnSubscriptionChangesListener)}.<BR>
+     * This is the first event to be fired on the listener.
+     * 
+     * @param client The LightstreamerClient this instance was added to.
+     */
+    public void onListenStart(@Nonnull LightstreamerClient client);
+    
+    /**
+     * Event handler called when the MpnSubscriptionChangesListener instance is removed from a LightstreamerClient through 
+     * {@link LightstreamerClient#removeMpnSubscriptionChangesListener(MpnSubscriptionChangesListener)}.<BR>
+     * This is the last event to be fired on the listener.
+     * 
+     * @param client The LightstreamerClient this instance was removed from.
+     */
+    public void onListenEnd(@Nonnull LightstreamerClient client);
+    
+    /**
+     * Event handler called when the status of one or more MPN subscriptions has changed.<BR>
+     * The changes are notified in batches: each batch contains, once, every MPN subscription whose status has changed, 
+     * or that has been added to or removed from the collection, since the previous batch. The current status can be 
+     * obtained through {@link MpnSubscription#getStatus()}; the subscriptions no longer in the collection have status <code>UNKNOWN</code>
+     * or are no longer returned by {@link LightstreamerClient#findMpnSubscription(String)}.
+     * 
+     * @param subscriptions The changed MPN subscriptions. The list is not modifiable.
+     * 
+     * @see LightstreamerClient#getMpnSubscriptions(String)
+     */
+    public void onStatusChanged(@Nonnull List<MpnSubscription> subscriptions);
+}
@@ -15,36 +15,27 @@
 
 package com.lightstreamer.client.mpn.util;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
 
-import com.cedarsoftware.util.io.JsonReader;
-import com.cedarsoftware.util.io.JsonWriter;
 import com.lightstreamer.client.mpn.MpnSubscription;
 import com.lightstreamer.mpn.util.builders.GoogleNotificationBuilder;
 
 /**
  * Utility class that provides methods to build or parse the JSON structure used to represent the format of a push notification.<BR>
  * It provides getters and setters for the fields of a push notification, following the format specified by Google's Firebase Cloud Messaging (FCM).
- * This format is compatible with {@link MpnSubscription#setNotificationFormat(String)}.
+ * This format is compatible with {@link MpnSubscription#setNotificationFormat(String)}.<BR>
+ * The parsed structure of the most recently used formats is cached, so that creating several objects from the same format
+ * is cheap; for the same reason, {@link #render(String, Map)} can personalize a format for many MPN subscriptions efficiently.
  * 
  * @see MpnSubscription#setNotificationFormat(String)
  */
 public class MpnBuilder {
 
-    private static final HashMap<String, Object> jsonWriteOptions = new HashMap<>();
-    private static final HashMap<String, Object> jsonReadOptions = new HashMap<>();
-    
     private final GoogleNotificationBuilder builder;
     
-    static {
-        jsonWriteOptions.put(JsonWriter.TYPE, false); // Omit class name in JSON strings
-        jsonReadOptions.put(JsonReader.USE_MAPS, true); // Use maps in deserialization
-    }
-    
     /**
      * Creates an empty object to be used to create a push notification format from scratch.<BR>
      * Use setters methods to set the value of push notification fields.
@@ -61,13 +52,8 @@ public class MpnBuilder {
      * 
      * @throws IllegalArgumentException if the notification is not a valid JSON structure.
      */
-    @SuppressWarnings("unchecked") 
     public MpnBuilder(@Nonnull String notificationFormat) {
-        Object obj= JsonReader.jsonToJava(notificationFormat, jsonReadOptions);
-        if (!(obj instanceof Map))
-            throw new IllegalArgumentException("Not a valid notification format");
-        
-        builder= new GoogleNotificationBuilder((Map<String, Object>) obj);
+        builder= new GoogleNotificationBuilder(NotificationTemplate.get(notificationFormat).newStructure());
     }
 
     /**
@@ -75,9 +61,25 @@ public class MpnBuilder {
      * @return the JSON structure for the push notification format.
      */
     public @Nonnull String build() {
-        Map<String, Object> map = builder.build();
-        String json = JsonWriter.objectToJson(map, jsonWriteOptions);
-        return json;
+        return MpnJson.toJson(builder.build());
+    }
+    
+    /**
+     * Produces a push notification format by replacing, in the specified format, the <code>${name}</code> placeholders 
+     * with the specified values.<BR>
+     * The placeholders whose name has no value in the map are left unchanged, so that they can still be used for the
+     * field values of the Server's notifications (see {@link MpnSubscription#setNotificationFormat(String)}).<BR>
+     * The structure of the format is parsed only the first time the format is used, hence this method is suitable for 
+     * producing personalized copies of the same format for a large number of MPN subscriptions.
+     * 
+     * @param notificationFormat A JSON structure representing a push notification format, typically obtained through {@link #build()}.
+     * @param values The values of the placeholders, keyed by placeholder name (i.e. without the enclosing <code>${</code> and <code>}</code>).
+     * @return the JSON structure for the push notification format.
+     * 
+     * @throws IllegalArgumentException if the notification is not a valid JSON structure.
+     */
+    public static @Nonnull String render(@Nonnull String notificationFormat, @Nonnull Map<String, String> values) {
+        return NotificationTemplate.get(notificationFormat).render(values);
     }
 
     /**
@@ -0,0 +1,430 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.mpn.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming, reflection-free JSON reader and writer for push notification formats.
+ * <p>
+ * Objects are read as {@link LinkedHashMap}s (preserving the order of the members), arrays as {@link ArrayList}s,
+ * integral numbers as {@link Long}s, other numbers as {@link Double}s and literals as {@link Boolean}s or null.
+ * The writer accepts the same types, as well as any {@link Map}, {@link List}, array or {@link Number}.
+ */
+class MpnJson {
+
+    private MpnJson() {}
+
+    /**
+     * Parses a JSON text.
+     *
+     * @throws IllegalArgumentException if the text is not valid JSON.
+     */
+    static Object parse(String json) {
+        Reader reader = new Reader(json);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.pos < json.length()) {
+            throw reader.error("unexpected character");
+        }
+        return value;
+    }
+
+    /**
+     * Serializes a value as JSON text.
+     */
+    static String toJson(Object value) {
+        Writer writer = new Writer();
+        writer.write(value);
+        return writer.out.toString();
+    }
+
+    /**
+     * Returns a copy of the value where the maps and the lists are replaced by mutable copies.
+     */
+    @SuppressWarnings("unchecked")
+    static Object deepCopy(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            LinkedHashMap<String, Object> copy = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                copy.put(entry.getKey(), deepCopy(entry.getValue()));
+            }
+            return copy;
+
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            ArrayList<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(deepCopy(item));
+            }
+            return copy;
+
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Appends the JSON escaped form of a string, without the enclosing quotes.
+     */
+    static void escape(String s, int from, int to, StringBuilder out) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                out.append("\\\"");
+                break;
+            case '\\':
+                out.append("\\\\");
+                break;
+            case '\n':
+                out.append("\\n");
+                break;
+            case '\r':
+                out.append("\\r");
+                break;
+            case '\t':
+                out.append("\\t");
+                break;
+            case '\b':
+                out.append("\\b");
+                break;
+            case '\f':
+                out.append("\\f");
+                break;
+            default:
+                if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                    out.append("\\u");
+                    String hex = Integer.toHexString(c);
+                    for (int k = hex.length(); k < 4; k++) {
+                        out.append('0');
+                    }
+                    out.append(hex);
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * JSON writer. Subclasses can intercept the writing of the string values.
+     */
+    static class Writer {
+
+        final StringBuilder out = new StringBuilder(256);
+
+        @SuppressWarnings("unchecked")
+        void write(Object value) {
+            if (value == null) {
+                out.append("null");
+
+            } else if (value instanceof String) {
+                out.append('"');
+                writeStringContent((String) value);
+                out.append('"');
+
+            } else if (value instanceof Map) {
+                out.append('{');
+                boolean first = true;
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                    if (! first) {
+                        out.append(',');
+                    }
+                    first = false;
+                    out.append('"');
+                    escape(entry.getKey(), 0, entry.getKey().length(), out);
+                    out.append("\":");
+                    write(entry.getValue());
+                }
+                out.append('}');
+
+            } else if (value instanceof List) {
+                out.append('[');
+                boolean first = true;
+                for (Object item : (List<Object>) value) {
+                    if (! first) {
+                        out.append(',');
+                    }
+                    first = false;
+                    write(item);
+                }
+                out.append(']');
+
+            } else if (value instanceof Object[]) {
+                out.append('[');
+                Object[] array = (Object[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    write(array[i]);
+                }
+                out.append(']');
+
+            } else if (value instanceof Double || value instanceof Float) {
+                double d = ((Number) value).doubleValue();
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    out.append("null"); // not representable in JSON
+                } else {
+                    out.append(value.toString());
+                }
+
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.append(value.toString());
+
+            } else {
+                out.append('"');
+                writeStringContent(value.toString());
+                out.append('"');
+            }
+        }
+
+        /**
+         * Writes the content of a string value, without the enclosing quotes.
+         */
+        void writeStringContent(String s) {
+            escape(s, 0, s.length(), out);
+        }
+    }
+
+    /**
+     * Recursive-descent JSON reader.
+     */
+    private static class Reader {
+
+        final String in;
+        int pos = 0;
+
+        Reader(String in) {
+            this.in = in;
+        }
+
+        Object readValue() {
+            skipWhitespace();
+            if (pos >= in.length()) {
+                throw error("unexpected end of text");
+            }
+            char c = in.charAt(pos);
+            switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("unexpected character");
+            }
+        }
+
+        LinkedHashMap<String, Object> readObject() {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            pos++; // {
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("member name expected");
+                }
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                map.put(name, readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return map;
+                } else if (c != ',') {
+                    pos--;
+                    throw error("',' or '}' expected");
+                }
+            }
+        }
+
+        ArrayList<Object> readArray() {
+            ArrayList<Object> list = new ArrayList<>();
+            pos++; // [
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == ']') {
+                    return list;
+                } else if (c != ',') {
+                    pos--;
+                    throw error("',' or ']' expected");
+                }
+            }
+        }
+
+        String readString() {
+            pos++; // "
+            int start = pos;
+            /* fast path: no escapes */
+            while (pos < in.length()) {
+                char c = in.charAt(pos);
+                if (c == '"') {
+                    return in.substring(start, pos++);
+                } else if (c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            StringBuilder sb = new StringBuilder(in.substring(start, pos));
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                } else if (c == '\\') {
+                    char e = next();
+                    switch (e) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(e);
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > in.length()) {
+                            throw error("invalid unicode escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(in.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("invalid unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        pos--;
+                        throw error("invalid escape");
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        Object readNumber() {
+            int start = pos;
+            boolean integral = true;
+            while (pos < in.length()) {
+                char c = in.charAt(pos);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    integral = false;
+                } else if (! (c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                    break;
+                }
+                pos++;
+            }
+            String number = in.substring(start, pos);
+            try {
+                if (integral) {
+                    try {
+                        return Long.valueOf(number);
+                    } catch (NumberFormatException e) {
+                        // too big for a long
+                    }
+                }
+                return Double.valueOf(number);
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("invalid number");
+            }
+        }
+
+        void readLiteral(String literal) {
+            if (! in.startsWith(literal, pos)) {
+                throw error("unexpected character");
+            }
+            pos += literal.length();
+        }
+
+        void skipWhitespace() {
+            while (pos < in.length()) {
+                char c = in.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    break;
+                }
+                pos++;
+            }
+        }
+
+        char peek() {
+            if (pos >= in.length()) {
+                throw error("unexpected end of text");
+            }
+            return in.charAt(pos);
+        }
+
+        char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        void expect(char c) {
+            if (next() != c) {
+                pos--;
+                throw error("'" + c + "' expected");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Not a valid notification format: " + message + " at position " + pos);
+        }
+    }
+}
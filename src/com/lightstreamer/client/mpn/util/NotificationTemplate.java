@@ -0,0 +1,151 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.mpn.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Pre-processed push notification format.
+ * <p>
+ * It holds the parsed structure of the format, which is copied by each {@link MpnBuilder} created from the same format,
+ * and the serialized form of the format split around the <code>${name}</code> placeholders, so that the format can be
+ * rendered with different placeholder values by only re-rendering the placeholders.
+ * <p>
+ * Templates are immutable and are kept in a bounded cache keyed by the format.
+ */
+@ThreadSafe
+class NotificationTemplate {
+
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<String, NotificationTemplate> cache = new LinkedHashMap<String, NotificationTemplate>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, NotificationTemplate> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Returns the template of the specified format, parsing it if it is not in the cache.
+     *
+     * @throws IllegalArgumentException if the format is not a valid JSON object.
+     */
+    static NotificationTemplate get(String format) {
+        NotificationTemplate template;
+        synchronized (cache) {
+            template = cache.get(format);
+        }
+        if (template == null) {
+            /* parse outside the lock: concurrent parsings of the same format are harmless */
+            template = new NotificationTemplate(format);
+            synchronized (cache) {
+                cache.put(format, template);
+            }
+        }
+        return template;
+    }
+
+    private final Map<String, Object> structure;
+    /**
+     * The serialized format is <code>literals[0] + placeholder[0] + literals[1] + ... + literals[n]</code>.
+     */
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalsLength;
+
+    @SuppressWarnings("unchecked")
+    private NotificationTemplate(String format) {
+        Object obj = MpnJson.parse(format);
+        if (! (obj instanceof Map)) {
+            throw new IllegalArgumentException("Not a valid notification format");
+        }
+        structure = (Map<String, Object>) obj;
+
+        TemplateWriter writer = new TemplateWriter();
+        writer.write(structure);
+        writer.literals.add(writer.out.toString());
+        literals = writer.literals.toArray(new String[writer.literals.size()]);
+        placeholders = writer.placeholders.toArray(new String[writer.placeholders.size()]);
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        literalsLength = length;
+    }
+
+    /**
+     * Returns a mutable copy of the structure of the format.
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> newStructure() {
+        return (Map<String, Object>) MpnJson.deepCopy(structure);
+    }
+
+    /**
+     * Renders the format replacing the placeholders with the specified values.
+     * The placeholders having no value are left unchanged.
+     */
+    String render(Map<String, String> values) {
+        StringBuilder out = new StringBuilder(literalsLength + 16 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            String name = placeholders[i];
+            String value = values.get(name);
+            if (value == null) {
+                out.append("${");
+                MpnJson.escape(name, 0, name.length(), out);
+                out.append('}');
+            } else {
+                MpnJson.escape(value, 0, value.length(), out);
+            }
+        }
+        out.append(literals[placeholders.length]);
+        return out.toString();
+    }
+
+    /**
+     * Writer that cuts the output at each placeholder found in the string values.
+     */
+    private static class TemplateWriter extends MpnJson.Writer {
+
+        final ArrayList<String> literals = new ArrayList<>();
+        final ArrayList<String> placeholders = new ArrayList<>();
+
+        @Override
+        void writeStringContent(String s) {
+            int from = 0;
+            while (true) {
+                int start = s.indexOf("${", from);
+                int end = start < 0 ? -1 : s.indexOf('}', start + 2);
+                if (end < 0) {
+                    MpnJson.escape(s, from, s.length(), out);
+                    return;
+                }
+                MpnJson.escape(s, from, start, out);
+                literals.add(out.toString());
+                out.setLength(0);
+                placeholders.add(s.substring(start + 2, end));
+                from = end + 1;
+            }
+        }
+    }
+}
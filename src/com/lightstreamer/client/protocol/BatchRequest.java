@@ -87,6 +87,13 @@ public class BatchRequest {
       // TODO we use the longest estimate, as we have no transport information here 
   }
 
+  public RequestObjects peek() {
+    if (this.getLength() <= 0) {
+      return null;
+    }
+    return keys.get(queue.get(0));
+  }
+
   public RequestObjects shift() {
     if (this.getLength() <= 0) {
       return null;
@@ -16,8 +16,10 @@
 package com.lightstreamer.client.protocol;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import com.lightstreamer.client.Constants;
 import com.lightstreamer.client.mpn.MpnRequest;
@@ -106,6 +108,12 @@ and waits for such notifications on the stream connection)
 IMPLEMENTATION NOTE: the HTML might not have the chance to read the synchronous
 responses (control.html cases and JSONP cases).
 </blockquote> 
+ * <p>
+ * Unlike what stated above, the number of control connections that can be open at the same time
+ * is configurable through {@link InternalConnectionOptions#getHttpControlConcurrency()} (1 by default).
+ * When more connections are allowed, the ordering is still guaranteed where it matters: message batches
+ * are sent one at a time and a control request is held back as long as a previous request bound to the
+ * same subscription (or, for constraint, force rebind and MPN requests, of the same kind) is on the wire.
  *
  */
 public class HttpRequestManager implements RequestManager {
@@ -138,15 +146,12 @@ public class HttpRequestManager implements RequestManager {
   private Protocol protocol;
   private InternalConnectionOptions options;
   
-  private RequestHandle activeConnection;
-  
   private final FatalErrorListener errorListener;
   /**
-   * List of requests that the manager has sent but no response has still arrived.
-   * Must be cleared when {@link RequestListener#onClosed()} or {@link RequestListener#onBroken()}
-   * is called.
+   * List of the batches that the manager has sent and whose connection is still open.
+   * The manager is WAITING when the list has reached the configured concurrency.
    */
-  private final LinkedList<RequestObjects> ongoingRequests = new LinkedList<>();
+  private final LinkedList<BatchedListener> pendingBatches = new LinkedList<>();
   
   HttpRequestManager(SessionThread thread, Transport transport, InternalConnectionOptions options) {
     this(thread, null, transport, options, null);
@@ -170,10 +175,10 @@ public class HttpRequestManager implements RequestManager {
   
   @Override
   public void close(boolean waitPending) {
-    if (!waitPending || this.activeConnection == null) {
-      if (this.activeConnection != null) {
-        if (requestQueues[this.nextQueue] != destroyQueue) {
-          this.activeConnection.close(false);
+    if (!waitPending || this.pendingBatches.isEmpty()) {
+      for (BatchedListener pending : new ArrayList<>(this.pendingBatches)) {
+        if (pending.queue != destroyQueue && pending.connection != null) {
+          pending.connection.close(false);
         } //else do not bother destroy requests
       }
       this.changeStatus(END);
@@ -223,11 +228,11 @@ public class HttpRequestManager implements RequestManager {
   public void copyTo(ControlRequestHandler newHandler) {
     //XXX we might want to skip destroy requests and send them on the network instead
     
-    if (! ongoingRequests.isEmpty()) {
-        for (RequestObjects req : ongoingRequests) {
+    for (BatchedListener pending : pendingBatches) {
+        for (RequestObjects req : pending.ongoingRequests) {
             newHandler.addRequest(req.request, req.tutor, req.listener);
         }
-        ongoingRequests.clear();
+        pending.ongoingRequests.clear();
     }
     for (int i=0; i<this.requestQueues.length; i++) {
       RequestObjects migrating;
@@ -358,26 +363,85 @@ public class HttpRequestManager implements RequestManager {
     
     log.info("starting dequeuing ("+who+")");
     
+    boolean sentAny = false;
     int c = 0;
     while(c < this.requestQueues.length ) {
       
       //switch the flag to change turn
       nextQueue = nextQueue < requestQueues.length-1 ? nextQueue+1 : 0;
       
-      if (requestQueues[nextQueue].getLength() > 0) {
+      if (requestQueues[nextQueue].getLength() > 0 && canSend(requestQueues[nextQueue])) {
         boolean sent = sendBatch(requestQueues[nextQueue]);
         if (sent) {
-          changeStatus(WAITING);
-          return;
+          if (pendingBatches.size() >= options.getHttpControlConcurrency()) {
+            changeStatus(WAITING);
+            return;
+          }
+          //there is room for another connection: give all the queues a new turn
+          sentAny = true;
+          c = 0;
+          continue;
         } 
       }
       c++;
     }
     
-    //nothing to send, we're still IDLE
-    log.info("Nothing to send");
+    if (!sentAny) {
+      //nothing to send, we're still IDLE
+      log.info("Nothing to send");
+    }
     
   }
+  
+  /**
+   * Checks whether a batch can be taken from the queue while the pending batches are still on the wire.
+   */
+  private boolean canSend(BatchRequest batch) {
+    if (batch == messageQueue) {
+      //messages of the same sequence must reach the server in order
+      for (BatchedListener pending : pendingBatches) {
+        if (pending.queue == messageQueue) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return !isHeldBack(batch.peek());
+  }
+  
+  /**
+   * Checks whether the request has to wait for a previous request with the same ordering key
+   * to be completed.
+   */
+  private boolean isHeldBack(RequestObjects req) {
+    String orderingKey = getOrderingKey(req.request);
+    if (orderingKey == null) {
+      return false;
+    }
+    for (BatchedListener pending : pendingBatches) {
+      if (pending.orderingKeys.contains(orderingKey)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private static String getOrderingKey(LightstreamerRequest request) {
+    if (request instanceof SubscribeRequest) {
+      return "S" + ((SubscribeRequest) request).getSubscriptionId();
+    } else if (request instanceof UnsubscribeRequest) {
+      return "S" + ((UnsubscribeRequest) request).getSubscriptionId();
+    } else if (request instanceof ChangeSubscriptionRequest) {
+      return "S" + ((ChangeSubscriptionRequest) request).getSubscriptionId();
+    } else if (request instanceof ConstrainRequest) {
+      return "C";
+    } else if (request instanceof ForceRebindRequest) {
+      return "F";
+    } else if (request instanceof MpnRequest) {
+      return "M";
+    }
+    return null;
+  }
 
   private boolean sendBatch(BatchRequest batch) {
     if (batch.getLength() <= 0) {
@@ -387,12 +451,12 @@ public class HttpRequestManager implements RequestManager {
       //XXX exit here??
     }
     
-    BatchedListener combinedRequestListener = new BatchedListener();
+    BatchedListener combinedRequestListener = new BatchedListener(batch);
     BatchedRequest combinedRequest = new BatchedRequest();
     
     /* find the first request to be sent: it provides the server address and the request name for the whole combined request */
     RequestObjects first = null;
-    while (first == null && batch.getLength() > 0) {
+    while (first == null && batch.getLength() > 0 && !isHeldBack(batch.peek())) {
         first = batch.shift();
         if (first.tutor.shouldBeSent()) {
 
@@ -400,8 +464,7 @@ public class HttpRequestManager implements RequestManager {
             combinedRequest.setRequestName(first.request.getRequestName());
 
             combinedRequest.add(first.request);
-            combinedRequestListener.add(first.listener);
-            ongoingRequests.add(first);
+            combinedRequestListener.add(first);
         } else {
             first.tutor.notifyAbort();
             first = null;
@@ -412,12 +475,11 @@ public class HttpRequestManager implements RequestManager {
         return false;
     }
     /* add the other requests to the combined request: they share the server address and the request name */
-    while ((requestLimit == 0 || (combinedRequest.length()  + batch.getNextRequestLength()) < requestLimit) && batch.getLength() > 0) {
+    while ((requestLimit == 0 || (combinedRequest.length()  + batch.getNextRequestLength()) < requestLimit) && batch.getLength() > 0 && !isHeldBack(batch.peek())) {
         RequestObjects next = batch.shift();
         if (next.tutor.shouldBeSent()) {
             combinedRequest.add(next.request);
-            combinedRequestListener.add(next.listener);
-            ongoingRequests.add(next);
+            combinedRequestListener.add(next);
         } else {
             next.tutor.notifyAbort();
         }
@@ -428,7 +490,9 @@ public class HttpRequestManager implements RequestManager {
         log.debug("Batch: " + combinedRequest.getRequestName() + "\n" + combinedRequest.getTransportAwareQueryString(null, true));
     }
     
-    activeConnection = transport.sendRequest(protocol, combinedRequest, 
+    //register the batch before sending, as the transport may notify its end right away
+    pendingBatches.add(combinedRequestListener);
+    combinedRequestListener.connection = transport.sendRequest(protocol, combinedRequest, 
             combinedRequestListener, 
             options.isHttpExtraHeadersOnSessionCreationOnly() ? null : options.getHttpExtraHeaders(),
             options.getProxy(), 
@@ -437,25 +501,28 @@ public class HttpRequestManager implements RequestManager {
     return true;
   }
   
-  private boolean onComplete(String why) {
+  private boolean onComplete(BatchedListener batch, String why) {
+    boolean wasPending = pendingBatches.remove(batch);
     if (this.is(END)) {
       //don't care
       return false;
     } else if (this.is(ENDING)) {
-      changeStatus(END);
+      if (pendingBatches.isEmpty()) {
+        changeStatus(END);
+      }
     } else {
-      //should be waiting
-      if (this.is(IDLE)) {
+      if (!wasPending) {
         log.error("Unexpected batch manager status at connection end");
       }
       
       log.info("Batch completed");
       
-      changeStatus(IDLE);
+      if (this.is(WAITING)) {
+        changeStatus(IDLE);
+      }
       
       dequeue(ASYNC_DEQUEUE,"closed"); //prepare the future
     }
-    activeConnection = null;
     return true;
   }
   
@@ -528,6 +595,22 @@ public class HttpRequestManager implements RequestManager {
     boolean completed = false;
     final ArrayList<String> messages = new ArrayList<>();
     final List<RequestListener> listeners = new LinkedList<RequestListener>();
+    /**
+     * The queue the requests were taken from.
+     */
+    final BatchRequest queue;
+    /**
+     * List of requests of this batch whose response has still to arrive.
+     * Must be cleared when {@link RequestListener#onClosed()} or {@link RequestListener#onBroken()}
+     * is called.
+     */
+    final LinkedList<RequestObjects> ongoingRequests = new LinkedList<>();
+    final Set<String> orderingKeys = new HashSet<>();
+    RequestHandle connection;
+    
+    BatchedListener(BatchRequest queue) {
+      this.queue = queue;
+    }
    
     public int size() {
       return listeners.size();
@@ -538,8 +621,13 @@ public class HttpRequestManager implements RequestManager {
         messages.add(message);
     }
 
-    public void add(RequestListener listener) {
-      listeners.add(listener);
+    public void add(RequestObjects request) {
+      listeners.add(request.listener);
+      ongoingRequests.add(request);
+      String orderingKey = getOrderingKey(request.request);
+      if (orderingKey != null) {
+        orderingKeys.add(orderingKey);
+      }
     }
 
     @Override
@@ -597,7 +685,7 @@ public class HttpRequestManager implements RequestManager {
         }
         try {
             if (!completed) {
-                if (onComplete("closed")) {
+                if (onComplete(this, "closed")) {
                     if (this.messages.size() > 0) {
                         dispatchMessages();
                     }
@@ -624,7 +712,7 @@ public class HttpRequestManager implements RequestManager {
         }
         try {
             if (!completed) {
-                if (onComplete("broken")) {
+                if (onComplete(this, "broken")) {
                     //we might be able to salvage something if size() > 0
                     if (this.messages.size() > 0) {
                         dispatchMessages();
@@ -36,6 +36,12 @@ public interface ProtocolListener {
   
   void onLoopReceived(long serverSentPause);
   
+  /**
+   * The stream is about to reach the content length requested by the bind_session request,
+   * hence the LOOP message is going to be received soon.
+   */
+  void onContentLengthNearlyReached();
+  
   void onSyncError(boolean async);
   
   void onUpdateReceived(int subscriptionId, int item, ArrayList<String> values); 
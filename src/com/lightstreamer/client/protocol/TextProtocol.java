@@ -88,6 +88,12 @@ public abstract class TextProtocol implements Protocol {
   private ProtocolListener session;
   private StreamListener activeListener;
 
+  /**
+   * The amount of bytes before the end of a stream when the session is informed that the LOOP is near
+   * (but no more than a tenth of the content length).
+   */
+  private static final long CONTENT_LENGTH_MARGIN = 128 * 1024;
+
   private StreamStatus status = StreamStatus.NO_STREAM;
   private Long currentProg = null;
 
@@ -426,7 +432,9 @@ public abstract class TextProtocol implements Protocol {
   @Override
   public ListenableFuture sendBindRequest(BindSessionRequest request) {
     assert statusIs(StreamStatus.NO_STREAM) : status;    
-    this.activeListener = new BindSessionListener();
+    BindSessionListener bindListener = new BindSessionListener();
+    bindListener.setContentLength(request.getContentLength());
+    this.activeListener = bindListener;
     
     long connectDelay = request.getDelay();
     long readDelay = request.getDelay();
@@ -1301,11 +1309,38 @@ public abstract class TextProtocol implements Protocol {
    */
   public class BindSessionListener extends StreamListener {
       
+      /**
+       * The content length requested for the stream (0 if none).
+       */
+      private long contentLength = 0;
+      /**
+       * Approximation of the bytes received on the stream: the line terminators are counted,
+       * while the characters are assumed to take a single byte.
+       */
+      private long receivedLength = 0;
+      
+      void setContentLength(long contentLength) {
+          this.contentLength = contentLength;
+      }
+      
       @Override
       protected void doOpen() {
           super.doOpen();
           onBindSessionForTheSakeOfReverseHeartbeat();
       }
+      
+      @Override
+      protected void doMessage(String message) {
+          if (contentLength > 0) {
+              long threshold = contentLength - Math.min(contentLength / 10, CONTENT_LENGTH_MARGIN);
+              boolean wasBelow = receivedLength < threshold;
+              receivedLength += message.length() + 2;
+              if (wasBelow && receivedLength >= threshold) {
+                  session.onContentLengthNearlyReached();
+              }
+          }
+          super.doMessage(message);
+      }
   }
   
   /**
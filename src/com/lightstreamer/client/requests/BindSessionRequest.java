@@ -19,6 +19,8 @@ import com.lightstreamer.client.session.InternalConnectionOptions;
 
 public class BindSessionRequest extends SessionRequest {
 
+  private long contentLength = 0;
+
   public BindSessionRequest(String targetServer, String session, boolean polling, 
       String cause, InternalConnectionOptions options, long delay, boolean addContentLength, 
       long maxReverseHeartbeatIntervalMs) {
@@ -44,7 +46,8 @@ public class BindSessionRequest extends SessionRequest {
       }
       
       if (addContentLength) {
-        this.addParameter("LS_content_length", options.getContentLength());
+        this.contentLength = options.getContentLength();
+        this.addParameter("LS_content_length", this.contentLength);
       }
     }
     
@@ -53,6 +56,13 @@ public class BindSessionRequest extends SessionRequest {
     }
   }
     
+  /**
+   * Returns the content length requested for the stream, or 0 if it was not requested.
+   */
+  public long getContentLength() {
+    return contentLength;
+  }
+    
   @Override
   public String getRequestName() {
     return "bind_session";
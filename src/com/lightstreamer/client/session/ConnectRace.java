@@ -0,0 +1,235 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.session;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.threads.PendingTask;
+
+/**
+ * Race of session creations towards equivalent Servers
+ * (see {@link InternalConnectionDetails#getAlternativeServerAddresses()}), "happy eyeballs" style.
+ * <p>
+ * The main session of the {@link SessionManager} is requested to the Server with the lowest estimate
+ * (see {@link ServerLatencyTracker}); the other Servers are contacted in order of estimate through
+ * detached sessions ({@link HotStandby}), one every {@link #ATTEMPT_DELAY_MS} milliseconds, or immediately
+ * when the previous attempt fails, until a session is bound. The first session bound wins and the others are closed.
+ * <p>
+ * All the methods must be called by the session thread.
+ */
+class ConnectRace implements HotStandby.Listener {
+
+    /**
+     * Delay between the start of two consecutive attempts.
+     */
+    static final long ATTEMPT_DELAY_MS = 250;
+
+    /**
+     * Receives the outcome of the race, when it is not won by the main session.
+     */
+    interface Listener {
+        /**
+         * Notifies the detached session that won the race.
+         */
+        void onRaceWon(HotStandby winner);
+        /**
+         * Notifies that all the attempts, including the main one, have failed.
+         */
+        void onRaceLost();
+    }
+
+    private final Logger log = LogManager.getLogger(Constants.SESSION_LOG);
+
+    private final String mainAddress;
+    private final LinkedList<String> pendingAddresses;
+    private final List<HotStandby> racers = new ArrayList<>();
+    private final boolean isHTTP;
+    private final SessionFactory sessionFactory;
+    private final SessionThread thread;
+    private final InternalConnectionOptions options;
+    private final InternalConnectionDetails details;
+    private final Listener listener;
+    private final long startTime = System.currentTimeMillis();
+
+    private PendingTask nextAttemptTask = null;
+    private boolean mainFailed = false;
+    private boolean over = false;
+
+    ConnectRace(List<String> serverAddresses, boolean isHTTP, SessionFactory sessionFactory, SessionThread thread,
+            InternalConnectionOptions options, InternalConnectionDetails details, Listener listener) {
+        List<String> ranked = ServerLatencyTracker.INSTANCE.rank(serverAddresses);
+        this.mainAddress = ranked.get(0);
+        this.pendingAddresses = new LinkedList<>(ranked.subList(1, ranked.size()));
+        this.isHTTP = isHTTP;
+        this.sessionFactory = sessionFactory;
+        this.thread = thread;
+        this.options = options;
+        this.details = details;
+        this.listener = listener;
+        if (log.isDebugEnabled()) {
+            log.debug("Racing session creation on " + ranked);
+        }
+    }
+
+    /**
+     * The Server on which the main session must be requested.
+     */
+    String getMainAddress() {
+        return mainAddress;
+    }
+
+    /**
+     * Schedules the attempts on the other Servers.
+     */
+    void start() {
+        scheduleNextAttempt();
+    }
+
+    /**
+     * Notifies that the main session has been bound: the race is over.
+     */
+    void onMainBound() {
+        if (over) {
+            return;
+        }
+        ServerLatencyTracker.INSTANCE.onSuccess(mainAddress, elapsed());
+        finish(null);
+    }
+
+    /**
+     * Notifies that the main session has failed before being bound: the next attempt is started immediately.
+     */
+    void onMainFailed() {
+        if (over || mainFailed) {
+            return;
+        }
+        mainFailed = true;
+        ServerLatencyTracker.INSTANCE.onFailure(mainAddress);
+        startNextAttempt();
+    }
+
+    /**
+     * Returns whether some attempt on the other Servers is in progress.
+     * If the main session has failed, the outcome of the race will be notified to the listener.
+     */
+    boolean isPending() {
+        return ! over && ! racers.isEmpty();
+    }
+
+    /**
+     * Stops the race, closing all the sessions on the other Servers.
+     */
+    void cancel() {
+        if (over) {
+            return;
+        }
+        over = true;
+        cancelNextAttempt();
+        for (HotStandby racer : racers) {
+            racer.close();
+        }
+        racers.clear();
+    }
+
+    @Override
+    public void onReady(HotStandby racer) {
+        if (over) {
+            return;
+        }
+        log.info("Session established on " + racer.getServerAddress() + " before " + mainAddress);
+        ServerLatencyTracker.INSTANCE.onSuccess(racer.getServerAddress(), elapsed());
+        ServerLatencyTracker.INSTANCE.onCanceled(mainAddress, elapsed());
+        finish(racer);
+        listener.onRaceWon(racer);
+    }
+
+    @Override
+    public boolean onFailure(HotStandby racer, String cause) {
+        if (! over) {
+            ServerLatencyTracker.INSTANCE.onFailure(racer.getServerAddress());
+            racers.remove(racer);
+            startNextAttempt();
+            if (mainFailed && racers.isEmpty()) {
+                log.info("Unable to establish a session on " + mainAddress + " and on the alternative Servers");
+                over = true;
+                // notify outside of the state machine of the failed session
+                thread.queue(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onRaceLost();
+                    }
+                });
+            }
+        }
+        return false;
+    }
+
+    private void finish(HotStandby winner) {
+        over = true;
+        cancelNextAttempt();
+        long elapsed = elapsed();
+        for (HotStandby racer : racers) {
+            if (racer != winner) {
+                ServerLatencyTracker.INSTANCE.onCanceled(racer.getServerAddress(), elapsed);
+                racer.close();
+            }
+        }
+        racers.clear();
+    }
+
+    private void scheduleNextAttempt() {
+        if (pendingAddresses.isEmpty()) {
+            return;
+        }
+        nextAttemptTask = thread.schedule(new Runnable() {
+            @Override
+            public void run() {
+                nextAttemptTask = null;
+                if (! over) {
+                    startNextAttempt();
+                }
+            }
+        }, ATTEMPT_DELAY_MS);
+    }
+
+    private void startNextAttempt() {
+        cancelNextAttempt();
+        String address = pendingAddresses.poll();
+        if (address == null) {
+            return;
+        }
+        HotStandby racer = new HotStandby(address, false, isHTTP, sessionFactory, thread, options, details, this, "racing");
+        racers.add(racer);
+        racer.start();
+        scheduleNextAttempt();
+    }
+
+    private void cancelNextAttempt() {
+        if (nextAttemptTask != null) {
+            nextAttemptTask.cancel();
+            nextAttemptTask = null;
+        }
+    }
+
+    private long elapsed() {
+        return System.currentTimeMillis() - startTime;
+    }
+}
@@ -25,6 +25,13 @@ import com.lightstreamer.log.Logger;
  * <li>the first 10 times when increase() is called, currentDelay equals Delay</li>
  * <li>the next times, currentDelay is doubled until it reaches the value of 60s</li>
  * </ul>
+ * Optionally, a random jitter is applied to the delay actually waited (see {@link #getJitteredDelay()}),
+ * so that many clients failing at the same time don't retry in lockstep:
+ * <ul>
+ * <li>{@code FULL}: a random value between 0 and currentDelay</li>
+ * <li>{@code DECORRELATED}: a random value between Delay and three times the previous jittered delay,
+ * capped to 60s</li>
+ * </ul>
  * 
  * 
  * @since December 2018
@@ -33,10 +40,16 @@ public class DelayCounter {
     
     private static final Logger log = LogManager.getLogger(Constants.SESSION_LOG);
     
+    public static final String JITTER_NONE = "NONE";
+    public static final String JITTER_FULL = "FULL";
+    public static final String JITTER_DECORRELATED = "DECORRELATED";
+    
     private int attempt;
     private long minDelay;
     private long maxDelay;
     private long currentDelay;
+    private long jitteredDelay;
+    private String jitter = JITTER_NONE;
     private final String name;
 
     public DelayCounter(long delay, String name) {
@@ -68,6 +81,7 @@ public class DelayCounter {
             }
         }
         attempt++;
+        applyJitter();
     }
     
     /**
@@ -75,6 +89,7 @@ public class DelayCounter {
      */
     public void increaseToMax() {
         currentDelay = maxDelay;
+        applyJitter();
         if (log.isDebugEnabled()) {
             log.debug("Increase " + name + " to max: " + currentDelay);
         }
@@ -88,6 +103,27 @@ public class DelayCounter {
         return minDelay;
     }
     
+    /**
+     * Returns the delay to be waited before the next attempt, i.e. the current delay with the jitter applied.
+     * The value changes only when the delay is increased or reset.
+     */
+    public long getJitteredDelay() {
+        return jitteredDelay;
+    }
+    
+    /**
+     * Sets the kind of jitter: {@link #JITTER_NONE}, {@link #JITTER_FULL} or {@link #JITTER_DECORRELATED}.
+     */
+    public void setJitter(String jitter) {
+        this.jitter = jitter;
+        this.jitteredDelay = currentDelay;
+        applyJitter();
+    }
+    
+    public String getJitter() {
+        return jitter;
+    }
+    
     /**
      * Initializes the delay.
      */
@@ -96,5 +132,28 @@ public class DelayCounter {
         this.minDelay = delay;
         this.maxDelay = Math.max(60_000, delay);
         this.attempt = 0;
+        this.jitteredDelay = delay;
+        applyJitter();
+    }
+    
+    /**
+     * Computes the jittered delay of the next attempt.
+     */
+    private void applyJitter() {
+        switch (jitter) {
+        case JITTER_FULL:
+            jitteredDelay = Math.round(Math.random() * currentDelay);
+            break;
+        case JITTER_DECORRELATED:
+            /* the previous jittered delay is the base of the next one */
+            long upper = Math.max(minDelay, jitteredDelay * 3);
+            jitteredDelay = Math.min(maxDelay, minDelay + Math.round(Math.random() * (upper - minDelay)));
+            break;
+        default:
+            jitteredDelay = currentDelay;
+        }
+        if (log.isDebugEnabled() && ! JITTER_NONE.equals(jitter)) {
+            log.debug("Jittered " + name + ": " + jitteredDelay);
+        }
     }
 }
@@ -0,0 +1,326 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.session;
+
+import java.util.ArrayList;
+
+import com.lightstreamer.client.ClientListener;
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.events.EventDispatcher;
+import com.lightstreamer.client.events.EventsThread;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+
+/**
+ * A secondary streaming session kept open on an alternate Server while the main session is bound,
+ * so that it can take the place of the main session as soon as the latter fails
+ * (see {@link InternalConnectionOptions#getHotStandbyServerAddress()}).
+ * <p>
+ * The hot-standby session carries no subscriptions and no messages. It has its own connection details
+ * and it does not publish the values sent by the Server into the (shared) connection options,
+ * so that it is not visible to the user until it is promoted
+ * (see {@link Session#promote(SessionListener, int, SubscriptionsListener, MessagesListener, InternalConnectionDetails)}).
+ * When it fails, a new hot-standby session is created in its place.
+ * <p>
+ * The same kind of detached session is used to request a session to several equivalent Servers at once
+ * (see {@link ConnectRace}) or on several transports at once (see {@link TransportProbe});
+ * in that case a {@link Listener} is notified when the session is bound or fails.
+ * Only streaming sessions can be promoted: a polling session just tells whether polling works.
+ * <p>
+ * All the methods must be called by the session thread.
+ */
+class HotStandby implements SessionListener {
+
+    /**
+     * Listener of a detached session that is not meant to be kept open indefinitely.
+     */
+    interface Listener {
+        /**
+         * Notifies that the session is bound and, if streaming, can be promoted.
+         */
+        void onReady(HotStandby detached);
+        /**
+         * Notifies that the session has failed.
+         * 
+         * @return true if a new session must be created in its place
+         */
+        boolean onFailure(HotStandby detached, String cause);
+    }
+
+    private static final SubscriptionsListener NO_SUBSCRIPTIONS = new SubscriptionsListener() {
+        @Override public void onSessionStart() {}
+        @Override public void onSessionClose() {}
+        @Override public void onUpdateReceived(int subscriptionId, int item, ArrayList<String> args) {}
+        @Override public void onEndOfSnapshotEvent(int subscriptionId, int item) {}
+        @Override public void onClearSnapshotEvent(int subscriptionId, int item) {}
+        @Override public void onLostUpdatesEvent(int subscriptionId, int item, int lost) {}
+        @Override public void onUnsubscription(int subscriptionId) {}
+        @Override public void onSubscription(int subscriptionId, int totalItems, int totalFields, int keyPosition, int commandPosition) {}
+        @Override public void onSubscription(int subscriptionId, long reconfId) {}
+        @Override public void onSubscriptionError(int subscriptionId, int errorCode, String errorMessage) {}
+        @Override public void onConfigurationEvent(int subscriptionId, String frequency) {}
+        @Override public void onSubscriptionAck(int subscriptionId) {}
+        @Override public void onUnsubscriptionAck(int subscriptionId) {}
+    };
+
+    private static final MessagesListener NO_MESSAGES = new MessagesListener() {
+        @Override public void onSessionStart() {}
+        @Override public void onSessionClose() {}
+        @Override public void onMessageAck(String sequence, int number) {}
+        @Override public void onMessageOk(String sequence, int number) {}
+        @Override public void onMessageDeny(String sequence, int denyCode, String denyMessage, int number) {}
+        @Override public void onMessageDiscarded(String sequence, int number) {}
+        @Override public void onMessageError(String sequence, int errorCode, String errorMessage, int number) {}
+    };
+
+    private final Logger log = LogManager.getLogger(Constants.SESSION_LOG);
+
+    private final String serverAddress;
+    private final boolean isPolling;
+    private final boolean isHTTP;
+    private final SessionFactory sessionFactory;
+    private final SessionThread thread;
+    private final InternalConnectionOptions options;
+    private final InternalConnectionDetails details;
+    private final Listener listener;
+    private final String kind;
+
+    private Session session = null;
+    /**
+     * Incremented whenever the current session is discarded, so that the events of the old sessions are ignored.
+     */
+    private int phase = 0;
+    private boolean closed = false;
+
+    HotStandby(String serverAddress, boolean isHTTP, SessionFactory sessionFactory, SessionThread thread,
+            InternalConnectionOptions options, InternalConnectionDetails mainDetails) {
+        this(serverAddress, false, isHTTP, sessionFactory, thread, options, mainDetails, null, "hot-standby");
+    }
+
+    HotStandby(String serverAddress, boolean isPolling, boolean isHTTP, SessionFactory sessionFactory, SessionThread thread,
+            InternalConnectionOptions options, InternalConnectionDetails mainDetails, Listener listener, String kind) {
+        this.serverAddress = serverAddress;
+        this.listener = listener;
+        this.kind = kind;
+        this.isPolling = isPolling;
+        this.isHTTP = isHTTP;
+        this.sessionFactory = sessionFactory;
+        this.thread = thread;
+        this.options = options;
+        /*
+         * the details are not bound to any listener: the user is only notified
+         * of the details of the session when it is promoted
+         */
+        this.details = new InternalConnectionDetails(new EventDispatcher<ClientListener>(EventsThread.instance));
+        this.details.setServerAddress(serverAddress);
+        this.details.setAdapterSet(mainDetails.getAdapterSet());
+        this.details.setUser(mainDetails.getUser());
+        this.details.setPassword(mainDetails.getPassword());
+    }
+
+    String getServerAddress() {
+        return serverAddress;
+    }
+
+    boolean isPolling() {
+        return isPolling;
+    }
+
+    boolean isHTTP() {
+        return isHTTP;
+    }
+
+    void start() {
+        log.info("Opening " + kind + " session on " + serverAddress);
+        createSession(listener == null ? "standby" : "race");
+    }
+
+    /**
+     * Returns whether the session is bound and can be promoted.
+     */
+    boolean isReady() {
+        return ! closed && ! isPolling && session != null && session.is(Session.RECEIVING);
+    }
+
+    /**
+     * Gives up the session, which is going to be promoted to main session.
+     */
+    Session takeSession() {
+        assert isReady();
+        closed = true;
+        phase++;
+        Session promoted = session;
+        session = null;
+        return promoted;
+    }
+
+    /**
+     * Closes the session.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        log.info("Closing " + kind + " session on " + serverAddress);
+        closed = true;
+        phase++;
+        if (session != null) {
+            session.closeSession("standby.close", Session.OPEN_ON_SERVER, Session.NO_RECOVERY_SCHEDULED);
+            session = null;
+        }
+    }
+
+    private void createSession(String cause) {
+        if (session != null) {
+            session.shutdown(false);
+        }
+        phase++;
+        session = sessionFactory.createNewSession(isPolling, false, isHTTP, null,
+                this, NO_SUBSCRIPTIONS, NO_MESSAGES, thread, details, options, phase, true, false);
+        session.standby = true;
+        session.createSession(null, cause, false);
+    }
+
+    /**
+     * Replaces the failed session with a new one, unless the listener gives up.
+     */
+    private void restart(int handlerPhase, String cause) {
+        if (closed || handlerPhase != phase) {
+            return;
+        }
+        log.info("The " + kind + " session on " + serverAddress + " failed. Cause: " + cause);
+        if (listener != null && ! listener.onFailure(this, cause)) {
+            close();
+            return;
+        }
+        createSession("standby." + cause);
+    }
+
+    @Override
+    public void sessionStatusChanged(final int handlerPhase, String phase, boolean sessionRecovery) {
+        if (log.isDebugEnabled()) {
+            log.debug("State of the " + kind + " session on " + serverAddress + ": " + phase);
+        }
+        if (listener == null || handlerPhase != this.phase) {
+            return;
+        }
+        if (phase.equals(Session.RECEIVING)) {
+            // notify outside of the session state machine, which may still be processing the bind response
+            thread.queue(new Runnable() {
+                @Override
+                public void run() {
+                    // a polling session may already be pausing before the next poll
+                    boolean ready = isPolling ? ! closed && handlerPhase == HotStandby.this.phase : isReady();
+                    if (ready) {
+                        listener.onReady(HotStandby.this);
+                    }
+                }
+            });
+        } else if (phase.equals(Session.SLEEP)) {
+            // don't wait for the retry delay: the listener is only interested in the failure
+            thread.queue(new Runnable() {
+                @Override
+                public void run() {
+                    restart(handlerPhase, "failure");
+                }
+            });
+        }
+    }
+
+    @Override
+    public void retry(int handlerPhase, String retryCause, boolean forced, boolean retryAgainIfStreamFails, boolean serverBusy) {
+        restart(handlerPhase, retryCause);
+    }
+
+    @Override
+    public void recoverSession(int handlerPhase, String retryCause, boolean forced, boolean retryAgainIfStreamFails) {
+        // the hot-standby session has no state worth recovering
+        restart(handlerPhase, retryCause);
+    }
+
+    @Override
+    public void streamSense(int handlerPhase, String switchCause, boolean forced) {
+        restart(handlerPhase, switchCause);
+    }
+
+    @Override
+    public void streamSenseSwitch(int handlerPhase, String reason, String sessionPhase, boolean startRecovery) {
+        restart(handlerPhase, reason);
+    }
+
+    @Override
+    public void switchReady(int handlerPhase, String switchCause, boolean forced, boolean startRecovery) {
+        // never requested
+    }
+
+    @Override
+    public void slowReady(int handlerPhase) {
+        // never requested
+    }
+
+    @Override
+    public void onSlowRequired(int handlerPhase, long delay) {
+        // a slow hot-standby session is harmless, since it carries no data
+    }
+
+    @Override
+    public int onSessionClose(int handlerPhase, boolean noRecoveryScheduled) {
+        return handlerPhase;
+    }
+
+    @Override
+    public void switchToWebSocket(boolean startRecovery) {
+        // never requested
+    }
+
+    @Override
+    public void onServerError(int errorCode, String errorMessage) {
+        log.warn("The " + kind + " session on " + serverAddress + " was refused: " + errorCode + " - " + errorMessage);
+    }
+
+    @Override
+    public void onIPReceived(String clientIP) {}
+
+    @Override
+    public void onSessionBound() {}
+
+    @Override
+    public void onSessionStart() {}
+
+    @Override
+    public void onMpnRegisterOK(String deviceId, String adapterName) {}
+
+    @Override
+    public void onMpnRegisterError(int code, String message) {}
+
+    @Override
+    public void onMpnSubscribeOK(String lsSubId, String pnSubId) {}
+
+    @Override
+    public void onMpnSubscribeError(String subId, int code, String message) {}
+
+    @Override
+    public void onMpnUnsubscribeError(String subId, int code, String message) {}
+
+    @Override
+    public void onMpnUnsubscribeOK(String subId) {}
+
+    @Override
+    public void onMpnResetBadgeOK(String deviceId) {}
+
+    @Override
+    public void onMpnBadgeResetError(int code, String message) {}
+}
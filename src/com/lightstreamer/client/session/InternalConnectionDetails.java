@@ -17,6 +17,9 @@ package com.lightstreamer.client.session;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.lightstreamer.client.ClientListener;
 import com.lightstreamer.client.Constants;
@@ -36,6 +39,7 @@ public class InternalConnectionDetails{
   private String password = null;
   private String adapterSet = null;
   private String serverAddress = null;
+  private List<String> alternativeServerAddresses = Collections.emptyList();
   private String user = null;
   private String sessionId = null;
   
@@ -71,6 +75,28 @@ public class InternalConnectionDetails{
     log.info("Server Address value changed to " + serverAddress);
   }
   
+  public synchronized List<String> getAlternativeServerAddresses() {
+    return alternativeServerAddresses;
+  }
+  
+  public synchronized void setAlternativeServerAddresses(List<String> serverAddresses) {
+    List<String> addresses = new ArrayList<>();
+    if (serverAddresses != null) {
+      for (String serverAddress : serverAddresses) {
+        if (!serverAddress.endsWith("/")) {
+          serverAddress += "/";
+        }
+        verifyServerAddress(serverAddress); //will throw IllegalArgumentException if not
+        if (!addresses.contains(serverAddress)) {
+          addresses.add(serverAddress);
+        }
+      }
+    }
+    this.alternativeServerAddresses = Collections.unmodifiableList(addresses);
+    this.eventDispatcher.dispatchEvent(new ClientListenerPropertyChangeEvent("alternativeServerAddresses"));
+    log.info("Alternative Server Addresses value changed to " + this.alternativeServerAddresses);
+  }
+  
   public synchronized String getUser() {
     return user;
   }
@@ -137,7 +163,7 @@ public class InternalConnectionDetails{
     return this.password;
   }
   
-  private static void verifyServerAddress(String serverAddress) {
+  static void verifyServerAddress(String serverAddress) {
       
       URL url;
       try {
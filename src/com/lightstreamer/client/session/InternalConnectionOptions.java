@@ -34,6 +34,8 @@ public class InternalConnectionOptions {
   private long firstRetryMaxDelay = 100;
   private long forceBindTimeout = 2000; //not exposed
   private String forcedTransport = null;
+  private String hotStandbyServerAddress = null;
+  private int httpControlConcurrency = 1;
   private Map<String,String> httpExtraHeaders = null;
   private boolean httpExtraHeadersOnSessionCreationOnly = false; // does not make much sense here, we still keep it, no need to differentiate
   private long idleTimeout = 19000;
@@ -45,6 +47,7 @@ public class InternalConnectionOptions {
    */
   private boolean unmanagedBandwidth = false;
   private long pollingInterval = 0;
+  private boolean predictiveBindEnabled = false;
   private long reconnectTimeout = 3000;
   private final DelayCounter currentRetryDelay = new DelayCounter(4000, "currentRetryDelay");
   private final DelayCounter currentConnectTimeout = new DelayCounter(4000, "currentConnectTimeout");
@@ -54,6 +57,7 @@ public class InternalConnectionOptions {
   private long stalledTimeout = 2000;
   private long sessionRecoveryTimeout = 15000;
   private long switchCheckTimeout = 4000; //not exposed
+  private boolean transportProbingEnabled = false;
   private Proxy proxy;
   
   private final Logger log = LogManager.getLogger(Constants.ACTIONS_LOG);
@@ -88,6 +92,14 @@ public class InternalConnectionOptions {
     return forcedTransport;
   }
 
+  public synchronized String getHotStandbyServerAddress() {
+    return hotStandbyServerAddress;
+  }
+
+  public synchronized int getHttpControlConcurrency() {
+    return httpControlConcurrency;
+  }
+
   public synchronized Map<String,String> getHttpExtraHeaders() {
     return httpExtraHeaders;
   }
@@ -141,7 +153,11 @@ public class InternalConnectionOptions {
   }
   
   public synchronized long getCurrentRetryDelay() {
-      return currentRetryDelay.getCurrentDelay();
+      return currentRetryDelay.getJitteredDelay();
+  }
+  
+  public synchronized String getRetryDelayJitter() {
+      return currentRetryDelay.getJitter();
   }
 
   public synchronized long getReverseHeartbeatInterval() {
@@ -180,6 +196,10 @@ public class InternalConnectionOptions {
     return httpExtraHeadersOnSessionCreationOnly;
   }
 
+  public synchronized boolean isPredictiveBindEnabled() {
+    return predictiveBindEnabled;
+  }
+
   public synchronized boolean isServerInstanceAddressIgnored() {
     return serverInstanceAddressIgnored;
   }
@@ -187,6 +207,10 @@ public class InternalConnectionOptions {
   public synchronized boolean isSlowingEnabled() {
     return slowingEnabled;
   }
+
+  public synchronized boolean isTransportProbingEnabled() {
+    return transportProbingEnabled;
+  }
   
   public synchronized void increaseConnectTimeout() {
       currentConnectTimeout.increase();
@@ -254,6 +278,30 @@ public class InternalConnectionOptions {
     
   }
 
+  public synchronized void setHotStandbyServerAddress(String hotStandbyServerAddress) {
+    if (hotStandbyServerAddress != null) {
+      if (!hotStandbyServerAddress.endsWith("/")) {
+        hotStandbyServerAddress += "/";
+      }
+      InternalConnectionDetails.verifyServerAddress(hotStandbyServerAddress); //will throw IllegalArgumentException if not
+    }
+    this.hotStandbyServerAddress = hotStandbyServerAddress;
+    
+    this.eventDispatcher.dispatchEvent(new ClientListenerPropertyChangeEvent("hotStandbyServerAddress"));
+    
+    log.info("Hot Standby Server Address value changed to " + hotStandbyServerAddress);
+  }
+
+  public synchronized void setHttpControlConcurrency(int httpControlConcurrency) {
+    Number.verifyPositive(httpControlConcurrency,Number.DONT_ACCEPT_ZERO);
+    
+    this.httpControlConcurrency = httpControlConcurrency;
+    
+    this.eventDispatcher.dispatchEvent(new ClientListenerPropertyChangeEvent("httpControlConcurrency"));
+    
+    log.info("HTTP control concurrency value changed to " + this.httpControlConcurrency);
+  }
+
   public synchronized void setHttpExtraHeaders(Map<String,String> httpExtraHeaders) {
     this.httpExtraHeaders = httpExtraHeaders;
     
@@ -355,6 +403,18 @@ public class InternalConnectionOptions {
     log.info("Retry Delay value changed to " + retryDelay);
   }
 
+  public synchronized void setRetryDelayJitter(String jitter) {
+    if (!(DelayCounter.JITTER_NONE.equals(jitter) || DelayCounter.JITTER_FULL.equals(jitter) || DelayCounter.JITTER_DECORRELATED.equals(jitter))) {
+      throw new IllegalArgumentException("The given value is not valid. Use one of: NONE, FULL, DECORRELATED");
+    }
+    
+    this.currentRetryDelay.setJitter(jitter);
+    
+    this.eventDispatcher.dispatchEvent(new ClientListenerPropertyChangeEvent("retryDelayJitter"));
+    
+    log.info("Retry Delay Jitter value changed to " + jitter);
+  }
+
   public synchronized void setReverseHeartbeatInterval(long reverseHeartbeatInterval) {
     Number.verifyPositive(reverseHeartbeatInterval,Number.ACCEPT_ZERO);
     
@@ -367,6 +427,14 @@ public class InternalConnectionOptions {
     
   }
   
+  public synchronized void setPredictiveBindEnabled(boolean predictiveBindEnabled) {
+    this.predictiveBindEnabled = predictiveBindEnabled;
+    
+    this.eventDispatcher.dispatchEvent(new ClientListenerPropertyChangeEvent("predictiveBindEnabled"));
+    
+    log.info("Predictive Bind Enabled flag changed to " + this.predictiveBindEnabled);
+  }
+
   public synchronized void setServerInstanceAddressIgnored(boolean serverInstanceAddressIgnored) {
     this.serverInstanceAddressIgnored = serverInstanceAddressIgnored;
     
@@ -383,6 +451,14 @@ public class InternalConnectionOptions {
     log.info("Slowing Enabled flag changed to " + this.slowingEnabled);
   }
 
+  public synchronized void setTransportProbingEnabled(boolean transportProbingEnabled) {
+    this.transportProbingEnabled = transportProbingEnabled;
+    
+    this.eventDispatcher.dispatchEvent(new ClientListenerPropertyChangeEvent("transportProbingEnabled"));
+    
+    log.info("Transport Probing Enabled flag changed to " + this.transportProbingEnabled);
+  }
+
   public synchronized void setStalledTimeout(long stalledTimeout) {
     Number.verifyPositive(stalledTimeout,Number.DONT_ACCEPT_ZERO);
     
@@ -0,0 +1,116 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+
+/**
+ * JVM-wide estimates of the time taken by each Server to establish a session (i.e. from the create_session
+ * request to the bound stream connection), used to choose the order in which equivalent Servers are contacted
+ * (see {@link ConnectRace}).
+ * <p>
+ * The estimate is a smoothed average of the samples, as for the TCP round-trip time.
+ * A failure doubles the estimate, so that an unhealthy Server is only tried first when
+ * all the healthy ones are slower. Servers that were never contacted have a null estimate,
+ * so that they are tried as soon as possible.
+ */
+@ThreadSafe
+class ServerLatencyTracker {
+
+    static final ServerLatencyTracker INSTANCE = new ServerLatencyTracker();
+
+    private static final long MIN_FAILURE_ESTIMATE_MS = 1000;
+    private static final long MAX_ESTIMATE_MS = 60000;
+
+    private final Logger log = LogManager.getLogger(Constants.SESSION_LOG);
+
+    private final Map<String, Long> estimates = new HashMap<>();
+
+    ServerLatencyTracker() {}
+
+    /**
+     * Records the time taken to establish a session on the specified Server.
+     */
+    synchronized void onSuccess(String serverAddress, long elapsedMs) {
+        Long estimate = estimates.get(serverAddress);
+        update(serverAddress, estimate == null ? elapsedMs : (7 * estimate + elapsedMs) / 8);
+    }
+
+    /**
+     * Records that the session requested to the specified Server was canceled after the specified time,
+     * because another Server was faster. The time is a lower bound of the real one, so it only
+     * raises the estimate.
+     */
+    synchronized void onCanceled(String serverAddress, long elapsedMs) {
+        Long estimate = estimates.get(serverAddress);
+        if (estimate == null || estimate < elapsedMs) {
+            update(serverAddress, estimate == null ? elapsedMs : (7 * estimate + elapsedMs) / 8);
+        }
+    }
+
+    /**
+     * Records that a session could not be established on the specified Server.
+     */
+    synchronized void onFailure(String serverAddress) {
+        Long estimate = estimates.get(serverAddress);
+        update(serverAddress, Math.max(MIN_FAILURE_ESTIMATE_MS, estimate == null ? 0 : 2 * estimate));
+    }
+
+    /**
+     * Returns the estimate of the specified Server (in milliseconds), or null if it was never contacted.
+     */
+    synchronized Long getEstimate(String serverAddress) {
+        return estimates.get(serverAddress);
+    }
+
+    /**
+     * Returns the specified Servers ordered by increasing estimate.
+     * The Servers never contacted come first, in the given order.
+     */
+    synchronized List<String> rank(List<String> serverAddresses) {
+        List<String> ranked = new ArrayList<>(serverAddresses);
+        Collections.sort(ranked, new Comparator<String>() {
+            @Override
+            public int compare(String a1, String a2) {
+                Long e1 = estimates.get(a1);
+                Long e2 = estimates.get(a2);
+                long v1 = e1 == null ? -1 : e1;
+                long v2 = e2 == null ? -1 : e2;
+                return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+            }
+        });
+        return ranked;
+    }
+
+    private void update(String serverAddress, long estimate) {
+        estimate = Math.min(estimate, MAX_ESTIMATE_MS);
+        estimates.put(serverAddress, estimate);
+        if (log.isDebugEnabled()) {
+            log.debug("Session establishment time estimate of " + serverAddress + ": " + estimate + "ms");
+        }
+    }
+}
@@ -190,6 +190,23 @@ public abstract class Session {
   
   protected final NetworkStatusListener networkStatusListener;
   
+  /**
+   * True while this is a hot-standby session (see {@link HotStandby}): the values sent by the Server
+   * that are shared with the main session are kept aside instead of being published in the connection options.
+   */
+  boolean standby = false;
+  /**
+   * True while a creation or recovery attempt of this session holds a permit of the {@link SessionAttemptGovernor}:
+   * the permit is released as soon as the session leaves the CREATING phase.
+   */
+  private boolean holdsAttemptPermit = false;
+  private String standbyRealMaxBandwidth = null;
+  /**
+   * When not null, the Server on which the session must be created, in place of {@link ConnectionDetails#getServerAddress()}
+   * (see {@link ConnectRace}).
+   */
+  String serverAddressOverride = null;
+  
   protected Session(int objectId, boolean isPolling, boolean forced, 
       SessionListener handler, SubscriptionsListener subscriptions, MessagesListener messages,
       Session originalSession, SessionThread thread, Protocol protocol,
@@ -248,6 +265,8 @@ public abstract class Session {
     this.networkStatusListener = new OfflineStatus.NetworkStatusListener() {
         @Override
         public void onOnline() {
+            // the local addresses may have changed
+            TransportCache.INSTANCE.refreshLocalAddresses();
             long timeLeftMs = recoveryBean.timeLeftMs(options.getSessionRecoveryTimeout());
             boolean startRecovery = timeLeftMs > 0 && ! isRecoveryDisabled;
             if (timeLeftMs <= 0) {
@@ -309,6 +328,10 @@ public abstract class Session {
         if (log.isDebugEnabled()) {
             log.debug("Session state change (" + objectId + "): " + oldType + " -> " + newType);
         }
+        if (isNot(CREATING)) {
+            // the attempt has succeeded or failed
+            this.releaseAttemptPermit();
+        }
         this.handler.sessionStatusChanged(this.handlerPhase, this.phase, startRecovery);
     }
     
@@ -366,6 +389,14 @@ public abstract class Session {
   
   protected abstract boolean shouldAskContentLength();
   
+  /**
+   * Called when the stream is about to reach its content length, to shorten the bind that will follow the LOOP
+   * (see {@link InternalConnectionOptions#isPredictiveBindEnabled()}). The default implementation does nothing.
+   */
+  protected void prepareNextBind() {
+    // nothing to prepare
+  }
+  
   boolean isOpen() { 
     return isNot(OFF) && isNot(CREATING) && isNot(SLEEP);
   }
@@ -390,7 +421,7 @@ public abstract class Session {
       createSession(oldSessionId, reconnectionCause);
   }
   
-  protected void createSession(String oldSessionId,String reconnectionCause) {
+  protected void createSession(final String oldSessionId,String reconnectionCause) {
     boolean openOnServer = isNot(OFF) && isNot(SLEEP) ? OPEN_ON_SERVER : CLOSED_ON_SERVER;
     
     //JS client here tests the mad timeouts, returns false if it fails, here we always return true
@@ -407,20 +438,29 @@ public abstract class Session {
     this.details.setClientIp(null);
     this.details.setServerInstanceAddress(null);
     
-    this.serverAddressCache =  this.details.getServerAddress();
+    this.serverAddressCache = this.serverAddressOverride != null ? this.serverAddressOverride : this.details.getServerAddress();
     this.ignoreServerAddressCache =  this.options.isServerInstanceAddressIgnored();
     
-    this.options.setInternalRealMaxBandwidth(null);
+    if (!this.standby) {
+      this.options.setInternalRealMaxBandwidth(null);
+    }
 
     //HTML CLIENT ONLY (prevents late forever-frame events to pass through
     //this.incPushPhase();
     
     log.info("Opening new session");
     
-    boolean sent = this.createSessionExecution(this.phaseCount,oldSessionId, reconnectionCause);
-    if (sent) {
-      this.createSent();
-    } //else we're offline and we set a timeout to try again in OFFLINE_TIMEOUT millis
+    final int ph = this.phaseCount;
+    final String cause = reconnectionCause;
+    this.governAttempt(ph, "connection to server", new Runnable() {
+      @Override
+      public void run() {
+        boolean sent = createSessionExecution(ph,oldSessionId,cause);
+        if (sent) {
+          createSent();
+        } //else we're offline and we set a timeout to try again in OFFLINE_TIMEOUT millis
+      }
+    });
   }
   
   protected boolean createSessionExecution(final int ph, final String oldSessionId, String cause) {
@@ -433,6 +473,7 @@ public abstract class Session {
     
     if (this.offlineCheck.shouldDelay(server)) {
       log.info("Client is offline, delaying connection to server");
+      this.releaseAttemptPermit();
       
       this.thread.schedule(new Runnable() {
         @Override
@@ -505,6 +546,86 @@ public abstract class Session {
   }
   
   protected void recoverSession() {
+      this.governAttempt(this.phaseCount, "session recovery", new Runnable() {
+          @Override
+          public void run() {
+              recoverSessionExecution();
+          }
+      });
+  }
+  
+  /**
+   * Performs a creation or recovery attempt when allowed by the {@link SessionAttemptGovernor}, that is,
+   * once a token has been reserved and a permit acquired. The attempt is abandoned if the phase changes
+   * in the meantime. The attempts of the hot-standby sessions are not governed.
+   */
+  private void governAttempt(final int ph, final String what, final Runnable attempt) {
+      if (this.standby) {
+          attempt.run();
+          return;
+      }
+      final SessionAttemptGovernor.Reservation reservation = SessionAttemptGovernor.INSTANCE.reserve();
+      if (reservation.getDelay() > 0) {
+          log.info("Too many session attempts in this JVM, delaying " + what + " by " + reservation.getDelay() + "ms");
+          
+          this.thread.schedule(new Runnable() {
+              @Override
+              public void run() {
+                  if (ph != phaseCount) {
+                      if (reservation.isGranted()) {
+                          SessionAttemptGovernor.INSTANCE.refund();
+                      }
+                  } else if (reservation.isGranted()) {
+                      performAttempt(ph, what, attempt);
+                  } else {
+                      governAttempt(ph, what, attempt);
+                  }
+              }
+          }, reservation.getDelay());
+          return;
+      }
+      this.performAttempt(ph, what, attempt);
+  }
+  
+  private void performAttempt(final int ph, String what, final Runnable attempt) {
+      if (this.holdsAttemptPermit) {
+          attempt.run();
+          return;
+      }
+      Runnable waiter = new Runnable() {
+          @Override
+          public void run() {
+              // the permit has been acquired on our behalf by the thread of another session
+              thread.queue(new Runnable() {
+                  @Override
+                  public void run() {
+                      if (ph != phaseCount || holdsAttemptPermit) {
+                          // abandoned, or already performed with another permit
+                          SessionAttemptGovernor.INSTANCE.releasePermit();
+                          return;
+                      }
+                      holdsAttemptPermit = true;
+                      attempt.run();
+                  }
+              });
+          }
+      };
+      if (SessionAttemptGovernor.INSTANCE.acquirePermit(waiter)) {
+          this.holdsAttemptPermit = true;
+          attempt.run();
+      } else {
+          log.info("Too many session attempts in progress in this JVM, delaying " + what);
+      }
+  }
+  
+  private void releaseAttemptPermit() {
+      if (this.holdsAttemptPermit) {
+          this.holdsAttemptPermit = false;
+          SessionAttemptGovernor.INSTANCE.releasePermit();
+      }
+  }
+  
+  private void recoverSessionExecution() {
       RecoverSessionRequest request = new RecoverSessionRequest(
               getPushServerAddress(),
               getSessionId(),
@@ -520,6 +641,47 @@ public abstract class Session {
       createSent();
   }
   
+  /**
+   * Hands a bound hot-standby session (see {@link HotStandby}) over to the listeners of the main session,
+   * which it replaces.
+   * The connection details and the bandwidth granted by the Server are published and the subscriptions
+   * and the messages are sent again on this session, as after a create_session response.
+   */
+  void promote(SessionListener handler, int handlerPhase,
+          SubscriptionsListener subscriptions, MessagesListener messages, InternalConnectionDetails details) {
+      assert is(RECEIVING);
+      InternalConnectionDetails standbyDetails = this.details;
+
+      this.standby = false;
+      this.handler = handler;
+      this.handlerPhase = handlerPhase;
+      this.subscriptions = subscriptions;
+      this.messages = messages;
+      this.details = details;
+
+      details.setSessionId(getSessionId());
+      details.setServerInstanceAddress(standbyDetails.getServerInstanceAddress());
+      details.setServerSocketName(standbyDetails.getServerSocketName());
+      details.setClientIp(standbyDetails.getClientIp());
+      if (standbyRealMaxBandwidth != null) {
+          setRealMaxBandwidth(standbyRealMaxBandwidth);
+      }
+      resetTimers();
+
+      handler.onSessionStart();
+      handler.onSessionBound();
+      subscriptions.onSessionStart();
+      messages.onSessionStart();
+  }
+
+  private void setRealMaxBandwidth(String maxBandwidth) {
+      if (maxBandwidth.equalsIgnoreCase("unmanaged")) {
+          options.setBandwidthUnmanaged(true);
+          maxBandwidth = "unlimited";
+      }
+      options.setInternalRealMaxBandwidth(maxBandwidth);
+  }
+  
   boolean isActive() {
       return is(CREATED) 
           || is(FIRST_BINDING) 
@@ -615,7 +777,9 @@ public abstract class Session {
       this.details.setServerSocketName(null);
       this.details.setClientIp(null);
       this.details.setServerInstanceAddress(null);
-      this.options.setInternalRealMaxBandwidth(null);
+      if (!this.standby) {
+        this.options.setInternalRealMaxBandwidth(null);
+      }
       
     } else {
         this.subscriptions.onSessionClose();
@@ -626,10 +790,37 @@ public abstract class Session {
   }
   
   void resetTimers() {
+      if (this.standby) {
+          return;
+      }
       this.options.resetRetryDelay();
       this.options.resetConnectTimeout();
   }
   
+  /*
+   * The retry delay and the connect timeout are shared with the main session: the failures
+   * of the hot-standby sessions (the detached sessions of the connect races and of the transport
+   * probes included) must not increase them.
+   */
+  
+  private void increaseConnectTimeout() {
+      if (!this.standby) {
+          this.options.increaseConnectTimeout();
+      }
+  }
+  
+  private void increaseConnectTimeoutToMax() {
+      if (!this.standby) {
+          this.options.increaseConnectTimeoutToMax();
+      }
+  }
+  
+  private void increaseRetryDelay() {
+      if (!this.standby) {
+          this.options.increaseRetryDelay();
+      }
+  }
+  
   protected void shutdown(boolean goToSleep) {
       shutdown(goToSleep, false);
   }
@@ -677,7 +868,7 @@ public abstract class Session {
           if (log.isDebugEnabled()) {
               log.debug("Start session recovery. Cause: no response timeLeft=" + timeLeftMs);
           }          
-          this.options.increaseConnectTimeout();
+          this.increaseConnectTimeout();
           handler.recoverSession(this.handlerPhase, tCause, this.isForced, this.workedBefore>0);
     
       } else {
@@ -687,7 +878,7 @@ public abstract class Session {
           this.closeSession(sleepCause,CLOSED_ON_SERVER,RECOVERY_SCHEDULED,true/*forceConnectionClose*/);
           assert is(SLEEP);
 
-          this.options.increaseConnectTimeout();
+          this.increaseConnectTimeout();
           this.launchTimeout("zeroDelay", 0, sleepCause, false);
       }
       
@@ -1130,11 +1321,12 @@ public abstract class Session {
       public void onServerSentBandwidth(String maxBandwidth) {
           onEvent();
 
-          if (maxBandwidth.equalsIgnoreCase("unmanaged")) {
-              options.setBandwidthUnmanaged(true);
-              maxBandwidth = "unlimited";
+          if (standby) {
+              // published when the session is promoted
+              standbyRealMaxBandwidth = maxBandwidth;
+          } else {
+              setRealMaxBandwidth(maxBandwidth);
           }
-          options.setInternalRealMaxBandwidth(maxBandwidth);
       }
 
       @Override
@@ -1192,7 +1384,7 @@ public abstract class Session {
               }
           }
 
-          if (keepaliveIntervalDefault > 0) {
+          if (keepaliveIntervalDefault > 0 && ! standby) {
               if (isPolling) {
                   //on polling sessions the longest inactivity permitted is sent instead of the keepalive setting
                   options.setIdleTimeout(keepaliveIntervalDefault);
@@ -1290,6 +1482,14 @@ public abstract class Session {
           }          
       }
 
+      @Override
+      public void onContentLengthNearlyReached() {
+          if (is(RECEIVING) && options.isPredictiveBindEnabled()) {
+              log.debug("Content length nearly reached: preparing the next bind");
+              prepareNextBind();
+          }
+      }
+
       @Override
       public void onSyncError(boolean async) {
           String cause = async ? "syncerror" : "control.syncerror";
@@ -1540,6 +1740,8 @@ public abstract class Session {
               if (serverSentPause >= options.getPollingInterval()) { 
                   // we're likely delaying because of the slowing algorithm
                   // nothing to do
+              } else if (standby) {
+                  // a detached session must not change the options of the main one
               } else {
                   //the server didn't like our request, let's adapt 
                   options.setPollingInterval(serverSentPause);
@@ -1782,7 +1984,7 @@ public abstract class Session {
               log.debug("Start session recovery. Cause: socket failure while recovering");
               changePhaseType(SLEEP, true);              
               launchTimeout("currentRetryDelay", calculateRetryDelay(), reason, startRecovery);
-              this.options.increaseRetryDelay();
+              this.increaseRetryDelay();
 
           } else if (switchRequired && !isForced) {
               log.debug("Transport switch");
@@ -1797,7 +1999,7 @@ public abstract class Session {
               
               if (serverBusyError) {
                   launchTimeout("zeroDelay", 0, reason, false);
-                  this.options.increaseConnectTimeoutToMax();
+                  this.increaseConnectTimeoutToMax();
               } else if (closedOnServer || (recoveryBean.isRecovery() && timeLeftMs <= 0)) {
                   /*
                    * If the client is trying to create a new session/recovering the current
@@ -1808,7 +2010,7 @@ public abstract class Session {
                   launchTimeout("zeroDelay", 0, reason, false);
               } else {
                   launchTimeout("currentRetryDelay", calculateRetryDelay(), reason, false);
-                  this.options.increaseRetryDelay();
+                  this.increaseRetryDelay();
               }
           }
 
@@ -0,0 +1,211 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.session;
+
+import java.util.LinkedList;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.SessionAttemptStatistics;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.GlobalProperties;
+
+/**
+ * JVM-wide governor of the session creation and recovery attempts of all the LightstreamerClient
+ * instances, so that, when a Server is restarted, the clients of the same process don't reconnect all at once.
+ * <p>
+ * The attempts are paced by a token bucket refilled at the rate configured through
+ * {@link GlobalProperties#getSessionAttemptRate()} (attempts per second) up to
+ * {@link GlobalProperties#getSessionAttemptBurst()} tokens; a 0 rate disables the pacing. Each attempt reserves
+ * a token: when no token is available, the token is borrowed from the future and the attempt is told how long
+ * to wait, so that the waiting attempts are performed in order and at the configured rate. No more than a burst
+ * of tokens can be borrowed: beyond that, the attempt is told to wait and reserve again. The token of an attempt
+ * that is abandoned while waiting is given back through {@link #refund()}.
+ * <p>
+ * Moreover, no more than {@link GlobalProperties#getSessionAttemptConcurrency()} attempts can be in progress
+ * at the same time (0 means unlimited): an attempt holds a permit from when its request is sent until the
+ * session is bound or fails, and the attempts that find no permit available are queued in order of arrival.
+ * 
+ * 
+ * @since October 2026
+ */
+@ThreadSafe
+public class SessionAttemptGovernor {
+    
+    private static final Logger log = LogManager.getLogger(Constants.SESSION_LOG);
+    
+    public static final SessionAttemptGovernor INSTANCE = new SessionAttemptGovernor();
+    
+    private boolean started = false;
+    private double tokens;
+    private long lastRefill;
+    
+    private int inFlightAttempts = 0;
+    private final LinkedList<Runnable> permitWaiters = new LinkedList<Runnable>();
+    
+    private long grantedAttempts = 0;
+    private long throttledAttempts = 0;
+    private long totalThrottleDelay = 0;
+    private long maxThrottleDelay = 0;
+    private long queuedAttempts = 0;
+    
+    private SessionAttemptGovernor() {}
+    
+    /**
+     * Outcome of a token reservation.
+     */
+    public static class Reservation {
+        
+        private final boolean granted;
+        private final long delay;
+        
+        Reservation(boolean granted, long delay) {
+            this.granted = granted;
+            this.delay = delay;
+        }
+        
+        /**
+         * Tells whether a token has been reserved; otherwise, the reservation must be repeated
+         * once the delay has elapsed.
+         */
+        public boolean isGranted() {
+            return granted;
+        }
+        
+        /**
+         * Returns the time (in milliseconds) the attempt must wait, or 0 if it can be performed immediately.
+         */
+        public long getDelay() {
+            return delay;
+        }
+    }
+    
+    private static final Reservation IMMEDIATE = new Reservation(true, 0);
+    
+    /**
+     * Reserves a token for a session creation or recovery attempt.
+     */
+    public synchronized Reservation reserve() {
+        double rate = GlobalProperties.INSTANCE.getSessionAttemptRate();
+        if (rate <= 0) {
+            grantedAttempts++;
+            return IMMEDIATE;
+        }
+        refill(rate);
+        if (tokens >= 1) {
+            tokens -= 1;
+            grantedAttempts++;
+            return IMMEDIATE;
+        }
+        int burst = GlobalProperties.INSTANCE.getSessionAttemptBurst();
+        boolean granted = tokens - 1 >= -burst;
+        long wait;
+        if (granted) {
+            tokens -= 1;
+            wait = (long) Math.ceil(-tokens * 1000 / rate);
+            throttledAttempts++;
+            totalThrottleDelay += wait;
+            maxThrottleDelay = Math.max(maxThrottleDelay, wait);
+        } else {
+            /* the borrowing is bounded: wait until a token can be borrowed again */
+            wait = (long) Math.ceil((1 - burst - tokens) * 1000 / rate);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Session attempt throttled: wait=" + wait + " tokens=" + tokens + " granted=" + granted);
+        }
+        return new Reservation(granted, wait);
+    }
+    
+    /**
+     * Gives back the token of an attempt that has been abandoned before being performed.
+     */
+    public synchronized void refund() {
+        double rate = GlobalProperties.INSTANCE.getSessionAttemptRate();
+        if (rate <= 0) {
+            return;
+        }
+        refill(rate);
+        tokens = Math.min(tokens + 1, GlobalProperties.INSTANCE.getSessionAttemptBurst());
+    }
+    
+    /**
+     * Acquires a permit to perform an attempt. If no permit is available, the waiter is queued and
+     * it will be run, on the thread that releases a permit, once the permit has been acquired on its behalf.
+     * 
+     * @return true if the permit has been acquired; false if the waiter has been queued.
+     */
+    public synchronized boolean acquirePermit(Runnable waiter) {
+        int concurrency = GlobalProperties.INSTANCE.getSessionAttemptConcurrency();
+        if (concurrency <= 0 || inFlightAttempts < concurrency) {
+            inFlightAttempts++;
+            return true;
+        }
+        queuedAttempts++;
+        permitWaiters.add(waiter);
+        if (log.isDebugEnabled()) {
+            log.debug("Session attempt queued: inFlight=" + inFlightAttempts + " queued=" + permitWaiters.size());
+        }
+        return false;
+    }
+    
+    /**
+     * Releases the permit of an attempt whose session has been bound or has failed.
+     */
+    public void releasePermit() {
+        Runnable next;
+        synchronized (this) {
+            inFlightAttempts--;
+            int concurrency = GlobalProperties.INSTANCE.getSessionAttemptConcurrency();
+            if (permitWaiters.isEmpty() || (concurrency > 0 && inFlightAttempts >= concurrency)) {
+                return;
+            }
+            inFlightAttempts++;
+            next = permitWaiters.removeFirst();
+        }
+        next.run();
+    }
+    
+    public synchronized SessionAttemptStatistics getStatistics() {
+        double rate = GlobalProperties.INSTANCE.getSessionAttemptRate();
+        if (rate > 0) {
+            refill(rate);
+        }
+        return new SessionAttemptStatistics(grantedAttempts, throttledAttempts, totalThrottleDelay, maxThrottleDelay, 
+                rate > 0 ? tokens : GlobalProperties.INSTANCE.getSessionAttemptBurst(), 
+                inFlightAttempts, queuedAttempts);
+    }
+    
+    /**
+     * Adds the tokens accrued since the last refill.
+     */
+    private void refill(double rate) {
+        int burst = GlobalProperties.INSTANCE.getSessionAttemptBurst();
+        long now = System.nanoTime();
+        if (! started) {
+            /* the bucket starts full */
+            started = true;
+            tokens = burst;
+        } else {
+            tokens += (now - lastRefill) / 1_000_000_000.0 * rate;
+        }
+        if (tokens > burst) {
+            tokens = burst;
+        }
+        lastRefill = now;
+    }
+}
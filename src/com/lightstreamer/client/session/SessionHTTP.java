@@ -19,6 +19,7 @@ import com.lightstreamer.client.Constants;
 import com.lightstreamer.client.protocol.Protocol;
 import com.lightstreamer.client.requests.ReverseHeartbeatRequest;
 import com.lightstreamer.client.requests.RequestTutor;
+import com.lightstreamer.client.transport.providers.TransportFactory;
 
 
 public class SessionHTTP extends Session {
@@ -36,6 +37,12 @@ public class SessionHTTP extends Session {
   protected String getConnectedHighLevelStatus() {
     return this.isPolling?Constants.HTTP_POLLING:Constants.HTTP_STREAMING;
   }
+  
+  @Override
+  protected void changeControlLink(String controlLink) {
+    // the next requests will be sent to the control link: have the sockets ready
+    TransportFactory.getDefaultHttpFactory().prewarm(controlLink, options.getProxy());
+  }
 
   @Override
   protected String getFirstConnectedStatus() {
@@ -46,6 +53,12 @@ public class SessionHTTP extends Session {
   protected boolean shouldAskContentLength() {
     return !this.isPolling;
   }
+  
+  @Override
+  protected void prepareNextBind() {
+    // the next bind_session will find a connected socket in the pool
+    TransportFactory.getDefaultHttpFactory().prewarm(getPushServerAddress(), options.getProxy(), 1);
+  }
 
   @Override
   public void sendReverseHeartbeat(ReverseHeartbeatRequest request, RequestTutor tutor) {
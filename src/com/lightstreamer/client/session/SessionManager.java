@@ -15,6 +15,9 @@
 
 package com.lightstreamer.client.session;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.lightstreamer.client.Constants;
 import com.lightstreamer.client.LightstreamerClient;
 import com.lightstreamer.client.mpn.MpnManager.MpnEventManager;
@@ -115,6 +118,75 @@ public class SessionManager implements SessionListener {
   protected SessionsListener listener;
   private final SessionThread thread;
   private volatile MpnEventManager mpnEventManager;
+  /**
+   * Secondary session ready to replace the current one (see {@link InternalConnectionOptions#getHotStandbyServerAddress()}).
+   */
+  private HotStandby standby = null;
+  /**
+   * True while the hot-standby session is replacing the failed one: the status changes of the failed session are not notified.
+   */
+  private boolean failingOver = false;
+  /**
+   * Race of the current session creation towards the alternative Servers
+   * (see {@link InternalConnectionDetails#getAlternativeServerAddresses()}).
+   */
+  private ConnectRace race = null;
+  /**
+   * Concurrent probing of the transports for the current session creation
+   * (see {@link InternalConnectionOptions#isTransportProbingEnabled()}).
+   */
+  private TransportProbe probe = null;
+  /**
+   * Fingerprint of the environment, when the current session was requested on the transport chosen by a previous probe.
+   */
+  private String probedFingerprint = null;
+  /**
+   * Retry of the main session, postponed until the end of the race or of the probe.
+   */
+  private Runnable deferredRetry = null;
+  private final ConnectRace.Listener raceListener = new ConnectRace.Listener() {
+      @Override
+      public void onRaceWon(HotStandby winner) {
+          race = null;
+          deferredRetry = null;
+          promote(winner, "race");
+      }
+
+      @Override
+      public void onRaceLost() {
+          race = null;
+          Runnable retry = deferredRetry;
+          deferredRetry = null;
+          if (retry != null) {
+              retry.run();
+          }
+      }
+  };
+  private final TransportProbe.Listener probeListener = new TransportProbe.Listener() {
+      @Override
+      public void onStreamingChosen(HotStandby winner) {
+          probe = null;
+          deferredRetry = null;
+          promote(winner, "probe");
+      }
+
+      @Override
+      public void onPollingChosen() {
+          probe = null;
+          deferredRetry = null;
+          createSession(false, isFrozen, false, POLLING_SESSION, HTTP_SESSION, "probe", false, false);
+      }
+
+      @Override
+      public void onProbeLost() {
+          probe = null;
+          Runnable retry = deferredRetry;
+          deferredRetry = null;
+          if (retry != null) {
+              retry.run();
+          }
+      }
+  };
   
   /**
    * Counts the bind_session requests following the corresponding create_session.
@@ -319,9 +391,25 @@ public class SessionManager implements SessionListener {
 
       String currSessionId = this.session != null ? this.session.getSessionId() : null;
 
+      this.cancelRace();
+      this.cancelProbe();
       reason = "new."+reason;
       this.closeSession(false,reason,YES_RECOVERY);
 
+      this.probedFingerprint = null;
+      String fingerprint = null;
+      if (fromAPI && !isTransportForced && !isComboForced && options.isTransportProbingEnabled()) {
+          fingerprint = TransportCache.INSTANCE.fingerprint(details.getServerAddress(), options.getProxy());
+          String transport = TransportCache.INSTANCE.get(fingerprint);
+          if (transport != null) {
+              log.info("Using the transport " + transport + " chosen by a previous probe");
+              isPolling = transport.equals(Constants.HTTP_POLLING) || transport.equals(Constants.WS_POLLING);
+              isHTTP = transport.equals(Constants.HTTP_POLLING) || transport.equals(Constants.HTTP_STREAMING);
+              this.probedFingerprint = fingerprint;
+              fingerprint = null;
+          }
+      }
+
       Status nextPH = isPolling ? (isHTTP ? Status.POLLING_HTTP : Status.POLLING_WS) : (isHTTP ? Status.STREAMING_HTTP : Status.STREAMING_WS);
       this.changeStatus(nextPH);
 
@@ -330,7 +418,32 @@ public class SessionManager implements SessionListener {
       }
       this.prepareNewSessionInstance(isPolling,isComboForced,isHTTP, null, retryAgainIfStreamFails, false);
 
+      if (fingerprint != null && !isPolling) {
+          this.probe = new TransportProbe(fingerprint, details.getServerAddress(), isHTTP, sessionFactory, thread, options, details, probeListener);
+      }
+
+      List<String> serverAddresses = new ArrayList<>();
+      if (!isPolling && this.probe == null) {
+          serverAddresses.add(details.getServerAddress());
+          for (String alternative : details.getAlternativeServerAddresses()) {
+              if (!serverAddresses.contains(alternative)) {
+                  serverAddresses.add(alternative);
+              }
+          }
+      }
+      if (serverAddresses.size() > 1) {
+          this.race = new ConnectRace(serverAddresses, isHTTP, sessionFactory, thread, options, details, raceListener);
+          this.session.serverAddressOverride = this.race.getMainAddress();
+      }
+
       this.session.createSession(currSessionId,reason,serverBusy);
+      
+      if (this.race != null) {
+          this.race.start();
+      }
+      if (this.probe != null) {
+          this.probe.start();
+      }
   }
   
   private void prepareNewSessionInstance(boolean isPolling,
@@ -382,11 +495,36 @@ public class SessionManager implements SessionListener {
   
   @Override
   public void retry(
-          int handlerPhase, String retryCause, 
-          boolean forced, boolean retryAgainIfStreamFails, boolean serverBusy) {
+          final int handlerPhase, final String retryCause, 
+          final boolean forced, final boolean retryAgainIfStreamFails, final boolean serverBusy) {
     if (handlerPhase != this.statusPhase) {
       return;
     }
+    if (this.promoteStandby(retryCause)) {
+      return;
+    }
+    if (this.awaitProbe(new Runnable() {
+      @Override
+      public void run() {
+        retry(handlerPhase, retryCause, forced, retryAgainIfStreamFails, serverBusy);
+      }
+    })) {
+      return;
+    }
+    if (this.race != null) {
+      this.race.onMainFailed();
+      if (this.race.isPending()) {
+        log.info("Session creation failed: waiting for the alternative Servers");
+        this.deferredRetry = new Runnable() {
+          @Override
+          public void run() {
+            retry(handlerPhase, retryCause, forced, retryAgainIfStreamFails, serverBusy);
+          }
+        };
+        return;
+      }
+      this.race = null;
+    }
     
     boolean strOrPoll = this.is(Status.STREAMING_WS) || this.is(Status.STREAMING_HTTP) ? STREAMING_SESSION : POLLING_SESSION;
     boolean wsOrHttp = this.is(Status.STREAMING_WS) || this.is(Status.POLLING_WS) ? WS_SESSION : HTTP_SESSION;
@@ -410,6 +548,9 @@ public class SessionManager implements SessionListener {
       if (handlerPhase != this.statusPhase) {
           return;
       }
+      if (this.promoteStandby(retryCause)) {
+          return;
+      }
 
       boolean isPolling = this.is(Status.STREAMING_WS) || this.is(Status.STREAMING_HTTP) ? STREAMING_SESSION : POLLING_SESSION;
       boolean isHTTP = this.is(Status.STREAMING_WS) || this.is(Status.POLLING_WS) ? WS_SESSION : HTTP_SESSION;
@@ -420,11 +561,124 @@ public class SessionManager implements SessionListener {
       this.session.recoverSession();
   }
   
+  /**
+   * Replaces the failed session with the hot-standby session, if the latter is bound.
+   * The subscriptions are sent again on the promoted session and the user is only notified of the final status.
+   * 
+   * @return false if there is no hot-standby session ready for promotion
+   */
+  private boolean promoteStandby(String cause) {
+      if (standby == null || !standby.isReady()) {
+          return false;
+      }
+      HotStandby promoted = standby;
+      standby = null;
+      promote(promoted, cause);
+      return true;
+  }
+  
+  /**
+   * Replaces the current session with a bound detached session.
+   */
+  private void promote(HotStandby promoted, String cause) {
+      Session newSession = promoted.takeSession();
+      log.info("Switching to the session " + newSession.getSessionId() + " on " + promoted.getServerAddress() + ". Cause: " + cause);
+      
+      failingOver = true;
+      try {
+          // the failed session is given up: there is no point in recovering it
+          this.session.closeSession("failover." + cause, Session.OPEN_ON_SERVER, Session.NO_RECOVERY_SCHEDULED);
+          
+          this.changeStatus(promoted.isHTTP() ? Status.STREAMING_HTTP : Status.STREAMING_WS);
+          this.session = newSession;
+          if (serverSession != null) {
+              serverSession.close();
+          }
+          serverSession = new ServerSession(newSession);
+          newSession.promote(this, this.statusPhase, subscriptions, messages, details);
+      } finally {
+          failingOver = false;
+      }
+      this.listener.onStatusChanged(this.getHighLevelStatus(false));
+  }
+  
+  /**
+   * Opens, moves or closes the hot-standby session according to the current configuration.
+   */
+  private void checkStandby() {
+      String address = options.getHotStandbyServerAddress();
+      if (address != null && address.equals(session.serverAddressCache)) {
+          // the main session is already on the alternate Server: keep the standby on the configured one
+          address = details.getServerAddress();
+      }
+      if (standby != null && ! standby.getServerAddress().equals(address)) {
+          standby.close();
+          standby = null;
+      }
+      if (standby == null && address != null) {
+          boolean isHTTP = is(Status.STREAMING_HTTP) || is(Status.POLLING_HTTP);
+          standby = new HotStandby(address, isHTTP, sessionFactory, thread, options, details);
+          standby.start();
+      }
+  }
+  
+  private void closeStandby() {
+      if (standby != null) {
+          standby.close();
+          standby = null;
+      }
+  }
+  
+  private void cancelRace() {
+      if (race != null) {
+          race.cancel();
+          race = null;
+      }
+      deferredRetry = null;
+  }
+  
+  private void cancelProbe() {
+      if (probe != null) {
+          probe.cancel();
+          probe = null;
+      }
+      deferredRetry = null;
+  }
+  
+  /**
+   * Notifies the failure of the main session to the transport probe, if any, and forgets the transport
+   * chosen by a previous probe, if the session was requested on it.
+   * 
+   * @param fallback the action to be taken if the probe finds no working transport
+   * @return true if the action must wait for the outcome of the probe
+   */
+  private boolean awaitProbe(Runnable fallback) {
+      if (probedFingerprint != null) {
+          TransportCache.INSTANCE.remove(probedFingerprint);
+          probedFingerprint = null;
+      }
+      if (probe == null) {
+          return false;
+      }
+      probe.onMainFailed();
+      log.info("Session creation failed: waiting for the other transports");
+      deferredRetry = fallback;
+      return true;
+  }
+
   @Override
-  public void streamSense(int handlerPhase, String switchCause, boolean forced) {
+  public void streamSense(final int handlerPhase, final String switchCause, final boolean forced) {
     if (handlerPhase != this.statusPhase) {
       return;
     }
+    if (this.awaitProbe(new Runnable() {
+      @Override
+      public void run() {
+        streamSense(handlerPhase, switchCause, forced);
+      }
+    })) {
+      return;
+    }
     
     Status switchType = this.getNextSensePhase();
     log.info("Setting up new session type " + statusToString(this.status) + "->" + statusToString(switchType));
@@ -496,10 +750,18 @@ public class SessionManager implements SessionListener {
   }
   
   @Override
-  public void streamSenseSwitch(int handlerPhase, String reason, String sessionPhase, boolean startRecovery) {
+  public void streamSenseSwitch(final int handlerPhase, final String reason, final String sessionPhase, final boolean startRecovery) {
     if (handlerPhase != this.statusPhase) {
       return;
     }
+    if (this.awaitProbe(new Runnable() {
+      @Override
+      public void run() {
+        streamSenseSwitch(handlerPhase, reason, sessionPhase, startRecovery);
+      }
+    })) {
+      return;
+    }
     
     Status switchType = getNextSensePhase();
     
@@ -552,7 +814,20 @@ public class SessionManager implements SessionListener {
   
   @Override
   public void sessionStatusChanged(int handlerPhase, String phase, boolean sessionRecovery) {
-    if (handlerPhase != this.statusPhase) {
+    if (handlerPhase != this.statusPhase || failingOver) {
+      return;
+    }
+    if (phase.equals(Session.SLEEP) && race != null) {
+      // start the next attempt immediately
+      race.onMainFailed();
+    }
+    if (phase.equals(Session.SLEEP) && probe != null) {
+      // the other transports may be chosen before the retry
+      probe.onMainFailed();
+    }
+    if (phase.equals(Session.SLEEP) && standby != null && standby.isReady()) {
+      // the session has failed but the failover will take place soon: there is no need to notify the disconnection
+      log.debug("Session failed: waiting for the failover to the hot-standby session");
       return;
     }
     this.listener.onStatusChanged(this.getHighLevelStatus(sessionRecovery));
@@ -576,8 +851,18 @@ public class SessionManager implements SessionListener {
            * We are only interested in true change of session.
            */
           mpnEventManager.onSessionStart();
+          if (race != null) {
+              race.onMainBound();
+              race = null;
+          }
+          if (probe != null) {
+              probe.onMainBound();
+              probe = null;
+          }
+          probedFingerprint = null;
       }
       nBindAfterCreate++;
+      checkStandby();
   }
 
   @Override
@@ -600,6 +885,11 @@ public class SessionManager implements SessionListener {
     
     if(noRecoveryScheduled) {
       this.changeStatus(Status.OFF);
+      if (!failingOver) {
+          this.closeStandby();
+          this.cancelRace();
+          this.cancelProbe();
+      }
     } else {
       this.changeStatus(this.status);//so that the statusPhase changes
     }
@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.session;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.Proxy;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.threads.providers.ExecutorFactory;
+import com.lightstreamer.util.threads.providers.JoinableExecutor;
+
+/**
+ * JVM-wide outcomes of the transport probing (see {@link TransportProbe}), indexed by network fingerprint,
+ * i.e. the Server address, the proxy and the addresses of the local network interfaces.
+ * <p>
+ * Enumerating the network interfaces may be slow, hence the local addresses are cached and are enumerated
+ * again on a dedicated thread, when they are older than {@link #ADDRESSES_MAX_AGE_MS} or when the network
+ * is reported to be back online; in the meantime the previous addresses are used.
+ * <p>
+ * The transports are expressed as in {@link InternalConnectionOptions#getForcedTransport()}.
+ */
+@ThreadSafe
+class TransportCache {
+
+    static final TransportCache INSTANCE = new TransportCache();
+    
+    static final long ADDRESSES_MAX_AGE_MS = 30000;
+
+    private final Logger log = LogManager.getLogger(Constants.SESSION_LOG);
+
+    private final Map<String, String> transports = new HashMap<>();
+    
+    private volatile TreeSet<String> localAddresses = null;
+    private volatile long localAddressesTime = 0;
+    private boolean refreshing = false;
+    private JoinableExecutor refreshExecutor = null;
+
+    TransportCache() {}
+
+    /**
+     * Returns the transport chosen in the specified environment, or null if it is unknown.
+     */
+    synchronized String get(String fingerprint) {
+        return transports.get(fingerprint);
+    }
+
+    synchronized void put(String fingerprint, String transport) {
+        transports.put(fingerprint, transport);
+        log.info("Transport " + transport + " chosen for " + fingerprint);
+    }
+
+    /**
+     * Forgets the transport chosen in the specified environment, because it no longer works.
+     */
+    synchronized void remove(String fingerprint) {
+        String transport = transports.remove(fingerprint);
+        if (transport != null) {
+            log.info("Transport " + transport + " no longer chosen for " + fingerprint);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the environment in which a session is requested to the specified Server.
+     * <br>Only the first call enumerates the network interfaces on the caller thread.
+     */
+    String fingerprint(String serverAddress, Proxy proxy) {
+        TreeSet<String> addresses = localAddresses;
+        if (addresses == null) {
+            addresses = getLocalAddresses();
+            localAddressesTime = System.currentTimeMillis();
+            localAddresses = addresses;
+        } else if (System.currentTimeMillis() - localAddressesTime > ADDRESSES_MAX_AGE_MS) {
+            refreshLocalAddresses();
+        }
+        StringBuilder sb = new StringBuilder(serverAddress);
+        sb.append(" via ").append(proxy == null ? "no proxy" : proxy.toString());
+        sb.append(" from ").append(addresses);
+        return sb.toString();
+    }
+    
+    /**
+     * Enumerates again the local addresses on a dedicated thread, e.g. because the network has changed.
+     */
+    synchronized void refreshLocalAddresses() {
+        if (refreshing) {
+            return;
+        }
+        refreshing = true;
+        if (refreshExecutor == null) {
+            refreshExecutor = ExecutorFactory.getDefaultExecutorFactory().getExecutor(1, "Transport Cache Thread", 1000);
+        }
+        refreshExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                TreeSet<String> addresses = getLocalAddresses();
+                synchronized (TransportCache.this) {
+                    localAddressesTime = System.currentTimeMillis();
+                    localAddresses = addresses;
+                    refreshing = false;
+                }
+            }
+        });
+    }
+
+    private static TreeSet<String> getLocalAddresses() {
+        TreeSet<String> addresses = new TreeSet<>();
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            if (interfaces != null) {
+                for (NetworkInterface ni : Collections.list(interfaces)) {
+                    if (! ni.isUp() || ni.isLoopback()) {
+                        continue;
+                    }
+                    for (InetAddress address : Collections.list(ni.getInetAddresses())) {
+                        if (! address.isLinkLocalAddress()) {
+                            addresses.add(address.getHostAddress());
+                        }
+                    }
+                }
+            }
+        } catch (SocketException e) {
+            // the fingerprint only relies on the Server address and on the proxy
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.session;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.threads.PendingTask;
+
+/**
+ * Concurrent probing of the transports tried in sequence by the Stream-Sense algorithm
+ * (see {@link InternalConnectionOptions#isTransportProbingEnabled()}).
+ * <p>
+ * The main session of the {@link SessionManager} is requested on the first transport (Streaming over WebSocket,
+ * or over HTTP when WebSocket is disabled); at the same time, a Streaming over HTTP session (if the main one is
+ * over WebSocket) and a Polling over HTTP session are requested through detached sessions ({@link HotStandby}).
+ * The most preferred transport that works wins: a less preferred transport only wins if the more preferred
+ * ones have failed or if they haven't succeeded {@link #PREFERENCE_GRACE_MS} milliseconds after it.
+ * A Streaming over HTTP session that wins is promoted, whereas when Polling wins the main session must be
+ * requested again over Polling. The outcome is recorded in the {@link TransportCache}.
+ * <p>
+ * All the methods must be called by the session thread.
+ */
+class TransportProbe implements HotStandby.Listener {
+
+    /**
+     * Time granted to the more preferred transports after a less preferred one has succeeded.
+     */
+    static final long PREFERENCE_GRACE_MS = 1500;
+
+    /**
+     * Receives the outcome of the probe, when it is not won by the main session.
+     * The notifications are delivered in separate tasks of the session thread.
+     */
+    interface Listener {
+        /**
+         * Notifies the detached Streaming over HTTP session that won the probe.
+         */
+        void onStreamingChosen(HotStandby winner);
+        /**
+         * Notifies that Polling over HTTP won the probe.
+         */
+        void onPollingChosen();
+        /**
+         * Notifies that all the transports have failed.
+         */
+        void onProbeLost();
+    }
+
+    private final Logger log = LogManager.getLogger(Constants.SESSION_LOG);
+
+    private final String fingerprint;
+    private final String mainTransport;
+    private final SessionThread thread;
+    private final Listener listener;
+    /**
+     * Null if the main session is already over HTTP.
+     */
+    private final HotStandby streaming;
+    private final HotStandby polling;
+
+    private boolean mainFailed = false;
+    private boolean streamingFailed = false;
+    private boolean pollingFailed = false;
+    private boolean pollingReady = false;
+    private PendingTask graceTask = null;
+    /**
+     * True when the outcome is known.
+     */
+    private boolean over = false;
+    /**
+     * True when the outcome is no longer of interest.
+     */
+    private boolean canceled = false;
+
+    TransportProbe(String fingerprint, String serverAddress, boolean isHTTP, SessionFactory sessionFactory, SessionThread thread,
+            InternalConnectionOptions options, InternalConnectionDetails details, Listener listener) {
+        this.fingerprint = fingerprint;
+        this.mainTransport = isHTTP ? Constants.HTTP_STREAMING : Constants.WS_STREAMING;
+        this.thread = thread;
+        this.listener = listener;
+        this.streaming = isHTTP ? null
+                : new HotStandby(serverAddress, false, true, sessionFactory, thread, options, details, this, "HTTP-STREAMING probe");
+        this.polling = new HotStandby(serverAddress, true, true, sessionFactory, thread, options, details, this, "HTTP-POLLING probe");
+        this.streamingFailed = streaming == null;
+    }
+
+    /**
+     * Requests the sessions on the other transports.
+     */
+    void start() {
+        log.info("Probing the transports for " + fingerprint);
+        if (streaming != null) {
+            streaming.start();
+        }
+        polling.start();
+    }
+
+    /**
+     * Notifies that the main session has been bound: the probe is over.
+     */
+    void onMainBound() {
+        if (canceled) {
+            return;
+        }
+        TransportCache.INSTANCE.put(fingerprint, mainTransport);
+        cancel();
+    }
+
+    /**
+     * Notifies that the main session has failed before being bound.
+     */
+    void onMainFailed() {
+        if (over || mainFailed) {
+            return;
+        }
+        mainFailed = true;
+        decide();
+    }
+
+    /**
+     * Returns whether the outcome of the probe is going to be notified to the listener.
+     */
+    boolean isPending() {
+        return ! canceled;
+    }
+
+    /**
+     * Stops the probe, closing the sessions on the other transports.
+     */
+    void cancel() {
+        if (canceled) {
+            return;
+        }
+        over = true;
+        canceled = true;
+        cancelGrace();
+        if (streaming != null) {
+            streaming.close();
+        }
+        polling.close();
+    }
+
+    @Override
+    public void onReady(HotStandby detached) {
+        if (over) {
+            return;
+        }
+        if (detached == polling) {
+            pollingReady = true;
+        }
+        decide();
+    }
+
+    @Override
+    public boolean onFailure(HotStandby detached, String cause) {
+        if (! over) {
+            if (detached == streaming) {
+                streamingFailed = true;
+            } else {
+                pollingFailed = true;
+                pollingReady = false;
+            }
+            decide();
+        }
+        return false;
+    }
+
+    /**
+     * Chooses the most preferred transport that works, if the more preferred ones have failed.
+     */
+    private void decide() {
+        boolean streamingReady = ! streamingFailed && streaming.isReady();
+        if (! mainFailed) {
+            if (streamingReady || pollingReady) {
+                startGrace();
+            }
+        } else if (! streamingFailed) {
+            if (streamingReady) {
+                chooseStreaming();
+            } else if (pollingReady) {
+                startGrace();
+            }
+        } else if (pollingReady) {
+            choosePolling();
+        } else if (pollingFailed) {
+            log.info("No transport works for " + fingerprint);
+            finish(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onProbeLost();
+                }
+            });
+        }
+    }
+
+    private void startGrace() {
+        if (graceTask != null) {
+            return;
+        }
+        graceTask = thread.schedule(new Runnable() {
+            @Override
+            public void run() {
+                graceTask = null;
+                if (over) {
+                    return;
+                }
+                if (! streamingFailed && streaming.isReady()) {
+                    chooseStreaming();
+                } else if (pollingReady) {
+                    choosePolling();
+                }
+            }
+        }, PREFERENCE_GRACE_MS);
+    }
+
+    private void cancelGrace() {
+        if (graceTask != null) {
+            graceTask.cancel();
+            graceTask = null;
+        }
+    }
+
+    private void chooseStreaming() {
+        TransportCache.INSTANCE.put(fingerprint, Constants.HTTP_STREAMING);
+        polling.close();
+        finish(new Runnable() {
+            @Override
+            public void run() {
+                if (streaming.isReady()) {
+                    listener.onStreamingChosen(streaming);
+                } else {
+                    // it has failed in the meantime
+                    TransportCache.INSTANCE.remove(fingerprint);
+                    listener.onProbeLost();
+                }
+            }
+        });
+    }
+
+    private void choosePolling() {
+        TransportCache.INSTANCE.put(fingerprint, Constants.HTTP_POLLING);
+        if (streaming != null) {
+            streaming.close();
+        }
+        polling.close();
+        finish(new Runnable() {
+            @Override
+            public void run() {
+                listener.onPollingChosen();
+            }
+        });
+    }
+
+    /**
+     * Notifies the outcome outside of the state machine of the session that caused it.
+     */
+    private void finish(final Runnable notification) {
+        over = true;
+        cancelGrace();
+        thread.queue(new Runnable() {
+            @Override
+            public void run() {
+                if (! canceled) {
+                    canceled = true;
+                    notification.run();
+                }
+            }
+        });
+    }
+}
@@ -15,6 +15,11 @@
 
 package com.lightstreamer.client.transport.providers;
 
+import java.util.Collections;
+import java.util.List;
+
+import com.lightstreamer.client.HttpPoolStatistics;
+import com.lightstreamer.client.Proxy;
 import com.lightstreamer.client.session.SessionThread;
 import com.lightstreamer.util.AlternativeLoader;
 import com.lightstreamer.util.threads.ThreadShutdownHook;
@@ -44,6 +49,54 @@ public abstract class TransportFactory<T> {
      * When the response is buffered, the content-length should be small (about 4Mb).
      */
     public abstract boolean isResponseBuffered();
+    
+    /**
+     * Opens in advance the sockets towards the given server address, if the transport implementation keeps a pool
+     * of sockets and pre-warming is configured. The default implementation does nothing.
+     * <p>
+     * MUST NOT BLOCK
+     * 
+     * @param serverAddress a server address in the form accepted by {@link com.lightstreamer.client.ConnectionDetails#setServerAddress(String)}
+     * @param proxy the proxy in use, or null
+     */
+    public void prewarm(String serverAddress, Proxy proxy) {
+        // no pool by default
+    }
+    
+    /**
+     * Opens in advance the given number of sockets towards the given server address, if the transport implementation 
+     * keeps a pool of sockets, regardless of the pre-warming configuration. The default implementation does nothing.
+     * <p>
+     * MUST NOT BLOCK
+     * 
+     * @param serverAddress a server address in the form accepted by {@link com.lightstreamer.client.ConnectionDetails#setServerAddress(String)}
+     * @param proxy the proxy in use, or null
+     * @param connections the number of idle sockets that the pool should hold
+     */
+    public void prewarm(String serverAddress, Proxy proxy, int connections) {
+        // no pool by default
+    }
+    
+    /**
+     * Resolves in advance the host name of the given server address, if the transport implementation
+     * has its own resolver and cache. The default implementation does nothing.
+     * <p>
+     * MUST NOT BLOCK
+     * 
+     * @param serverAddress a server address in the form accepted by {@link com.lightstreamer.client.ConnectionDetails#setServerAddress(String)}
+     * @param proxy the proxy in use, or null
+     */
+    public void preresolve(String serverAddress, Proxy proxy) {
+        // JDK resolver by default
+    }
+    
+    /**
+     * Returns the state of the socket pools of the transport implementation. The default implementation
+     * returns an empty list.
+     */
+    public List<HttpPoolStatistics> getPoolStatistics() {
+        return Collections.emptyList();
+    }
 
     /*
      * Below there are a few static methods providing the default factories for HTTP and WebSocket transports.
@@ -0,0 +1,243 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.httpclient;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import javax.net.ssl.SSLException;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.LightstreamerClient;
+import com.lightstreamer.client.Proxy;
+import com.lightstreamer.client.protocol.Protocol;
+import com.lightstreamer.client.requests.LightstreamerRequest;
+import com.lightstreamer.client.session.SessionThread;
+import com.lightstreamer.client.transport.RequestHandle;
+import com.lightstreamer.client.transport.RequestListener;
+import com.lightstreamer.client.transport.providers.CookieHelper;
+import com.lightstreamer.client.transport.providers.HttpProvider;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.threads.ThreadShutdownHook;
+
+/**
+ * HTTP provider based on the asynchronous API of the {@link HttpClient} of the JDK (Java 11 or later).
+ * <p>
+ * The response is read line by line as it arrives, so the provider is suitable for streaming.
+ * The requests towards the same Server are multiplexed on one connection when the Server supports HTTP/2.
+ * Only HTTP proxies are supported.
+ *
+ * @see JavaSEHttpClientProviderFactory
+ */
+public class JavaSEHttpClientProvider implements HttpProvider {
+
+    private static final String ua;
+
+    static {
+        if (LightstreamerClient.LIB_NAME.contains("placeholder")) {
+            ua = "Lightstreamer dev client JDK";
+        } else {
+            ua = LightstreamerClient.LIB_NAME + " " + LightstreamerClient.LIB_VERSION;
+        }
+    }
+
+    protected final Logger log = LogManager.getLogger(Constants.TRANSPORT_LOG);
+
+    private static final AtomicInteger objectIdCounter = new AtomicInteger();
+    private final int objectId;
+
+    public JavaSEHttpClientProvider(SessionThread thread) {
+        this.objectId = objectIdCounter.incrementAndGet();
+    }
+
+    @Override
+    public RequestHandle createConnection(Protocol protocol, LightstreamerRequest request, HttpRequestListener httpListener,
+            Map<String, String> extraHeaders, Proxy proxy, long tcpConnectTimeout, long tcpReadTimeout) throws SSLException {
+        String address = request.getTargetServer() + "lightstreamer/" + request.getRequestName() + ".txt" + "?LS_protocol=" + Constants.TLCP_VERSION;
+        final URI uri;
+        try {
+            uri = new URI(address);
+        } catch (URISyntaxException e) {
+            log.fatal("Unexpectedly invalid URI: " + address, e);
+            throw new IllegalArgumentException(e);
+        }
+        String params = request.getTransportAwareQueryString(null, true);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .POST(HttpRequest.BodyPublishers.ofString(params + "\r\n", StandardCharsets.UTF_8))
+                .header("User-Agent", ua)
+                .header("Content-Type", "text/plain; charset=UTF-8");
+        if (tcpReadTimeout > 0) {
+            builder.timeout(Duration.ofMillis(tcpConnectTimeout + tcpReadTimeout));
+        }
+        String cookies = CookieHelper.getCookieHeader(uri);
+        if (cookies != null && cookies.length() > 0) {
+            builder.header("Cookie", cookies);
+        }
+        if (extraHeaders != null) {
+            for (Entry<String, String> header : extraHeaders.entrySet()) {
+                try {
+                    builder.header(header.getKey(), header.getValue());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Header " + header.getKey() + " discarded because it is managed by the JDK HTTP client");
+                }
+            }
+        }
+
+        Connection conn = new Connection(uri, params, httpListener);
+        HttpClient client;
+        try {
+            client = JavaSEHttpClients.INSTANCE.get(proxy);
+        } catch (IllegalArgumentException e) {
+            log.error("JDK transport error (oid=" + objectId + "): " + e.getMessage());
+            httpListener.onBroken();
+            return conn;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("JDK transport sending (oid=" + objectId + "): " + uri.getPath() + "\n" + params);
+        }
+        conn.open(client, builder.build());
+        return conn;
+    }
+
+    @Override
+    public ThreadShutdownHook getShutdownHook() {
+        return null; // nothing to do: the threads of the JDK client are daemon threads
+    }
+
+    /**
+     * A request whose response lines are forwarded to a {@link RequestListener}.
+     * <p>
+     * <b>NB</b> The class is synchronized because its methods are called from both session thread and the threads of the JDK client.
+     */
+    private class Connection implements RequestHandle, BodyHandler<Void>, Flow.Subscriber<String> {
+
+        private final URI uri;
+        private final String params;
+        private final RequestListener listener;
+
+        private boolean closed = false;
+        private Flow.Subscription subscription;
+
+        Connection(URI uri, String params, RequestListener listener) {
+            this.uri = uri;
+            this.params = params;
+            this.listener = listener;
+        }
+
+        void open(HttpClient client, HttpRequest httpRequest) {
+            // the JDK client doesn't notify the opening of the socket
+            listener.onOpen();
+            client.sendAsync(httpRequest, this).whenComplete(new BiConsumer<HttpResponse<Void>, Throwable>() {
+                @Override
+                public void accept(HttpResponse<Void> response, Throwable error) {
+                    onComplete(response, error);
+                }
+            });
+        }
+
+        @Override
+        public BodySubscriber<Void> apply(ResponseInfo info) {
+            int respCode = info.statusCode();
+            if (respCode < 200 || respCode >= 300) {
+                // the response is discarded and the request is notified as broken on completion
+                return BodySubscribers.replacing(null);
+            }
+            for (String cookie : info.headers().allValues("Set-Cookie")) {
+                CookieHelper.saveCookies(uri, cookie);
+            }
+            return BodySubscribers.fromLineSubscriber(this);
+        }
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (closed) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String message) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("JDK transport receiving (oid=" + objectId + "):\n" + message);
+            }
+            listener.onMessage(message);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // notified through the completion of the response
+        }
+
+        @Override
+        public void onComplete() {
+            // notified through the completion of the response
+        }
+
+        private void onComplete(HttpResponse<Void> response, Throwable error) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            if (error != null) {
+                log.error("JDK transport error (oid=" + objectId + "): " + uri.getPath() + "\n" + params, error);
+                listener.onBroken();
+            } else if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                log.error("JDK transport error (oid=" + objectId + "): HTTP status " + response.statusCode());
+                listener.onBroken();
+            }
+            listener.onClosed();
+            log.debug(listener + " has finished");
+        }
+
+        @Override
+        public synchronized void close(boolean forceConnectionClose) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (subscription != null) {
+                // the JDK client closes the connection (or resets the stream on HTTP/2)
+                subscription.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.httpclient;
+
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+
+import com.lightstreamer.client.Proxy;
+
+/**
+ * Adapts a {@link Proxy} to the configuration of a {@link java.net.http.HttpClient}.
+ * <p>
+ * <b>NB</b> The JDK client only supports HTTP proxies.
+ */
+public class JavaSEHttpClientProxy extends Proxy {
+
+    public JavaSEHttpClientProxy(Proxy original) {
+        super(original);
+    }
+
+    public boolean isSupported() {
+        return "HTTP".equals(type);
+    }
+
+    public ProxySelector getProxySelector() {
+        return ProxySelector.of(InetSocketAddress.createUnresolved(host, port));
+    }
+
+    /**
+     * Returns the authenticator answering the challenges of the proxy, or null if there are no credentials.
+     */
+    public Authenticator getAuthenticator() {
+        if (user == null && password == null) {
+            return null;
+        }
+        final String proxyUser = user == null ? "" : user;
+        final char[] proxyPassword = password == null ? new char[0] : password.toCharArray();
+        return new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                if (getRequestorType() == RequestorType.PROXY) {
+                    return new PasswordAuthentication(proxyUser, proxyPassword);
+                }
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.httpclient;
+
+import java.net.Authenticator;
+import java.net.http.HttpClient;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.Proxy;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.GlobalProperties;
+
+/**
+ * The {@link HttpClient} instances shared by the HTTP and WebSocket providers based on the JDK client
+ * (one for each proxy configuration).
+ * <p>
+ * Each client keeps its own pool of connections and negotiates HTTP/2 when the Server supports it
+ * (through ALPN on TLS connections), in which case the requests towards the same Server share one connection.
+ */
+@ThreadSafe
+public class JavaSEHttpClients {
+
+    public static final JavaSEHttpClients INSTANCE = new JavaSEHttpClients();
+
+    private static final Logger log = LogManager.getLogger(Constants.TRANSPORT_LOG);
+
+    /**
+     * Clients indexed by proxy (the null key stands for no proxy).
+     */
+    private final Map<Proxy, HttpClient> clients = new HashMap<>();
+
+    private JavaSEHttpClients() {}
+
+    /**
+     * Returns the client connecting through the given proxy.
+     *
+     * @throws IllegalArgumentException if the proxy is not supported by the JDK client
+     */
+    public synchronized HttpClient get(Proxy proxy) {
+        HttpClient client = clients.get(proxy);
+        if (client == null) {
+            client = newClient(proxy);
+            clients.put(proxy == null ? null : new Proxy(proxy), client);
+        }
+        return client;
+    }
+
+    /**
+     * Discards the clients, whose connections are closed as soon as they are no longer in use.
+     */
+    public synchronized void clear() {
+        clients.clear();
+    }
+
+    private static HttpClient newClient(Proxy proxy) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (proxy != null) {
+            JavaSEHttpClientProxy clientProxy = new JavaSEHttpClientProxy(proxy);
+            if (! clientProxy.isSupported()) {
+                throw new IllegalArgumentException("Proxy not supported by the JDK HTTP client: " + proxy);
+            }
+            builder.proxy(clientProxy.getProxySelector());
+            Authenticator authenticator = clientProxy.getAuthenticator();
+            if (authenticator != null) {
+                builder.authenticator(authenticator);
+            }
+        }
+        TrustManagerFactory trustManagerFactory = GlobalProperties.INSTANCE.getTrustManagerFactory();
+        if (trustManagerFactory != null) {
+            try {
+                SSLContext ctx = SSLContext.getInstance("TLS");
+                ctx.init(null, trustManagerFactory.getTrustManagers(), null);
+                builder.sslContext(ctx);
+            } catch (GeneralSecurityException e) {
+                log.error("Cannot install the trust manager factory", e);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("New JDK HTTP client created. Proxy: " + proxy);
+        }
+        return builder.build();
+    }
+}
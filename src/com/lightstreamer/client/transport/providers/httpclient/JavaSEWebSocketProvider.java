@@ -0,0 +1,245 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.httpclient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.Proxy;
+import com.lightstreamer.client.protocol.TextProtocol;
+import com.lightstreamer.client.transport.RequestListener;
+import com.lightstreamer.client.transport.SessionRequestListener;
+import com.lightstreamer.client.transport.providers.WebSocketProvider;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.threads.ThreadShutdownHook;
+
+/**
+ * WebSocket client based on the {@link WebSocket} of the JDK (Java 11 or later).
+ * <br>
+ * This class notifies a {@link SessionRequestListener} when the following events happen:
+ * <ul>
+ * <li>onOpen: fires when the connection is established and the WebSocket handshake is complete</li>
+ * <li>onMessage: fires for each line of the received text frames</li>
+ * <li>onClosed: fires when the connection is closed</li>
+ * <li>onBroken: fires when there is an error.</li>
+ * </ul>
+ * <p>
+ * Unlike the Netty implementation, the connections are not pooled: a connection is closed when the provider is disconnected.
+ *
+ * @see JavaSEWebSocketProviderFactory
+ */
+public class JavaSEWebSocketProvider implements WebSocketProvider {
+
+    private static final Logger log = LogManager.getLogger(Constants.TRANSPORT_LOG);
+
+    /*
+     * The following fields are guarded by this
+     */
+    /**
+     * Completed when the last message has been sent: the JDK WebSocket doesn't allow a message to be sent
+     * before the previous one has been written.
+     */
+    private CompletableFuture<WebSocket> lastSend;
+    private WebSocket ws;
+    private boolean closed = false;
+
+    @Override
+    public void connect(String address, final SessionRequestListener networkListener, Map<String, String> extraHeaders, String cookies, Proxy proxy) {
+        // the address has a HTTP scheme
+        URI uri = URI.create(address.replaceFirst("^http", "ws"));
+        HttpClient client;
+        try {
+            client = JavaSEHttpClients.INSTANCE.get(proxy);
+        } catch (IllegalArgumentException e) {
+            log.error("WebSocket error: " + e.getMessage());
+            networkListener.onBroken();
+            return;
+        }
+        WebSocket.Builder builder = client.newWebSocketBuilder()
+                .subprotocols(Constants.TLCP_VERSION + ".lightstreamer.com");
+        if (cookies != null && cookies.length() > 0) {
+            builder.header("Cookie", cookies);
+        }
+        if (extraHeaders != null) {
+            for (Entry<String, String> header : extraHeaders.entrySet()) {
+                try {
+                    builder.header(header.getKey(), header.getValue());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Header " + header.getKey() + " discarded because it is managed by the JDK WebSocket");
+                }
+            }
+        }
+        CompletableFuture<WebSocket> handshake = builder.buildAsync(uri, new WebSocketListener(networkListener));
+        synchronized (this) {
+            lastSend = handshake;
+        }
+        handshake.whenComplete(new BiConsumer<WebSocket, Throwable>() {
+            @Override
+            public void accept(WebSocket webSocket, Throwable error) {
+                synchronized (JavaSEWebSocketProvider.this) {
+                    if (error == null) {
+                        ws = webSocket;
+                        if (closed) {
+                            webSocket.abort();
+                            return;
+                        }
+                    } else if (closed) {
+                        return;
+                    }
+                }
+                if (error == null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("WebSocket connected [" + webSocket + "]");
+                    }
+                    networkListener.onOpen();
+                } else {
+                    log.error("WebSocket handshake error", error);
+                    networkListener.onBroken();
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void send(final String message, final RequestListener listener) {
+        if (log.isDebugEnabled()) {
+            log.debug("WS transport sending [" + ws + "]: " + message);
+        }
+        if (closed) {
+            log.warn("Message discarded because the WebSocket is closed: " + message);
+            return;
+        }
+        if (listener != null) {
+            // as in the Netty implementation, notified before the write (see NettyWebSocketProvider)
+            listener.onOpen();
+        }
+        lastSend = lastSend.thenCompose(new Function<WebSocket, CompletionStage<WebSocket>>() {
+            @Override
+            public CompletionStage<WebSocket> apply(WebSocket webSocket) {
+                return webSocket.sendText(message, true);
+            }
+        });
+        lastSend.whenComplete(new BiConsumer<WebSocket, Throwable>() {
+            @Override
+            public void accept(WebSocket webSocket, Throwable error) {
+                if (error != null) {
+                    onBroken(message, error, listener);
+                }
+            }
+        });
+    }
+
+    private void onBroken(String message, Throwable cause, RequestListener listener) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        log.error("Websocket write failed: " + message, cause);
+        disconnect();
+        if (listener != null) {
+            listener.onBroken();
+        }
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        if (closed) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("WS disconnect [" + ws + "]");
+        }
+        closed = true;
+        if (ws != null) {
+            ws.abort();
+        }
+    }
+
+    @Override
+    public ThreadShutdownHook getThreadShutdownHook() {
+        return null; // nothing to do
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Splits the received frames into lines and forwards them to the {@link RequestListener}.
+     */
+    private class WebSocketListener implements WebSocket.Listener {
+
+        private final RequestListener networkListener;
+        /**
+         * The incomplete line at the end of the last received frame.
+         */
+        private final StringBuilder partial = new StringBuilder();
+
+        WebSocketListener(RequestListener networkListener) {
+            this.networkListener = networkListener;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            int start = 0;
+            int end;
+            while ((end = partial.indexOf("\r\n", start)) != -1) {
+                String line = partial.substring(start, end);
+                start = end + 2;
+                if (isClosed()) {
+                    return null;
+                }
+                networkListener.onMessage(line);
+                if (TextProtocol.END_REGEX.matcher(line).matches()) {
+                    disconnect();
+                }
+            }
+            partial.delete(0, start);
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            if (log.isDebugEnabled()) {
+                log.debug("WebSocket disconnected [" + webSocket + "]: " + statusCode + " " + reason);
+            }
+            if (! isClosed()) {
+                networkListener.onClosed();
+            }
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            if (! isClosed()) {
+                log.error("WebSocket error [" + webSocket + "]", error);
+                networkListener.onBroken();
+            }
+        }
+    }
+}
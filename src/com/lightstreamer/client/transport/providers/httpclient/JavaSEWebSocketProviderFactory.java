@@ -0,0 +1,37 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.httpclient;
+
+import com.lightstreamer.client.session.SessionThread;
+import com.lightstreamer.client.transport.providers.WebSocketProvider;
+import com.lightstreamer.client.transport.providers.TransportFactory;
+
+/**
+ * Factory of {@link JavaSEWebSocketProvider}, to be installed through
+ * {@link TransportFactory#setDefaultWebSocketFactory(TransportFactory)} in place of the Netty implementation.
+ */
+public class JavaSEWebSocketProviderFactory extends TransportFactory<WebSocketProvider> {
+
+    @Override
+    public WebSocketProvider getInstance(SessionThread thread) {
+        return new JavaSEWebSocketProvider();
+    }
+
+    @Override
+    public boolean isResponseBuffered() {
+        return false;
+    }
+}
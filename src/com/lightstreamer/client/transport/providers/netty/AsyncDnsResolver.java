@@ -0,0 +1,46 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.netty;
+
+import java.net.InetSocketAddress;
+
+import io.netty.channel.EventLoop;
+import io.netty.resolver.AddressResolverGroup;
+
+/**
+ * Non-blocking resolver of the host names, with its own cache, used by the socket pools instead of the blocking
+ * resolver of the JDK (see {@link com.lightstreamer.util.GlobalProperties#isAsyncDnsResolverEnabled()}).
+ * <p>
+ * The implementation is only available on Java SE.
+ */
+public interface AsyncDnsResolver {
+
+    /**
+     * Returns the resolvers to be installed in the bootstraps of the sockets.
+     */
+    AddressResolverGroup<InetSocketAddress> getResolverGroup();
+
+    /**
+     * Resolves the host name of the given address in background, so that the result is cached
+     * when the first socket is opened.
+     */
+    void preresolve(InetSocketAddress address, EventLoop eventLoop);
+
+    /**
+     * Releases the resources of the resolvers.
+     */
+    void close();
+}
@@ -20,6 +20,7 @@ import java.util.concurrent.TimeUnit;
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.lightstreamer.client.Constants;
+import com.lightstreamer.util.GlobalProperties;
 import com.lightstreamer.log.LogManager;
 import com.lightstreamer.log.Logger;
 
@@ -36,6 +37,10 @@ import io.netty.util.AttributeKey;
  * <li>a timer is started when a channel is released to the pool (see {@link IdleStateTimer#setIdle()})</li>
  * <li>the timer is stopped when the channel is created/acquired (see {@link IdleStateTimer#setActive()})</li>
  * </ol>
+ * The idle time is configured through {@link GlobalProperties#getHttpPoolIdleTimeout()}. If a health check
+ * interval is configured too (see {@link GlobalProperties#getHttpPoolHealthCheckInterval()}), the timer also
+ * wakes up periodically while the channel is idle and closes it as soon as it is found unusable, so that
+ * a dead socket is not handed out by the pool.
  * 
  * 
  * @since September 2017
@@ -50,9 +55,9 @@ public class BaseChannelPoolHandler implements ChannelPoolHandler {
     private static final AttributeKey<IdleStateTimer> IDLE_KEY = AttributeKey.newInstance("idleStateTimer");
     
     /**
-     * Number of nanoseconds after which an idle socket is closed.
+     * If true, the sockets are closed as soon as they are released.
      */
-    private static final long closeSocketTimeoutNs;
+    private static final boolean poolingDisabled;
     
     static {
         /*
@@ -61,9 +66,9 @@ public class BaseChannelPoolHandler implements ChannelPoolHandler {
          */
         if ("false".equals(System.getProperty("com.lightstreamer.socket.pooling"))) {
             log.warn("Socket pooling is disabled");
-            closeSocketTimeoutNs = 0;
+            poolingDisabled = true;
         } else {
-            closeSocketTimeoutNs = Constants.CLOSE_SOCKET_TIMEOUT_MILLIS * 1_000_000L;
+            poolingDisabled = false;
         }
     }
     
@@ -80,23 +85,52 @@ public class BaseChannelPoolHandler implements ChannelPoolHandler {
     @Override
     public void channelCreated(Channel ch) throws Exception {
         if (! ch.hasAttr(IDLE_KEY)) {
-            ch.attr(IDLE_KEY).set(new IdleStateTimer(ch));
+            ch.attr(IDLE_KEY).set(new IdleStateTimer(ch, this));
         }
         ch.attr(IDLE_KEY).get().setActive();
     }
     
+    /**
+     * Called when an idle channel is closed because its idle time has expired.
+     */
+    protected void channelEvicted(Channel ch) {
+        // nothing to do by default
+    }
+    
+    /**
+     * Called when an idle channel is closed because it has failed the health check.
+     */
+    protected void channelUnhealthy(Channel ch) {
+        // nothing to do by default
+    }
+    
+    /**
+     * Checks whether an idle channel can still be used.
+     */
+    protected boolean isHealthy(Channel ch) {
+        return ch.isActive() && ch.isWritable();
+    }
+    
     /**
      * Timer closing idle channels.
      */
     @ThreadSafe
-    private static class IdleStateTimer implements Runnable {
+    private static class IdleStateTimer {
 
         private boolean idle;
         private long lastIdleTimeNs;
+        private long idleTimeoutNs;
+        private long healthCheckNs;
+        /**
+         * Incremented at each change of state, so that the checks scheduled for a previous idle period are ignored.
+         */
+        private int phase;
         private final Channel ch;
+        private final BaseChannelPoolHandler handler;
         
-        public IdleStateTimer(Channel ch) {
+        public IdleStateTimer(Channel ch, BaseChannelPoolHandler handler) {
             this.ch = ch;
+            this.handler = handler;
         }
 
         /**
@@ -104,18 +138,21 @@ public class BaseChannelPoolHandler implements ChannelPoolHandler {
          */
         public synchronized void setActive() {
             idle = false;
+            phase++;
         }
         
         /**
-         * Sets the channel as idle. If the channel stays idle longer than {@link Constants#CLOSE_SOCKET_TIMEOUT_MILLIS},
+         * Sets the channel as idle. If the channel stays idle longer than {@link GlobalProperties#getHttpPoolIdleTimeout()},
          * the channel is closed.
          */
         public synchronized void setIdle() {
             idle = true;
+            phase++;
             lastIdleTimeNs = System.nanoTime();
-            // the scheduler runs the method run() below
-            if (closeSocketTimeoutNs > 0) {
-                ch.eventLoop().schedule(this, closeSocketTimeoutNs, TimeUnit.NANOSECONDS);
+            idleTimeoutNs = GlobalProperties.INSTANCE.getHttpPoolIdleTimeout() * 1_000_000L;
+            healthCheckNs = GlobalProperties.INSTANCE.getHttpPoolHealthCheckInterval() * 1_000_000L;
+            if (! poolingDisabled) {
+                schedule(idleTimeoutNs);
                 
             } else {
                 /* socket pooling is disabled */
@@ -126,19 +163,41 @@ public class BaseChannelPoolHandler implements ChannelPoolHandler {
             }
         }
         
-        @Override
-        public synchronized void run() {
+        private void schedule(long remainingNs) {
+            final int currentPhase = phase;
+            long delayNs = healthCheckNs > 0 ? Math.min(healthCheckNs, remainingNs) : remainingNs;
+            ch.eventLoop().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    check(currentPhase);
+                }
+            }, delayNs, TimeUnit.NANOSECONDS);
+        }
+        
+        private synchronized void check(int checkPhase) {
+            if (! idle || checkPhase != phase) {
+                if (log.isDebugEnabled()) {                
+                    log.debug("Postpone close [" + ch.id() + "] idle=" + idle);
+                }
+                return;
+            }
             long elapsedNs = System.nanoTime() - lastIdleTimeNs;
-            if (idle && elapsedNs >= closeSocketTimeoutNs) {
+            if (elapsedNs >= idleTimeoutNs) {
                 ch.close();
+                handler.channelEvicted(ch);
                 if (log.isDebugEnabled()) {                                                
                     log.debug("Channel closed [" + ch.id() + "]");
                 }
                 
-            } else {
-                if (log.isDebugEnabled()) {                
-                    log.debug("Postpone close [" + ch.id() + "] idle=" + idle + " elapsed=" + elapsedNs);
+            } else if (! handler.isHealthy(ch)) {
+                ch.close();
+                handler.channelUnhealthy(ch);
+                if (log.isDebugEnabled()) {                                                
+                    log.debug("Channel closed by health check [" + ch.id() + "]");
                 }
+                
+            } else {
+                schedule(idleTimeoutNs - elapsedNs);
             }
         }
     } // IdleStateTimer
@@ -0,0 +1,234 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.netty;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.proxy.ProxyHandler;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * The HTTP/2 connections towards the secure Server addresses (see {@link com.lightstreamer.util.GlobalProperties#isHttp2Enabled()}).
+ * <p>
+ * There is at most one connection for each address: each request is sent on a new stream of the connection
+ * (see {@link #openStream(NettyFullAddress, Bootstrap)}), whose pipeline is the same as a pooled HTTP/1.1 socket
+ * (see {@link PipelineUtils#populateHttp2StreamPipeline(Channel, ChannelHandler)}).
+ * HTTP/2 is negotiated through ALPN: when the Server chooses HTTP/1.1, the address is remembered
+ * and the stream is failed with {@link Http2NotNegotiatedException}, so that the request is sent through
+ * the pool of HTTP/1.1 sockets.
+ */
+@ThreadSafe
+class Http2Connections {
+
+    private static final Logger log = LogManager.getLogger(Constants.NETTY_POOL_LOG);
+
+    /**
+     * Failure of a stream meaning that the request must be sent over HTTP/1.1.
+     */
+    static class Http2NotNegotiatedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        Http2NotNegotiatedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Connections being opened or open.
+     */
+    private final Map<NettyFullAddress, Future<Channel>> connections = new HashMap<NettyFullAddress, Future<Channel>>();
+    /**
+     * Addresses where HTTP/2 has not been negotiated.
+     */
+    private final Set<NettyFullAddress> http1Only = Collections.newSetFromMap(new ConcurrentHashMap<NettyFullAddress, Boolean>());
+
+    /**
+     * Returns whether HTTP/2 is known not to be available towards the address.
+     */
+    boolean isHttp1Only(NettyFullAddress address) {
+        return ! address.isSecure() || http1Only.contains(address);
+    }
+
+    /**
+     * Opens a new stream towards the address, opening the connection if needed through the bootstrap
+     * of the pool of HTTP/1.1 sockets of the address (which is configured with remote address and resolver).
+     * The future fails with {@link Http2NotNegotiatedException} if the Server doesn't support HTTP/2.
+     */
+    Future<Channel> openStream(final NettyFullAddress address, Bootstrap poolBootstrap) {
+        final Promise<Channel> result = poolBootstrap.config().group().next().newPromise();
+        getConnection(address, poolBootstrap).addListener(new FutureListener<Channel>() {
+            @Override
+            public void operationComplete(Future<Channel> future) throws Exception {
+                if (! future.isSuccess()) {
+                    result.tryFailure(future.cause());
+                    return;
+                }
+                Channel parent = future.getNow();
+                new Http2StreamChannelBootstrap(parent)
+                    .handler(new ChannelInitializer<Http2StreamChannel>() {
+                        @Override
+                        protected void initChannel(Http2StreamChannel ch) throws Exception {
+                            PipelineUtils.populateHttp2StreamPipeline(ch, new NettySocketHandler());
+                        }
+                    })
+                    .open()
+                    .addListener(new FutureListener<Http2StreamChannel>() {
+                        @Override
+                        public void operationComplete(Future<Http2StreamChannel> future) throws Exception {
+                            if (future.isSuccess()) {
+                                result.trySuccess(future.getNow());
+                            } else {
+                                result.tryFailure(future.cause());
+                            }
+                        }
+                    });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Closes the open connections.
+     */
+    void close() {
+        synchronized (connections) {
+            for (Future<Channel> connection : connections.values()) {
+                if (connection.isSuccess()) {
+                    connection.getNow().close();
+                }
+            }
+            connections.clear();
+        }
+    }
+
+    private Future<Channel> getConnection(NettyFullAddress address, Bootstrap poolBootstrap) {
+        synchronized (connections) {
+            Future<Channel> connection = connections.get(address);
+            if (connection == null || (connection.isDone() && ! (connection.isSuccess() && connection.getNow().isActive()))) {
+                connection = connect(address, poolBootstrap);
+                connections.put(address, connection);
+            }
+            return connection;
+        }
+    }
+
+    private Future<Channel> connect(final NettyFullAddress address, Bootstrap poolBootstrap) {
+        if (log.isDebugEnabled()) {
+            log.debug("Opening HTTP/2 connection. Remote address: " + address.getAddress());
+        }
+        final Promise<Channel> promise = poolBootstrap.config().group().next().newPromise();
+        final SslContext sslCtx;
+        try {
+            sslCtx = TlsContextCache.INSTANCE.getHttp2Context(address);
+        } catch (Exception e) {
+            // e.g. ALPN not supported by the JVM
+            log.warn("HTTP/2 not available: " + e);
+            http1Only.add(address);
+            promise.setFailure(new Http2NotNegotiatedException("ALPN not available"));
+            return promise;
+        }
+        Bootstrap b = poolBootstrap.clone();
+        b.handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                ProxyHandler proxy = address.getProxy();
+                if (proxy != null) {
+                    ch.pipeline().addLast("proxy", proxy);
+                }
+                ch.pipeline().addLast("ssl", sslCtx.newHandler(ch.alloc(), address.getHost(), address.getPort()));
+                ch.pipeline().addLast(new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+                    @Override
+                    protected void configurePipeline(ChannelHandlerContext ctx, String protocol) throws Exception {
+                        if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                            ctx.pipeline().addLast(Http2FrameCodecBuilder.forClient()
+                                    .initialSettings(Http2Settings.defaultSettings().pushEnabled(false))
+                                    .build());
+                            // no stream is opened by the Server, since the pushes are disabled
+                            ctx.pipeline().addLast(new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+                            if (log.isDebugEnabled()) {
+                                log.debug("HTTP/2 connection open [" + ctx.channel().id() + "]");
+                            }
+                            promise.trySuccess(ctx.channel());
+                        } else {
+                            log.info("HTTP/2 not supported by " + address.getAddress() + ": HTTP/1.1 is used");
+                            http1Only.add(address);
+                            ctx.close();
+                            promise.tryFailure(new Http2NotNegotiatedException("Protocol " + protocol + " negotiated"));
+                        }
+                    }
+
+                    @Override
+                    protected void handshakeFailure(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                        promise.tryFailure(cause);
+                        super.handshakeFailure(ctx, cause);
+                    }
+                });
+            }
+        });
+        b.connect().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    future.channel().closeFuture().addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (log.isDebugEnabled()) {
+                                log.debug("HTTP/2 connection closed [" + future.channel().id() + "]");
+                            }
+                            promise.tryFailure(new IllegalStateException("HTTP/2 connection closed"));
+                            synchronized (connections) {
+                                if (connections.get(address) == promise) {
+                                    connections.remove(address);
+                                }
+                            }
+                        }
+                    });
+                } else {
+                    promise.tryFailure(future.cause());
+                }
+            }
+        });
+        return promise;
+    }
+}
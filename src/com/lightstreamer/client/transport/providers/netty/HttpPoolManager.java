@@ -15,18 +15,32 @@
 
 package com.lightstreamer.client.transport.providers.netty;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.HttpPoolStatistics;
 import com.lightstreamer.log.LogManager;
 import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.AlternativeLoader;
+import com.lightstreamer.util.GlobalProperties;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.pool.AbstractChannelPoolMap;
@@ -34,14 +48,25 @@ import io.netty.channel.pool.ChannelPoolHandler;
 import io.netty.channel.pool.ChannelPoolMap;
 import io.netty.channel.pool.SimpleChannelPool;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.resolver.NoopAddressResolverGroup;
 import io.netty.util.ThreadDeathWatcher;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
 
 public class HttpPoolManager {
 
     private static final Logger log = LogManager.getLogger(Constants.NETTY_POOL_LOG);
+    
+    private static final AlternativeLoader<AsyncDnsResolver> dnsResolverLoader = new AlternativeLoader<AsyncDnsResolver>() {
+        @Override
+        protected String[] getDefaultClassNames() {
+            String[] classes = { "com.lightstreamer.client.transport.providers.netty.JavaSEAsyncDnsResolver" };
+            return classes;
+        }
+    };
 
     private final AtomicReference<ChannelPoolMapWrapper> poolMapRef = new AtomicReference<ChannelPoolMapWrapper>();
 
@@ -95,10 +120,62 @@ public class HttpPoolManager {
         }
     }
     
+    /**
+     * Returns whether the requests towards the address must be sent through the pool of HTTP/1.1 sockets,
+     * because HTTP/2 is disabled (see {@link GlobalProperties#isHttp2Enabled()}) or not available.
+     */
+    public boolean isHttp1Only(NettyFullAddress address) {
+        return ! GlobalProperties.INSTANCE.isHttp2Enabled() || getPoolMapWrapper().getHttp2Connections().isHttp1Only(address);
+    }
+    
+    /**
+     * Opens a new stream of the HTTP/2 connection towards the address. The stream is a channel with the same pipeline
+     * as a pooled socket, but it must be closed, not released, when the request is over.
+     * If HTTP/2 is not supported by the Server, the future fails with {@link Http2Connections.Http2NotNegotiatedException}.
+     */
+    public Future<Channel> openStream(NettyFullAddress address) {
+        ChannelPoolMapWrapper poolMap = getPoolMapWrapper();
+        Bootstrap poolBootstrap = poolMap.getPoolMap().get(address).getBootstrap();
+        return poolMap.getHttp2Connections().openStream(address, poolBootstrap);
+    }
+    
     public HttpChannelPool getChannelPool(NettyFullAddress address) {
         return getPoolMapWrapper().getPoolMap().get(address);
     }
     
+    /**
+     * Opens in advance the given number of sockets towards the address, so that the next requests
+     * find them ready (handshakes included). The sockets already idle in the pool are taken into account.
+     */
+    public void prewarm(NettyFullAddress address, int connections) {
+        getChannelPool(address).prewarm(connections);
+    }
+    
+    /**
+     * Resolves in advance the host name of the address, if the asynchronous resolver is enabled
+     * (see {@link GlobalProperties#isAsyncDnsResolverEnabled()}) and there is no proxy.
+     */
+    public void preresolve(NettyFullAddress address) {
+        if (address.getProxy() != null) {
+            return;
+        }
+        getPoolMapWrapper().preresolve(address.getAddress());
+    }
+    
+    /**
+     * Returns a snapshot of the state of the pools.
+     */
+    public List<HttpPoolStatistics> getStatistics() {
+        List<HttpPoolStatistics> stats = new ArrayList<HttpPoolStatistics>();
+        ChannelPoolMapWrapper poolMap = poolMapRef.get();
+        if (poolMap != null) {
+            for (Map.Entry<NettyFullAddress, HttpChannelPool> entry : poolMap.getPoolMapImpl()) {
+                stats.add(entry.getValue().getStatistics());
+            }
+        }
+        return stats;
+    }
+    
     // TEST ONLY
     protected ChannelPoolHandler decorateChannelPoolHandler(ChannelPoolHandler handler) {
         return handler;
@@ -115,11 +192,19 @@ public class HttpPoolManager {
     
         private volatile EventLoopGroup group;
         
+        /**
+         * Created when first needed; null if it is not available.
+         */
+        private AsyncDnsResolver dnsResolver;
+        private boolean dnsResolverLoaded = false;
+        
         private final AtomicBoolean closing = new AtomicBoolean(false);
         
         private final AtomicBoolean initLock = new AtomicBoolean(true);
         
         private volatile AbstractChannelPoolMap<NettyFullAddress, HttpChannelPool> poolMap;
+        
+        private final Http2Connections http2Connections = new Http2Connections();
     
         /*
          * thread-safe spinlock: the lock is released by method init()
@@ -131,6 +216,15 @@ public class HttpPoolManager {
             return poolMap;
         }
         
+        Http2Connections getHttp2Connections() {
+            return http2Connections;
+        }
+        
+        AbstractChannelPoolMap<NettyFullAddress, HttpChannelPool> getPoolMapImpl() {
+            getPoolMap();
+            return poolMap;
+        }
+        
         void init() {
             poolWrapperCounter.incrementAndGet();
     
@@ -145,13 +239,40 @@ public class HttpPoolManager {
             final Bootstrap cb = new Bootstrap();
             cb.group(group).channel(NioSocketChannel.class);
     
-            poolMap = new HttpChannelPoolMap(cb);
+            poolMap = new HttpChannelPoolMap(cb, this);
             initLock.set(false);
         }
+        
+        /**
+         * Returns the asynchronous resolver, if it is enabled and available.
+         */
+        synchronized AsyncDnsResolver getDnsResolver() {
+            if (! GlobalProperties.INSTANCE.isAsyncDnsResolverEnabled() || closing.get()) {
+                return null;
+            }
+            if (! dnsResolverLoaded) {
+                dnsResolverLoaded = true;
+                dnsResolver = dnsResolverLoader.getAlternative();
+                if (dnsResolver == null) {
+                    log.warn("Asynchronous DNS resolver not available on this platform: the default resolver is used");
+                } else {
+                    log.debug("Asynchronous DNS resolver created");
+                }
+            }
+            return dnsResolver;
+        }
+        
+        void preresolve(InetSocketAddress address) {
+            AsyncDnsResolver resolver = getDnsResolver();
+            if (resolver != null) {
+                resolver.preresolve(address, group.next());
+            }
+        }
     
         void shutdown() {
             if (closing.compareAndSet(false, true)) {
                 log.debug("Shutting down of ChannelPoolWrapper[" + poolWrapperCounter.get() + "]");
+                http2Connections.close();
                 try {
                     log.debug("Starting graceful group shutdown...");
                     this.group.shutdownGracefully();
@@ -170,6 +291,13 @@ public class HttpPoolManager {
                     log.error("Netty shutdown error", e);
                 }
                 
+                synchronized (this) {
+                    if (dnsResolver != null) {
+                        dnsResolver.close();
+                        dnsResolver = null;
+                    }
+                }
+                
                 FastThreadLocal.destroy();
                 log.debug("FastThreadLocal destroyed");
             } else {
@@ -183,9 +311,11 @@ public class HttpPoolManager {
      */
     private class HttpChannelPoolMap extends AbstractChannelPoolMap<NettyFullAddress, HttpChannelPool> {
         private final Bootstrap cb;
+        private final ChannelPoolMapWrapper wrapper;
     
-        private HttpChannelPoolMap(Bootstrap cb) {
+        private HttpChannelPoolMap(Bootstrap cb, ChannelPoolMapWrapper wrapper) {
             this.cb = cb;
+            this.wrapper = wrapper;
         }
     
         @Override
@@ -197,13 +327,19 @@ public class HttpPoolManager {
             Bootstrap poolBootstrap = cb.clone();
             if (key.getProxy() != null) {
                 poolBootstrap.resolver(NoopAddressResolverGroup.INSTANCE);
+            } else {
+                AsyncDnsResolver dnsResolver = wrapper.getDnsResolver();
+                if (dnsResolver != null) {
+                    poolBootstrap.resolver(dnsResolver.getResolverGroup());
+                }
             }
             poolBootstrap.remoteAddress(key.getAddress());
             if (log.isDebugEnabled()) {
                 log.debug("New HTTP channel pool created. Remote address: " + key.getAddress());
             }
-            ChannelPoolHandler handler = decorateChannelPoolHandler(new HttpChannelPoolHandler(key));
-            return new HttpChannelPool(key, poolBootstrap, handler);
+            PoolCounters counters = new PoolCounters();
+            ChannelPoolHandler handler = decorateChannelPoolHandler(new HttpChannelPoolHandler(key, counters));
+            return new HttpChannelPool(key, poolBootstrap, handler, counters);
         }
     }
 
@@ -212,9 +348,21 @@ public class HttpPoolManager {
      */
     private static class HttpChannelPoolHandler extends BaseChannelPoolHandler {
         private final NettyFullAddress key;
+        private final PoolCounters counters;
         
-        private HttpChannelPoolHandler(NettyFullAddress key) {
+        private HttpChannelPoolHandler(NettyFullAddress key, PoolCounters counters) {
             this.key = key;
+            this.counters = counters;
+        }
+        
+        @Override
+        protected void channelEvicted(Channel ch) {
+            counters.evicted.incrementAndGet();
+        }
+        
+        @Override
+        protected void channelUnhealthy(Channel ch) {
+            counters.unhealthy.incrementAndGet();
         }
     
         @Override
@@ -237,21 +385,70 @@ public class HttpPoolManager {
         public void channelCreated(Channel ch) throws Exception {
             super.channelCreated(ch);
             PipelineUtils.populateHttpPipeline(ch, key, new NettySocketHandler());
+            final SslHandler ssl = ch.pipeline().get(SslHandler.class);
+            if (ssl != null) {
+                final long handshakeStartTime = System.currentTimeMillis();
+                ssl.handshakeFuture().addListener(new FutureListener<Channel>() {
+                    @Override
+                    public void operationComplete(Future<Channel> future) throws Exception {
+                        if (future.isSuccess()) {
+                            counters.tlsHandshakes.incrementAndGet();
+                            if (TlsContextCache.isResumed(ssl.engine().getSession(), handshakeStartTime)) {
+                                counters.tlsResumedHandshakes.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
             if (log.isDebugEnabled()) {                                    
                 log.debug("HTTP channel created [" + ch.id() + "]");
             }
         }
     }
     
+    /**
+     * Cumulative counters of a pool, shared with its handler.
+     */
+    private static class PoolCounters {
+        final AtomicLong created = new AtomicLong();
+        final AtomicLong evicted = new AtomicLong();
+        final AtomicLong unhealthy = new AtomicLong();
+        final AtomicLong tlsHandshakes = new AtomicLong();
+        final AtomicLong tlsResumedHandshakes = new AtomicLong();
+    }
+    
+    /**
+     * A socket pool which does not open more sockets than {@link GlobalProperties#getHttpPoolMaxConnections()}:
+     * when the limit has been reached and no socket is idle, the acquisitions wait for a socket to be released or closed.
+     */
     public static class HttpChannelPool extends SimpleChannelPool {
 
         private final Bootstrap bootstrap;
         private final NettyFullAddress remoteAddress;
+        private final PoolCounters counters;
+        
+        /*
+         * The following fields are guarded by this
+         */
+        private final Deque<Promise<Channel>> pendingAcquires = new ArrayDeque<Promise<Channel>>();
+        /**
+         * Sockets connected or being connected, including the idle ones.
+         */
+        private int openChannels = 0;
+        /**
+         * Open sockets in the pool queue.
+         */
+        private final Set<Channel> idleChannels = new HashSet<Channel>();
 
         public HttpChannelPool(NettyFullAddress remoteAddress, Bootstrap bootstrap, ChannelPoolHandler handler) {
+            this(remoteAddress, bootstrap, handler, new PoolCounters());
+        }
+        
+        private HttpChannelPool(NettyFullAddress remoteAddress, Bootstrap bootstrap, ChannelPoolHandler handler, PoolCounters counters) {
             super(bootstrap, handler);
             this.remoteAddress = remoteAddress;
             this.bootstrap = bootstrap;
+            this.counters = counters;
         }
 
         public NettyFullAddress getRemoteAddress() {
@@ -261,5 +458,142 @@ public class HttpPoolManager {
         public Bootstrap getBootstrap() {
             return bootstrap;
         }
+        
+        @Override
+        public synchronized Future<Channel> acquire(Promise<Channel> promise) {
+            int maxConnections = GlobalProperties.INSTANCE.getHttpPoolMaxConnections();
+            if (maxConnections > 0 && idleChannels.isEmpty() && openChannels >= maxConnections) {
+                if (log.isDebugEnabled()) {
+                    log.debug("HTTP channel pool full (" + openChannels + " sockets): acquisition postponed");
+                }
+                pendingAcquires.add(promise);
+                return promise;
+            }
+            return super.acquire(promise);
+        }
+        
+        @Override
+        protected ChannelFuture connectChannel(Bootstrap bs) {
+            ChannelFuture future;
+            synchronized (this) {
+                openChannels++;
+                counters.created.incrementAndGet();
+                future = super.connectChannel(bs);
+            }
+            final Channel ch = future.channel();
+            ch.closeFuture().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    synchronized (HttpChannelPool.this) {
+                        openChannels--;
+                        idleChannels.remove(ch);
+                    }
+                    servePending();
+                }
+            });
+            return future;
+        }
+        
+        @Override
+        protected synchronized Channel pollChannel() {
+            Channel ch = super.pollChannel();
+            if (ch != null) {
+                idleChannels.remove(ch);
+            }
+            return ch;
+        }
+        
+        @Override
+        protected boolean offerChannel(Channel channel) {
+            boolean offered;
+            synchronized (this) {
+                offered = super.offerChannel(channel);
+                if (offered && channel.isOpen()) {
+                    idleChannels.add(channel);
+                }
+            }
+            if (offered) {
+                servePending();
+            }
+            return offered;
+        }
+        
+        /**
+         * Retries the first postponed acquisition, if any.
+         */
+        private void servePending() {
+            Promise<Channel> promise;
+            synchronized (this) {
+                do {
+                    promise = pendingAcquires.poll();
+                } while (promise != null && promise.isDone()); // e.g. cancelled
+            }
+            if (promise != null) {
+                final Promise<Channel> pending = promise;
+                bootstrap.config().group().next().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        acquire(pending);
+                    }
+                });
+            }
+        }
+        
+        /**
+         * Acquires and immediately releases sockets until the given number of sockets is idle in the pool.
+         */
+        void prewarm(int connections) {
+            int missing;
+            synchronized (this) {
+                missing = connections - idleChannels.size();
+                int maxConnections = GlobalProperties.INSTANCE.getHttpPoolMaxConnections();
+                if (maxConnections > 0) {
+                    missing = Math.min(missing, maxConnections - openChannels);
+                }
+            }
+            if (missing <= 0) {
+                return;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Pre-warming " + missing + " HTTP channels towards " + remoteAddress.getAddress());
+            }
+            /* acquire them all before releasing any, otherwise the same socket would be reused */
+            final List<Future<Channel>> futures = new ArrayList<Future<Channel>>(missing);
+            for (int i = 0; i < missing; i++) {
+                futures.add(acquire());
+            }
+            for (Future<Channel> future : futures) {
+                future.addListener(new FutureListener<Channel>() {
+                    @Override
+                    public void operationComplete(Future<Channel> future) throws Exception {
+                        if (future.isSuccess()) {
+                            release(future.getNow());
+                        } else if (log.isDebugEnabled()) {
+                            log.debug("HTTP channel pre-warming failed: " + future.cause());
+                        }
+                    }
+                });
+            }
+        }
+        
+        @Override
+        public void close() {
+            List<Promise<Channel>> pending;
+            synchronized (this) {
+                pending = new ArrayList<Promise<Channel>>(pendingAcquires);
+                pendingAcquires.clear();
+            }
+            for (Promise<Channel> promise : pending) {
+                promise.tryFailure(new IllegalStateException("HTTP channel pool closed"));
+            }
+            super.close();
+        }
+        
+        synchronized HttpPoolStatistics getStatistics() {
+            return new HttpPoolStatistics(remoteAddress.getHost(), remoteAddress.getPort(), remoteAddress.isSecure(),
+                    openChannels, idleChannels.size(), pendingAcquires.size(), 
+                    counters.created.get(), counters.evicted.get(), counters.unhealthy.get(),
+                    counters.tlsHandshakes.get(), counters.tlsResumedHandshakes.get());
+        }
     }
-}
\ No newline at end of file
+}
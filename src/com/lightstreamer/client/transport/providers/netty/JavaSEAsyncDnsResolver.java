@@ -0,0 +1,291 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.netty;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.dns.DefaultDnsCache;
+import io.netty.resolver.dns.DnsAddressResolverGroup;
+import io.netty.resolver.dns.DnsCache;
+import io.netty.resolver.dns.DnsCacheEntry;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+
+/**
+ * Java SE implementation of {@link AsyncDnsResolver} based on the DNS resolver of Netty.
+ * <p>
+ * The resolutions are cached for the TTL of the records (but no more than {@link #MAX_TTL_SECONDS});
+ * the failures are cached for {@link #NEGATIVE_TTL_SECONDS}. The cache is shared by the resolvers of all the event loops.
+ * The names resolved in the last {@link #HOT_WINDOW_MS} milliseconds are resolved again in background shortly before
+ * they expire, so that the opening of a socket does not wait for a DNS query. The refresh doesn't go through
+ * the cache: the new addresses replace the previous ones only when it succeeds, otherwise the previous addresses
+ * are kept until they expire.
+ */
+public class JavaSEAsyncDnsResolver implements AsyncDnsResolver {
+
+    static final int MAX_TTL_SECONDS = 3600;
+    static final int NEGATIVE_TTL_SECONDS = 5;
+    static final long HOT_WINDOW_MS = 10 * 60 * 1000;
+    /**
+     * Time before the expiration of a hot name when it is resolved again.
+     */
+    static final long REFRESH_AHEAD_MS = 5000;
+
+    private static final Logger log = LogManager.getLogger(Constants.NETTY_POOL_LOG);
+
+    private final RefreshingDnsCache cache = new RefreshingDnsCache();
+    private final RefreshDnsCache refreshCache = new RefreshDnsCache();
+    /**
+     * The resolvers used for the refreshes, by event loop: they share {@link #refreshCache} instead of {@link #cache}.
+     */
+    private final ConcurrentMap<EventLoop, DnsNameResolver> refreshResolvers = new ConcurrentHashMap<>();
+    private final DnsAddressResolverGroup group;
+
+    public JavaSEAsyncDnsResolver() {
+        DnsNameResolverBuilder builder = new DnsNameResolverBuilder()
+                .channelType(NioDatagramChannel.class)
+                .resolveCache(cache);
+        group = new DnsAddressResolverGroup(builder);
+    }
+
+    @Override
+    public AddressResolverGroup<InetSocketAddress> getResolverGroup() {
+        return group;
+    }
+
+    @Override
+    public void preresolve(final InetSocketAddress address, EventLoop eventLoop) {
+        if (log.isDebugEnabled()) {
+            log.debug("Resolving " + address.getHostString() + " in advance");
+        }
+        group.getResolver(eventLoop).resolve(address).addListener(new FutureListener<InetSocketAddress>() {
+            @Override
+            public void operationComplete(Future<InetSocketAddress> future) throws Exception {
+                if (! future.isSuccess()) {
+                    log.warn("Cannot resolve " + address.getHostString() + ": " + future.cause());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        group.close();
+        for (DnsNameResolver resolver : refreshResolvers.values()) {
+            resolver.close();
+        }
+        refreshResolvers.clear();
+        cache.clear();
+    }
+
+    /**
+     * Resolves again a hot name, bypassing the cache, and replaces its cached addresses if the resolution succeeds.
+     */
+    private void refresh(final String hostname, final EventLoop eventLoop) {
+        DnsNameResolver resolver = refreshResolvers.get(eventLoop);
+        if (resolver == null) {
+            resolver = new DnsNameResolverBuilder(eventLoop)
+                    .channelType(NioDatagramChannel.class)
+                    .resolveCache(refreshCache)
+                    .build();
+            DnsNameResolver prev = refreshResolvers.putIfAbsent(eventLoop, resolver);
+            if (prev != null) {
+                resolver.close();
+                resolver = prev;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Refreshing the resolution of " + hostname);
+        }
+        refreshCache.start(hostname);
+        resolver.resolveAll(hostname).addListener(new FutureListener<List<InetAddress>>() {
+            @Override
+            public void operationComplete(Future<List<InetAddress>> future) throws Exception {
+                List<Resolved> resolved = refreshCache.finish(hostname);
+                if (future.isSuccess() && ! resolved.isEmpty()) {
+                    cache.replace(hostname, resolved, eventLoop);
+                } else {
+                    log.warn("Cannot refresh the resolution of " + hostname + ": " + future.cause());
+                }
+            }
+        });
+    }
+
+    /**
+     * An address obtained by a refresh, with its TTL.
+     */
+    private static class Resolved {
+        final InetAddress address;
+        final long ttl;
+
+        Resolved(InetAddress address, long ttl) {
+            this.address = address;
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * DNS cache which keeps track of the use of the names and schedules the refresh of the hot ones.
+     */
+    private class RefreshingDnsCache implements DnsCache {
+
+        private final DefaultDnsCache delegate = new DefaultDnsCache(0, MAX_TTL_SECONDS, NEGATIVE_TTL_SECONDS);
+        /**
+         * Time of the last lookup of each name.
+         */
+        private final ConcurrentMap<String, Long> lastUse = new ConcurrentHashMap<>();
+        /**
+         * Names whose refresh is scheduled.
+         */
+        private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<>();
+        /**
+         * Expiration time of the addresses of each name.
+         */
+        private final ConcurrentMap<String, Long> expiration = new ConcurrentHashMap<>();
+
+        @Override
+        public void clear() {
+            delegate.clear();
+            lastUse.clear();
+            expiration.clear();
+        }
+
+        @Override
+        public boolean clear(String hostname) {
+            return delegate.clear(hostname);
+        }
+
+        @Override
+        public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+            lastUse.put(hostname, System.currentTimeMillis());
+            synchronized (this) {
+                // the addresses replaced by a refresh are either all old or all new
+                return delegate.get(hostname, additionals);
+            }
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address, long originalTtl, EventLoop loop) {
+            DnsCacheEntry entry = delegate.cache(hostname, additionals, address, originalTtl, loop);
+            long ttlMs = TimeUnit.SECONDS.toMillis(Math.min(originalTtl, MAX_TTL_SECONDS));
+            if (ttlMs > 0) {
+                expiration.put(hostname, System.currentTimeMillis() + ttlMs);
+                scheduleRefresh(hostname, ttlMs - Math.min(REFRESH_AHEAD_MS, ttlMs / 2), loop);
+            }
+            return entry;
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+            return delegate.cache(hostname, additionals, cause, loop);
+        }
+
+        /**
+         * Replaces the addresses of a name with the ones obtained by a successful refresh.
+         */
+        void replace(String hostname, List<Resolved> resolved, EventLoop loop) {
+            synchronized (this) {
+                delegate.clear(hostname);
+                for (Resolved entry : resolved) {
+                    cache(hostname, null, entry.address, entry.ttl, loop);
+                }
+            }
+        }
+
+        private void scheduleRefresh(final String hostname, long delayMs, final EventLoop loop) {
+            if (refreshing.putIfAbsent(hostname, Boolean.TRUE) != null) {
+                return;
+            }
+            loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    refreshing.remove(hostname);
+                    Long used = lastUse.get(hostname);
+                    if (used != null && System.currentTimeMillis() - used < HOT_WINDOW_MS) {
+                        refresh(hostname, loop);
+                    } else {
+                        lastUse.remove(hostname);
+                        expiration.remove(hostname);
+                    }
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * DNS cache of the refresh resolvers: it never answers, so that the names are always queried,
+     * and collects the addresses of the refreshes in progress.
+     */
+    private static class RefreshDnsCache implements DnsCache {
+
+        private final ConcurrentMap<String, List<Resolved>> pending = new ConcurrentHashMap<>();
+
+        void start(String hostname) {
+            pending.put(hostname, new ArrayList<Resolved>());
+        }
+
+        List<Resolved> finish(String hostname) {
+            List<Resolved> resolved = pending.remove(hostname);
+            return resolved == null ? new ArrayList<Resolved>() : resolved;
+        }
+
+        @Override
+        public void clear() {
+            pending.clear();
+        }
+
+        @Override
+        public boolean clear(String hostname) {
+            return false;
+        }
+
+        @Override
+        public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+            return null;
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address, long originalTtl, EventLoop loop) {
+            List<Resolved> resolved = pending.get(hostname);
+            if (resolved != null) {
+                // on the event loop of the refresh resolver, like finish()
+                resolved.add(new Resolved(address, originalTtl));
+            }
+            return null;
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+            return null;
+        }
+    }
+}
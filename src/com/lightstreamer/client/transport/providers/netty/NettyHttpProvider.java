@@ -151,7 +151,11 @@ public class NettyHttpProvider implements HttpProvider {
     
     NettyInterruptionHandler interruptionHandler = new NettyInterruptionHandler();
     
-    bind(uri,target,httpListener,httpRequest, interruptionHandler);
+    if (secure && ! httpPoolManager.isHttp1Only(target)) {
+        bindStream(uri, target, httpListener, httpRequest, interruptionHandler);
+    } else {
+        bind(uri,target,httpListener,httpRequest, interruptionHandler);
+    }
     
     return interruptionHandler;
   }
@@ -161,7 +165,20 @@ public class NettyHttpProvider implements HttpProvider {
           log.debug("HTTP transport connection establishing (oid=" + objectId + "): " + format(uri, httpRequest));
       }
       Future<Channel> channelFuture = httpPoolManager.acquire(target);
-      FutureBind binding = new FutureBind(uri, httpListener, target,httpRequest, interruptionHandler);
+      FutureBind binding = new FutureBind(uri, httpListener, target,httpRequest, interruptionHandler, false);
+      channelFuture.addListener(binding);
+  }
+  
+  /**
+   * Sends the request on a new stream of the HTTP/2 connection towards the target.
+   * If HTTP/2 is not available, the request is sent as by {@link #bind}.
+   */
+  private void bindStream(URI uri, NettyFullAddress target, HttpRequestListener httpListener, FullHttpRequest httpRequest, NettyInterruptionHandler interruptionHandler) {
+      if (log.isDebugEnabled()) {
+          log.debug("HTTP/2 transport stream opening (oid=" + objectId + "): " + format(uri, httpRequest));
+      }
+      Future<Channel> channelFuture = httpPoolManager.openStream(target);
+      FutureBind binding = new FutureBind(uri, httpListener, target,httpRequest, interruptionHandler, true);
       channelFuture.addListener(binding);
   }
   
@@ -172,8 +189,13 @@ public class NettyHttpProvider implements HttpProvider {
     private final FullHttpRequest httpRequest;
     private final NettyInterruptionHandler interruptionHandler;
     private final URI uri;
+    /**
+     * True if the channel is a stream of a HTTP/2 connection.
+     */
+    private final boolean stream;
 
-    FutureBind(URI uri, HttpRequestListener httpListener, NettyFullAddress target, FullHttpRequest httpRequest, NettyInterruptionHandler interruptionHandler) {
+    FutureBind(URI uri, HttpRequestListener httpListener, NettyFullAddress target, FullHttpRequest httpRequest, NettyInterruptionHandler interruptionHandler, boolean stream) {
+      this.stream = stream;
       this.httpListener = httpListener;
       this.target = target;
       this.httpRequest = httpRequest;
@@ -197,7 +219,7 @@ public class NettyHttpProvider implements HttpProvider {
         if (future.isSuccess()) {
             final Channel ch = future.getNow();
 
-            final NettyRequestListener requestListener = new NettyRequestListener(httpListener,target,ch,httpPoolManager);
+            final NettyRequestListener requestListener = new NettyRequestListener(httpListener,target,ch,stream ? null : httpPoolManager);
 
             if (interruptionHandler.isInterrupted()) {
                 if (log.isDebugEnabled()) {
@@ -254,6 +276,13 @@ public class NettyHttpProvider implements HttpProvider {
                 }
                 return;
             }
+            if (stream) {
+                if (log.isDebugEnabled()) {
+                    log.debug("HTTP/2 transport stream error (" + future.cause() + "), falling back to HTTP/1.1 (oid=" + objectId + "): " + format(uri, httpRequest));
+                }
+                bind(uri, target, httpListener, httpRequest, interruptionHandler);
+                return;
+            }
             if (log.isDebugEnabled()) {
                 log.debug("HTTP transport connection error (Couldn't get a socket, try again) (oid=" + objectId + "): " + format(uri, httpRequest));
             }
@@ -15,11 +15,23 @@
 
 package com.lightstreamer.client.transport.providers.netty;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.client.HttpPoolStatistics;
+import com.lightstreamer.client.Proxy;
 import com.lightstreamer.client.session.SessionThread;
 import com.lightstreamer.client.transport.providers.HttpProvider;
 import com.lightstreamer.client.transport.providers.TransportFactory;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.GlobalProperties;
 
 public class NettyHttpProviderFactory extends TransportFactory<HttpProvider> {
+  
+  private static final Logger log = LogManager.getLogger(Constants.NETTY_POOL_LOG);
 
   @Override
   public HttpProvider getInstance(SessionThread thread) {
@@ -30,4 +42,55 @@ public class NettyHttpProviderFactory extends TransportFactory<HttpProvider> {
   public boolean isResponseBuffered() {
       return false;
   }
+
+  @Override
+  public void prewarm(String serverAddress, Proxy proxy) {
+      prewarm(serverAddress, proxy, GlobalProperties.INSTANCE.getHttpPoolPrewarmConnections());
+  }
+  
+  @Override
+  public void prewarm(String serverAddress, Proxy proxy, int connections) {
+      if (connections <= 0) {
+          return;
+      }
+      NettyFullAddress address = toFullAddress(serverAddress, proxy);
+      if (address == null) {
+          log.warn("Cannot pre-warm sockets towards " + serverAddress);
+          return;
+      }
+      SingletonFactory.instance.getHttpPool().prewarm(address, connections);
+  }
+  
+  @Override
+  public void preresolve(String serverAddress, Proxy proxy) {
+      if (! GlobalProperties.INSTANCE.isAsyncDnsResolverEnabled()) {
+          return;
+      }
+      NettyFullAddress address = toFullAddress(serverAddress, proxy);
+      if (address == null) {
+          log.warn("Cannot resolve " + serverAddress);
+          return;
+      }
+      SingletonFactory.instance.getHttpPool().preresolve(address);
+  }
+  
+  /**
+   * Returns the pool key of the server address, or null if the address is malformed.
+   */
+  private static NettyFullAddress toFullAddress(String serverAddress, Proxy proxy) {
+      URI uri;
+      try {
+          uri = new URI(serverAddress);
+      } catch (URISyntaxException e) {
+          return null;
+      }
+      boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+      int port = uri.getPort() == -1 ? (secure ? 443 : 80) : uri.getPort();
+      return new NettyFullAddress(secure, uri.getHost(), port, proxy);
+  }
+  
+  @Override
+  public List<HttpPoolStatistics> getPoolStatistics() {
+      return SingletonFactory.instance.getHttpPool().getStatistics();
+  }
 }
@@ -22,7 +22,8 @@ import com.lightstreamer.client.transport.providers.HttpProvider.HttpRequestList
 
 /**
  * Wraps a {@link HttpRequestListener} and its socket.
- * When the request has been completed, the socket is returned to the pool.
+ * When the request has been completed, the socket is returned to the pool
+ * (or closed, if it is a stream of a HTTP/2 connection).
  */
 public class NettyRequestListener implements RequestListener {
   
@@ -34,6 +35,9 @@ public class NettyRequestListener implements RequestListener {
   private Channel ch;
   private final HttpPoolManager channelPool;
 
+  /**
+   * @param channelPool the pool of the socket, or null if the socket is a stream of a HTTP/2 connection
+   */
   public NettyRequestListener(HttpRequestListener listener, NettyFullAddress target, Channel ch, HttpPoolManager channelPool) {
     this.wrapped = listener;
     this.target = target;
@@ -67,7 +71,12 @@ public class NettyRequestListener implements RequestListener {
       this.closedCalled = true;
       wrapped.onClosed();
       
-      channelPool.release(target, ch);
+      if (channelPool != null) {
+        channelPool.release(target, ch);
+      } else {
+        // the stream is over
+        ch.close();
+      }
     }
   }
 
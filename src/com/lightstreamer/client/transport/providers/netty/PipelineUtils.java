@@ -18,7 +18,6 @@ package com.lightstreamer.client.transport.providers.netty;
 import java.io.IOException;
 
 import com.lightstreamer.client.transport.providers.netty.pool.WebSocketPoolManager;
-import com.lightstreamer.util.GlobalProperties;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
@@ -26,10 +25,9 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketClientCompressionHandler;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import io.netty.handler.proxy.ProxyHandler;
 import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.SslProvider;
 
 /**
  * Utilities managing the pipeline of channels living in a pool where channel created to send HTTP request can be
@@ -72,15 +70,12 @@ public class PipelineUtils {
             ch.pipeline().addLast("proxy", proxy);
         }
 
-        SslContext sslCtx = null;
         if (remoteAddress.isSecure()) {
-            SslContextBuilder builder = SslContextBuilder.forClient();
-            builder.sslProvider(SslProvider.JDK);
-            if (GlobalProperties.INSTANCE.getTrustManagerFactory() != null) {
-                builder.trustManager(GlobalProperties.INSTANCE.getTrustManagerFactory());
-            }
-            sslCtx = builder.build();
-
+            /*
+             * the context is shared by the channels towards the same address, so that they can resume the TLS session
+             * of one another (NB the JDK looks for a session to resume by host and port) 
+             */
+            SslContext sslCtx = TlsContextCache.INSTANCE.getContext(remoteAddress);
             ch.pipeline().addLast("ssl", sslCtx.newHandler(ch.alloc(),
                 remoteAddress.getHost(), remoteAddress.getPort()));
         }
@@ -89,6 +84,15 @@ public class PipelineUtils {
         ch.pipeline().addLast(READER_KEY, httpChHandler);
     }
     
+    /**
+     * Populates the pipeline of a stream of a HTTP/2 connection in order to read data as from a HTTP/1.1 connection
+     * (see {@link Http2Connections}).
+     */
+    public static void populateHttp2StreamPipeline(Channel ch, ChannelHandler httpChHandler) {
+        ch.pipeline().addLast("http2", new Http2StreamFrameToHttpObjectCodec(false));
+        ch.pipeline().addLast(READER_KEY, httpChHandler);
+    }
+    
     /**
      * Populates the channel pipeline in order to upgrade a connection to WebSocket.
      */
@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) Lightstreamer Srl
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.lightstreamer.client.transport.providers.netty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManagerFactory;
+
+import com.lightstreamer.client.Constants;
+import com.lightstreamer.log.LogManager;
+import com.lightstreamer.log.Logger;
+import com.lightstreamer.util.GlobalProperties;
+
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+
+/**
+ * TLS contexts shared by all the sockets towards the same Server address.
+ * <p>
+ * Since the TLS sessions are cached by the context, sharing it lets a new socket (e.g. the one opened by a reconnection
+ * or by a pool that has run out of idle sockets) resume the session of a previous one, through a session ID or a session ticket
+ * (or a pre-shared key on TLS 1.3), thus saving the asymmetric cryptography of a full handshake.
+ * <p>
+ * The sockets which propose HTTP/2 use a distinct context (see {@link #getHttp2Context(NettyFullAddress)}).
+ * <p>
+ * No more than {@link #MAX_ADDRESSES} addresses are kept (the least recently used ones are discarded)
+ * and each context keeps no more than {@link #MAX_SESSIONS} sessions.
+ */
+@ThreadSafe
+public class TlsContextCache {
+
+    public static final TlsContextCache INSTANCE = new TlsContextCache();
+
+    static final int MAX_ADDRESSES = 64;
+    static final int MAX_SESSIONS = 32;
+
+    private static final Logger log = LogManager.getLogger(Constants.NETTY_POOL_LOG);
+
+    private final LinkedHashMap<NettyFullAddress, CachedContext> contexts = new LinkedHashMap<NettyFullAddress, CachedContext>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<NettyFullAddress, CachedContext> eldest) {
+            return size() > MAX_ADDRESSES;
+        }
+    };
+
+    private TlsContextCache() {}
+
+    /**
+     * Returns the TLS context of the given address, creating it if needed.
+     */
+    public SslContext getContext(NettyFullAddress address) throws SSLException {
+        TrustManagerFactory trustManagerFactory = GlobalProperties.INSTANCE.getTrustManagerFactory();
+        synchronized (this) {
+            CachedContext entry = getEntry(address, trustManagerFactory);
+            if (entry.context == null) {
+                entry.context = newContext(trustManagerFactory, false);
+            }
+            return entry.context;
+        }
+    }
+
+    /**
+     * Returns the TLS context of the given address which proposes HTTP/2 (and HTTP/1.1) through ALPN, creating it if needed.
+     * 
+     * @throws UnsupportedOperationException if ALPN is not supported by the JVM
+     */
+    public SslContext getHttp2Context(NettyFullAddress address) throws SSLException {
+        TrustManagerFactory trustManagerFactory = GlobalProperties.INSTANCE.getTrustManagerFactory();
+        synchronized (this) {
+            CachedContext entry = getEntry(address, trustManagerFactory);
+            if (entry.http2Context == null) {
+                entry.http2Context = newContext(trustManagerFactory, true);
+            }
+            return entry.http2Context;
+        }
+    }
+
+    private CachedContext getEntry(NettyFullAddress address, TrustManagerFactory trustManagerFactory) {
+        assert Thread.holdsLock(this);
+        CachedContext entry = contexts.get(address);
+        if (entry == null || entry.trustManagerFactory != trustManagerFactory) {
+            entry = new CachedContext(trustManagerFactory);
+            contexts.put(address, entry);
+            if (log.isDebugEnabled()) {
+                log.debug("New TLS context created. Remote address: " + address.getAddress());
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns whether the handshake of a socket started at the given time has resumed a previous session
+     * instead of creating a new one.
+     */
+    public static boolean isResumed(SSLSession session, long handshakeStartTime) {
+        return session.getCreationTime() < handshakeStartTime;
+    }
+
+    private static SslContext newContext(TrustManagerFactory trustManagerFactory, boolean http2) throws SSLException {
+        SslContextBuilder builder = SslContextBuilder.forClient();
+        builder.sslProvider(SslProvider.JDK);
+        if (trustManagerFactory != null) {
+            builder.trustManager(trustManagerFactory);
+        }
+        if (http2) {
+            builder.applicationProtocolConfig(new ApplicationProtocolConfig(
+                    ApplicationProtocolConfig.Protocol.ALPN,
+                    ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                    ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                    ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1));
+        }
+        builder.sessionCacheSize(MAX_SESSIONS);
+        return builder.build();
+    }
+
+    /**
+     * The contexts of an address, created when first needed.
+     */
+    private static class CachedContext {
+        final TrustManagerFactory trustManagerFactory;
+        SslContext context;
+        SslContext http2Context;
+
+        CachedContext(TrustManagerFactory trustManagerFactory) {
+            this.trustManagerFactory = trustManagerFactory;
+        }
+    }
+}
@@ -53,6 +53,52 @@ public class EncodingUtils {
         }
     }
     
+    /**
+     * Decodes a string in the standard Base64 encoding (RFC 4648), with or without padding.
+     *
+     * @throws IllegalArgumentException if the string is not a valid Base64 encoding.
+     */
+    public static byte[] decodeBase64(String s) {
+        assert s != null;
+        int len = s.length();
+        while (len > 0 && s.charAt(len - 1) == '=') {
+            len--;
+        }
+        if (len % 4 == 1 || s.length() - len > 2) {
+            throw new IllegalArgumentException("Invalid Base64 length");
+        }
+        byte[] bb = new byte[len * 3 / 4];
+        int buf = 0, bits = 0, j = 0;
+        for (int i = 0; i < len; i++) {
+            buf = (buf << 6) | base64ToNum(s.charAt(i));
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                bb[j++] = (byte) (buf >> bits);
+            }
+        }
+        assert j == bb.length;
+        return bb;
+    }
+
+    /**
+     * Converts a Base64 digit in its numeric value.
+     */
+    private static int base64ToNum(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '+') {
+            return 62;
+        } else if (c == '/') {
+            return 63;
+        }
+        throw new IllegalArgumentException("Invalid Base64 digit: " + c);
+    }
+
     /**
      * Converts an ASCII-encoded hex digit in its numeric value.
      */
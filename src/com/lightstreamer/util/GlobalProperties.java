@@ -18,6 +18,8 @@ package com.lightstreamer.util;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.net.ssl.TrustManagerFactory;
 
+import com.lightstreamer.client.Constants;
+
 /**
  * Singleton class storing global properties affecting the behavior of the library.
  * 
@@ -31,6 +33,23 @@ public class GlobalProperties {
     
     private TrustManagerFactory trustManagerFactory;
     
+    /*
+     * Configuration of the HTTP socket pools (0 means unlimited/disabled)
+     */
+    private int httpPoolMaxConnections = 0;
+    private long httpPoolIdleTimeout = Constants.CLOSE_SOCKET_TIMEOUT_MILLIS;
+    private long httpPoolHealthCheckInterval = 0;
+    private int httpPoolPrewarmConnections = 0;
+    private boolean asyncDnsResolverEnabled = false;
+    private boolean http2Enabled = false;
+    
+    /*
+     * Configuration of the JVM-wide pacing of the session creation and recovery attempts (0 means disabled)
+     */
+    private double sessionAttemptRate = 0;
+    private int sessionAttemptBurst = 10;
+    private int sessionAttemptConcurrency = 0;
+    
     private GlobalProperties() {}
 
     public synchronized TrustManagerFactory getTrustManagerFactory() {
@@ -40,4 +59,76 @@ public class GlobalProperties {
     public synchronized void setTrustManagerFactory(TrustManagerFactory trustManagerFactory) {
         this.trustManagerFactory = trustManagerFactory;
     }
+
+    public synchronized int getHttpPoolMaxConnections() {
+        return httpPoolMaxConnections;
+    }
+
+    public synchronized void setHttpPoolMaxConnections(int httpPoolMaxConnections) {
+        this.httpPoolMaxConnections = httpPoolMaxConnections;
+    }
+
+    public synchronized long getHttpPoolIdleTimeout() {
+        return httpPoolIdleTimeout;
+    }
+
+    public synchronized void setHttpPoolIdleTimeout(long httpPoolIdleTimeout) {
+        this.httpPoolIdleTimeout = httpPoolIdleTimeout;
+    }
+
+    public synchronized long getHttpPoolHealthCheckInterval() {
+        return httpPoolHealthCheckInterval;
+    }
+
+    public synchronized void setHttpPoolHealthCheckInterval(long httpPoolHealthCheckInterval) {
+        this.httpPoolHealthCheckInterval = httpPoolHealthCheckInterval;
+    }
+
+    public synchronized int getHttpPoolPrewarmConnections() {
+        return httpPoolPrewarmConnections;
+    }
+
+    public synchronized void setHttpPoolPrewarmConnections(int httpPoolPrewarmConnections) {
+        this.httpPoolPrewarmConnections = httpPoolPrewarmConnections;
+    }
+
+    public synchronized boolean isAsyncDnsResolverEnabled() {
+        return asyncDnsResolverEnabled;
+    }
+
+    public synchronized void setAsyncDnsResolverEnabled(boolean asyncDnsResolverEnabled) {
+        this.asyncDnsResolverEnabled = asyncDnsResolverEnabled;
+    }
+
+    public synchronized boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public synchronized void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    public synchronized double getSessionAttemptRate() {
+        return sessionAttemptRate;
+    }
+
+    public synchronized void setSessionAttemptRate(double sessionAttemptRate) {
+        this.sessionAttemptRate = sessionAttemptRate;
+    }
+
+    public synchronized int getSessionAttemptBurst() {
+        return sessionAttemptBurst;
+    }
+
+    public synchronized void setSessionAttemptBurst(int sessionAttemptBurst) {
+        this.sessionAttemptBurst = sessionAttemptBurst;
+    }
+
+    public synchronized int getSessionAttemptConcurrency() {
+        return sessionAttemptConcurrency;
+    }
+
+    public synchronized void setSessionAttemptConcurrency(int sessionAttemptConcurrency) {
+        this.sessionAttemptConcurrency = sessionAttemptConcurrency;
+    }
 }